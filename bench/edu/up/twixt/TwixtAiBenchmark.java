@@ -0,0 +1,111 @@
+package edu.up.twixt;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+
+/**
+ * Benchmarks of the computer players on the positions of TwixtBenchmarkPositions.
+ *
+ * The player activities cannot be created off a device, so the benchmarks call the strategies they
+ * delegate to. calculateMove() is measured the way the activities run it, move placement included,
+ * so the position is loaded again before every call. chooseCell() is only the thinking part and leaves
+ * the board alone. The searching AIs use a fixed number of playouts or a fixed depth rather than a
+ * time limit, so that they do the same work every time.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TwixtAiBenchmark {
+
+	@Param({"0", "1", "2", "3"})
+	public int position;
+
+	private GameConfig config;
+	private TwixtGame game;
+	private int toMove;
+	private TwixtBoard board;
+
+	private TwixtEasyStrategy easy = new TwixtEasyStrategy();
+	private TwixtSmartStrategy smart = new TwixtSmartStrategy();
+	private TwixtMctsSearch mcts = new TwixtMctsSearch(1000, 0, new Random(1));
+	private TwixtAlphaBetaSearch alphaBeta = new TwixtAlphaBetaSearch(0, 2, null);
+
+	@Setup
+	public void setUp(){
+		GamePlayerType[] playerTypes = {new GamePlayerType("Benchmark", false, TwixtEasyComputerPlayer.class.getName())};
+		config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 0);
+		game = TwixtBenchmarkPositions.game(config, position);
+		toMove = TwixtComputerStrategy.teamOf(game);
+		board = TwixtBenchmarkPositions.board(position);
+	}
+
+	/**
+	 * Puts the position back after calculateMove() has added a peg to it.
+	 */
+	@Setup(Level.Invocation)
+	public void reload(){
+		game = TwixtBenchmarkPositions.game(config, position);
+	}
+
+	@Benchmark
+	public GameAction easyCalculateMove(){
+		return easy.calculateMove(game);
+	}
+
+	@Benchmark
+	public GameAction smartCalculateMove(){
+		return smart.calculateMove(game);
+	}
+
+	@Benchmark
+	public int easyChooseCell(){
+		return easy.chooseCell(board, toMove);
+	}
+
+	@Benchmark
+	public int smartChooseCell(){
+		return smart.chooseCell(board, toMove);
+	}
+
+	/**
+	 * 1000 playouts of the MCTS AI on one thread.
+	 */
+	@Benchmark
+	public int mctsFindMove(){
+		return mcts.findMove(board, toMove);
+	}
+
+	/**
+	 * A two-ply alpha-beta search with no transposition table.
+	 */
+	@Benchmark
+	public int alphaBetaFindMove(){
+		return alphaBeta.findMove(board, toMove);
+	}
+}
@@ -0,0 +1,116 @@
+package edu.up.twixt;
+
+import java.util.Random;
+
+import edu.up.game.GameConfig;
+
+/**
+ * A fixed corpus of mid-game positions for the benchmarks. Each position is made by playing random legal
+ * moves from a fixed seed, so every run of the benchmarks sees exactly the same boards. Positions where
+ * somebody has already won are skipped.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtBenchmarkPositions {
+
+	/**
+	 * number of pegs on the board in each position of the corpus
+	 */
+	public static final int[] PEG_COUNTS = {10, 30, 60, 100};
+
+	//seed of the first position; the others follow
+	private static final long SEED = 20121203L;
+
+	//the moves of each position, in the order they were played; light moves first
+	private static final int[][] MOVES = new int[PEG_COUNTS.length][];
+
+	static{
+		long seed = SEED;
+		for(int i = 0; i < PEG_COUNTS.length; ++i){
+			int[] moves = null;
+			while(moves == null){
+				moves = play(new Random(seed++), PEG_COUNTS[i]);
+			}
+			MOVES[i] = moves;
+		}
+	}
+
+	/**
+	 * Returns the number of positions in the corpus.
+	 */
+	public static int size(){
+		return MOVES.length;
+	}
+
+	/**
+	 * Returns a position of the corpus on a board of its own.
+	 * @param index	Which position
+	 * @return	A new board holding the position
+	 */
+	public static TwixtBoard board(int index){
+		TwixtBoard board = new TwixtBoard();
+		int team = TwixtPiece.LIGHT_PEG;
+		for(int move : MOVES[index]){
+			board.placePegAndBridges(team, move);
+			team = 1 - team;
+		}
+		return board;
+	}
+
+	/**
+	 * This method creates a game holding a position of the corpus, placing the pegs through the piece
+	 * views the same way the players do so that the win check is kept up to date too.
+	 * @param config	The configuration of the game; the first player is the light team
+	 * @param index	Which position
+	 * @return	A new game with the position on its board and the right player to move
+	 */
+	public static TwixtGame game(GameConfig config, int index){
+		//the game starts on the turn of whoever made the last move, which is ended below
+		int lastToMove = (MOVES[index].length % 2 == 0) ? 1 : 0;
+		TwixtGame game = new TwixtGame(config, lastToMove);
+		TwixtPiece[][] pieceMatrix = game.getBoardState();
+		TwixtBoard board = game.getBoard();
+		int team = TwixtPiece.LIGHT_PEG;
+		for(int move : MOVES[index]){
+			int rowToAdd = move / TwixtGame.NUM_PEGS;
+			int colToAdd = move % TwixtGame.NUM_PEGS;
+			pieceMatrix[rowToAdd][colToAdd].setPlayerType(team);
+			pieceMatrix[rowToAdd][colToAdd].setAsPermanent();
+			for(int k = 0; k < TwixtBoard.KNIGHT_ROW.length; ++k){
+				int row = rowToAdd + TwixtBoard.KNIGHT_ROW[k];
+				int col = colToAdd + TwixtBoard.KNIGHT_COL[k];
+				if(board.canPlaceBridge(rowToAdd, colToAdd, row, col)){
+					pieceMatrix[rowToAdd][colToAdd].addConnection(pieceMatrix[row][col]);
+				}
+			}
+			team = 1 - team;
+		}
+		game.endTurn();
+		return game;
+	}
+
+	//plays random moves until there are pegs pegs on the board; null if somebody wins first
+	private static int[] play(Random random, int pegs){
+		TwixtBoard board = new TwixtBoard();
+		int[] moves = new int[pegs];
+		int[] legal = new int[TwixtBoard.NUM_CELLS];
+		int team = TwixtPiece.LIGHT_PEG;
+		for(int i = 0; i < pegs; ++i){
+			int count = 0;
+			for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+				if(board.canPlacePeg(team, cell)){
+					legal[count++] = cell;
+				}
+			}
+			moves[i] = legal[random.nextInt(count)];
+			board.placePegAndBridges(team, moves[i]);
+			if(board.hasWon(team)){
+				return null;
+			}
+			team = 1 - team;
+		}
+		return moves;
+	}
+}
@@ -0,0 +1,34 @@
+package edu.up.twixt;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler, which adds the allocation rate (bytes per operation)
+ * to every result.
+ *
+ * The benchmarks live in their own source folder (bench) so the Android build never sees JMH. To run
+ * them, compile src and bench together against jmh-core, jmh-generator-annprocess (as the annotation
+ * processor) and the android.jar of the target platform, then run this class:
+ * <pre>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar:android.jar -d build/bench $(find src bench -name '*.java')
+ * java -cp build/bench:jmh-core.jar:jopt-simple.jar:commons-math3.jar:android.jar edu.up.twixt.TwixtBenchmarks [regexp]
+ * </pre>
+ * The optional regexp picks which benchmarks run, e.g. TwixtGameBenchmark or isGameOver.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtBenchmarks {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = (args.length > 0) ? args[0] : "edu\\.up\\.twixt\\.Twixt.*Benchmark";
+		new Runner(new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
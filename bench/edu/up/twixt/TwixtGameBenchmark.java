@@ -0,0 +1,115 @@
+package edu.up.twixt;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+
+/**
+ * Benchmarks of the game-state paths that run on every turn: setting up the board, the win check,
+ * ending a turn, and the old floating-point bridge crossing test. Each one runs on every position of
+ * TwixtBenchmarkPositions.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TwixtGameBenchmark {
+
+	@Param({"0", "1", "2", "3"})
+	public int position;
+
+	private TwixtGame game;
+	private EndTurnAction endTurn;
+
+	//a bridge of the position and a bridge next to it, in screen coordinates
+	private double[] lines = new double[8];
+
+	@Setup
+	public void setUp(){
+		GamePlayerType[] playerTypes = {new GamePlayerType("Benchmark", false, TwixtEasyComputerPlayer.class.getName())};
+		GameConfig config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 0);
+		game = TwixtBenchmarkPositions.game(config, position);
+		endTurn = new EndTurnAction(0);
+
+		TwixtBoard board = game.getBoard();
+		int id = Math.max(0, board.nextBridge(0));
+		int start = TwixtBoard.bridgeStart(id);
+		int end = TwixtBoard.bridgeEnd(id);
+		BoardGeometry geometry = BoardGeometry.forSize(TwixtHumanPlayer.BOARD_SIZE);
+		lines[0] = geometry.centerX(start % TwixtGame.NUM_PEGS);
+		lines[1] = geometry.centerY(start / TwixtGame.NUM_PEGS);
+		lines[2] = geometry.centerX(end % TwixtGame.NUM_PEGS);
+		lines[3] = geometry.centerY(end / TwixtGame.NUM_PEGS);
+		lines[4] = lines[0] + BoardSurfaceView.CENT_DIST;
+		lines[5] = lines[1];
+		lines[6] = lines[2] - BoardSurfaceView.CENT_DIST;
+		lines[7] = lines[3];
+	}
+
+	/**
+	 * Clearing the board at the start of every game. The other benchmarks get their position
+	 * back from setUp, which JMH runs again for each of them.
+	 */
+	@Benchmark
+	public void initializeBoard(){
+		game.initializeBoard();
+	}
+
+	@Benchmark
+	public boolean isGameOver(){
+		return game.isGameOver();
+	}
+
+	/**
+	 * Ending a turn goes through applyAction into endTurn, which walks the whole board.
+	 */
+	@Benchmark
+	public void applyEndTurn(){
+		game.applyAction(endTurn);
+	}
+
+	@Benchmark
+	public boolean linesIntersect(){
+		return TwixtHumanPlayer.linesIntersect(lines[0], lines[1], lines[2], lines[3],
+				lines[4], lines[5], lines[6], lines[7]);
+	}
+
+	/**
+	 * The bitboard test that replaced linesIntersect, for comparison.
+	 */
+	@Benchmark
+	public void canPlaceBridge(Blackhole blackhole){
+		TwixtBoard board = game.getBoard();
+		for(int cell = board.nextPeg(TwixtPiece.LIGHT_PEG, 0); cell >= 0;
+				cell = board.nextPeg(TwixtPiece.LIGHT_PEG, cell+1)){
+			int row = cell / TwixtGame.NUM_PEGS;
+			int col = cell % TwixtGame.NUM_PEGS;
+			for(int k = 0; k < TwixtBoard.KNIGHT_ROW.length; ++k){
+				blackhole.consume(board.canPlaceBridge(row, col, row + TwixtBoard.KNIGHT_ROW[k],
+						col + TwixtBoard.KNIGHT_COL[k]));
+			}
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package edu.up.twixt;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameComputerExecutor;
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+import edu.up.game.LoopbackTransport;
+import edu.up.game.ProxyGame;
+import edu.up.game.ProxyObject;
+
+/**
+ * Plays Twixt games against remote players in one process, the way the app plays them across
+ * devices: the host runs a TwixtGame with a TwixtProxyPlayer standing in for the remote player, and
+ * the remote player is a TwixtProxyGame; both sides move with the random AI. They connect through a
+ * LoopbackTransport, so the handshake and the frames sent are the same as over the network, without
+ * the cost of the network. It reports how many games and moves per second were played, checks that
+ * every remote player's copy of the game matched the host's at the end, and checks that games end
+ * with a winner rather than at MAX_ACTIONS, which a broken AI or protocol would hide.
+ *
+ * It is run from the command line:
+ * <pre>
+ * java edu.up.twixt.TwixtLoopbackLoadTest [-games n] [-concurrent n] [-threads n] [-tcp]
+ * </pre>
+ * With -tcp the games connect over TCP on this machine instead, to compare.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtLoopbackLoadTest {
+
+	//the host name the remote players connect to; a loopback transport ignores it
+	private static final String HOST = "127.0.0.1";
+
+	//the configuration every game is created with: a local and a remote player
+	private GameConfig config;
+
+	//makes the moves of both sides
+	private ExecutorService movers;
+
+	//the games that may still be started before one ends
+	private Semaphore running;
+
+	//counted down as each game ends
+	private CountDownLatch done;
+
+	//number of moves made by both sides
+	private AtomicInteger moves = new AtomicInteger();
+
+	//number of games whose remote player ended with a different state, and that failed to finish
+	private AtomicInteger mismatched = new AtomicInteger();
+	private AtomicInteger failed = new AtomicInteger();
+
+	//number of games that ended with a winner
+	private AtomicInteger won = new AtomicInteger();
+
+	/**
+	 * Constructor
+	 * @param games	The number of games to play
+	 * @param concurrent	The most games played at once
+	 * @param threads	The number of threads that make the moves
+	 */
+	public TwixtLoopbackLoadTest(int games, int concurrent, int threads){
+		GamePlayerType[] playerTypes = new GamePlayerType[2];
+		playerTypes[0] = new GamePlayerType("Host AI", false, TwixtEasyStrategy.class.getName());
+		playerTypes[1] = new GamePlayerType("Remote Player", true, TwixtProxyPlayer.class.getName());
+		config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 1);
+		movers = Executors.newFixedThreadPool(threads);
+		running = new Semaphore(concurrent);
+		done = new CountDownLatch(games);
+	}
+
+	/**
+	 * This method starts the games, no more at once than allowed, and returns once the last has
+	 * started.
+	 * @param games	The number of games
+	 */
+	public void run(int games) throws InterruptedException {
+		for(int i = 0; i < games; ++i){
+			running.acquire();
+			new HostedGame().start();
+		}
+	}
+
+	/**
+	 * This method waits for every game to end.
+	 * @param seconds	The longest time to wait
+	 * @return	Whether every game ended in time
+	 */
+	public boolean await(long seconds) throws InterruptedException {
+		boolean finished = done.await(seconds, TimeUnit.SECONDS);
+		movers.shutdownNow();
+		return finished;
+	}
+
+	/**
+	 * Runs a task on the movers' threads, unless the test is over.
+	 */
+	private void execute(Runnable task){
+		try{
+			movers.execute(task);
+		}
+		catch(RejectedExecutionException e){
+			//the test is over; the connections are closing
+		}
+	}
+
+	/**
+	 * One game: the host's side, which plays the light team and asks its proxy player for the dark
+	 * team's moves, and the remote player it is played against.
+	 */
+	private class HostedGame implements GameComputerExecutor.Callback {
+
+		//the game, as the host runs it
+		private TwixtGame game = new TwixtGame(config, 0);
+
+		//stands in for the remote player
+		private TwixtProxyPlayer proxy = new TwixtProxyPlayer();
+
+		//the host's AI
+		private TwixtEasyStrategy ai = new TwixtEasyStrategy();
+
+		//the number of the last move asked for, and the number of actions applied
+		private int request = 0;
+		private int actions = 0;
+
+		//the hash of the remote player's state at the end, once the game is over
+		private volatile long finalHash;
+
+		/**
+		 * This method connects the remote player and makes the first moves.
+		 */
+		public void start(){
+			proxy.setGame(game, 1);
+			proxy.stateChanged(game.getPlayerState(1), null);
+			TwixtProxyGame remote = new TwixtProxyGame(HOST, config.getGameName());
+			if(!remote.isComplete()){
+				proxy.finishUp();
+				failed.incrementAndGet();
+				finished();
+				return;
+			}
+			RemotePlayer player = new RemotePlayer(this);
+			remote.setListener(player);
+			//the game may have changed before there was a listener to hear it
+			player.gameChanged(remote);
+			execute(new Runnable() {
+				public void run() {
+					play();
+				}
+			});
+		}
+
+		/**
+		 * This method makes the host's moves until it is the remote player's turn or the game is over.
+		 */
+		private synchronized void play(){
+			while(!game.isGameOver() && actions < TwixtHeadlessRunner.MAX_ACTIONS){
+				if(game.whoseTurn() == proxy.getId()){
+					proxy.requestMove(++request, this);
+					return;
+				}
+				apply(ai.calculateMove(game.getPlayerState(game.whoseTurn())));
+			}
+			if(game.isGameOver()){
+				won.incrementAndGet();
+			}
+			finalHash = TwixtCodec.syncHash((TwixtGame) game.getPlayerState(proxy.getId()));
+			proxy.gameIsOver();
+			proxy.finishUp();
+		}
+
+		/**
+		 * This method applies an action and tells the remote player about it.
+		 */
+		private void apply(GameAction action){
+			game.applyAction(action);
+			actions++;
+			moves.incrementAndGet();
+			proxy.stateChanged(game.getPlayerState(proxy.getId()), action);
+		}
+
+		/**
+		 * The remote player's move has arrived, on the network thread.
+		 */
+		public void moveCalculated(int playerIndex, int request, final GameAction action) {
+			execute(new Runnable() {
+				public void run() {
+					synchronized(HostedGame.this){
+						if(action == null || !game.isLegal(action)){
+							proxy.illegalMove();
+						}
+						else{
+							apply(action);
+						}
+					}
+					play();
+				}
+			});
+		}
+
+		/**
+		 * A proxy player only ever hands over moves, but should one fail, the game is given up; the
+		 * remote player sees the connection close and counts the game as failed.
+		 */
+		public void moveFailed(int playerIndex, int request, Throwable cause) {
+			proxy.finishUp();
+		}
+	}
+
+	/**
+	 * Plays the remote player's moves, and checks its state once the host has finished the game.
+	 */
+	private class RemotePlayer implements ProxyGame.Listener {
+
+		//the game this player plays in
+		private HostedGame host;
+
+		//the random AI
+		private TwixtEasyStrategy ai = new TwixtEasyStrategy();
+
+		//whether the end of the game has been counted
+		private boolean counted = false;
+
+		/**
+		 * Constructor
+		 * @param host	The host's side of the game
+		 */
+		public RemotePlayer(HostedGame host){
+			this.host = host;
+		}
+
+		public void gameChanged(final ProxyGame game) {
+			execute(new Runnable() {
+				public void run() {
+					move(game);
+				}
+			});
+		}
+
+		private synchronized void move(ProxyGame game){
+			if(counted){
+				return;
+			}
+			if(!game.isComplete()){
+				//the host has finished up, or the connection was lost
+				counted = true;
+				if(!game.isGameOver()){
+					failed.incrementAndGet();
+				}
+				else if(TwixtCodec.syncHash((TwixtGame) game.getLatestState()) != host.finalHash){
+					mismatched.incrementAndGet();
+				}
+				finished();
+				return;
+			}
+			if(game.takeMoveRequest()){
+				game.applyAction(ai.calculateMove(game.getPlayerState(game.whoseTurn())));
+			}
+		}
+	}
+
+	/**
+	 * Counts a game as ended, making room for another.
+	 */
+	private void finished(){
+		done.countDown();
+		running.release();
+	}
+
+	/**
+	 * Runs a load test and prints the results.
+	 */
+	public static void main(String[] args) throws Exception {
+		int games = 10000;
+		int concurrent = 500;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean tcp = false;
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-games")){
+				games = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-concurrent")){
+				concurrent = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-threads")){
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-tcp")){
+				tcp = true;
+			}
+			else{
+				System.err.println("usage: TwixtLoopbackLoadTest [-games n] [-concurrent n] [-threads n] [-tcp]");
+				System.exit(1);
+			}
+		}
+		if(!tcp){
+			ProxyObject.setDefaultTransport(new LoopbackTransport());
+		}
+
+		TwixtLoopbackLoadTest test = new TwixtLoopbackLoadTest(games, concurrent, threads);
+		long start = System.nanoTime();
+		test.run(games);
+		boolean finished = test.await(600);
+		long elapsed = Math.max(1, System.nanoTime() - start);
+
+		System.out.println((tcp ? "tcp: " : "loopback: ") + (finished ? "all games ended" : "timed out")
+				+ " after " + elapsed / 1000000 + " ms");
+		System.out.println(games + " games, " + (games * 1000000000L / elapsed) + " games/s; " + test.moves.get()
+				+ " moves, " + (test.moves.get() * 1000000000L / elapsed) + " moves/s");
+		System.out.println(test.won.get() + " games ended with a winner, the rest at " + TwixtHeadlessRunner.MAX_ACTIONS
+				+ " actions; " + test.mismatched.get() + " remote states differed from the host's, " + test.failed.get()
+				+ " games failed");
+		if(!finished || test.won.get() == 0 || test.mismatched.get() > 0 || test.failed.get() > 0){
+			System.exit(1);
+		}
+	}
+}
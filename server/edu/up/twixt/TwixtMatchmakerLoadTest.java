@@ -0,0 +1,185 @@
+package edu.up.twixt;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.up.game.Matchmaker;
+
+/**
+ * Loads a Matchmaker, as a TwixtServer uses it, with simulated players: they arrive from several
+ * threads at a steady rate, with ratings spread around the default rating the way Elo ratings are,
+ * and some give up and leave before they are matched. The waiting players are matched again every
+ * tenth of a second, like the server does. It reports how many players joined per second, how long
+ * the matched players waited, and how far apart the ratings of the players put together were.
+ *
+ * It is run from the command line:
+ * <pre>
+ * java edu.up.twixt.TwixtMatchmakerLoadTest [-players n] [-rate n] [-threads n] [-leave percent]
+ * </pre>
+ * A rate of 0 lets the players arrive as fast as the threads can add them.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtMatchmakerLoadTest {
+
+	//the ratings put together at once, and how fast the range widens, as on the server
+	private static final int BUCKET_WIDTH = 100;
+	private static final int WIDEN_MILLIS = 500;
+
+	//how often the waiting players are matched again
+	private static final int MATCH_INTERVAL_MILLIS = 100;
+
+	//the spread of the simulated ratings
+	private static final int RATING_DEVIATION = 350;
+
+	//the matchmaker under test; each player is its rating
+	private Matchmaker<Integer> matchmaker;
+
+	//matches the waiting players again, and makes the players who give up leave
+	private ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+
+	//number of players who left before they were matched
+	private AtomicInteger left = new AtomicInteger();
+
+	//total and largest difference of rating within a game
+	private AtomicLong totalGap = new AtomicLong();
+	private AtomicInteger largestGap = new AtomicInteger();
+
+	/**
+	 * Constructor creates the matchmaker and starts matching the waiting players every so often.
+	 */
+	public TwixtMatchmakerLoadTest(){
+		matchmaker = new Matchmaker<Integer>(2, BUCKET_WIDTH, WIDEN_MILLIS, new Matchmaker.Listener<Integer>() {
+			public void matched(List<Integer> players) {
+				int gap = Math.abs(players.get(0) - players.get(1));
+				totalGap.addAndGet(gap);
+				int largest = largestGap.get();
+				while(gap > largest && !largestGap.compareAndSet(largest, gap)){
+					largest = largestGap.get();
+				}
+			}
+		});
+		timer.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				matchmaker.matchWaiting();
+			}
+		}, MATCH_INTERVAL_MILLIS, MATCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * This method lets players arrive from several threads and waits until they have all joined.
+	 * @param count	The number of players
+	 * @param rate	The number of players arriving each second, or 0 for as fast as possible
+	 * @param threads	The number of threads the players arrive from
+	 * @param leavePercent	The percentage of players that give up and leave if they wait long
+	 */
+	public void run(int count, final int rate, final int threads, final int leavePercent) throws InterruptedException {
+		Thread[] arrivals = new Thread[threads];
+		for(int t = 0; t < threads; ++t){
+			final int share = count / threads + (t < count % threads ? 1 : 0);
+			final Random random = new Random(t);
+			arrivals[t] = new Thread(new Runnable() {
+				public void run() {
+					long start = System.nanoTime();
+					for(int i = 0; i < share; ++i){
+						//keep to this thread's share of the rate
+						if(rate > 0){
+							long due = start + i * 1000000000L * threads / rate;
+							long wait = due - System.nanoTime();
+							if(wait > 0){
+								try{
+									TimeUnit.NANOSECONDS.sleep(wait);
+								}
+								catch(InterruptedException e){
+									return;
+								}
+							}
+						}
+						int rating = (int)Math.max(0, Matchmaker.DEFAULT_RATING + random.nextGaussian() * RATING_DEVIATION);
+						final Matchmaker.Ticket<Integer> ticket = matchmaker.enqueue(rating, rating);
+						if(random.nextInt(100) < leavePercent){
+							//a player who gives up leaves after waiting a while, if it is still waiting
+							timer.schedule(new Runnable() {
+								public void run() {
+									if(matchmaker.cancel(ticket)){
+										left.incrementAndGet();
+									}
+								}
+							}, random.nextInt(4 * WIDEN_MILLIS), TimeUnit.MILLISECONDS);
+						}
+					}
+				}
+			}, "arrivals-" + t);
+		}
+		for(Thread arrival : arrivals){
+			arrival.start();
+		}
+		for(Thread arrival : arrivals){
+			arrival.join();
+		}
+	}
+
+	/**
+	 * This method waits for the players still waiting to be matched, as long as the longest wait
+	 * the matchmaker allows, and stops the timer.
+	 */
+	public void finish() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + matchmaker.getMaxWaitMillis() + 4 * WIDEN_MILLIS;
+		while(matchmaker.getWaitingCount() > 1 && System.currentTimeMillis() < deadline){
+			Thread.sleep(MATCH_INTERVAL_MILLIS);
+		}
+		timer.shutdownNow();
+	}
+
+	/**
+	 * Runs a load test and prints the results.
+	 */
+	public static void main(String[] args) throws Exception {
+		int count = 100000;
+		int rate = 5000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int leavePercent = 10;
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-players")){
+				count = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-rate")){
+				rate = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-threads")){
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-leave")){
+				leavePercent = Integer.parseInt(args[++i]);
+			}
+			else{
+				System.err.println("usage: TwixtMatchmakerLoadTest [-players n] [-rate n] [-threads n] [-leave percent]");
+				System.exit(1);
+			}
+		}
+
+		TwixtMatchmakerLoadTest test = new TwixtMatchmakerLoadTest();
+		long start = System.nanoTime();
+		test.run(count, rate, threads, leavePercent);
+		long elapsed = Math.max(1, System.nanoTime() - start);
+		test.finish();
+
+		Matchmaker<Integer> matchmaker = test.matchmaker;
+		long games = matchmaker.getGroupsFormed();
+		System.out.println(count + " players joined in " + elapsed / 1000000 + " ms, " + (count * 1000000000L / elapsed) + " per second");
+		System.out.println(games + " games, " + test.left.get() + " players left while waiting, "
+				+ matchmaker.getWaitingCount() + " still waiting");
+		System.out.println("wait: average " + matchmaker.getAverageWaitMillis() + " ms, longest "
+				+ matchmaker.getLongestWaitMillis() + " ms (at most " + matchmaker.getMaxWaitMillis() + " ms)");
+		if(games > 0){
+			System.out.println("rating gap: average " + test.totalGap.get() / games + ", largest " + test.largestGap.get());
+		}
+	}
+}
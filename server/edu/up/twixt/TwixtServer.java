@@ -0,0 +1,144 @@
+package edu.up.twixt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+import edu.up.game.GameServer;
+import edu.up.game.LocalGame;
+
+/**
+ * Hosts many two-player Twixt games at once for players on other devices. The players that connect
+ * are paired up by rating (see GameServer): the one that has waited longer is the light team and
+ * moves first. States and actions are
+ * written with TwixtCodec, exactly as TwixtProxyPlayer writes them, so the app's remote game can
+ * play on the server. Like the headless runner, a game that runs past MAX_ACTIONS is called a draw.
+ *
+ * It is run from the command line:
+ * <pre>
+ * java edu.up.twixt.TwixtServer [port] [threads]
+ * </pre>
+ * and prints what it is doing every few seconds.
+ *
+ * The server and its load tests live in their own source folder (server) so the app is built without
+ * them. To run them, compile src and server together against the android.jar of the target platform:
+ * <pre>
+ * javac -cp android.jar -d build/server $(find src server -name '*.java')
+ * java -cp build/server:android.jar edu.up.twixt.TwixtServer
+ * </pre>
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtServer extends GameServer {
+
+	//how often main prints the server's status
+	private static final long STATUS_MILLIS = 10000;
+
+	//the configuration every game is created with
+	private GameConfig config;
+
+	/**
+	 * Constructor
+	 * @param workerThreads	The number of threads the games run on
+	 * @throws IOException	if the network cannot be set up
+	 */
+	public TwixtServer(int workerThreads) throws IOException {
+		super(2, TwixtHeadlessRunner.MAX_ACTIONS, workerThreads);
+		GamePlayerType[] playerTypes = new GamePlayerType[1];
+		playerTypes[0] = new GamePlayerType("Remote Player", true, TwixtProxyPlayer.class.getName());
+		config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 0);
+	}
+
+	/**
+	 * Clients must be playing Twixt.
+	 */
+	@Override
+	protected String getGameName() {
+		return config.getGameName();
+	}
+
+	/**
+	 * Every game starts on an empty board with the light team to move.
+	 */
+	@Override
+	protected LocalGame createGame(int gameId) {
+		return new TwixtGame(config, 0);
+	}
+
+	/**
+	 * The state goes with its configuration, as TwixtProxyPlayer sends it.
+	 */
+	@Override
+	protected byte[] encodeState(LocalGame state) {
+		return TwixtCodec.encodeGame((TwixtGame) state);
+	}
+
+	/**
+	 * The action is decoded as TwixtProxyPlayer decodes it.
+	 */
+	@Override
+	protected GameAction decodeAction(ByteBuffer data) {
+		try{
+			return TwixtCodec.decodeAction(data);
+		}
+		catch(IllegalArgumentException e){
+			return null;
+		}
+	}
+
+	/**
+	 * After a move only the action is sent, as TwixtProxyPlayer sends it.
+	 */
+	@Override
+	protected byte[] encodeDelta(GameAction action) {
+		return TwixtCodec.encodeAction(action);
+	}
+
+	/**
+	 * The players check their copies against the same hash TwixtProxyPlayer sends.
+	 */
+	@Override
+	protected long hashState(LocalGame state) {
+		return TwixtCodec.syncHash((TwixtGame) state);
+	}
+
+	/**
+	 * Every player and spectator sees the whole game, so the game itself is hashed instead of a copy.
+	 */
+	@Override
+	protected long hashState(LocalGame game, int viewerIndex) {
+		return TwixtCodec.syncHash((TwixtGame) game);
+	}
+
+	/**
+	 * The game is a draw once neither team has a hole left to put a peg in.
+	 */
+	@Override
+	protected boolean isDrawn(LocalGame game) {
+		TwixtBoard board = ((TwixtGame)game).getBoard();
+		return !TwixtComputerStrategy.hasLegalMove(board, TwixtPiece.LIGHT_PEG)
+				&& !TwixtComputerStrategy.hasLegalMove(board, TwixtPiece.DARK_PEG);
+	}
+
+	/**
+	 * Runs the server until the process is killed.
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : TwixtProxyPlayer.ADM_PORT_NUM;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		TwixtServer server = new TwixtServer(threads);
+		server.start(port);
+		System.out.println("Twixt server listening on port " + server.getPort() + " with " + threads + " threads");
+		for(;;){
+			Thread.sleep(STATUS_MILLIS);
+			System.out.println(server.getStatus());
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package edu.up.twixt;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.up.game.Handshake;
+import edu.up.game.LocalGame;
+import edu.up.game.ProxyGame;
+
+/**
+ * Loads a TwixtServer with simulated players: each is a TwixtProxyGame, just like the app's remote
+ * game, whose moves are made by the random AI. It reports how many moves per second the server
+ * handled, the average time from sending a move to being asked for the next one (which includes
+ * the opponent's move), and how many games ended with a winner rather than being called off by the
+ * server; it fails if none did, since a test of games that never finish says little. Spectators may be added: they are spread over the games, each connecting
+ * just after a game's players and watching the game that began last, and report whether they saw
+ * their game to the end.
+ *
+ * It is run from the command line:
+ * <pre>
+ * java edu.up.twixt.TwixtServerLoadTest [-clients n] [-spectators n] [-host name] [-threads n] [-seconds n]
+ * </pre>
+ * Without -host, a server is started in the same process on a free port.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtServerLoadTest {
+
+	//the simulated players
+	private TwixtProxyGame[] clients;
+
+	//the spectators
+	private TwixtProxyGame[] spectators;
+
+	//makes the simulated players' moves
+	private ExecutorService movers;
+
+	//counted down as each simulated player's game ends
+	private CountDownLatch done;
+
+	//number of moves made by all simulated players
+	private AtomicInteger moves = new AtomicInteger();
+
+	//total time between sending a move and being asked for the next one, in nanoseconds
+	private AtomicLong answerNanos = new AtomicLong();
+
+	//number of answers timed
+	private AtomicInteger answers = new AtomicInteger();
+
+	//number of simulated players whose game ended with a winner (two per game)
+	private AtomicInteger won = new AtomicInteger();
+
+	//number of spectators that saw their game end, and that were turned away
+	private AtomicInteger watched = new AtomicInteger();
+	private AtomicInteger turnedAway = new AtomicInteger();
+
+	/**
+	 * Constructor connects the simulated players.
+	 * @param host	The server's host
+	 * @param count	The number of players (two per game)
+	 * @param spectatorCount	The number of spectators
+	 * @param threads	The number of threads that make the players' moves
+	 */
+	public TwixtServerLoadTest(String host, int count, int spectatorCount, int threads){
+		clients = new TwixtProxyGame[count];
+		spectators = new TwixtProxyGame[spectatorCount];
+		movers = Executors.newFixedThreadPool(threads);
+		done = new CountDownLatch(count + spectatorCount);
+		int watching = 0;
+		for(int i = 0; i < count; ++i){
+			clients[i] = new TwixtProxyGame(host, "Twixt");
+			SimulatedPlayer player = new SimulatedPlayer();
+			clients[i].setListener(player);
+			//the game may have begun before there was a listener to hear it
+			player.gameChanged(clients[i]);
+
+			//once a game has its players, its share of the spectators
+			for(int end = spectatorCount * (i + 1) / count; i % 2 == 1 && watching < end; ++watching){
+				spectators[watching] = new TwixtProxyGame(host, "Twixt", Handshake.spectate(-1));
+				Spectator spectator = new Spectator();
+				spectators[watching].setListener(spectator);
+				spectator.gameChanged(spectators[watching]);
+			}
+		}
+	}
+
+	/**
+	 * This method waits for every game to end.
+	 * @param seconds	The longest time to wait
+	 * @return	Whether every game ended in time
+	 */
+	public boolean await(long seconds) throws InterruptedException {
+		boolean finished = done.await(seconds, TimeUnit.SECONDS);
+		movers.shutdownNow();
+		return finished;
+	}
+
+	/**
+	 * Plays the moves of one simulated player, on the movers' threads.
+	 */
+	private class SimulatedPlayer implements ProxyGame.Listener {
+
+		//the random AI; only used by one mover at a time, since the server asks for one move at a time
+		private TwixtEasyStrategy ai = new TwixtEasyStrategy();
+
+		//when the last move was sent, or 0 if none
+		private volatile long sent = 0;
+
+		//whether the end of the game has been counted
+		private boolean counted = false;
+
+		public void gameChanged(final ProxyGame game) {
+			try{
+				movers.execute(new Runnable() {
+					public void run() {
+						move(game);
+					}
+				});
+			}
+			catch(RejectedExecutionException e){
+				//the test is over; the connections are closing
+			}
+		}
+
+		private synchronized void move(ProxyGame game){
+			if(!counted && (game.isGameOver() || !game.isComplete())){
+				counted = true;
+				//a game the server called off as a draw is over, but its state is not
+				LocalGame state = game.getLatestState();
+				if(state != null && state.isGameOver()){
+					won.incrementAndGet();
+				}
+				done.countDown();
+				return;
+			}
+			if(game.takeMoveRequest()){
+				long now = System.nanoTime();
+				if(sent != 0){
+					answerNanos.addAndGet(now - sent);
+					answers.incrementAndGet();
+				}
+				game.applyAction(ai.calculateMove(game.getPlayerState(game.whoseTurn())));
+				moves.incrementAndGet();
+				sent = System.nanoTime();
+			}
+		}
+	}
+
+	/**
+	 * Counts how a spectator's watching ends.
+	 */
+	private class Spectator implements ProxyGame.Listener {
+
+		//whether the end has been counted
+		private boolean counted = false;
+
+		public synchronized void gameChanged(ProxyGame game) {
+			if(counted){
+				return;
+			}
+			if(game.isGameOver()){
+				watched.incrementAndGet();
+			}
+			else if(game.getLatestState() == null && !game.isComplete()){
+				turnedAway.incrementAndGet();
+			}
+			else if(game.isComplete() || game.isReconnecting()){
+				return;
+			}
+			counted = true;
+			done.countDown();
+		}
+	}
+
+	/**
+	 * Runs a load test and prints the results.
+	 */
+	public static void main(String[] args) throws Exception {
+		int count = 1000;
+		int spectatorCount = 0;
+		String host = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seconds = 600;
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-clients")){
+				count = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-spectators")){
+				spectatorCount = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-host")){
+				host = args[++i];
+			}
+			else if(args[i].equals("-threads")){
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-seconds")){
+				seconds = Long.parseLong(args[++i]);
+			}
+			else{
+				System.err.println("usage: TwixtServerLoadTest [-clients n] [-spectators n] [-host name] [-threads n] [-seconds n]");
+				System.exit(1);
+			}
+		}
+
+		TwixtServer server = null;
+		if(host == null){
+			server = new TwixtServer(threads);
+			server.start(TwixtProxyPlayer.ADM_PORT_NUM);
+			host = "127.0.0.1";
+		}
+
+		long start = System.nanoTime();
+		TwixtServerLoadTest test = new TwixtServerLoadTest(host, count - count % 2, spectatorCount, threads);
+		long connected = System.nanoTime();
+		boolean finished = test.await(seconds);
+		long elapsed = Math.max(1, System.nanoTime() - connected);
+
+		System.out.println((count - count % 2) + " players connected in " + (connected - start) / 1000000 + " ms");
+		System.out.println((finished ? "all games ended" : "timed out") + " after " + elapsed / 1000000 + " ms");
+		int games = (count - count % 2) / 2;
+		int won = test.won.get() / 2;
+		System.out.println(test.moves.get() + " moves, " + (test.moves.get() * 1000000000L / elapsed) + " moves/s");
+		System.out.println(won + " of " + games + " games ended with a winner, "
+				+ (won * 1000000000L / elapsed) + " won games/s");
+		if(test.answers.get() > 0){
+			System.out.println("average answer " + (test.answerNanos.get() / test.answers.get() / 1000) + " us");
+		}
+		if(spectatorCount > 0){
+			System.out.println(spectatorCount + " spectators: " + test.watched.get() + " watched their game to the end, "
+					+ test.turnedAway.get() + " turned away");
+		}
+		if(server != null){
+			System.out.println("server: " + server.getStatus());
+			server.shutdown();
+		}
+		if(won == 0 && games > 0){
+			System.err.println("no game ended with a winner");
+			System.exit(1);
+		}
+	}
+}
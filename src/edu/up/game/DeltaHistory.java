@@ -0,0 +1,91 @@
+package edu.up.game;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DeltaHistory class
+ * <P>
+ * The frames of the last few changes sent to a remote player, by sequence
+ * number, so that a player who lost the connection for a moment can be sent
+ * just the changes it missed when it comes back, instead of the whole state.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+class DeltaHistory {
+
+	/** the frames of the changes, in a ring */
+	private final ByteBuffer[] frames;
+
+	/** the number of the newest state */
+	private int newest = 0;
+
+	/** the number of changes kept, up to the newest state */
+	private int count = 0;
+
+	/**
+	 * constructor
+	 *
+	 * @param capacity
+	 *            the number of changes to keep
+	 */
+	DeltaHistory(int capacity) {
+		frames = new ByteBuffer[capacity];
+	}
+
+	/**
+	 * add
+	 *
+	 * keeps the frame of a change
+	 *
+	 * @param seq
+	 *            the number of the state the change leads to
+	 * @param frame
+	 *            the frame that was sent
+	 */
+	void add(int seq, ByteBuffer frame) {
+		if (seq != newest + 1) {
+			count = 0;
+		}
+		newest = seq;
+		frames[seq % frames.length] = frame;
+		count = Math.min(count + 1, frames.length);
+	}
+
+	/**
+	 * reset
+	 *
+	 * forgets the changes, because the state numbered seq was sent whole
+	 * rather than as a change
+	 *
+	 * @param seq
+	 *            the number of the state
+	 */
+	void reset(int seq) {
+		newest = seq;
+		count = 0;
+	}
+
+	/**
+	 * framesAfter
+	 *
+	 * @param seq
+	 *            the number of the state a player has
+	 * @return the frames that bring it up to date, or null if they are no
+	 *         longer (or never were) kept
+	 */
+	List<ByteBuffer> framesAfter(int seq) {
+		if (seq > newest || seq < newest - count) {
+			return null;
+		}
+		List<ByteBuffer> missed = new ArrayList<ByteBuffer>(newest - seq);
+		for (int i = seq + 1; i <= newest; ++i) {
+			missed.add(frames[i % frames.length]);
+		}
+		return missed;
+	}
+
+}// class DeltaHistory
@@ -0,0 +1,257 @@
+package edu.up.game;
+
+/**
+ * EloStatistics class
+ * <P>
+ * Keeps the wins, draws and losses of one player against another and turns
+ * them into an Elo difference with a 95% confidence interval, the likelihood
+ * of superiority, and a sequential probability ratio test (SPRT) that tells
+ * when enough games have been played to decide between two hypotheses about
+ * the Elo difference.
+ * <P>
+ * The SPRT uses the usual normal approximation of the log-likelihood ratio,
+ * which needs nothing but the score and its variance.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class EloStatistics {
+
+	/** SPRT outcome: the player is not stronger by elo1 (H0 accepted) */
+	public static final int SPRT_H0 = -1;
+
+	/** SPRT outcome: more games are needed */
+	public static final int SPRT_CONTINUE = 0;
+
+	/** SPRT outcome: the player is stronger by elo1 (H1 accepted) */
+	public static final int SPRT_H1 = 1;
+
+	/** z value of a two-sided 95% interval */
+	private static final double Z_95 = 1.959963984540054;
+
+	/** results from the player's point of view */
+	private int wins;
+	private int draws;
+	private int losses;
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/** records a game the player won */
+	public synchronized void addWin() {
+		wins++;
+	}
+
+	/** records a drawn game */
+	public synchronized void addDraw() {
+		draws++;
+	}
+
+	/** records a game the player lost */
+	public synchronized void addLoss() {
+		losses++;
+	}
+
+	/** @return the number of games won */
+	public synchronized int getWins() {
+		return wins;
+	}
+
+	/** @return the number of games drawn */
+	public synchronized int getDraws() {
+		return draws;
+	}
+
+	/** @return the number of games lost */
+	public synchronized int getLosses() {
+		return losses;
+	}
+
+	/** @return the number of games played */
+	public synchronized int getGames() {
+		return wins + draws + losses;
+	}
+
+	/**
+	 * @return the fraction of the points the player scored (a draw is half a
+	 *         point), or 0.5 if no games have been played
+	 */
+	public synchronized double getScore() {
+		int games = getGames();
+		return (games == 0) ? 0.5 : (wins + 0.5 * draws) / games;
+	}
+
+	/**
+	 * @return the Elo difference that matches the score
+	 */
+	public synchronized double getElo() {
+		return eloOf(getScore());
+	}
+
+	/**
+	 * @return half the width of the 95% confidence interval of the Elo
+	 *         difference (the interval is not symmetric in Elo; this is the
+	 *         larger side)
+	 */
+	public synchronized double getEloError() {
+		int games = getGames();
+		if (games == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double score = getScore();
+		double variance = variance();
+		if (variance == 0) {
+			// all games had the same result; as in llr, fall back on the
+			// variance of a drawless match, here at the score we would have
+			// with one more win and one more loss, so the interval does not
+			// shrink to nothing
+			double adjusted = (wins + 0.5 * draws + 1) / (games + 2);
+			variance = adjusted * (1 - adjusted);
+		}
+		double error = Z_95 * Math.sqrt(variance / games);
+		double elo = eloOf(score);
+		return Math.max(eloOf(score + error) - elo, elo - eloOf(score - error));
+	}
+
+	/**
+	 * @return the likelihood of superiority: how sure we can be that the
+	 *         player is the stronger one (draws are ignored)
+	 */
+	public synchronized double getLos() {
+		if (wins + losses == 0) {
+			return 0.5;
+		}
+		return 0.5 * (1 + erf((wins - losses) / Math.sqrt(2.0 * (wins + losses))));
+	}
+
+	/**
+	 * llr
+	 *
+	 * @param elo0
+	 *            the Elo difference under H0
+	 * @param elo1
+	 *            the Elo difference under H1
+	 * @return the log-likelihood ratio of H1 against H0
+	 */
+	public synchronized double llr(double elo0, double elo1) {
+		int games = getGames();
+		if (games == 0) {
+			return 0;
+		}
+		double score0 = scoreOf(elo0);
+		double score1 = scoreOf(elo1);
+		double variance = variance();
+		if (variance == 0) {
+			// all games had the same result; fall back on the variance of a
+			// drawless match between the two hypotheses so the test can end
+			double middle = (score0 + score1) / 2;
+			variance = middle * (1 - middle);
+		}
+		return games * (score1 - score0) * (2 * getScore() - score0 - score1)
+				/ (2 * variance);
+	}
+
+	/**
+	 * sprt
+	 *
+	 * runs the sequential probability ratio test on the games so far
+	 *
+	 * @param elo0
+	 *            the Elo difference under H0
+	 * @param elo1
+	 *            the Elo difference under H1
+	 * @param alpha
+	 *            the chance of accepting H1 when H0 is true
+	 * @param beta
+	 *            the chance of accepting H0 when H1 is true
+	 * @return SPRT_H0, SPRT_H1 or SPRT_CONTINUE
+	 */
+	public synchronized int sprt(double elo0, double elo1, double alpha,
+			double beta) {
+		double llr = llr(elo0, elo1);
+		if (llr >= Math.log((1 - beta) / alpha)) {
+			return SPRT_H1;
+		}
+		if (llr <= Math.log(beta / (1 - alpha))) {
+			return SPRT_H0;
+		}
+		return SPRT_CONTINUE;
+	}
+
+	/**
+	 * toString
+	 *
+	 * @return wins, draws, losses and the Elo difference
+	 */
+	@Override
+	public synchronized String toString() {
+		return "+" + wins + " =" + draws + " -" + losses + "  Elo "
+				+ format(getElo()) + " +/- " + format(getEloError())
+				+ "  LOS " + Math.round(getLos() * 100) + "%";
+	}
+
+	/*
+	 * ====================================================================
+	 * Static Helpers
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * @return the Elo difference that gives the expected score (clamped so
+	 *         that a perfect score gives a large but finite number)
+	 */
+	public static double eloOf(double score) {
+		score = Math.max(1e-6, Math.min(1 - 1e-6, score));
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * @return the expected score of a player who is elo points stronger
+	 */
+	public static double scoreOf(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// variance of the result of a single game
+	private double variance() {
+		int games = getGames();
+		if (games == 0) {
+			return 0;
+		}
+		double score = getScore();
+		return (wins * (1 - score) * (1 - score) + draws * (0.5 - score)
+				* (0.5 - score) + losses * score * score)
+				/ games;
+	}
+
+	// error function (Abramowitz and Stegun 7.1.26, good to 1.5e-7)
+	private static double erf(double x) {
+		double t = 1 / (1 + 0.3275911 * Math.abs(x));
+		double y = 1 - t
+				* (0.254829592 + t
+						* (-0.284496736 + t
+								* (1.421413741 + t
+										* (-1.453152027 + t * 1.061405429))))
+				* Math.exp(-x * x);
+		return (x >= 0) ? y : -y;
+	}
+
+	// one decimal place is plenty for Elo
+	private static String format(double value) {
+		if (Double.isInfinite(value)) {
+			return "inf";
+		}
+		return String.valueOf(Math.round(value * 10) / 10.0);
+	}
+
+}// class EloStatistics
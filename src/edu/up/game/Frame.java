@@ -0,0 +1,233 @@
+package edu.up.game;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * Frame class
+ * <P>
+ * The messages exchanged by a {@link ProxyGame} and the {@link ProxyPlayer}
+ * or {@link GameServer} it plays on. Each is a frame of
+ *
+ * <pre>
+ * type (one byte) | payload length (varint) | payload
+ * </pre>
+ *
+ * where the varint is written as by {@link GameDataWriter}, so a frame
+ * shorter than 128 bytes has a two-byte header. Numbers in a payload have a
+ * fixed width (four bytes for an int, eight for a long, high byte first), so
+ * they can be read straight out of the buffer the frame arrived in;
+ * encoded states, changes and actions are carried as the bytes the game's
+ * codec wrote. A frame with no payload of type {@link #HEARTBEAT} only
+ * keeps the connection alive.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public final class Frame {
+
+	/** the longest payload accepted; a longer one closes the connection */
+	public static final int MAX_PAYLOAD = 1 << 20;
+
+	/** nothing: keeps the connection alive */
+	public static final int HEARTBEAT = 0;
+
+	/** a client introduces itself (see {@link Handshake}) */
+	public static final int HELLO = 1;
+
+	/** the host accepts a client (see {@link Handshake}) */
+	public static final int WELCOME = 2;
+
+	/** the host turns a client away: the reason, as text */
+	public static final int REJECT = 3;
+
+	/** the whole state: its number (int) and the encoded state */
+	public static final int STATE = 4;
+
+	/**
+	 * a change of the state: the number of the new state (int), its hash
+	 * (long) and the encoded change
+	 */
+	public static final int DELTA = 5;
+
+	/** the player's position in the game (int) */
+	public static final int SET_GAME = 6;
+
+	/** it is the player's move in the state numbered (int) */
+	public static final int REQUEST_MOVE = 7;
+
+	/** the game has ended */
+	public static final int GAME_IS_OVER = 8;
+
+	/** the game is shutting down */
+	public static final int FINISH_UP = 9;
+
+	/** the player moved out of turn */
+	public static final int NOT_YOUR_MOVE = 10;
+
+	/** the player's move was not valid */
+	public static final int ILLEGAL_MOVE = 11;
+
+	/** a game-specific message, as text */
+	public static final int MESSAGE = 12;
+
+	/** the player's action, encoded */
+	public static final int ACTION = 13;
+
+	/** the player's copy of the state is wrong: send the whole state */
+	public static final int RESYNC = 14;
+
+	/**
+	 * the player has come back with the state numbered (int), or -1 if it
+	 * has none it trusts
+	 */
+	public static final int RESUME = 15;
+
+	/**
+	 * constructor; everything is static
+	 */
+	private Frame() {
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * allocate
+	 *
+	 * @param type
+	 *            the type of the frame
+	 * @param payloadLength
+	 *            the length of the payload
+	 * @return a buffer exactly as long as the frame, with the header written
+	 *         and positioned at the payload; once the payload has been put,
+	 *         it is flipped and sent
+	 */
+	public static ByteBuffer allocate(int type, int payloadLength) {
+		if (payloadLength < 0 || payloadLength > MAX_PAYLOAD) {
+			throw new IllegalArgumentException("bad payload length: "
+					+ payloadLength);
+		}
+		int header = 2;
+		for (int rest = payloadLength >>> 7; rest != 0; rest >>>= 7) {
+			header++;
+		}
+		ByteBuffer frame = ByteBuffer.allocate(header + payloadLength);
+		frame.put((byte) type);
+		int rest = payloadLength;
+		while ((rest & ~0x7F) != 0) {
+			frame.put((byte) ((rest & 0x7F) | 0x80));
+			rest >>>= 7;
+		}
+		frame.put((byte) rest);
+		return frame;
+	}
+
+	/**
+	 * empty
+	 *
+	 * @param type
+	 *            the type of the frame
+	 * @return a frame with no payload, ready to send
+	 */
+	public static ByteBuffer empty(int type) {
+		return (ByteBuffer) allocate(type, 0).flip();
+	}
+
+	/**
+	 * ofInt
+	 *
+	 * @param type
+	 *            the type of the frame
+	 * @param value
+	 *            the payload
+	 * @return a frame holding one int, ready to send
+	 */
+	public static ByteBuffer ofInt(int type, int value) {
+		return (ByteBuffer) allocate(type, 4).putInt(value).flip();
+	}
+
+	/**
+	 * ofBytes
+	 *
+	 * @param type
+	 *            the type of the frame
+	 * @param data
+	 *            the payload
+	 * @return a frame holding the bytes, ready to send
+	 */
+	public static ByteBuffer ofBytes(int type, byte[] data) {
+		return (ByteBuffer) allocate(type, data.length).put(data).flip();
+	}
+
+	/**
+	 * ofText
+	 *
+	 * @param type
+	 *            the type of the frame
+	 * @param text
+	 *            the payload
+	 * @return a frame holding the text in UTF-8, ready to send
+	 */
+	public static ByteBuffer ofText(int type, String text) {
+		try {
+			return ofBytes(type, text.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			// every Java platform supports UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * state
+	 *
+	 * @param seq
+	 *            the number of the state
+	 * @param state
+	 *            the encoded state
+	 * @return a {@link #STATE} frame, ready to send
+	 */
+	public static ByteBuffer state(int seq, byte[] state) {
+		return (ByteBuffer) allocate(STATE, 4 + state.length).putInt(seq)
+				.put(state).flip();
+	}
+
+	/**
+	 * delta
+	 *
+	 * @param seq
+	 *            the number of the state the change leads to
+	 * @param hash
+	 *            the hash of that state
+	 * @param delta
+	 *            the encoded change
+	 * @return a {@link #DELTA} frame, ready to send
+	 */
+	public static ByteBuffer delta(int seq, long hash, byte[] delta) {
+		return (ByteBuffer) allocate(DELTA, 12 + delta.length).putInt(seq)
+				.putLong(hash).put(delta).flip();
+	}
+
+	/**
+	 * readText
+	 *
+	 * @param payload
+	 *            the payload of a frame holding text
+	 * @return the text
+	 */
+	public static String readText(ByteBuffer payload) {
+		try {
+			String text = new String(payload.array(), payload.arrayOffset()
+					+ payload.position(), payload.remaining(), "UTF-8");
+			payload.position(payload.limit());
+			return text;
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}// class Frame
@@ -0,0 +1,139 @@
+package edu.up.game;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * GameComputerExecutor class
+ * <P>
+ * Runs computer players inside the main game's process instead of starting a
+ * {@link GameComputerPlayer} activity for every move. The player is a plain
+ * {@link GameComputerStrategy}; it is handed its state directly, thinks on a
+ * background thread, and its action comes back through a {@link Callback}.
+ * Nothing is serialized on the way in or out.
+ * <P>
+ * Moves are calculated one at a time on a single thread, which is all a turn-
+ * based game needs. A strategy that wants more threads (for example a
+ * parallel search) starts its own.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class GameComputerExecutor {
+
+	/**
+	 * Callback
+	 * <P>
+	 * receives the action a computer player has calculated (or a remote
+	 * player has sent, see {@link ProxyPlayer}), or hears that the player
+	 * failed to calculate one. It is called on the executor's (or the
+	 * network's) thread, so an activity has to hand the action over to its
+	 * UI thread itself.
+	 */
+	public interface Callback {
+
+		/**
+		 * moveCalculated
+		 *
+		 * @param playerIndex
+		 *            the player the move was requested for
+		 * @param request
+		 *            the number the caller gave the request
+		 * @param action
+		 *            the player's action; never null
+		 */
+		public void moveCalculated(int playerIndex, int request,
+				GameAction action);
+
+		/**
+		 * moveFailed
+		 *
+		 * @param playerIndex
+		 *            the player the move was requested for
+		 * @param request
+		 *            the number the caller gave the request
+		 * @param cause
+		 *            what went wrong: the exception the player threw, or
+		 *            an IllegalStateException if it returned no action
+		 */
+		public void moveFailed(int playerIndex, int request, Throwable cause);
+
+	}// interface Callback
+
+	/** runs the strategies */
+	private final ExecutorService executor;
+
+	/**
+	 * constructor
+	 */
+	public GameComputerExecutor() {
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				// a computer player thinking must never keep the process alive
+				Thread thread = new Thread(runnable, "GameComputerExecutor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * requestMove
+	 *
+	 * asks a computer player for its move in the background
+	 *
+	 * @param strategy
+	 *            the computer player
+	 * @param state
+	 *            the game state as seen by the player; the player may change
+	 *            it, so it must not be the game itself
+	 * @param playerIndex
+	 *            the player whose move it is
+	 * @param request
+	 *            a number identifying the request, passed back to the
+	 *            callback so that answers to stale requests can be told
+	 *            apart
+	 * @param callback
+	 *            receives the action, or hears that there is none
+	 */
+	public void requestMove(final GameComputerStrategy strategy,
+			final LocalGame state, final int playerIndex, final int request,
+			final Callback callback) {
+		executor.execute(new Runnable() {
+			public void run() {
+				GameAction action;
+				try {
+					action = strategy.calculateMove(state);
+				} catch (RuntimeException e) {
+					callback.moveFailed(playerIndex, request, e);
+					return;
+				}
+				if (action == null) {
+					callback.moveFailed(playerIndex, request,
+							new IllegalStateException("no action calculated"));
+					return;
+				}
+				callback.moveCalculated(playerIndex, request, action);
+			}
+		});
+	}
+
+	/**
+	 * shutdown
+	 *
+	 * stops the executor's thread, interrupting the move being calculated (if
+	 * any); moves requested but not yet started are dropped
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}// class GameComputerExecutor
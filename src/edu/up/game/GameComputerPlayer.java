@@ -21,6 +21,18 @@ public abstract class GameComputerPlayer extends Activity implements GamePlayer
 	 */
 	protected LocalGame game;
 
+	/**
+	 * the default memory budget of the transposition table, in megabytes
+	 */
+	public static final int DEFAULT_TRANSPOSITION_TABLE_MEGABYTES = 16;
+
+	/**
+	 * the transposition table shared by every move this process calculates
+	 * (the activity is created anew for each move, so it cannot live in an
+	 * instance variable)
+	 */
+	private static TranspositionTable transpositionTable;
+
 	/*
 	 * ====================================================================
 	 * Abstract Methods
@@ -40,6 +52,58 @@ public abstract class GameComputerPlayer extends Activity implements GamePlayer
 	 */
 	protected abstract GameAction calculateMove();
 
+	/*
+	 * ====================================================================
+	 * Transposition Table
+	 * 
+	 * Searching AIs can remember positions between moves with the table
+	 * returned by getTranspositionTable. Override
+	 * getTranspositionTableMegabytes to change how much memory it may use.
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * getTranspositionTableMegabytes
+	 * 
+	 * @return the most memory the transposition table may use, in megabytes
+	 */
+	protected int getTranspositionTableMegabytes() {
+		return DEFAULT_TRANSPOSITION_TABLE_MEGABYTES;
+	}
+
+	/**
+	 * getTranspositionTable
+	 * 
+	 * returns the transposition table, creating it the first time it is
+	 * needed or whenever the memory budget changes
+	 * 
+	 * @return the transposition table
+	 */
+	protected TranspositionTable getTranspositionTable() {
+		return getSharedTranspositionTable(getTranspositionTableMegabytes());
+	}
+
+	/**
+	 * getSharedTranspositionTable
+	 * 
+	 * returns the transposition table shared by the whole process, so that
+	 * computer players run outside an activity (see
+	 * {@link GameComputerExecutor}) can use the same one
+	 * 
+	 * @param megabytes
+	 *            the most memory the table may use; the table is created
+	 *            anew if it was made with a different budget
+	 * @return the transposition table
+	 */
+	public static synchronized TranspositionTable getSharedTranspositionTable(
+			int megabytes) {
+		if (transpositionTable == null
+				|| transpositionTable.getMegabytes() != megabytes) {
+			transpositionTable = new TranspositionTable(megabytes);
+		}
+		return transpositionTable;
+	}
+
 	/*
 	 * ====================================================================
 	 * Public Methods
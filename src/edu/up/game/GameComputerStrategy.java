@@ -0,0 +1,26 @@
+package edu.up.game;
+
+/**
+ * The thinking part of a computerized game player, kept apart from the
+ * Android activity ({@link GameComputerPlayer}) that runs it on a device. A
+ * strategy uses no Android classes, so the same AI can also be run by a
+ * {@link HeadlessGameRunner} on any Java machine.
+ * 
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public interface GameComputerStrategy {
+
+	/**
+	 * calculateMove
+	 * 
+	 * calculates what action the agent will take given the current game state
+	 * 
+	 * @param game
+	 *            the game state as seen by the player whose turn it is
+	 * @return a complete, initialized action defining the agent's move
+	 */
+	public GameAction calculateMove(LocalGame game);
+
+}// interface GameComputerStrategy
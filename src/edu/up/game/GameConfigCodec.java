@@ -0,0 +1,228 @@
+package edu.up.game;
+
+/**
+ * GameConfigCodec class
+ * <P>
+ * Compact binary encoding of a {@link GameConfig}, as an alternative to Java
+ * serialization for Intent extras, the network and disk. Games use the same
+ * header (see {@link #writeHeader}) and the same {@link GameDataWriter} for
+ * their own state and actions, and can embed a configuration with
+ * {@link #writeConfig}.
+ * <P>
+ * Every encoded message starts with a three-byte header: a magic byte that
+ * says which codec wrote it, a version byte, and a byte that says what kind of
+ * data follows. A message written by a newer version is refused rather than
+ * misread.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class GameConfigCodec {
+
+	/** magic byte of messages written by this codec ('G') */
+	public static final int MAGIC = 0x47;
+
+	/** version of the encoding written */
+	public static final int VERSION = 1;
+
+	/** kind of message: a game configuration */
+	public static final int KIND_CONFIG = 1;
+
+	// bits of the flags byte
+	private static final int FLAG_LOCAL = 1;
+	private static final int FLAG_USER_MODIFIABLE = 2;
+
+	// no instances; everything is static
+	private GameConfigCodec() {
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * encode
+	 *
+	 * @param config
+	 *            the configuration
+	 * @return the configuration as a message of its own
+	 */
+	public static byte[] encode(GameConfig config) {
+		GameDataWriter writer = new GameDataWriter();
+		writeHeader(writer, MAGIC, VERSION, KIND_CONFIG);
+		writeConfig(writer, config);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * decode
+	 *
+	 * @param data
+	 *            a message written by encode
+	 * @return the configuration
+	 * @throws IllegalArgumentException
+	 *             if the data is not a valid message
+	 */
+	public static GameConfig decode(byte[] data) {
+		GameDataReader reader = new GameDataReader(data);
+		int kind = readHeader(reader, MAGIC, VERSION);
+		if (kind != KIND_CONFIG) {
+			throw new IllegalArgumentException("not a configuration: " + kind);
+		}
+		return readConfig(reader);
+	}
+
+	/**
+	 * writeConfig
+	 *
+	 * writes a configuration with no header, for embedding in other data.
+	 * Each player is written as its name and the index of its type in the
+	 * available types.
+	 *
+	 * @param writer
+	 *            where to write
+	 * @param config
+	 *            the configuration
+	 */
+	public static void writeConfig(GameDataWriter writer, GameConfig config) {
+		writer.writeString(config.getGameName());
+		writer.writeVarint(config.getMinPlayers());
+		writer.writeVarint(config.getMaxPlayers());
+		writer.writeByte((config.isLocal() ? FLAG_LOCAL : 0)
+				| (config.isUserModifiable() ? FLAG_USER_MODIFIABLE : 0));
+		writer.writeString(config.getRemoteName());
+		writer.writeString(config.getIpAddr());
+
+		GamePlayerType[] types = config.getAvailTypes();
+		writer.writeVarint(types.length);
+		for (int i = 0; i < types.length; ++i) {
+			writer.writeString(types[i].typeName);
+			writer.writeBoolean(types[i].isRemoteClient);
+			writer.writeString(types[i].playerClassName);
+		}
+
+		int players = config.getNumPlayers();
+		writer.writeVarint(players);
+		for (int i = 0; i < players; ++i) {
+			writer.writeString(config.getSelName(i));
+			writer.writeVarint(typeIndex(types, config.getType(i)));
+		}
+	}
+
+	/**
+	 * readConfig
+	 *
+	 * reads a configuration written by writeConfig
+	 *
+	 * @param reader
+	 *            where to read from
+	 * @return the configuration
+	 */
+	public static GameConfig readConfig(GameDataReader reader) {
+		String gameName = reader.readString();
+		int minPlayers = reader.readVarint();
+		int maxPlayers = reader.readVarint();
+		int flags = reader.readByte();
+		String remoteName = reader.readString();
+		String ipAddr = reader.readString();
+
+		// every type takes at least three bytes, which keeps a damaged count
+		// from making a huge array
+		GamePlayerType[] types = new GamePlayerType[reader
+				.readVarint(reader.remaining() / 3)];
+		for (int i = 0; i < types.length; ++i) {
+			String typeName = reader.readString();
+			boolean isRemoteClient = reader.readBoolean();
+			types[i] = new GamePlayerType(typeName, isRemoteClient,
+					reader.readString());
+		}
+
+		GameConfig config = new GameConfig(types, minPlayers, maxPlayers,
+				gameName);
+		config.setLocal((flags & FLAG_LOCAL) != 0);
+		config.setUserModifiable((flags & FLAG_USER_MODIFIABLE) != 0);
+		config.setRemoteName(remoteName);
+		config.setIpAddr(ipAddr);
+
+		int players = reader.readVarint(maxPlayers);
+		for (int i = 0; i < players; ++i) {
+			String name = reader.readString();
+			config.addPlayer(name, reader.readVarint(types.length - 1));
+		}
+		return config;
+	}
+
+	/**
+	 * writeHeader
+	 *
+	 * @param writer
+	 *            where to write
+	 * @param magic
+	 *            the magic byte of the codec writing the message
+	 * @param version
+	 *            the version of the codec's encoding
+	 * @param kind
+	 *            what kind of data follows
+	 */
+	public static void writeHeader(GameDataWriter writer, int magic,
+			int version, int kind) {
+		writer.writeByte(magic);
+		writer.writeByte(version);
+		writer.writeByte(kind);
+	}
+
+	/**
+	 * readHeader
+	 *
+	 * reads and checks a header written by writeHeader
+	 *
+	 * @param reader
+	 *            where to read from
+	 * @param magic
+	 *            the magic byte expected
+	 * @param version
+	 *            the newest version that can be read
+	 * @return the kind of data that follows
+	 * @throws IllegalArgumentException
+	 *             if the magic byte is wrong or the version is too new
+	 */
+	public static int readHeader(GameDataReader reader, int magic, int version) {
+		int found = reader.readByte();
+		if (found != magic) {
+			throw new IllegalArgumentException("bad magic byte: " + found);
+		}
+		int foundVersion = reader.readByte();
+		if (foundVersion < 1 || foundVersion > version) {
+			throw new IllegalArgumentException("unsupported version: "
+					+ foundVersion);
+		}
+		return reader.readByte();
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// index of a player's type among the available types
+	private static int typeIndex(GamePlayerType[] types, GamePlayerType type) {
+		for (int i = 0; i < types.length; ++i) {
+			if (types[i] == type) {
+				return i;
+			}
+		}
+		// a copy of one of the types; match it by name
+		for (int i = 0; type != null && i < types.length; ++i) {
+			if (types[i].typeName.equals(type.typeName)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("player type is not available: "
+				+ (type == null ? null : type.typeName));
+	}
+
+}// class GameConfigCodec
@@ -0,0 +1,166 @@
+package edu.up.game;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * GameDataReader class
+ * <P>
+ * Reads back the data written by a {@link GameDataWriter}. Data that ends
+ * too soon or holds a number that does not fit causes an
+ * IllegalArgumentException, so a damaged message can never be mistaken for a
+ * valid one.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class GameDataReader {
+
+	/** the data */
+	private final byte[] data;
+
+	/** index of the next byte to read */
+	private int position;
+
+	/** index just past the last byte that may be read */
+	private final int limit;
+
+	/**
+	 * constructor
+	 *
+	 * @param data
+	 *            the data to read
+	 */
+	public GameDataReader(byte[] data) {
+		this(data, 0, data.length);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param data
+	 *            the array holding the data
+	 * @param offset
+	 *            index of the first byte of the data
+	 * @param length
+	 *            number of bytes of data
+	 */
+	public GameDataReader(byte[] data, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > data.length) {
+			throw new IllegalArgumentException("bad offset or length");
+		}
+		this.data = data;
+		this.position = offset;
+		this.limit = offset + length;
+	}
+
+	/**
+	 * constructor
+	 *
+	 * reads the bytes remaining in a buffer (such as the payload of a
+	 * {@link Frame}) where they are, without copying them; the buffer is
+	 * left as it is
+	 *
+	 * @param buffer
+	 *            a buffer backed by an array
+	 */
+	public GameDataReader(ByteBuffer buffer) {
+		this(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer
+				.remaining());
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * readByte
+	 *
+	 * @return the next byte, from 0 to 255
+	 */
+	public int readByte() {
+		if (position >= limit) {
+			throw new IllegalArgumentException("data ends too soon");
+		}
+		return data[position++] & 0xFF;
+	}
+
+	/**
+	 * readBoolean
+	 *
+	 * @return the next boolean
+	 */
+	public boolean readBoolean() {
+		return readByte() != 0;
+	}
+
+	/**
+	 * readVarint
+	 *
+	 * @return the next number written by writeVarint
+	 */
+	public int readVarint() {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("varint too long");
+	}
+
+	/**
+	 * readVarint
+	 *
+	 * reads a number and checks that it is in range
+	 *
+	 * @param max
+	 *            the largest value allowed
+	 * @return the next number written by writeVarint
+	 */
+	public int readVarint(int max) {
+		int value = readVarint();
+		if (value < 0 || value > max) {
+			throw new IllegalArgumentException("value out of range: " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * readSignedVarint
+	 *
+	 * @return the next number written by writeSignedVarint
+	 */
+	public int readSignedVarint() {
+		int value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * readString
+	 *
+	 * @return the next string
+	 */
+	public String readString() {
+		int length = readVarint(remaining());
+		try {
+			String value = new String(data, position, length, "UTF-8");
+			position += length;
+			return value;
+		} catch (UnsupportedEncodingException e) {
+			// every Java platform supports UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** @return the number of bytes left to read */
+	public int remaining() {
+		return limit - position;
+	}
+
+}// class GameDataReader
@@ -0,0 +1,171 @@
+package edu.up.game;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+
+/**
+ * GameDataWriter class
+ * <P>
+ * Builds a compact binary encoding of game data in a growable byte array.
+ * Whole numbers are written as varints (seven bits per byte, low bits first,
+ * the high bit set on every byte but the last), so small numbers take a
+ * single byte. Strings are written as a varint length followed by their
+ * UTF-8 bytes. {@link GameDataReader} reads the data back.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class GameDataWriter {
+
+	/** the bytes written so far */
+	private byte[] buffer;
+
+	/** number of bytes written */
+	private int size = 0;
+
+	/**
+	 * constructor
+	 */
+	public GameDataWriter() {
+		this(64);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param capacity
+	 *            the number of bytes to make room for up front
+	 */
+	public GameDataWriter(int capacity) {
+		buffer = new byte[Math.max(capacity, 16)];
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * writeByte
+	 *
+	 * @param value
+	 *            the byte to write (only the low eight bits are used)
+	 */
+	public void writeByte(int value) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) value;
+	}
+
+	/**
+	 * writeBoolean
+	 *
+	 * @param value
+	 *            the boolean to write, as one byte
+	 */
+	public void writeBoolean(boolean value) {
+		writeByte(value ? 1 : 0);
+	}
+
+	/**
+	 * writeVarint
+	 *
+	 * writes a number that is never negative in as few bytes as possible
+	 *
+	 * @param value
+	 *            the number (treated as unsigned)
+	 */
+	public void writeVarint(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+	}
+
+	/**
+	 * writeSignedVarint
+	 *
+	 * writes a number that may be negative; numbers close to zero take a
+	 * single byte either way (zigzag encoding)
+	 *
+	 * @param value
+	 *            the number
+	 */
+	public void writeSignedVarint(int value) {
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * writeString
+	 *
+	 * @param value
+	 *            the string to write; null is written as an empty string
+	 */
+	public void writeString(String value) {
+		if (value == null) {
+			value = "";
+		}
+		byte[] bytes;
+		try {
+			bytes = value.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every Java platform supports UTF-8
+			throw new IllegalStateException(e);
+		}
+		writeVarint(bytes.length);
+		writeBytes(bytes);
+	}
+
+	/**
+	 * writeBytes
+	 *
+	 * @param bytes
+	 *            the bytes to copy into the data as they are
+	 */
+	public void writeBytes(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+	/** @return the number of bytes written */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * reset
+	 *
+	 * throws away everything written so the writer can be used again
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * toByteArray
+	 *
+	 * @return a copy of the bytes written, exactly as long as the data
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// makes room for count more bytes
+	private void ensureCapacity(int count) {
+		if (size + count > buffer.length) {
+			buffer = Arrays.copyOf(buffer,
+					Math.max(buffer.length * 2, size + count));
+		}
+	}
+
+}// class GameDataWriter
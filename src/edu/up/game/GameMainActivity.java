@@ -3,7 +3,6 @@ package edu.up.game;
 import java.io.Serializable;
 
 import edu.up.twixt.QuitAction;
-import edu.up.twixt.TwixtGame;
 
 import android.app.Activity;
 import android.app.AlertDialog;
@@ -26,7 +25,8 @@ import android.widget.TextView;
  * @author Alex Hanemann
  * @date November 2012
  */
-public abstract class GameMainActivity extends Activity implements OnTouchListener {
+public abstract class GameMainActivity extends Activity implements
+		OnTouchListener, GameComputerExecutor.Callback, ProxyGame.Listener {
 
 	/*
 	 * ====================================================================
@@ -57,6 +57,25 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 	// This is the layout the TextView is displayed on
 	private RelativeLayout hubLayout = null;
 
+	// runs the computer players that play in this process rather than in an
+	// activity of their own; created the first time one is needed
+	private GameComputerExecutor computerExecutor = null;
+
+	// the in-process computer player of each player of the current game, or
+	// null for players that run in an activity; created by nextTurn
+	private GameComputerStrategy[] strategies = null;
+
+	// the proxy of each player of the current game that plays on another
+	// device, or null for players on this device; created by nextTurn
+	private ProxyPlayer[] remotePlayers = null;
+
+	// the move request whose answer we are waiting for; answers to any other
+	// request (e.g., from a game that has since been replaced) are ignored
+	private int pendingRequest = -1;
+
+	// the number of the last move request made
+	private int lastRequest = 0;
+
 	/*
 	 * ====================================================================
 	 * Abstract Methods
@@ -106,9 +125,49 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 	 * @param hostName
 	 *            the name of the machine where the game resides. (e.g.,
 	 *            "upibmg.egr.up.edu")
+	 * @param gameName
+	 *            the name of the game (see {@link GameConfig#getGameName}),
+	 *            which the host must be running
+	 * @param listener
+	 *            the listener to give the game; the game must connect in
+	 *            the background (see
+	 *            {@link ProxyGame#ProxyGame(String, String, String, int, ProxyGame.Listener)})
+	 *            and tell it when it has connected or failed to
 	 * @return the ProxyGame object that was created
 	 */
-	public abstract ProxyGame createRemoteGame(String hostName);
+	public abstract ProxyGame createRemoteGame(String hostName,
+			String gameName, ProxyGame.Listener listener);
+
+	/**
+	 * createComputerStrategy
+	 * 
+	 * Creates the in-process version of a computer player. A player type for
+	 * which this returns a strategy is asked for its moves on a background
+	 * thread of this activity (see {@link GameComputerExecutor}) instead of by
+	 * starting its activity, which saves launching an activity and serializing
+	 * the game and the action on every move.
+	 * 
+	 * The default implementation returns null, so every player runs in its
+	 * own activity.
+	 * 
+	 * @param type
+	 *            the type of the player
+	 * @return the computer player, or null to start the player's activity
+	 */
+	public GameComputerStrategy createComputerStrategy(GamePlayerType type) {
+		return null;
+	}
+
+	/**
+	 * Says how long a player on another device has for a move before the
+	 * game is given up. (It keeps its seat while it reconnects, as long as
+	 * it is back in time.) Subclasses may override this.
+	 * 
+	 * @return the time in milliseconds, or 0 for as long as it likes
+	 */
+	public int getMoveTimeoutMillis() {
+		return ProxyObject.DEFAULT_MOVE_TIMEOUT_MILLIS;
+	}
 
 	/*
 	 * ====================================================================
@@ -136,6 +195,21 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 			game = (Game) savedInstanceState.get(GAME);
 			myConfig = (GameConfig) savedInstanceState.get(CONFIG);
 			hubTextView.setText((CharSequence) savedInstanceState.get(TEXT));
+
+			// the connection to a remote game does not survive the old
+			// activity, so start over
+			if (game instanceof ProxyGame) {
+				game = null;
+				createGameConfiguration();
+			}
+
+			// a move an in-process or remote player was thinking about was
+			// lost with the old activity, so ask for it again
+			else if (game != null
+					&& (strategyFor(game.whoseTurn()) != null
+					|| remotePlayerFor(game.whoseTurn()) != null)) {
+				nextTurn();
+			}
 		} else {
 			createGameConfiguration();
 		}
@@ -154,6 +228,77 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 	}
 
 
+	/**
+	 * stops any in-process computer player that is still thinking and
+	 * closes the network connections
+	 */
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		pendingRequest = -1;
+		if (computerExecutor != null) {
+			computerExecutor.shutdown();
+			computerExecutor = null;
+		}
+		closeConnections();
+	}
+
+	/**
+	 * moveCalculated
+	 * 
+	 * receives the move of an in-process computer player (on the executor's
+	 * thread) and applies it on the UI thread, just like the move of a player
+	 * activity
+	 */
+	public void moveCalculated(int playerIndex, final int request,
+			final GameAction action) {
+		runOnUiThread(new Runnable() {
+			public void run() {
+				if (request != pendingRequest) {
+					return;
+				}
+				pendingRequest = -1;
+				actionReceived(action);
+			}
+		});
+	}
+
+	/**
+	 * moveFailed
+	 * 
+	 * hears (on the executor's thread) that an in-process computer player
+	 * could not calculate its move, and stops the game on the UI thread
+	 * instead of applying a move that is not there
+	 */
+	public void moveFailed(final int playerIndex, final int request,
+			final Throwable cause) {
+		runOnUiThread(new Runnable() {
+			public void run() {
+				if (request != pendingRequest) {
+					return;
+				}
+				pendingRequest = -1;
+				playerFailed(playerIndex, cause.toString());
+			}
+		});
+	}
+
+	/**
+	 * gameChanged
+	 * 
+	 * hears (on the network thread) that a remote game has changed, and
+	 * catches up with it on the UI thread
+	 */
+	public void gameChanged(final ProxyGame pg) {
+		runOnUiThread(new Runnable() {
+			public void run() {
+				if (game == pg) {
+					nextTurn();
+				}
+			}
+		});
+	}
+
 	/**
 	 * If the game is over, returns to the config screen to start a new one
 	 */
@@ -181,28 +326,13 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 		if (resultCode == RESULT_CANCELED) {
 			// The back button was pressed, or something else that canceled the activity. Restart.
 			createGameConfiguration();
-			TwixtGame.initializeBoard();
 			return;
 		}
 		
 		if (requestCode == GamePlayer.YOUR_TURN) {
-			// Retrieve the action
-			GameAction action = (GameAction) data
-					.getSerializableExtra(GamePlayer.GAME_ACTION);
-			if (action == null) {
-				System.err
-						.println("ERROR:  selected action missing from player's reply.  Exiting...");
-				System.exit(-1);
-			}
-			
-			if(action instanceof QuitAction){
-				System.exit(0);
-			}
-			// Modify the game state using the action
-			game.applyAction(action);
-
-			// On to the next player's turn
-			nextTurn();
+			// Retrieve the action and play it
+			actionReceived((GameAction) data
+					.getSerializableExtra(GamePlayer.GAME_ACTION));
 		}// if
 		else if (requestCode == GameConfig.USER_CONFIG) {
 			// Retrieve the action
@@ -233,6 +363,120 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 	 * --------------------------------------------------------------------
 	 */
 
+	/**
+	 * actionReceived
+	 * 
+	 * applies the action a player returned for its turn and moves on to the
+	 * next turn
+	 * 
+	 * @param action
+	 *            the player's action
+	 */
+	private void actionReceived(GameAction action) {
+		if (action == null) {
+			playerFailed(game.whoseTurn(), "no action in the player's reply");
+			return;
+		}
+		
+		if(action instanceof QuitAction){
+			System.exit(0);
+		}
+
+		// an illegal move is not applied: the player is told and asked again
+		// (a remote game checks the moves sent to it itself)
+		if (game instanceof LocalGame && !((LocalGame) game).isLegal(action)) {
+			ProxyPlayer remote = remotePlayerFor(game.whoseTurn());
+			if (remote != null) {
+				remote.illegalMove();
+			}
+			nextTurn();
+			return;
+		}
+
+		// Modify the game state using the action
+		game.applyAction(action);
+
+		// show the move to the players on other devices
+		if (!(game instanceof ProxyGame)) {
+			for (int i = 0; i < myConfig.getNumPlayers(); ++i) {
+				ProxyPlayer remote = remotePlayerFor(i);
+				if (remote != null) {
+					remote.stateChanged(game.getPlayerState(i), action);
+				}
+			}
+		}
+
+		// On to the next player's turn
+		nextTurn();
+	}
+
+	/**
+	 * strategyFor
+	 * 
+	 * returns the in-process computer player of a player, creating the
+	 * computer players of the current game the first time one is needed
+	 * 
+	 * @param playerIndex
+	 *            the player
+	 * @return the computer player, or null if the player runs in an activity
+	 */
+	private GameComputerStrategy strategyFor(int playerIndex) {
+		if (strategies == null) {
+			strategies = new GameComputerStrategy[myConfig.getNumPlayers()];
+			for (int i = 0; i < strategies.length; ++i) {
+				strategies[i] = createComputerStrategy(myConfig.getType(i));
+			}
+		}
+		return strategies[playerIndex];
+	}
+
+	/**
+	 * remotePlayerFor
+	 * 
+	 * returns the proxy of a player on another device, creating the proxies
+	 * of the current game the first time one is needed (each one starts
+	 * waiting for its player to connect, and sends it the whole state once
+	 * it has)
+	 * 
+	 * @param playerIndex
+	 *            the player
+	 * @return the proxy, or null if the player is on this device
+	 */
+	private ProxyPlayer remotePlayerFor(int playerIndex) {
+		if (remotePlayers == null) {
+			remotePlayers = new ProxyPlayer[myConfig.getNumPlayers()];
+			for (int i = 0; i < remotePlayers.length; ++i) {
+				if (myConfig.getType(i).isRemoteClient) {
+					remotePlayers[i] = createRemotePlayer();
+					remotePlayers[i].setGame(game, i);
+					remotePlayers[i].stateChanged(game.getPlayerState(i), null);
+				}
+			}
+		}
+		return remotePlayers[playerIndex];
+	}
+
+	/**
+	 * closeConnections
+	 * 
+	 * tells the players on other devices that the game is shutting down and
+	 * disconnects from them, or from the remote game
+	 */
+	private void closeConnections() {
+		if (remotePlayers != null) {
+			for (ProxyPlayer remote : remotePlayers) {
+				if (remote != null) {
+					remote.finishUp();
+				}
+			}
+			remotePlayers = null;
+		}
+		if (game instanceof ProxyGame) {
+			((ProxyGame) game).setListener(null);
+			((ProxyGame) game).disconnect();
+		}
+	}
+
 	/**
 	 * createGameConfiguration
 	 * 
@@ -272,6 +516,12 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 		// Set the title text with the game's name
 		this.setTitle(config.getGameName());
 
+		// forget the computer players (and any move they are still thinking
+		// about) and the connections of the previous game
+		closeConnections();
+		strategies = null;
+		pendingRequest = -1;
+
 		// create the game
 		if (config.isLocal()) { // local game
 			game = createLocalGame(config);
@@ -282,17 +532,19 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 				System.exit(-1);
 			}
 		} else { // remote game
-			ProxyGame pg = createRemoteGame(config.getIpAddr());
-
-			// if the game-creation operation failed, give error message
-			// and exit
-			if (pg == null || !pg.isComplete()) {
-				System.err
-						.println("Could not make connection to server.  Exiting...");
-				System.exit(-1);
-			} else {
-				game = pg;
+			// the game connects in the background and tells us (through
+			// gameChanged) when it has, so the UI thread never waits for
+			// the network; until then, nextRemoteTurn shows that we are
+			// connecting
+			ProxyGame pg = createRemoteGame(config.getIpAddr(),
+					config.getGameName(), this);
+			if (pg == null) {
+				game = null;
+				this.hubTextView.setText("Could not create the remote game. "
+						+ "Touch anywhere to start a new game!");
+				return;
 			}
+			game = pg;
 		}// else (remote game)
 
 		// begin by asking the first player to make the first move
@@ -308,12 +560,24 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 	 */
 	public void nextTurn() {
 
+		// a remote game tells us when it is our move
+		if (game instanceof ProxyGame) {
+			nextRemoteTurn((ProxyGame) game);
+			return;
+		}
+
 		// Get the id and state for the current player
-		int playerIndex = game.whoseTurn();
+		final int playerIndex = game.whoseTurn();
 		LocalGame state = game.getPlayerState(playerIndex);
 
 		// If the game is over notify the user and stop
 		if (state.isGameOver()) {
+			for (int i = 0; i < myConfig.getNumPlayers(); ++i) {
+				ProxyPlayer remote = remotePlayerFor(i);
+				if (remote != null) {
+					remote.gameIsOver();
+				}
+			}
 			notifyGameOver();
 			return;
 		}// if
@@ -322,10 +586,147 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 		this.hubTextView.setText(myConfig.getSelName(game.whoseTurn())
 				+ "'s turn.");
 
-		// %%%TODO: check to see if I've already asked this player for a move
+		// An in-process computer player gets the state directly and answers
+		// through moveCalculated (or moveFailed)
+		GameComputerStrategy strategy = strategyFor(playerIndex);
+		if (strategy != null) {
+			if (computerExecutor == null) {
+				computerExecutor = new GameComputerExecutor();
+			}
+			pendingRequest = ++lastRequest;
+			computerExecutor.requestMove(strategy, state, playerIndex,
+					pendingRequest, this);
+			return;
+		}
+
+		// A player on another device already has the state (see
+		// actionReceived) and answers over the network, also through
+		// moveCalculated; if it does not answer in time (it may have lost
+		// its connection for good), the game is given up
+		ProxyPlayer remote = remotePlayerFor(playerIndex);
+		if (remote != null) {
+			final int request = ++lastRequest;
+			pendingRequest = request;
+			remote.requestMove(request, this);
+			if (getMoveTimeoutMillis() > 0) {
+				hubTextView.postDelayed(new Runnable() {
+					public void run() {
+						if (pendingRequest == request) {
+							moveTimedOut(playerIndex);
+						}
+					}
+				}, getMoveTimeoutMillis());
+			}
+			return;
+		}
+
+		// Launch the player's activity to get a move back; the person at
+		// this device may take as long as they like
+		launchPlayerActivity(myConfig.getType(playerIndex), state);
 
-		// Launch the player's activity to get a move back
-		GamePlayerType gpt = myConfig.getType(playerIndex);
+	}// nextTurn
+
+	/**
+	 * moveTimedOut
+	 * 
+	 * gives up the game because a player on another device has not moved in
+	 * time
+	 * 
+	 * @param playerIndex
+	 *            the player
+	 */
+	private void moveTimedOut(int playerIndex) {
+		pendingRequest = -1;
+		closeConnections();
+		this.hubTextView.setText(myConfig.getSelName(playerIndex)
+				+ " did not move in time. "
+				+ "Touch anywhere to start a new game!");
+	}
+
+	/**
+	 * playerFailed
+	 * 
+	 * gives up the game because a player could not make its move, and says
+	 * why in the hub
+	 * 
+	 * @param playerIndex
+	 *            the player
+	 * @param why
+	 *            what went wrong
+	 */
+	private void playerFailed(int playerIndex, String why) {
+		System.err.println("ERROR:  player " + playerIndex
+				+ " failed to move: " + why);
+		closeConnections();
+		this.hubTextView.setText(myConfig.getSelName(playerIndex)
+				+ " could not make a move (" + why + "). "
+				+ "Touch anywhere to start a new game!");
+	}
+
+	/**
+	 * nextRemoteTurn
+	 * 
+	 * catches up with a game hosted on another device: shows whose turn it
+	 * is and, when the host asks for our move, launches the activity of the
+	 * player at this device
+	 * 
+	 * @param pg
+	 *            the remote game
+	 */
+	private void nextRemoteTurn(ProxyGame pg) {
+		if (pg.isConnecting()) {
+			this.hubTextView.setText("Connecting to the host...");
+			return;
+		}
+		if (pg.isGameOver()) {
+			notifyGameOver();
+			return;
+		}
+		if (pg.isReconnecting()) {
+			this.hubTextView.setText("Reconnecting to the host...");
+			return;
+		}
+		if (!pg.isComplete()) {
+			if (pg.getLatestState() == null && pg.getConnectError() != null) {
+				this.hubTextView.setText("Could not connect to the host ("
+						+ pg.getConnectError()
+						+ "). Touch anywhere to start a new game!");
+			} else {
+				this.hubTextView.setText("Lost the connection to the host. "
+						+ "Touch anywhere to start a new game!");
+			}
+			return;
+		}
+
+		// update the hub textview to reflect whose turn it is
+		LocalGame latest = pg.getLatestState();
+		if (latest == null) {
+			this.hubTextView.setText("Waiting for the host...");
+			return;
+		}
+		this.hubTextView.setText(latest.getConfig().getSelName(
+				latest.whoseTurn())
+				+ "'s turn.");
+
+		// the person at this device plays as the first (local human) type
+		if (pg.takeMoveRequest()) {
+			launchPlayerActivity(myConfig.getAvailTypes()[0],
+					pg.getPlayerState(pg.whoseTurn()));
+		}
+	}// nextRemoteTurn
+
+	/**
+	 * launchPlayerActivity
+	 * 
+	 * starts the activity of a player to get its move back through
+	 * onActivityResult
+	 * 
+	 * @param gpt
+	 *            the type of the player
+	 * @param state
+	 *            the game state as seen by the player
+	 */
+	private void launchPlayerActivity(GamePlayerType gpt, LocalGame state) {
 		Intent intent = null;
 		try {
 			intent = new Intent(this, Class.forName(gpt.playerClassName));
@@ -336,10 +737,7 @@ public abstract class GameMainActivity extends Activity implements OnTouchListen
 		}
 		intent.putExtra(GamePlayer.GAME_STATE, (Serializable) state);
 		startActivityForResult(intent, GamePlayer.YOUR_TURN);
-
-		// %%%TODO: start a timer so request can timeout?
-
-	}// nextTurn
+	}// launchPlayerActivity
 
 	/**
 	 * tells the user the game is over and allows the user to start a new game
@@ -37,7 +37,9 @@ public class GamePlayerType implements Cloneable, Serializable {
 	 * 
 	 * IMPORTANT: All player classes (AI, human or remote) must be a subclass of
 	 * Activity and must implement the GamePlayer interface and must be
-	 * registered in your AndroidManifest.xml file.
+	 * registered in your AndroidManifest.xml file. A computer player can also
+	 * be run inside the main activity's process if
+	 * GameMainActivity.createComputerStrategy returns a strategy for it.
 	 */
 	public String playerClassName;
 
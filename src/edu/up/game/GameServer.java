@@ -0,0 +1,1190 @@
+package edu.up.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameServer class
+ * <P>
+ * Hosts many games at once for clients on other machines. Where a
+ * {@link ProxyPlayer} serves exactly one client of a game running in an
+ * activity, the server pairs up the clients that connect into games, starts
+ * each game once it is full, applies the actions the clients send, and
+ * pushes the new state to the game's players.
+ * It speaks the same {@link Frame}s as ProxyPlayer, so a {@link ProxyGame}
+ * can play on it unchanged: every client begins with the {@link Handshake},
+ * and is only seated if it speaks our protocol version and plays our game;
+ * after each move the players are sent only the change, and the whole state
+ * only when a game begins or a player asks for it.
+ * <P>
+ * Clients waiting for a game are put together by a {@link Matchmaker}, with
+ * players of similar rating (as sent in the handshake) where it can: a
+ * client is matched at once if somebody of about its rating is waiting, and
+ * otherwise takes players from a wider range of ratings the longer it waits.
+ * <P>
+ * Connections carry heartbeats, so a client that has silently gone is
+ * noticed after the read timeout. A client that loses its connection
+ * during a game keeps its seat for a while: it comes back with its session
+ * id and is sent the changes it missed. A game is abandoned if the client
+ * does not come back in time, or does not move in time.
+ * <P>
+ * Any number of clients may watch a game being played, by asking in the
+ * handshake for {@link Handshake#spectate} instead of a seat. A spectator
+ * is sent the whole state when it joins and then every change as it
+ * happens. Each change is encoded once into a read-only frame that is
+ * queued, as it is, on every spectator's connection, so the work done for a
+ * move hardly grows with the number of spectators.
+ * <P>
+ * One {@link NetworkReactor} thread does all the network I/O. The games
+ * themselves run on a small pool of worker threads: each game has a queue of
+ * its own that is worked off by one worker at a time, so a game is never
+ * touched by two threads at once, while different games run in parallel and
+ * an idle game takes no thread at all.
+ * <P>
+ * Subclasses create the games and encode their states and actions.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public abstract class GameServer {
+
+	/** tasks a game works off before letting other games have the worker */
+	private static final int TASKS_PER_TURN = 16;
+
+	/** the changes kept for each player who comes back */
+	private static final int HISTORY_SIZE = 64;
+
+	/** the player index of a spectator's seat */
+	private static final int SPECTATOR = -1;
+
+	/** the ratings put together at once, and how fast the range widens */
+	private static final int RATING_BUCKET_WIDTH = 100;
+	private static final int WIDEN_MILLIS = 500;
+
+	/** how often the clients waiting for a game are matched again */
+	private static final int MATCH_INTERVAL_MILLIS = 100;
+
+	/** the heartbeat and the timeouts, in milliseconds */
+	private volatile int heartbeatMillis = ProxyObject.DEFAULT_HEARTBEAT_MILLIS;
+	private volatile int readTimeoutMillis = ProxyObject.DEFAULT_READ_TIMEOUT_MILLIS;
+	private volatile int reconnectMillis = ProxyObject.DEFAULT_RECONNECT_MILLIS;
+	private volatile int moveTimeoutMillis = ProxyObject.DEFAULT_MOVE_TIMEOUT_MILLIS;
+
+	/** the number of players in each game */
+	private final int playersPerGame;
+
+	/** a game is called a draw after this many actions */
+	private final int maxActions;
+
+	/** services the connections */
+	private final NetworkReactor reactor;
+
+	/** runs the games */
+	private final ExecutorService workers;
+
+	/** the seat of every connected client */
+	private final ConcurrentHashMap<NetworkConnection, Seat> seats = new ConcurrentHashMap<NetworkConnection, Seat>();
+
+	/** the seats of the games being played, by session id */
+	private final ConcurrentHashMap<String, Seat> seatsById = new ConcurrentHashMap<String, Seat>();
+
+	/** the games that have started and not yet ended, by id */
+	private final ConcurrentHashMap<Integer, Session> sessions = new ConcurrentHashMap<Integer, Session>();
+
+	/** clients still in their handshake; only used on the reactor's thread */
+	private final Set<NetworkConnection> greeting = Collections
+			.newSetFromMap(new IdentityHashMap<NetworkConnection, Boolean>());
+
+	/**
+	 * puts the clients waiting for a game together; only used on the
+	 * reactor's thread, so games are started there too
+	 */
+	private final Matchmaker<Waiting> matchmaker;
+
+	/** the tickets of the clients waiting; only used on the reactor's thread */
+	private final Map<NetworkConnection, Matchmaker.Ticket<Waiting>> queued = new IdentityHashMap<NetworkConnection, Matchmaker.Ticket<Waiting>>();
+
+	/** what clients connect to: the server socket, or a loopback port */
+	private Closeable listening = null;
+
+	/** the port given to start */
+	private int port = -1;
+
+	/** id of the next game */
+	private final AtomicInteger nextGameId = new AtomicInteger();
+
+	/** number of games that have ended normally */
+	private final AtomicInteger gamesFinished = new AtomicInteger();
+
+	/** number of games that ended because a player left */
+	private final AtomicInteger gamesAbandoned = new AtomicInteger();
+
+	/** number of actions applied to all games */
+	private final AtomicLong actionsApplied = new AtomicLong();
+
+	/** number of spectators watching */
+	private final AtomicInteger spectatorCount = new AtomicInteger();
+
+	/**
+	 * Seat
+	 * <P>
+	 * where a client plays: its game and its position in the game, or
+	 * {@link #SPECTATOR} if it only watches
+	 */
+	private static class Seat {
+		final Session session;
+		final int playerIndex;
+		final String sessionId;
+
+		Seat(Session session, int playerIndex, String sessionId) {
+			this.session = session;
+			this.playerIndex = playerIndex;
+			this.sessionId = sessionId;
+		}
+	}
+
+	/**
+	 * Waiting
+	 * <P>
+	 * a client waiting for a game, and the session id it has been given
+	 */
+	private static class Waiting {
+		final NetworkConnection connection;
+		final String sessionId;
+
+		Waiting(NetworkConnection connection, String sessionId) {
+			this.connection = connection;
+			this.sessionId = sessionId;
+		}
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param playersPerGame
+	 *            the number of players in each game
+	 * @param maxActions
+	 *            a game is called a draw after this many actions
+	 * @param workerThreads
+	 *            the number of threads the games run on
+	 * @throws IOException
+	 *             if the network cannot be set up
+	 */
+	public GameServer(int playersPerGame, int maxActions, int workerThreads)
+			throws IOException {
+		if (playersPerGame < 1) {
+			throw new IllegalArgumentException("a game needs players");
+		}
+		if (maxActions < 1) {
+			throw new IllegalArgumentException("maxActions must be positive");
+		}
+		if (workerThreads < 1) {
+			throw new IllegalArgumentException(
+					"workerThreads must be positive");
+		}
+		this.playersPerGame = playersPerGame;
+		this.maxActions = maxActions;
+		this.reactor = new NetworkReactor();
+		this.workers = Executors.newFixedThreadPool(workerThreads,
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "GameServer-"
+								+ count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.matchmaker = new Matchmaker<Waiting>(playersPerGame,
+				RATING_BUCKET_WIDTH, WIDEN_MILLIS,
+				new Matchmaker.Listener<Waiting>() {
+					public void matched(List<Waiting> players) {
+						startGame(players);
+					}
+				});
+	}
+
+	/*
+	 * ====================================================================
+	 * Abstract Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * getGameName
+	 *
+	 * @return the name of the games (see {@link GameConfig#getGameName});
+	 *         clients of other games are turned away
+	 */
+	protected abstract String getGameName();
+
+	/**
+	 * createGame
+	 *
+	 * @param gameId
+	 *            a number identifying the game on this server
+	 * @return a new game, ready for its first move
+	 */
+	protected abstract LocalGame createGame(int gameId);
+
+	/**
+	 * encodeState
+	 *
+	 * @param state
+	 *            the state of a game as one of its players may see it
+	 * @return the encoded state, for {@link ProxyGame#decodeState}
+	 */
+	protected abstract byte[] encodeState(LocalGame state);
+
+	/**
+	 * decodeAction
+	 *
+	 * decodes an action on the network thread, straight out of the buffer
+	 * it arrived in, so it must not touch any game
+	 *
+	 * @param data
+	 *            an action as encoded by {@link ProxyGame#encodeAction},
+	 *            from the buffer's position to its limit; only valid until
+	 *            the method returns
+	 * @return the action, or null if the bytes are not valid
+	 */
+	protected abstract GameAction decodeAction(ByteBuffer data);
+
+	/**
+	 * encodeDelta
+	 *
+	 * encodes the action that changed a game, so that the players can bring
+	 * their copies of the state up to date (see {@link ProxyGame#applyDelta})
+	 * without being sent the whole state. The default returns null, which
+	 * means the whole state is sent instead.
+	 *
+	 * @param action
+	 *            the action that was applied
+	 * @return the encoded change, or null to send the whole state
+	 */
+	protected byte[] encodeDelta(GameAction action) {
+		return null;
+	}
+
+	/**
+	 * hashState
+	 *
+	 * computes the hash of a state that is sent with each change, so the
+	 * players can check their copies; must agree with
+	 * {@link ProxyGame#hashState}
+	 *
+	 * @param state
+	 *            the state of a game as one of its players may see it
+	 * @return the hash
+	 */
+	protected long hashState(LocalGame state) {
+		return 0;
+	}
+
+	/**
+	 * hashState
+	 *
+	 * computes the hash sent with each change straight from the game the
+	 * server plays. It is called for every player and every change, so
+	 * games whose players see the whole state should override it to hash
+	 * the game itself; the default hashes what the viewer sees, which copies
+	 * it.
+	 *
+	 * @param game
+	 *            the game the server plays
+	 * @param viewerIndex
+	 *            the player the hash is for, or -1 for the spectators
+	 * @return the hash; must agree with {@link #hashState(LocalGame)} of the
+	 *         viewer's state
+	 */
+	protected long hashState(LocalGame game, int viewerIndex) {
+		return hashState(viewerIndex < 0 ? getSpectatorState(game) : game
+				.getPlayerState(viewerIndex));
+	}
+
+	/**
+	 * getSpectatorState
+	 *
+	 * the state of a game as a spectator may see it. The default is what the
+	 * first player sees; games that hide something from every player should
+	 * override it.
+	 *
+	 * @param game
+	 *            the game
+	 * @return the state
+	 */
+	protected LocalGame getSpectatorState(LocalGame game) {
+		return game.getPlayerState(0);
+	}
+
+	/**
+	 * isDrawn
+	 *
+	 * tells whether a game that is not over can no longer be won; the
+	 * server then ends it. The default says never, leaving it to the
+	 * maximum number of actions.
+	 *
+	 * @param game
+	 *            the game
+	 * @return true if nobody can win the game any more
+	 */
+	protected boolean isDrawn(LocalGame game) {
+		return false;
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * start
+	 *
+	 * starts accepting clients
+	 *
+	 * @param port
+	 *            the port to listen on
+	 * @throws IOException
+	 *             if the port cannot be bound
+	 */
+	public synchronized void start(int port) throws IOException {
+		start(port, new TcpTransport());
+	}
+
+	/**
+	 * start
+	 *
+	 * starts accepting clients that connect with the given transport; a
+	 * {@link LoopbackTransport} lets clients of the same process play
+	 * without the network
+	 *
+	 * @param port
+	 *            the port to listen on
+	 * @param transport
+	 *            the transport the clients connect with
+	 * @throws IOException
+	 *             if the port cannot be bound
+	 */
+	public synchronized void start(int port, Transport transport)
+			throws IOException {
+		if (listening != null) {
+			throw new IllegalStateException("the server is already running");
+		}
+		reactor.start("GameServer-network");
+		listening = transport.listen(reactor, port, new ClientListener());
+		this.port = port;
+
+		// the clients still waiting are matched over a widening range
+		reactor.schedule(new Runnable() {
+			public void run() {
+				matchmaker.matchWaiting();
+				reactor.schedule(this, MATCH_INTERVAL_MILLIS);
+			}
+		}, MATCH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * setTimeouts
+	 *
+	 * sets the heartbeat and the timeouts, for the clients that connect from
+	 * now on and the moves asked for from now on
+	 *
+	 * @param heartbeatMillis
+	 *            a heartbeat is sent to a client whenever it has been sent
+	 *            nothing for this long; 0 for never
+	 * @param readTimeoutMillis
+	 *            a client is disconnected when it has been quiet this long;
+	 *            0 for never
+	 * @param reconnectMillis
+	 *            how long the seat of a client that has lost its connection
+	 *            is kept
+	 * @param moveTimeoutMillis
+	 *            how long a player has for a move; 0 for as long as it likes
+	 */
+	public void setTimeouts(int heartbeatMillis, int readTimeoutMillis,
+			int reconnectMillis, int moveTimeoutMillis) {
+		this.heartbeatMillis = heartbeatMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+		this.reconnectMillis = reconnectMillis;
+		this.moveTimeoutMillis = moveTimeoutMillis;
+	}
+
+	/**
+	 * shutdown
+	 *
+	 * stops accepting clients, disconnects every client and stops the games
+	 */
+	public synchronized void shutdown() {
+		if (listening != null) {
+			try {
+				listening.close();
+			} catch (IOException e) {
+				// closing anyway
+			}
+		}
+		reactor.shutdown();
+		workers.shutdownNow();
+	}
+
+	/**
+	 * awaitTermination
+	 *
+	 * waits for the games to stop after {@link #shutdown}
+	 *
+	 * @param millis
+	 *            the longest time to wait
+	 * @return true if they stopped in time
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public boolean awaitTermination(long millis) throws InterruptedException {
+		return workers.awaitTermination(millis, TimeUnit.MILLISECONDS);
+	}
+
+	/** @return the port the server listens on, or -1 if not started */
+	public synchronized int getPort() {
+		if (listening instanceof ServerSocketChannel) {
+			// the port the system chose, if it was given 0
+			return ((ServerSocketChannel) listening).socket().getLocalPort();
+		}
+		return port;
+	}
+
+	/** @return the number of clients connected, spectators included */
+	public int getConnectionCount() {
+		return seats.size() + matchmaker.getWaitingCount();
+	}
+
+	/** @return the number of clients waiting for a game */
+	public int getWaitingCount() {
+		return matchmaker.getWaitingCount();
+	}
+
+	/** @return the average time clients waited for a game, in milliseconds */
+	public long getAverageWaitMillis() {
+		return matchmaker.getAverageWaitMillis();
+	}
+
+	/** @return the longest time a client waited for a game, in milliseconds */
+	public long getLongestWaitMillis() {
+		return matchmaker.getLongestWaitMillis();
+	}
+
+	/** @return the number of spectators watching games */
+	public int getSpectatorCount() {
+		return spectatorCount.get();
+	}
+
+	/** @return the number of games being played */
+	public int getActiveGameCount() {
+		return sessions.size();
+	}
+
+	/** @return the number of games that have ended normally */
+	public int getGamesFinished() {
+		return gamesFinished.get();
+	}
+
+	/** @return the number of games that ended because a player left */
+	public int getGamesAbandoned() {
+		return gamesAbandoned.get();
+	}
+
+	/** @return the number of actions applied to all games */
+	public long getActionsApplied() {
+		return actionsApplied.get();
+	}
+
+	/**
+	 * getStatus
+	 *
+	 * @return a one-line summary of what the server is doing
+	 */
+	public String getStatus() {
+		return getConnectionCount() + " clients, " + getWaitingCount()
+				+ " waiting (" + getAverageWaitMillis() + " ms on average), "
+				+ getSpectatorCount() + " spectators, " + getActiveGameCount()
+				+ " games playing, " + getGamesFinished() + " finished, "
+				+ getGamesAbandoned() + " abandoned, " + getActionsApplied()
+				+ " actions";
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods and Classes
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * queue
+	 *
+	 * lets a new client wait for a game with players of about its rating;
+	 * runs on the reactor's thread
+	 */
+	private void queue(NetworkConnection connection, String sessionId,
+			int rating) {
+		// the client is marked as waiting before it can be matched, and
+		// its ticket only kept if it is still waiting afterwards
+		queued.put(connection, null);
+		Matchmaker.Ticket<Waiting> ticket = matchmaker.enqueue(new Waiting(
+				connection, sessionId), rating);
+		if (queued.containsKey(connection)) {
+			queued.put(connection, ticket);
+		}
+	}
+
+	/**
+	 * startGame
+	 *
+	 * seats the players the matchmaker has put together and starts their
+	 * game; runs on the reactor's thread
+	 */
+	private void startGame(List<Waiting> players) {
+		final Session session = new Session(nextGameId.incrementAndGet());
+		for (int i = 0; i < players.size(); ++i) {
+			Waiting player = players.get(i);
+			queued.remove(player.connection);
+			session.players[i] = player.connection;
+			session.sessionIds[i] = player.sessionId;
+			Seat seat = new Seat(session, i, player.sessionId);
+			seats.put(player.connection, seat);
+			seatsById.put(player.sessionId, seat);
+		}
+		sessions.put(session.id, session);
+		session.execute(new Runnable() {
+			public void run() {
+				session.begin();
+			}
+		});
+	}
+
+	/**
+	 * unseat
+	 *
+	 * handles a client that has left; runs on the reactor's thread
+	 */
+	private void unseat(NetworkConnection connection) {
+		// a client still waiting for a game
+		if (queued.containsKey(connection)) {
+			matchmaker.cancel(queued.remove(connection));
+			return;
+		}
+
+		Seat seat = seats.remove(connection);
+		if (seat == null) {
+			return;
+		}
+		final Session session = seat.session;
+
+		// a spectator has stopped watching
+		if (seat.playerIndex == SPECTATOR) {
+			final NetworkConnection gone = connection;
+			session.execute(new Runnable() {
+				public void run() {
+					session.unwatch(gone);
+				}
+			});
+			return;
+		}
+
+		// a game being played waits a while for the player to come back
+		final int playerIndex = seat.playerIndex;
+		final NetworkConnection gone = connection;
+		session.execute(new Runnable() {
+			public void run() {
+				session.detach(playerIndex, gone);
+			}
+		});
+	}
+
+	/**
+	 * reseat
+	 *
+	 * gives a client that has come back its seat again; runs on the
+	 * reactor's thread
+	 *
+	 * @return false if there is no such seat
+	 */
+	private boolean reseat(NetworkConnection connection, String sessionId) {
+		final Seat seat = seatsById.get(sessionId);
+		if (seat == null) {
+			return false;
+		}
+		connection.send(Handshake.welcome(sessionId));
+		seats.put(connection, seat);
+		final NetworkConnection back = connection;
+		seat.session.execute(new Runnable() {
+			public void run() {
+				seat.session.attach(seat.playerIndex, back);
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * watch
+	 *
+	 * lets a client watch a game being played; runs on the reactor's thread
+	 *
+	 * @param gameId
+	 *            the id of the game, or -1 for the game that began last
+	 * @return false if there is no such game
+	 */
+	private boolean watch(NetworkConnection connection, int gameId) {
+		if (gameId == -1) {
+			for (Integer id : sessions.keySet()) {
+				gameId = Math.max(gameId, id);
+			}
+		}
+		final Session session = (gameId < 0) ? null : sessions.get(gameId);
+		if (session == null) {
+			return false;
+		}
+		connection.send(Handshake.welcome(Handshake.spectate(session.id)));
+		seats.put(connection, new Seat(session, SPECTATOR, null));
+		final NetworkConnection spectator = connection;
+		session.execute(new Runnable() {
+			public void run() {
+				session.watch(spectator);
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * ClientListener
+	 * <P>
+	 * receives the events of every client connection on the reactor's
+	 * thread, and hands the actions to the games. A frame is only valid
+	 * while it is being received, so it is decoded here and the games are
+	 * handed what it holds.
+	 */
+	private class ClientListener implements NetworkConnection.Listener {
+
+		public void connected(final NetworkConnection connection) {
+			greeting.add(connection);
+			connection.setHeartbeat(heartbeatMillis, readTimeoutMillis);
+
+			// a client that does not finish its handshake in time is dropped
+			reactor.schedule(new Runnable() {
+				public void run() {
+					if (greeting.remove(connection)) {
+						connection.close();
+					}
+				}
+			}, Handshake.TIMEOUT_MILLIS);
+		}
+
+		public void frameReceived(NetworkConnection connection, int type,
+				ByteBuffer payload) {
+			Seat seat = seats.get(connection);
+			if (seat == null) {
+				if (greeting.remove(connection)) {
+					greet(connection, type, payload);
+				}
+				return;
+			}
+			final Session session = seat.session;
+			final int playerIndex = seat.playerIndex;
+			if (playerIndex == SPECTATOR) {
+				// a spectator only ever asks for the whole state again
+				if (type == Frame.RESYNC) {
+					final NetworkConnection spectator = connection;
+					session.execute(new Runnable() {
+						public void run() {
+							session.sendSpectatorState(spectator);
+						}
+					});
+				}
+				return;
+			}
+			switch (type) {
+			case Frame.ACTION:
+				GameAction decoded;
+				try {
+					decoded = decodeAction(payload);
+				} catch (RuntimeException e) {
+					decoded = null;
+				}
+				final GameAction action = decoded;
+				session.execute(new Runnable() {
+					public void run() {
+						session.actionReceived(playerIndex, action);
+					}
+				});
+				break;
+			case Frame.RESYNC:
+				// the player's copy of the state is wrong
+				session.execute(new Runnable() {
+					public void run() {
+						session.resync(playerIndex);
+					}
+				});
+				break;
+			case Frame.RESUME:
+				// the player has come back: send what it missed, and ask
+				// again for the move it owes us
+				final int seq = (payload.remaining() >= 4) ? payload.getInt()
+						: -1;
+				session.execute(new Runnable() {
+					public void run() {
+						session.resume(playerIndex, seq);
+					}
+				});
+				break;
+			default:
+				// nothing else is expected from a player
+				break;
+			}
+		}
+
+		public void disconnected(NetworkConnection connection) {
+			greeting.remove(connection);
+			unseat(connection);
+		}
+
+		/**
+		 * answers a client's HELLO, seating it if it may play
+		 */
+		private void greet(NetworkConnection connection, int type,
+				ByteBuffer payload) {
+			Handshake hello = Handshake.parseHello(type, payload);
+			ByteBuffer refusal = Handshake.check(hello, getGameName());
+			if (refusal == null && hello.wantsToSpectate()) {
+				if (watch(connection, hello.spectatedGame())) {
+					return;
+				}
+				refusal = Handshake.reject("no such game");
+			}
+			if (refusal == null && !hello.wantsAnySession()) {
+				if (reseat(connection, hello.sessionId)) {
+					return;
+				}
+				refusal = Handshake.reject("no such session");
+			}
+			if (refusal != null) {
+				connection.send(refusal);
+				connection.close();
+				return;
+			}
+			String sessionId = Handshake.newSessionId();
+			connection.send(Handshake.welcome(sessionId));
+			queue(connection, sessionId, hello.rating);
+		}
+	}
+
+	/**
+	 * Session
+	 * <P>
+	 * one game on the server and its players. Everything that touches the
+	 * game runs through {@link #execute}, one task at a time.
+	 */
+	private class Session implements Runnable {
+
+		/** the game's id */
+		final int id;
+
+		/**
+		 * the connection of each player, or null while it is away; only
+		 * changed by the session's tasks once the game has begun
+		 */
+		final NetworkConnection[] players = new NetworkConnection[playersPerGame];
+
+		/** the session id of each player */
+		final String[] sessionIds = new String[playersPerGame];
+
+		/** the changes last sent to each player */
+		private final DeltaHistory[] histories = new DeltaHistory[playersPerGame];
+
+		/** the connections of the spectators */
+		private final List<NetworkConnection> spectators = new ArrayList<NetworkConnection>();
+
+		/**
+		 * the whole state as spectators see it, encoded once for all of
+		 * them, or null if none has needed it since the last move
+		 */
+		private ByteBuffer spectatorSnapshot = null;
+
+		/** the game, once it has begun */
+		private LocalGame game = null;
+
+		/** set once the game has ended */
+		private boolean ended = false;
+
+		/** the number of actions applied to the game */
+		private int actions = 0;
+
+		/** when the move asked for is due, and whether a timer is waiting */
+		private long moveDeadline = 0;
+		private boolean moveTimerSet = false;
+
+		/** the tasks waiting to run */
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+		/** set while the session is queued on or running in a worker */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		Session(int id) {
+			this.id = id;
+		}
+
+		/**
+		 * runs a task after those already queued, on some worker
+		 */
+		void execute(Runnable task) {
+			tasks.add(task);
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					workers.execute(this);
+				} catch (RejectedExecutionException e) {
+					// the server is shutting down
+				}
+			}
+		}
+
+		/**
+		 * works off the queued tasks, a few at a time so that a busy game
+		 * cannot starve the others
+		 */
+		public void run() {
+			for (int i = 0; i < TASKS_PER_TURN; ++i) {
+				Runnable task = tasks.poll();
+				if (task == null) {
+					break;
+				}
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					// a broken game must not take the worker with it
+					e.printStackTrace();
+					end(false);
+				}
+			}
+			scheduled.set(false);
+			if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+				try {
+					workers.execute(this);
+				} catch (RejectedExecutionException e) {
+					// the server is shutting down
+				}
+			}
+		}
+
+		/**
+		 * creates the game, tells every player its position and the state,
+		 * and asks the first player for a move
+		 */
+		void begin() {
+			game = createGame(id);
+			for (int i = 0; i < players.length; ++i) {
+				histories[i] = new DeltaHistory(HISTORY_SIZE);
+				send(i, Frame.ofInt(Frame.SET_GAME, i));
+				sendState(i);
+			}
+			nextTurn();
+		}
+
+		/**
+		 * notes that a player's connection has gone, and abandons the game
+		 * if the player does not come back in time
+		 */
+		void detach(final int playerIndex, NetworkConnection connection) {
+			if (ended || players[playerIndex] != connection) {
+				return;
+			}
+			players[playerIndex] = null;
+			reactor.schedule(new Runnable() {
+				public void run() {
+					execute(new Runnable() {
+						public void run() {
+							if (players[playerIndex] == null) {
+								end(false);
+							}
+						}
+					});
+				}
+			}, reconnectMillis);
+		}
+
+		/**
+		 * gives a player who has come back its seat; the player then sends
+		 * RESUME to be brought up to date
+		 */
+		void attach(int playerIndex, NetworkConnection connection) {
+			if (ended) {
+				connection.send(Frame.empty(Frame.FINISH_UP));
+				connection.close();
+				return;
+			}
+			NetworkConnection old = players[playerIndex];
+			players[playerIndex] = connection;
+			if (old != null && old != connection) {
+				// the old connection has died without our noticing
+				old.close();
+			}
+		}
+
+		/**
+		 * handles the action a player has chosen
+		 *
+		 * @param action
+		 *            the action, or null if what the player sent was not
+		 *            valid
+		 */
+		void actionReceived(int playerIndex, GameAction action) {
+			if (ended || game == null) {
+				return;
+			}
+			if (playerIndex != mover()) {
+				send(playerIndex, Frame.empty(Frame.NOT_YOUR_MOVE));
+				return;
+			}
+			if (action == null
+					|| action.getSource() % players.length != playerIndex
+					|| !game.isLegal(action)) {
+				send(playerIndex, Frame.empty(Frame.ILLEGAL_MOVE));
+				send(playerIndex, Frame.ofInt(Frame.REQUEST_MOVE, actions));
+				return;
+			}
+			game.applyAction(action);
+			actions++;
+			actionsApplied.incrementAndGet();
+
+			// send every player the change (the same for all of them)
+			byte[] delta = encodeDelta(action);
+			for (int i = 0; i < players.length; ++i) {
+				if (delta == null) {
+					histories[i].reset(actions);
+					sendState(i);
+				} else {
+					ByteBuffer change = Frame.delta(actions,
+							hashState(game, i), delta);
+					histories[i].add(actions, change);
+					send(i, change);
+				}
+			}
+
+			// and every spectator one frame, shared by all of them
+			spectatorSnapshot = null;
+			if (!spectators.isEmpty()) {
+				NetworkConnection.sendToAll(spectators, delta == null
+						? spectatorSnapshot() : Frame.delta(actions,
+								hashState(game, -1), delta)
+								.asReadOnlyBuffer());
+			}
+			nextTurn();
+		}
+
+		/**
+		 * sends a player whose copy of the state is wrong the whole state
+		 */
+		void resync(int playerIndex) {
+			if (!ended && game != null) {
+				sendState(playerIndex);
+			}
+		}
+
+		/**
+		 * brings a player who has come back up to date
+		 *
+		 * @param seq
+		 *            the number of the last state the player has, or -1
+		 */
+		void resume(int playerIndex, int seq) {
+			if (ended || game == null) {
+				return;
+			}
+			List<ByteBuffer> missed = histories[playerIndex].framesAfter(seq);
+			if (missed == null) {
+				sendState(playerIndex);
+			} else {
+				for (ByteBuffer change : missed) {
+					send(playerIndex, change);
+				}
+			}
+			if (playerIndex == mover()) {
+				send(playerIndex, Frame.ofInt(Frame.REQUEST_MOVE, actions));
+			}
+		}
+
+		/**
+		 * lets a client watch the game: it is sent the whole state, and then
+		 * every change
+		 */
+		void watch(NetworkConnection spectator) {
+			if (ended) {
+				spectator.send(Frame.empty(Frame.FINISH_UP));
+				spectator.close();
+				return;
+			}
+			spectators.add(spectator);
+			spectatorCount.incrementAndGet();
+			sendSpectatorState(spectator);
+		}
+
+		/**
+		 * forgets a spectator that has gone
+		 */
+		void unwatch(NetworkConnection spectator) {
+			if (spectators.remove(spectator)) {
+				spectatorCount.decrementAndGet();
+			}
+		}
+
+		/**
+		 * sends a spectator the whole state
+		 */
+		void sendSpectatorState(NetworkConnection spectator) {
+			if (!ended && game != null) {
+				spectator.send(spectatorSnapshot());
+			}
+		}
+
+		/**
+		 * the whole state as spectators see it, numbered like the players'
+		 */
+		private ByteBuffer spectatorSnapshot() {
+			if (spectatorSnapshot == null) {
+				spectatorSnapshot = Frame.state(actions,
+						encodeState(getSpectatorState(game))).asReadOnlyBuffer();
+			}
+			return spectatorSnapshot;
+		}
+
+		/**
+		 * sends a frame to a player, unless it is away
+		 */
+		private void send(int playerIndex, ByteBuffer frame) {
+			NetworkConnection player = players[playerIndex];
+			if (player != null) {
+				player.send(frame);
+			}
+		}
+
+		/**
+		 * sends a player the whole state; the state is numbered by the
+		 * number of actions applied
+		 */
+		private void sendState(int playerIndex) {
+			if (players[playerIndex] != null) {
+				send(playerIndex, Frame.state(actions,
+						encodeState(game.getPlayerState(playerIndex))));
+			}
+		}
+
+		/**
+		 * asks the player whose turn it is for a move, or ends the game
+		 */
+		private void nextTurn() {
+			if (game.isGameOver() || isDrawn(game) || actions >= maxActions) {
+				end(true);
+				return;
+			}
+			send(mover(), Frame.ofInt(Frame.REQUEST_MOVE, actions));
+
+			// a player who does not move in time ends the game for everybody
+			if (moveTimeoutMillis > 0) {
+				moveDeadline = System.currentTimeMillis() + moveTimeoutMillis;
+				if (!moveTimerSet) {
+					moveTimerSet = true;
+					checkMoveTime(moveTimeoutMillis);
+				}
+			}
+		}
+
+		/**
+		 * ends the game once the move deadline has passed; the deadline is
+		 * put back with every move, so one timer per game is enough
+		 */
+		private void checkMoveTime(long delayMillis) {
+			reactor.schedule(new Runnable() {
+				public void run() {
+					execute(new Runnable() {
+						public void run() {
+							long left = moveDeadline - System.currentTimeMillis();
+							if (ended) {
+								return;
+							} else if (left <= 0) {
+								end(false);
+							} else {
+								checkMoveTime(left);
+							}
+						}
+					});
+				}
+			}, delayMillis);
+		}
+
+		/**
+		 * ends the game and sends the players away
+		 *
+		 * @param finished
+		 *            true if the game was played to the end, false if it
+		 *            was abandoned
+		 */
+		void end(boolean finished) {
+			if (ended) {
+				return;
+			}
+			ended = true;
+			sessions.remove(id);
+			for (String sessionId : sessionIds) {
+				seatsById.remove(sessionId);
+			}
+			if (finished) {
+				gamesFinished.incrementAndGet();
+			} else {
+				gamesAbandoned.incrementAndGet();
+			}
+			ByteBuffer over = Frame.empty(Frame.GAME_IS_OVER);
+			ByteBuffer finishUp = Frame.empty(Frame.FINISH_UP);
+			for (int i = 0; i < players.length; ++i) {
+				if (finished) {
+					send(i, over);
+				}
+				send(i, finishUp);
+				if (players[i] != null) {
+					players[i].close();
+				}
+			}
+			if (finished) {
+				NetworkConnection.sendToAll(spectators, over);
+			}
+			NetworkConnection.sendToAll(spectators, finishUp);
+			for (NetworkConnection spectator : spectators) {
+				spectator.close();
+			}
+			spectatorCount.addAndGet(-spectators.size());
+			spectators.clear();
+		}
+
+		/**
+		 * the position of the player whose turn it is
+		 */
+		private int mover() {
+			return game.whoseTurn() % players.length;
+		}
+	}
+
+}// class GameServer
@@ -0,0 +1,290 @@
+package edu.up.game;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+/**
+ * Handshake class
+ * <P>
+ * The first frames exchanged on every connection between a {@link ProxyGame}
+ * and the {@link ProxyPlayer} or {@link GameServer} it plays on. The client
+ * says which protocol it speaks, which game it wants to play and which seat
+ * it wants, in a {@link Frame#HELLO} holding
+ *
+ * <pre>
+ * version (varint) | sessionId (string) | gameName (string) | rating + 1 (varint)
+ * </pre>
+ *
+ * written as by {@link GameDataWriter}, where the session id is "*" for any
+ * free seat, or "@" followed by the id of a game the client only wants to
+ * watch (see {@link #spectate}), and the rating is the player's, or
+ * {@link #UNRATED}; a host that pairs players up (see {@link Matchmaker})
+ * puts players of similar rating together. The host answers with a {@link Frame#WELCOME} holding
+ *
+ * <pre>
+ * version (varint) | sessionId (string)
+ * </pre>
+ *
+ * with the id of the seat it was given, after which the game's own frames
+ * follow (a client that loses its connection comes back by asking for that
+ * seat), or with a {@link Frame#REJECT} holding the reason as text, and
+ * closes the connection. Either side gives up on a connection whose
+ * handshake has not finished within {@link #TIMEOUT_MILLIS}, so connecting
+ * either works or fails within a known time.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public final class Handshake {
+
+	/** the version of the frames exchanged after the handshake */
+	public static final int PROTOCOL_VERSION = 4;
+
+	/** the longest time, in milliseconds, a handshake may take */
+	public static final int TIMEOUT_MILLIS = 3000;
+
+	/** the session id a client sends when any free seat will do */
+	public static final String ANY_SESSION = "*";
+
+	/** the start of the session id of a client that only watches a game */
+	public static final String SPECTATOR = "@";
+
+	/** the rating a client sends when it has none */
+	public static final int UNRATED = -1;
+
+	/** makes the session ids */
+	private static final SecureRandom random = new SecureRandom();
+
+	/** the client's protocol version */
+	public final int version;
+
+	/** the seat the client wants, or {@link #ANY_SESSION} */
+	public final String sessionId;
+
+	/** the name of the game the client wants to play */
+	public final String gameName;
+
+	/** the client's rating, or {@link #UNRATED} */
+	public final int rating;
+
+	/**
+	 * constructor; see {@link #parseHello}
+	 */
+	private Handshake(int version, String sessionId, String gameName,
+			int rating) {
+		this.version = version;
+		this.sessionId = sessionId;
+		this.gameName = gameName;
+		this.rating = rating;
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * hello
+	 *
+	 * @param gameName
+	 *            the name of the game (see {@link GameConfig#getGameName})
+	 * @param sessionId
+	 *            the seat wanted, or null for any
+	 * @return the frame a client opens a connection with
+	 */
+	public static ByteBuffer hello(String gameName, String sessionId) {
+		return hello(gameName, sessionId, UNRATED);
+	}
+
+	/**
+	 * hello
+	 *
+	 * @param gameName
+	 *            the name of the game (see {@link GameConfig#getGameName})
+	 * @param sessionId
+	 *            the seat wanted, or null for any
+	 * @param rating
+	 *            the player's rating, or {@link #UNRATED}
+	 * @return the frame a client opens a connection with
+	 */
+	public static ByteBuffer hello(String gameName, String sessionId,
+			int rating) {
+		GameDataWriter writer = new GameDataWriter();
+		writer.writeVarint(PROTOCOL_VERSION);
+		writer.writeString(sessionId == null ? ANY_SESSION : sessionId);
+		writer.writeString(gameName);
+		writer.writeVarint(Math.max(rating, UNRATED) + 1);
+		return Frame.ofBytes(Frame.HELLO, writer.toByteArray());
+	}
+
+	/**
+	 * parseHello
+	 *
+	 * @param type
+	 *            the type of the first frame a client sent
+	 * @param payload
+	 *            its payload
+	 * @return what the client asked for, or null if the frame is not a
+	 *         HELLO
+	 */
+	public static Handshake parseHello(int type, ByteBuffer payload) {
+		if (type != Frame.HELLO) {
+			return null;
+		}
+		try {
+			GameDataReader reader = new GameDataReader(payload);
+			int version = reader.readVarint();
+			String sessionId = reader.readString();
+			String gameName = reader.readString();
+			// a client of another version is turned away by check(), and
+			// need not have sent a rating
+			int rating = (version == PROTOCOL_VERSION) ? reader.readVarint() - 1
+					: UNRATED;
+			return new Handshake(version, sessionId, gameName, rating);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * welcome
+	 *
+	 * @param sessionId
+	 *            the seat the client has been given
+	 * @return the frame accepting a client
+	 */
+	public static ByteBuffer welcome(String sessionId) {
+		GameDataWriter writer = new GameDataWriter();
+		writer.writeVarint(PROTOCOL_VERSION);
+		writer.writeString(sessionId);
+		return Frame.ofBytes(Frame.WELCOME, writer.toByteArray());
+	}
+
+	/**
+	 * parseWelcome
+	 *
+	 * @param type
+	 *            the type of the first frame the host sent
+	 * @param payload
+	 *            its payload
+	 * @return the session id the host gave us, or null if the frame is not
+	 *         a WELCOME for our protocol version
+	 */
+	public static String parseWelcome(int type, ByteBuffer payload) {
+		if (type != Frame.WELCOME) {
+			return null;
+		}
+		try {
+			GameDataReader reader = new GameDataReader(payload);
+			if (reader.readVarint() != PROTOCOL_VERSION) {
+				return null;
+			}
+			return reader.readString();
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * reject
+	 *
+	 * @param reason
+	 *            why the client is turned away
+	 * @return the frame turning a client away
+	 */
+	public static ByteBuffer reject(String reason) {
+		return Frame.ofText(Frame.REJECT, reason);
+	}
+
+	/**
+	 * check
+	 *
+	 * checks that a client may play a game, apart from finding it a seat
+	 *
+	 * @param hello
+	 *            what the client asked for, or null if its first frame was
+	 *            not a HELLO
+	 * @param gameName
+	 *            the name of the game that is hosted
+	 * @return the frame to turn the client away with, or null if it may play
+	 */
+	public static ByteBuffer check(Handshake hello, String gameName) {
+		if (hello == null) {
+			return reject("expected HELLO");
+		}
+		if (hello.version != PROTOCOL_VERSION) {
+			return reject("protocol version " + hello.version
+					+ " is not supported; this host speaks version "
+					+ PROTOCOL_VERSION);
+		}
+		if (!hello.gameName.equals(gameName)) {
+			return reject("this host plays " + gameName + ", not "
+					+ hello.gameName);
+		}
+		return null;
+	}
+
+	/**
+	 * spectate
+	 *
+	 * @param gameId
+	 *            the id of the game to watch, or -1 for the game that began
+	 *            last
+	 * @return the session id a client asks for to watch a game
+	 */
+	public static String spectate(int gameId) {
+		return gameId < 0 ? SPECTATOR : SPECTATOR + gameId;
+	}
+
+	/**
+	 * isSpectator
+	 *
+	 * @param sessionId
+	 *            a session id, or null
+	 * @return whether the session id is a spectator's
+	 */
+	public static boolean isSpectator(String sessionId) {
+		return sessionId != null && sessionId.startsWith(SPECTATOR);
+	}
+
+	/**
+	 * newSessionId
+	 *
+	 * @return a new session id that is hard to guess
+	 */
+	public static String newSessionId() {
+		return Long.toHexString(random.nextLong() & Long.MAX_VALUE);
+	}
+
+	/** @return whether the client will take any free seat */
+	public boolean wantsAnySession() {
+		return sessionId.equals(ANY_SESSION);
+	}
+
+	/** @return whether the client only wants to watch a game */
+	public boolean wantsToSpectate() {
+		return isSpectator(sessionId);
+	}
+
+	/**
+	 * spectatedGame
+	 *
+	 * @return the id of the game a spectator wants to watch, -1 for the
+	 *         game that began last, or -2 if the id is not valid
+	 */
+	public int spectatedGame() {
+		String id = sessionId.substring(SPECTATOR.length());
+		if (id.length() == 0) {
+			return -1;
+		}
+		try {
+			int gameId = Integer.parseInt(id);
+			return gameId < 0 ? -2 : gameId;
+		} catch (NumberFormatException e) {
+			return -2;
+		}
+	}
+
+}// class Handshake
@@ -0,0 +1,129 @@
+package edu.up.game;
+
+/**
+ * HeadlessGameRunner class
+ * <P>
+ * Plays games between computer strategies in-process, without any Android
+ * activities: it asks the strategy of the player whose turn it is for an
+ * action, applies it to the game, and repeats until the game is over. This is
+ * the same loop {@link GameMainActivity#nextTurn} runs, minus the intents, so
+ * it can play thousands of games on an ordinary Java machine.
+ * <P>
+ * Subclasses can override {@link #winnerOf} and {@link #isDrawn} for games
+ * that need their own idea of who won or when nobody can.
+ * 
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class HeadlessGameRunner {
+
+	/** returned by {@link #playGame} when nobody won */
+	public static final int DRAW = -1;
+
+	/** the strategy of each player, indexed by player id */
+	private GameComputerStrategy[] players;
+
+	/** the game is called a draw after this many actions */
+	private int maxActions;
+
+	/** number of actions applied in the last game */
+	private int actionsPlayed;
+
+	/**
+	 * constructor
+	 * 
+	 * @param players
+	 *            the strategy of each player, indexed by player id
+	 * @param maxActions
+	 *            the game is called a draw after this many actions
+	 */
+	public HeadlessGameRunner(GameComputerStrategy[] players, int maxActions) {
+		if (players == null || players.length == 0) {
+			throw new IllegalArgumentException("a game needs players");
+		}
+		if (maxActions < 1) {
+			throw new IllegalArgumentException("maxActions must be positive");
+		}
+		this.players = players.clone();
+		this.maxActions = maxActions;
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * playGame
+	 * 
+	 * plays a game to the end
+	 * 
+	 * @param game
+	 *            the game, set up and ready for its first move
+	 * @return the id of the winner, or {@link #DRAW}
+	 */
+	public int playGame(LocalGame game) {
+		actionsPlayed = 0;
+		while (actionsPlayed < maxActions) {
+			if (game.isGameOver()) {
+				return winnerOf(game);
+			}
+			if (isDrawn(game)) {
+				return DRAW;
+			}
+
+			// ask the player whose turn it is for a move, just like nextTurn()
+			int playerIndex = game.whoseTurn() % players.length;
+			LocalGame state = game.getPlayerState(playerIndex);
+			GameAction action = players[playerIndex].calculateMove(state);
+			game.applyAction(action);
+			actionsPlayed++;
+		}
+		return game.isGameOver() ? winnerOf(game) : DRAW;
+	}
+
+	/**
+	 * @return the number of actions applied in the last game
+	 */
+	public int getActionsPlayed() {
+		return actionsPlayed;
+	}
+
+	/**
+	 * @return the number of players
+	 */
+	public int getNumPlayers() {
+		return players.length;
+	}
+
+	/*
+	 * ====================================================================
+	 * Game-Specific Hooks
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * winnerOf
+	 * 
+	 * @param game
+	 *            a game that is over
+	 * @return the id of the player who won
+	 */
+	protected int winnerOf(LocalGame game) {
+		return game.getWinnerId();
+	}
+
+	/**
+	 * isDrawn
+	 * 
+	 * @param game
+	 *            a game that is not over
+	 * @return whether the game can no longer be won by anybody
+	 */
+	protected boolean isDrawn(LocalGame game) {
+		return false;
+	}
+
+}// class HeadlessGameRunner
@@ -56,6 +56,21 @@ public abstract class LocalGame implements Game, Serializable {
 		return this.myConfig;
 	}
 
+	/**
+	 * tells whether an action may be applied to the game as it is now, so
+	 * that a host can turn away an illegal move from a player on another
+	 * device instead of trusting it. The default accepts every action; a game
+	 * with rules to enforce should override this, and should leave its state
+	 * unchanged when asked to apply an action this rejects.
+	 * 
+	 * @param action
+	 *            the action a player has sent
+	 * @return whether the action is legal
+	 */
+	public boolean isLegal(GameAction action) {
+		return true;
+	}
+
 	/*
 	 * ====================================================================
 	 * Abstract Methods
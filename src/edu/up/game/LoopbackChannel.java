@@ -0,0 +1,278 @@
+package edu.up.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LoopbackChannel class
+ * <P>
+ * One end of a connection made by {@link LoopbackTransport}. The two ends
+ * share a pair of ring buffers, one for each direction. A ring has a single
+ * writer (the reactor of the end that sends) and a single reader (the
+ * reactor of the end that receives), each of which only moves its own count
+ * forward, so neither needs a lock.
+ * <P>
+ * There is no selector to say when a channel is ready: an end that puts
+ * bytes in a ring hands the other end's reactor a task to read them, and an
+ * end that makes room in a ring the other end found full hands it a task to
+ * write. A task already handed over and not yet run is not handed over
+ * again, so a burst of frames costs a single wakeup.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+class LoopbackChannel implements ByteChannel {
+
+	/**
+	 * Ring
+	 * <P>
+	 * the bytes going one way
+	 */
+	private static final class Ring {
+		private final byte[] data;
+		private final int mask;
+
+		/** the bytes read and written so far, moved by the reader and writer */
+		private volatile long readCount = 0;
+		private volatile long writeCount = 0;
+
+		/** set once the writer and the reader have closed their ends */
+		private volatile boolean writerClosed = false;
+		private volatile boolean readerClosed = false;
+
+		/** set while the writer waits for room */
+		private volatile boolean writerWaiting = false;
+
+		private Ring(int capacity) {
+			data = new byte[capacity];
+			mask = capacity - 1;
+		}
+	}
+
+	/** the ring we read from, and the one we write to */
+	private final Ring in;
+	private final Ring out;
+
+	/** the other end */
+	private LoopbackChannel peer;
+
+	/** the reactor and the connection this end belongs to */
+	private NetworkReactor reactor;
+	private NetworkConnection connection;
+
+	/** set while a task to read, or to write, is waiting to run */
+	private final AtomicBoolean readScheduled = new AtomicBoolean();
+	private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+	/** set once the connection has been started */
+	private volatile boolean started = false;
+
+	/** cleared once this end has been closed */
+	private volatile boolean open = true;
+
+	/** the tasks handed to our reactor */
+	private final Runnable readTask = new Runnable() {
+		public void run() {
+			// cleared first, so bytes that arrive while we read wake us again
+			readScheduled.set(false);
+			connection.readReady();
+		}
+	};
+	private final Runnable writeTask = new Runnable() {
+		public void run() {
+			writeScheduled.set(false);
+			connection.writeReady();
+		}
+	};
+
+	/**
+	 * constructor; see {@link #pair}
+	 */
+	private LoopbackChannel(Ring in, Ring out) {
+		this.in = in;
+		this.out = out;
+	}
+
+	/*
+	 * ====================================================================
+	 * Package Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * pair
+	 *
+	 * @param capacity
+	 *            the number of bytes each ring holds; a power of two
+	 * @return the two ends of a new connection
+	 */
+	static LoopbackChannel[] pair(int capacity) {
+		Ring there = new Ring(capacity);
+		Ring back = new Ring(capacity);
+		LoopbackChannel one = new LoopbackChannel(back, there);
+		LoopbackChannel other = new LoopbackChannel(there, back);
+		one.peer = other;
+		other.peer = one;
+		return new LoopbackChannel[] { one, other };
+	}
+
+	/**
+	 * attach
+	 *
+	 * gives the end its connection; must be called before the connection is
+	 * started
+	 *
+	 * @param reactor
+	 *            the reactor servicing the connection
+	 * @param connection
+	 *            the connection
+	 */
+	void attach(NetworkReactor reactor, NetworkConnection connection) {
+		this.reactor = reactor;
+		this.connection = connection;
+	}
+
+	/**
+	 * start
+	 *
+	 * starts the connection, on its reactor's thread. Until then it is not
+	 * told about anything the other end sends, which may already have
+	 * started on another reactor.
+	 */
+	void start() {
+		connection.start(null);
+		started = true;
+		if (in.writeCount != in.readCount || in.writerClosed) {
+			wakeReader();
+		}
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * read
+	 *
+	 * takes as many bytes as there are, or as fit
+	 *
+	 * @return the number of bytes read, or -1 once the other end has closed
+	 *         and everything it wrote has been read
+	 */
+	public int read(ByteBuffer dst) throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+		// the writer's count is read after its closing, so that whatever it
+		// wrote before closing is seen
+		boolean writerClosed = in.writerClosed;
+		long readCount = in.readCount;
+		long available = in.writeCount - readCount;
+		if (available == 0) {
+			return writerClosed ? -1 : 0;
+		}
+		int count = (int) Math.min(available, dst.remaining());
+		int offset = (int) readCount & in.mask;
+		int first = Math.min(count, in.data.length - offset);
+		dst.put(in.data, offset, first);
+		dst.put(in.data, 0, count - first);
+		in.readCount = readCount + count;
+
+		if (in.writerWaiting) {
+			in.writerWaiting = false;
+			peer.wakeWriter();
+		}
+		if (count < available || writerClosed) {
+			// come back for the rest that did not fit, or for the end
+			wakeReader();
+		}
+		return count;
+	}
+
+	/**
+	 * write
+	 *
+	 * puts as many bytes in the ring as fit; if they do not all fit, the
+	 * connection is told when there is room again
+	 *
+	 * @return the number of bytes written
+	 */
+	public int write(ByteBuffer src) throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+		if (out.readerClosed) {
+			throw new IOException("closed by the other end");
+		}
+		long writeCount = out.writeCount;
+		long free = out.data.length - (writeCount - out.readCount);
+		int count = (int) Math.min(free, src.remaining());
+		int offset = (int) writeCount & out.mask;
+		int first = Math.min(count, out.data.length - offset);
+		src.get(out.data, offset, first);
+		src.get(out.data, 0, count - first);
+		writeCount += count;
+		out.writeCount = writeCount;
+		if (count > 0) {
+			peer.wakeReader();
+		}
+
+		if (src.hasRemaining()) {
+			// the ring is full; the reader may have made room since we
+			// looked, in which case it may not have seen us waiting
+			out.writerWaiting = true;
+			if (writeCount - out.readCount < out.data.length) {
+				out.writerWaiting = false;
+				wakeWriter();
+			}
+		}
+		return count;
+	}
+
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * close
+	 *
+	 * closes this end; the other end reads what is left, then the end
+	 */
+	public void close() {
+		if (!open) {
+			return;
+		}
+		open = false;
+		in.readerClosed = true;
+		out.writerClosed = true;
+		peer.wakeReader();
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// has our reactor read, unless it is already going to (or the
+	// connection has not started, in which case start does)
+	private void wakeReader() {
+		if (started && readScheduled.compareAndSet(false, true)) {
+			reactor.execute(readTask);
+		}
+	}
+
+	// has our reactor write, unless it is already going to
+	private void wakeWriter() {
+		if (writeScheduled.compareAndSet(false, true)) {
+			reactor.execute(writeTask);
+		}
+	}
+
+}// class LoopbackChannel
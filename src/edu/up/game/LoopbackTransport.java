@@ -0,0 +1,146 @@
+package edu.up.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LoopbackTransport class
+ * <P>
+ * A {@link Transport} that connects objects of the same process through
+ * memory instead of the network. The ports are its own: a client connecting
+ * to a port reaches whoever listens on that port of the same transport, and
+ * the host name is ignored. The two ends of a connection share a pair of
+ * ring buffers (see {@link LoopbackChannel}), and are serviced by reactors
+ * just like sockets, so everything above them (the frames, the handshake,
+ * heartbeats, timeouts and lost connections) behaves as it does over TCP,
+ * without the cost of the network stack. Many remote games can so be played
+ * at once in one process, to test the protocol or measure its throughput.
+ * <P>
+ * To make the proxies use it, see {@link ProxyObject#setDefaultTransport}.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class LoopbackTransport implements Transport {
+
+	/** the number of bytes each direction of a connection holds by default */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/**
+	 * Binding
+	 * <P>
+	 * a port listened on: the reactor and listener of the connections
+	 * accepted on it. Closing it stops the listening.
+	 */
+	private class Binding implements Closeable {
+		private final int port;
+		private final NetworkReactor reactor;
+		private final NetworkConnection.Listener listener;
+
+		private Binding(int port, NetworkReactor reactor,
+				NetworkConnection.Listener listener) {
+			this.port = port;
+			this.reactor = reactor;
+			this.listener = listener;
+		}
+
+		public void close() {
+			synchronized (LoopbackTransport.this) {
+				if (bindings.get(port) == this) {
+					bindings.remove(port);
+				}
+			}
+		}
+	}
+
+	/** the number of bytes each direction of a connection holds */
+	private final int capacity;
+
+	/** the ports listened on; guarded by this */
+	private final Map<Integer, Binding> bindings = new HashMap<Integer, Binding>();
+
+	/**
+	 * constructor
+	 */
+	public LoopbackTransport() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param capacity
+	 *            the number of bytes each direction of a connection holds; a
+	 *            power of two. A sender never blocks: what does not fit
+	 *            waits in the connection's queue (and, as with a socket
+	 *            whose buffer is full, is dropped if the connection is
+	 *            closed meanwhile).
+	 */
+	public LoopbackTransport(int capacity) {
+		if (capacity < 1 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException(
+					"capacity must be a power of two");
+		}
+		this.capacity = capacity;
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * connect
+	 *
+	 * connects at once to whoever listens on the port, whatever the host
+	 * name; the timeout is not needed
+	 */
+	public NetworkConnection connect(NetworkReactor reactor, String hostName,
+			int port, int timeoutMillis, NetworkConnection.Listener listener)
+			throws IOException {
+		Binding binding;
+		synchronized (this) {
+			binding = bindings.get(port);
+		}
+		if (binding == null) {
+			throw new ConnectException("nothing listens on loopback port "
+					+ port);
+		}
+
+		final LoopbackChannel[] ends = LoopbackChannel.pair(capacity);
+		NetworkConnection client = new NetworkConnection(reactor, ends[0],
+				listener);
+		NetworkConnection server = new NetworkConnection(binding.reactor,
+				ends[1], binding.listener);
+		ends[0].attach(reactor, client);
+		ends[1].attach(binding.reactor, server);
+		binding.reactor.execute(new Runnable() {
+			public void run() {
+				ends[1].start();
+			}
+		});
+		reactor.execute(new Runnable() {
+			public void run() {
+				ends[0].start();
+			}
+		});
+		return client;
+	}
+
+	public synchronized Closeable listen(NetworkReactor reactor, int port,
+			NetworkConnection.Listener listener) throws IOException {
+		if (bindings.containsKey(port)) {
+			throw new BindException("loopback port " + port + " is in use");
+		}
+		Binding binding = new Binding(port, reactor, listener);
+		bindings.put(port, binding);
+		return binding;
+	}
+
+}// class LoopbackTransport
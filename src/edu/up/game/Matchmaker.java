@@ -0,0 +1,378 @@
+package edu.up.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Matchmaker class
+ * <P>
+ * Puts waiting players together in groups of similar rating. The ratings
+ * are cut into buckets of a fixed width, each with a queue of the players
+ * waiting in it, oldest first. A player who joins is matched at once with
+ * the oldest players waiting in its own bucket, if there are enough; if not,
+ * it waits, and the window of buckets it may be matched from widens by one
+ * bucket on each side for every {@link #getWidenMillis} it has waited, so
+ * that nobody waits longer than the time it takes the window to cover every
+ * bucket (as long as anybody else is waiting). The window only widens when
+ * {@link #matchWaiting} is called, which the owner does every so often.
+ * <P>
+ * Players may join, leave and be matched from any number of threads at
+ * once. The queues are lock-free; a player is taken for a group by changing
+ * the state of its ticket, and is given back if the group cannot be filled,
+ * so no player is ever put in two groups. Tickets that are no longer waiting
+ * are dropped from their queue when it is next looked through.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class Matchmaker<T> {
+
+	/** the rating of a player whose rating is not known */
+	public static final int DEFAULT_RATING = 1500;
+
+	/** ratings above this all fall in the last bucket */
+	public static final int MAX_RATING = 3200;
+
+	/** the states of a ticket */
+	private static final int WAITING = 0;
+	private static final int CLAIMED = 1;
+	private static final int MATCHED = 2;
+	private static final int CANCELLED = 3;
+
+	/**
+	 * Listener
+	 * <P>
+	 * told about each group that is formed, on the thread that formed it
+	 */
+	public interface Listener<T> {
+
+		/**
+		 * matched
+		 *
+		 * @param players
+		 *            the players of the group, the one that has waited
+		 *            longest first
+		 */
+		void matched(List<T> players);
+	}
+
+	/**
+	 * Ticket
+	 * <P>
+	 * a player's place in the queues
+	 */
+	public static final class Ticket<T> {
+		private final T player;
+		private final int rating;
+		private final int bucket;
+		private final long since;
+		private final long sequence;
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+
+		private Ticket(T player, int rating, int bucket, long since,
+				long sequence) {
+			this.player = player;
+			this.rating = rating;
+			this.bucket = bucket;
+			this.since = since;
+			this.sequence = sequence;
+		}
+
+		/** @return the player */
+		public T getPlayer() {
+			return player;
+		}
+
+		/** @return the player's rating */
+		public int getRating() {
+			return rating;
+		}
+
+		/** @return whether the player is still waiting */
+		public boolean isWaiting() {
+			return state.get() == WAITING;
+		}
+	}
+
+	/** the number of players in a group */
+	private final int groupSize;
+
+	/** the width of a bucket, in rating points */
+	private final int bucketWidth;
+
+	/** how long a player waits before its window widens by a bucket */
+	private final int widenMillis;
+
+	/** told about the groups */
+	private final Listener<T> listener;
+
+	/** the players waiting in each bucket, oldest first */
+	private final List<ConcurrentLinkedQueue<Ticket<T>>> buckets;
+
+	/**
+	 * orders the players of a group by when they joined; the clock cannot
+	 * tell apart players who joined in the same millisecond, so the order
+	 * they were enqueued in is used
+	 */
+	private final Comparator<Ticket<T>> oldestFirst = new Comparator<Ticket<T>>() {
+		public int compare(Ticket<T> a, Ticket<T> b) {
+			return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0
+					: 1);
+		}
+	};
+
+	/** numbers the tickets in the order they are enqueued */
+	private final AtomicLong nextSequence = new AtomicLong();
+
+	/** the number of players waiting */
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	/** the number of groups formed */
+	private final AtomicLong groupsFormed = new AtomicLong();
+
+	/** the total and the longest time the players of the groups waited */
+	private final AtomicLong totalWaitMillis = new AtomicLong();
+	private final AtomicLong longestWaitMillis = new AtomicLong();
+
+	/**
+	 * constructor
+	 *
+	 * @param groupSize
+	 *            the number of players in a group
+	 * @param bucketWidth
+	 *            the width of a bucket, in rating points
+	 * @param widenMillis
+	 *            how long a player waits before the window it may be matched
+	 *            from widens by a bucket on each side
+	 * @param listener
+	 *            told about each group that is formed
+	 */
+	public Matchmaker(int groupSize, int bucketWidth, int widenMillis,
+			Listener<T> listener) {
+		if (groupSize < 1) {
+			throw new IllegalArgumentException("a group needs players");
+		}
+		if (bucketWidth < 1) {
+			throw new IllegalArgumentException("bucketWidth must be positive");
+		}
+		if (widenMillis < 1) {
+			throw new IllegalArgumentException("widenMillis must be positive");
+		}
+		this.groupSize = groupSize;
+		this.bucketWidth = bucketWidth;
+		this.widenMillis = widenMillis;
+		this.listener = listener;
+		int count = MAX_RATING / bucketWidth + 1;
+		buckets = new ArrayList<ConcurrentLinkedQueue<Ticket<T>>>(count);
+		for (int i = 0; i < count; ++i) {
+			buckets.add(new ConcurrentLinkedQueue<Ticket<T>>());
+		}
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * enqueue
+	 *
+	 * lets a player wait for a group, and forms the group at once if the
+	 * player's bucket already holds enough players
+	 *
+	 * @param player
+	 *            the player
+	 * @param rating
+	 *            the player's rating, or a negative number if it is not
+	 *            known (see {@link #DEFAULT_RATING})
+	 * @return the player's ticket, for {@link #cancel}
+	 */
+	public Ticket<T> enqueue(T player, int rating) {
+		if (rating < 0) {
+			rating = DEFAULT_RATING;
+		}
+		int bucket = Math.min(rating / bucketWidth, buckets.size() - 1);
+		Ticket<T> ticket = new Ticket<T>(player, rating, bucket,
+				System.currentTimeMillis(), nextSequence.getAndIncrement());
+		waiting.incrementAndGet();
+		buckets.get(bucket).add(ticket);
+		tryMatch(ticket, ticket.since);
+		return ticket;
+	}
+
+	/**
+	 * cancel
+	 *
+	 * stops a player waiting
+	 *
+	 * @param ticket
+	 *            the player's ticket
+	 * @return false if the player was no longer waiting (it has been put in
+	 *         a group, or cancelled before)
+	 */
+	public boolean cancel(Ticket<T> ticket) {
+		for (;;) {
+			int state = ticket.state.get();
+			if (state == WAITING) {
+				if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+					waiting.decrementAndGet();
+					return true;
+				}
+			} else if (state != CLAIMED) {
+				return false;
+			} else {
+				// another thread is trying to fill a group with the player,
+				// which it either does or gives up on at once
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * matchWaiting
+	 *
+	 * looks for a group for every player still waiting, oldest first in each
+	 * bucket, with the window each has reached by now
+	 *
+	 * @return the number of groups formed
+	 */
+	public int matchWaiting() {
+		long now = System.currentTimeMillis();
+		int formed = 0;
+		for (ConcurrentLinkedQueue<Ticket<T>> queue : buckets) {
+			for (Iterator<Ticket<T>> it = queue.iterator(); it.hasNext();) {
+				Ticket<T> ticket = it.next();
+				int state = ticket.state.get();
+				if (state == MATCHED || state == CANCELLED) {
+					it.remove();
+				} else if (state == WAITING && tryMatch(ticket, now)) {
+					formed++;
+				}
+			}
+		}
+		return formed;
+	}
+
+	/** @return the number of players waiting */
+	public int getWaitingCount() {
+		return waiting.get();
+	}
+
+	/** @return the number of groups formed */
+	public long getGroupsFormed() {
+		return groupsFormed.get();
+	}
+
+	/** @return the average time the players put in groups waited, in ms */
+	public long getAverageWaitMillis() {
+		long players = groupsFormed.get() * groupSize;
+		return players == 0 ? 0 : totalWaitMillis.get() / players;
+	}
+
+	/** @return the longest time a player put in a group waited, in ms */
+	public long getLongestWaitMillis() {
+		return longestWaitMillis.get();
+	}
+
+	/** @return how long a player waits before its window widens */
+	public int getWidenMillis() {
+		return widenMillis;
+	}
+
+	/**
+	 * @return the longest a player can wait for a group once there are
+	 *         enough players waiting, apart from how often
+	 *         {@link #matchWaiting} is called
+	 */
+	public long getMaxWaitMillis() {
+		return (long) (buckets.size() - 1) * widenMillis;
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * tryMatch
+	 *
+	 * fills a group around a waiting player from the buckets of its window,
+	 * nearest first, and tells the listener
+	 *
+	 * @return false if the player is no longer waiting, or there are not
+	 *         enough players in its window
+	 */
+	private boolean tryMatch(Ticket<T> ticket, long now) {
+		if (!ticket.state.compareAndSet(WAITING, CLAIMED)) {
+			return false;
+		}
+		int window = (int) Math.min(buckets.size(), (now - ticket.since)
+				/ widenMillis);
+		List<Ticket<T>> group = new ArrayList<Ticket<T>>(groupSize);
+		group.add(ticket);
+		for (int d = 0; d <= window && group.size() < groupSize; ++d) {
+			claim(ticket.bucket - d, group);
+			if (d > 0) {
+				claim(ticket.bucket + d, group);
+			}
+		}
+		if (group.size() < groupSize) {
+			for (Ticket<T> claimed : group) {
+				claimed.state.set(WAITING);
+			}
+			return false;
+		}
+
+		// the group is ours
+		Collections.sort(group, oldestFirst);
+		List<T> players = new ArrayList<T>(groupSize);
+		for (Ticket<T> member : group) {
+			member.state.set(MATCHED);
+			players.add(member.player);
+			long waited = Math.max(0, now - member.since);
+			totalWaitMillis.addAndGet(waited);
+			long longest = longestWaitMillis.get();
+			while (waited > longest
+					&& !longestWaitMillis.compareAndSet(longest, waited)) {
+				longest = longestWaitMillis.get();
+			}
+		}
+		waiting.addAndGet(-groupSize);
+		groupsFormed.incrementAndGet();
+		listener.matched(players);
+		return true;
+	}
+
+	/**
+	 * claim
+	 *
+	 * takes waiting players from a bucket for a group until it is full,
+	 * dropping tickets that are no longer waiting on the way
+	 */
+	private void claim(int bucket, List<Ticket<T>> group) {
+		if (bucket < 0 || bucket >= buckets.size()) {
+			return;
+		}
+		for (Iterator<Ticket<T>> it = buckets.get(bucket).iterator(); it
+				.hasNext() && group.size() < groupSize;) {
+			Ticket<T> other = it.next();
+			int state = other.state.get();
+			if (state == MATCHED || state == CANCELLED) {
+				it.remove();
+			} else if (state == WAITING
+					&& other.state.compareAndSet(WAITING, CLAIMED)) {
+				group.add(other);
+			}
+		}
+	}
+
+}// class Matchmaker
@@ -0,0 +1,454 @@
+package edu.up.game;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NetworkConnection class
+ * <P>
+ * One non-blocking connection serviced by a {@link NetworkReactor}: a
+ * socket, or one end of an in-memory {@link LoopbackTransport} connection.
+ * Incoming data is split into {@link Frame}s and handed to the connection's
+ * {@link Listener} on the reactor's thread. A frame is handed over where it
+ * lies in the connection's read buffer, which is used again for the next
+ * data, so reading costs no allocation at all. Outgoing frames may be sent
+ * from any thread; they are queued and written by the reactor as the channel
+ * accepts them, so a sender never blocks.
+ * <P>
+ * A {@link Frame#HEARTBEAT} is never handed to the listener. With
+ * {@link #setHeartbeat} the connection sends one whenever it has been quiet
+ * for a while, and closes itself if the other end has been quiet for too
+ * long, so a connection that died without saying so (a phone that lost its
+ * network, say) is noticed.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class NetworkConnection {
+
+	/**
+	 * Listener
+	 * <P>
+	 * receives the events of a connection. Every method is called on the
+	 * reactor's thread and must not block.
+	 */
+	public interface Listener {
+
+		/**
+		 * connected
+		 *
+		 * @param connection
+		 *            the connection, which is now ready to send and receive
+		 */
+		public void connected(NetworkConnection connection);
+
+		/**
+		 * frameReceived
+		 *
+		 * @param connection
+		 *            the connection the frame came in on
+		 * @param type
+		 *            the frame's type
+		 * @param payload
+		 *            the connection's read buffer, positioned at the frame's
+		 *            payload and limited to its end; it may be read from, but
+		 *            is only valid until the method returns
+		 */
+		public void frameReceived(NetworkConnection connection, int type,
+				ByteBuffer payload);
+
+		/**
+		 * disconnected
+		 *
+		 * @param connection
+		 *            the connection, which has been closed (by either side
+		 *            or because of an error)
+		 */
+		public void disconnected(NetworkConnection connection);
+
+	}// interface Listener
+
+	/** the frame sent as a heartbeat */
+	private static final ByteBuffer HEARTBEAT = Frame.empty(Frame.HEARTBEAT);
+
+	/** size of the read buffer to begin with; it grows for longer frames */
+	private static final int READ_BUFFER_SIZE = 4096;
+
+	/** the reactor servicing the connection */
+	private final NetworkReactor reactor;
+
+	/** the socket, or the loopback channel */
+	private final ByteChannel channel;
+
+	/** receives the connection's events */
+	private final Listener listener;
+
+	/**
+	 * the channel's registration with the reactor's selector; null for a
+	 * loopback channel, which tells the connection itself when it is ready
+	 */
+	private SelectionKey key;
+
+	/** set once the reactor has started the connection */
+	private boolean started = false;
+
+	/** bytes read but not yet handed over as frames */
+	private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	/** where the payload of the frame last found by frameEnd begins */
+	private int payloadStart;
+
+	/** data waiting to be written, oldest first */
+	private final ConcurrentLinkedQueue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/** set once the connection has been closed */
+	private volatile boolean closed = false;
+
+	/** a heartbeat is sent after this many quiet milliseconds, or never if 0 */
+	private long heartbeatMillis = 0;
+
+	/** closed after this many milliseconds without a word, or never if 0 */
+	private long readTimeoutMillis = 0;
+
+	/** when something was last read and written */
+	private long lastRead = System.currentTimeMillis();
+	private long lastWritten = lastRead;
+
+	/** the heartbeat timer, if any */
+	private NetworkReactor.Timer heartbeatTimer = null;
+
+	/**
+	 * constructor; connections are made by {@link NetworkReactor} and
+	 * {@link LoopbackTransport}
+	 */
+	NetworkConnection(NetworkReactor reactor, ByteChannel channel,
+			Listener listener) {
+		this.reactor = reactor;
+		this.channel = channel;
+		this.listener = listener;
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * send
+	 *
+	 * queues a frame to be sent. The frame's bytes (from its position to its
+	 * limit) are sent as they are when they are written, and the buffer
+	 * itself is left alone, so one frame may be sent on many connections.
+	 * Frames sent after the connection has closed are dropped.
+	 *
+	 * @param frame
+	 *            the frame, as made by {@link Frame}; it must not be changed
+	 *            afterwards
+	 */
+	public void send(ByteBuffer frame) {
+		if (closed) {
+			return;
+		}
+		writeQueue.add(frame.duplicate());
+		reactor.execute(new Runnable() {
+			public void run() {
+				flush();
+			}
+		});
+	}
+
+	/**
+	 * sendToAll
+	 *
+	 * queues one frame on many connections, as {@link #send} does, but with
+	 * a single hand-over to the network thread for all of them: the frame's
+	 * bytes are neither encoded nor copied again for each connection
+	 *
+	 * @param connections
+	 *            the connections; those serviced by the same reactor as the
+	 *            first are flushed together
+	 * @param frame
+	 *            the frame, as made by {@link Frame}; it must not be changed
+	 *            afterwards
+	 */
+	public static void sendToAll(List<NetworkConnection> connections,
+			ByteBuffer frame) {
+		if (connections.isEmpty()) {
+			return;
+		}
+		final NetworkReactor reactor = connections.get(0).reactor;
+		final NetworkConnection[] targets = new NetworkConnection[connections
+				.size()];
+		int count = 0;
+		for (NetworkConnection connection : connections) {
+			if (connection.reactor != reactor) {
+				connection.send(frame);
+			} else if (!connection.closed) {
+				connection.writeQueue.add(frame.duplicate());
+				targets[count++] = connection;
+			}
+		}
+		final int flushed = count;
+		reactor.execute(new Runnable() {
+			public void run() {
+				for (int i = 0; i < flushed; ++i) {
+					targets[i].flush();
+				}
+			}
+		});
+	}
+
+	/**
+	 * close
+	 *
+	 * closes the connection once the frames already queued have been written
+	 * as far as the socket takes them without waiting
+	 */
+	public void close() {
+		reactor.execute(new Runnable() {
+			public void run() {
+				flush();
+				closeNow();
+			}
+		});
+	}
+
+	/**
+	 * setHeartbeat
+	 *
+	 * starts (or changes) the heartbeat
+	 *
+	 * @param heartbeatMillis
+	 *            a heartbeat is sent whenever nothing else has been for this
+	 *            many milliseconds; 0 for never
+	 * @param readTimeoutMillis
+	 *            the connection is closed when nothing at all has been
+	 *            received for this many milliseconds; 0 for never. It should
+	 *            be a few times the other end's heartbeat.
+	 */
+	public void setHeartbeat(final long heartbeatMillis,
+			final long readTimeoutMillis) {
+		reactor.execute(new Runnable() {
+			public void run() {
+				NetworkConnection.this.heartbeatMillis = heartbeatMillis;
+				NetworkConnection.this.readTimeoutMillis = readTimeoutMillis;
+				lastRead = System.currentTimeMillis();
+				heartbeat();
+			}
+		});
+	}
+
+	/** @return whether the connection is still open */
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	/** @return the address of the other end, or null if it is not known */
+	public SocketAddress getRemoteAddress() {
+		if (channel instanceof SocketChannel) {
+			return ((SocketChannel) channel).socket()
+					.getRemoteSocketAddress();
+		}
+		return null;
+	}
+
+	/*
+	 * ====================================================================
+	 * Reactor Callbacks (called on the reactor's thread)
+	 * --------------------------------------------------------------------
+	 */
+
+	// reports the connection, once its channel has been registered for
+	// reading (key is null for a loopback channel)
+	void start(SelectionKey key) {
+		this.key = key;
+		started = true;
+		listener.connected(this);
+		if (!writeQueue.isEmpty()) {
+			flush();
+		}
+	}
+
+	// reads what has arrived and hands over every complete frame
+	void readReady() {
+		int count;
+		try {
+			count = channel.read(readBuffer);
+		} catch (IOException e) {
+			closeNow();
+			return;
+		}
+		if (count < 0) {
+			closeNow();
+			return;
+		}
+		lastRead = System.currentTimeMillis();
+
+		// hand over each complete frame where it lies
+		readBuffer.flip();
+		int limit = readBuffer.limit();
+		int start = 0;
+		int end;
+		while ((end = frameEnd(start, limit)) > 0 && end <= limit) {
+			int type = readBuffer.get(start) & 0xFF;
+			if (type != Frame.HEARTBEAT) {
+				readBuffer.limit(end);
+				readBuffer.position(payloadStart);
+				listener.frameReceived(this, type, readBuffer);
+				readBuffer.limit(limit);
+			}
+			start = end;
+			if (closed) {
+				return;
+			}
+		}
+		if (end < 0) {
+			// not a frame we can take
+			closeNow();
+			return;
+		}
+		readBuffer.position(start);
+		readBuffer.compact();
+
+		// a frame longer than the buffer: make room for it
+		if (end - start > readBuffer.capacity()) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(end - start,
+					readBuffer.capacity() * 2));
+			readBuffer.flip();
+			bigger.put(readBuffer);
+			readBuffer = bigger;
+		}
+	}
+
+	// writes as much queued data as the channel takes
+	void writeReady() {
+		flush();
+	}
+
+	// closes the channel and reports it, once
+	void closeNow() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (key != null) {
+			key.cancel();
+		}
+		if (heartbeatTimer != null) {
+			heartbeatTimer.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// closing anyway
+		}
+		writeQueue.clear();
+		listener.disconnected(this);
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// closes the connection if the other end has gone quiet, sends a
+	// heartbeat if we have, and comes back later
+	private void heartbeat() {
+		if (heartbeatTimer != null) {
+			heartbeatTimer.cancel();
+			heartbeatTimer = null;
+		}
+		if (closed || (heartbeatMillis <= 0 && readTimeoutMillis <= 0)) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if (readTimeoutMillis > 0 && now - lastRead >= readTimeoutMillis) {
+			closeNow();
+			return;
+		}
+		if (heartbeatMillis > 0 && now - lastWritten >= heartbeatMillis
+				&& writeQueue.isEmpty()) {
+			writeQueue.add(HEARTBEAT.duplicate());
+			flush();
+		}
+
+		// check again when the next heartbeat or the timeout may be due
+		long wait = Long.MAX_VALUE;
+		if (heartbeatMillis > 0) {
+			wait = Math.max(1, heartbeatMillis - (now - lastWritten));
+		}
+		if (readTimeoutMillis > 0) {
+			wait = Math.min(wait, readTimeoutMillis - (now - lastRead));
+		}
+		heartbeatTimer = reactor.schedule(new Runnable() {
+			public void run() {
+				heartbeat();
+			}
+		}, wait);
+	}
+
+	// finds the end of the frame that starts at start, reading no further
+	// than limit: returns 0 if its header has not all arrived, and -1 if
+	// its payload is too long; otherwise notes where its payload starts
+	private int frameEnd(int start, int limit) {
+		int pos = start + 1;
+		int length = 0;
+		for (int shift = 0;; shift += 7) {
+			if (pos >= limit) {
+				return 0;
+			}
+			int b = readBuffer.get(pos++);
+			length |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+			if (shift >= 21) {
+				return -1;
+			}
+		}
+		if (length > Frame.MAX_PAYLOAD) {
+			return -1;
+		}
+		payloadStart = pos;
+		return pos + length;
+	}
+
+	// writes queued data until the channel would block, then waits for the
+	// reactor (or the loopback channel) to say it can take more
+	private void flush() {
+		if (closed || !started) {
+			return;
+		}
+		try {
+			ByteBuffer buffer;
+			while ((buffer = writeQueue.peek()) != null) {
+				if (channel.write(buffer) > 0) {
+					lastWritten = System.currentTimeMillis();
+				}
+				if (buffer.hasRemaining()) {
+					if (key != null) {
+						key.interestOps(SelectionKey.OP_READ
+								| SelectionKey.OP_WRITE);
+					}
+					return;
+				}
+				writeQueue.poll();
+			}
+			if (key != null) {
+				key.interestOps(SelectionKey.OP_READ);
+			}
+		} catch (IOException e) {
+			closeNow();
+		}
+	}
+
+}// class NetworkConnection
@@ -0,0 +1,423 @@
+package edu.up.game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NetworkReactor class
+ * <P>
+ * Services any number of non-blocking connections with a single thread. The
+ * thread sleeps in a selector until a socket is ready or another thread
+ * hands it work, so an idle game uses no CPU at all. Connections that need
+ * no socket (see {@link LoopbackTransport}) hand it work in the same way.
+ * <P>
+ * Everything that touches a channel runs on the reactor's thread; other
+ * threads hand work over with {@link #execute}, or with {@link #schedule} for
+ * work that is due later (a timeout, say).
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class NetworkReactor implements Runnable {
+
+	/**
+	 * the most tasks run in one pass of the loop, so that connections that
+	 * keep handing each other work (those of a {@link LoopbackTransport},
+	 * which have no sockets to wait for) cannot hold up the timers and the
+	 * sockets
+	 */
+	private static final int MAX_TASKS_PER_PASS = 1024;
+
+	/** the reactor shared by the whole process, created when first needed */
+	private static NetworkReactor defaultReactor = null;
+
+	/** waits for the channels to become ready */
+	private final Selector selector;
+
+	/** work handed over by other threads */
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	/** work that is due later, soonest first; only used on the reactor's thread */
+	private final PriorityQueue<Timer> timers = new PriorityQueue<Timer>();
+
+	/** the reactor's thread, once started */
+	private Thread thread = null;
+
+	/** cleared to stop the thread */
+	private volatile boolean running = false;
+
+	/**
+	 * Acceptor
+	 * <P>
+	 * attached to a listening channel: the listener every connection it
+	 * accepts will report to
+	 */
+	private static class Acceptor {
+		final NetworkConnection.Listener listener;
+
+		Acceptor(NetworkConnection.Listener listener) {
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * Timer
+	 * <P>
+	 * work scheduled with {@link NetworkReactor#schedule}; it can be
+	 * cancelled until it has run
+	 */
+	public static class Timer implements Comparable<Timer> {
+		private final Runnable task;
+		private final long due;
+		private volatile boolean cancelled = false;
+
+		Timer(Runnable task, long due) {
+			this.task = task;
+			this.due = due;
+		}
+
+		/** keeps the work from running, if it has not already */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public int compareTo(Timer other) {
+			return due < other.due ? -1 : (due > other.due ? 1 : 0);
+		}
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @throws IOException
+	 *             if the selector cannot be opened
+	 */
+	public NetworkReactor() throws IOException {
+		selector = Selector.open();
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * getDefault
+	 *
+	 * @return the reactor shared by the whole process, already running
+	 */
+	public static synchronized NetworkReactor getDefault() {
+		if (defaultReactor == null) {
+			try {
+				defaultReactor = new NetworkReactor();
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot open a selector", e);
+			}
+			defaultReactor.start("NetworkReactor");
+		}
+		return defaultReactor;
+	}
+
+	/**
+	 * start
+	 *
+	 * starts the reactor's thread (a daemon, so it never keeps the process
+	 * alive)
+	 *
+	 * @param name
+	 *            the name of the thread
+	 */
+	public synchronized void start(String name) {
+		if (thread != null) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * shutdown
+	 *
+	 * stops the reactor's thread and closes every channel it services
+	 */
+	public void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * execute
+	 *
+	 * runs a task on the reactor's thread as soon as it is free
+	 *
+	 * @param task
+	 *            the task
+	 */
+	public void execute(Runnable task) {
+		tasks.add(task);
+		if (Thread.currentThread() != thread) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * schedule
+	 *
+	 * runs a task on the reactor's thread once a delay has passed
+	 *
+	 * @param task
+	 *            the task
+	 * @param delayMillis
+	 *            the delay in milliseconds
+	 * @return the timer, to cancel the task with
+	 */
+	public Timer schedule(Runnable task, long delayMillis) {
+		final Timer timer = new Timer(task, System.currentTimeMillis()
+				+ delayMillis);
+		execute(new Runnable() {
+			public void run() {
+				timers.add(timer);
+			}
+		});
+		return timer;
+	}
+
+	/** @return whether the caller is running on the reactor's thread */
+	public boolean inReactorThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * listen
+	 *
+	 * starts accepting connections on a port
+	 *
+	 * @param address
+	 *            the address and port to listen on
+	 * @param listener
+	 *            receives the events of every connection accepted
+	 * @return the listening channel; close it to stop accepting
+	 * @throws IOException
+	 *             if the port cannot be bound
+	 */
+	public ServerSocketChannel listen(InetSocketAddress address,
+			final NetworkConnection.Listener listener) throws IOException {
+		final ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.socket().setReuseAddress(true);
+			server.socket().bind(address);
+			server.configureBlocking(false);
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+		execute(new Runnable() {
+			public void run() {
+				try {
+					server.register(selector, SelectionKey.OP_ACCEPT,
+							new Acceptor(listener));
+				} catch (ClosedChannelException e) {
+					// closed before it got going
+				}
+			}
+		});
+		return server;
+	}
+
+	/**
+	 * register
+	 *
+	 * starts servicing a socket that is already connected
+	 *
+	 * @param channel
+	 *            the connected socket
+	 * @param listener
+	 *            receives the connection's events
+	 * @return the connection
+	 * @throws IOException
+	 *             if the socket cannot be made non-blocking
+	 */
+	public NetworkConnection register(SocketChannel channel,
+			NetworkConnection.Listener listener) throws IOException {
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		final NetworkConnection connection = new NetworkConnection(this,
+				channel, listener);
+		final SocketChannel theChannel = channel;
+		execute(new Runnable() {
+			public void run() {
+				startConnection(theChannel, connection);
+			}
+		});
+		return connection;
+	}
+
+	/**
+	 * run
+	 *
+	 * the reactor's loop
+	 */
+	public void run() {
+		while (running) {
+			try {
+				long wait = runTimers();
+				if (!tasks.isEmpty()) {
+					// a timer has handed over work: do not sleep
+					selector.selectNow();
+				} else if (wait > 0) {
+					selector.select(wait);
+				} else {
+					selector.select();
+				}
+			} catch (IOException e) {
+				break;
+			}
+			runTasks();
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				if (!key.isValid()) {
+					continue;
+				}
+				Object attachment = key.attachment();
+				if (attachment instanceof Acceptor) {
+					accept(key, (Acceptor) attachment);
+					continue;
+				}
+				NetworkConnection connection = (NetworkConnection) attachment;
+				if (key.isReadable()) {
+					connection.readReady();
+				}
+				if (key.isValid() && key.isWritable()) {
+					connection.writeReady();
+				}
+			}
+
+			// work queued while handling the keys (a reply sent from a
+			// listener, say) would otherwise wait for the next wakeup
+			runTasks();
+		}
+		closeAll();
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// runs the tasks handed over, up to a pass's worth
+	private void runTasks() {
+		Runnable task;
+		for (int i = 0; i < MAX_TASKS_PER_PASS
+				&& (task = tasks.poll()) != null; ++i) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				// one bad task must not stop every connection
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// runs the timers that are due, and says how long until the next one (0
+	// if there is none)
+	private long runTimers() {
+		// the tasks queued so far may add timers
+		runTasks();
+		long now = System.currentTimeMillis();
+		Timer timer;
+		while ((timer = timers.peek()) != null) {
+			if (timer.cancelled) {
+				timers.poll();
+			} else if (timer.due <= now) {
+				timers.poll();
+				try {
+					timer.task.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			} else {
+				return timer.due - now;
+			}
+		}
+		return 0;
+	}
+
+	// accepts every connection that is waiting on a listening channel
+	private void accept(SelectionKey key, Acceptor acceptor) {
+		ServerSocketChannel server = (ServerSocketChannel) key.channel();
+		for (;;) {
+			SocketChannel channel;
+			try {
+				channel = server.accept();
+			} catch (IOException e) {
+				return;
+			}
+			if (channel == null) {
+				return;
+			}
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+			} catch (IOException e) {
+				try {
+					channel.close();
+				} catch (IOException ignored) {
+				}
+				continue;
+			}
+			startConnection(channel, new NetworkConnection(this, channel,
+					acceptor.listener));
+		}
+	}
+
+	// registers a connection's channel for reading and tells its listener
+	private void startConnection(SocketChannel channel,
+			NetworkConnection connection) {
+		SelectionKey key;
+		try {
+			key = channel.register(selector, SelectionKey.OP_READ, connection);
+		} catch (IOException e) {
+			connection.closeNow();
+			return;
+		}
+		connection.start(key);
+	}
+
+	// closes every channel when the reactor stops
+	private void closeAll() {
+		for (SelectionKey key : selector.keys()) {
+			Object attachment = key.attachment();
+			if (attachment instanceof NetworkConnection) {
+				((NetworkConnection) attachment).closeNow();
+			} else {
+				try {
+					key.channel().close();
+				} catch (IOException e) {
+					// closing anyway
+				}
+			}
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			// closing anyway
+		}
+	}
+
+}// class NetworkReactor
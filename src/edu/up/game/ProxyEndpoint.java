@@ -0,0 +1,296 @@
+package edu.up.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * ProxyEndpoint class
+ * <P>
+ * The one port on which the {@link ProxyPlayer}s of this process wait for
+ * their remote players. Every client that connects goes through the
+ * {@link Handshake}; it is then handed to a waiting proxy of the game it
+ * asked for (the one with the session id it asked for, or the one that has
+ * waited longest of those whose player has never connected), or turned away
+ * at once if there is none. A client that asks for its seat while we still
+ * think it is connected takes the seat over from its old connection. The
+ * port is listened on while some proxy is waiting or connected through it.
+ * Each {@link Transport} has ports of its own.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+class ProxyEndpoint implements NetworkConnection.Listener {
+
+	/**
+	 * Waiter
+	 * <P>
+	 * a proxy waiting for its remote player; once a player has been handed
+	 * to it, it receives the connection's events
+	 */
+	interface Waiter extends NetworkConnection.Listener {
+
+		/** @return the name of the game, or null if not yet known */
+		String getGameName();
+
+		/** @return the session id of the seat waiting */
+		String getSessionId();
+
+		/**
+		 * @return whether the seat's player has connected before, so that
+		 *         only it (asking by session id) may have the seat
+		 */
+		boolean hasConnected();
+
+		/**
+		 * accepted
+		 *
+		 * @param connection
+		 *            the connection of the remote player, which has been
+		 *            welcomed
+		 */
+		void accepted(NetworkConnection connection);
+	}
+
+	/** the endpoint of each port of each transport, once used */
+	private static final Map<Transport, Map<Integer, ProxyEndpoint>> endpoints = new IdentityHashMap<Transport, Map<Integer, ProxyEndpoint>>();
+
+	/** the transport the port belongs to */
+	private final Transport transport;
+
+	/** the port */
+	private final int port;
+
+	/** the reactor servicing the connections */
+	private final NetworkReactor reactor = NetworkReactor.getDefault();
+
+	/** the proxies waiting, longest first */
+	private final ArrayList<Waiter> waiters = new ArrayList<Waiter>();
+
+	/**
+	 * the proxy each connection has been handed to; connections still in
+	 * their handshake map to null. Only used on the reactor's thread.
+	 */
+	private final Map<NetworkConnection, Waiter> connections = new IdentityHashMap<NetworkConnection, Waiter>();
+
+	/** what listens on the port, while a proxy is waiting or connected */
+	private Closeable listening = null;
+
+	/**
+	 * constructor; see {@link #forPort}
+	 */
+	private ProxyEndpoint(Transport transport, int port) {
+		this.transport = transport;
+		this.port = port;
+	}
+
+	/*
+	 * ====================================================================
+	 * Package Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * forPort
+	 *
+	 * @param transport
+	 *            the transport
+	 * @param port
+	 *            the port
+	 * @return the endpoint of the transport's port
+	 */
+	static synchronized ProxyEndpoint forPort(Transport transport, int port) {
+		Map<Integer, ProxyEndpoint> ports = endpoints.get(transport);
+		if (ports == null) {
+			ports = new HashMap<Integer, ProxyEndpoint>();
+			endpoints.put(transport, ports);
+		}
+		ProxyEndpoint endpoint = ports.get(port);
+		if (endpoint == null) {
+			endpoint = new ProxyEndpoint(transport, port);
+			ports.put(port, endpoint);
+		}
+		return endpoint;
+	}
+
+	/**
+	 * offer
+	 *
+	 * lets a proxy wait for its remote player, listening on the port if
+	 * nobody else is
+	 *
+	 * @param waiter
+	 *            the proxy
+	 * @throws IOException
+	 *             if the port cannot be listened on
+	 */
+	synchronized void offer(Waiter waiter) throws IOException {
+		if (listening == null) {
+			listening = transport.listen(reactor, port, this);
+		}
+		waiters.add(waiter);
+	}
+
+	/**
+	 * withdraw
+	 *
+	 * stops a proxy waiting, and stops listening if nobody else needs the
+	 * port
+	 *
+	 * @param waiter
+	 *            the proxy
+	 */
+	synchronized void withdraw(Waiter waiter) {
+		if (waiters.remove(waiter) && waiters.isEmpty()) {
+			// the port is only let go once the selector has seen the channel
+			// close, so close it on the reactor's thread (where we can also
+			// tell whether any proxy is still connected through it)
+			reactor.execute(new Runnable() {
+				public void run() {
+					closeIfUnused();
+				}
+			});
+		}
+	}
+
+	/*
+	 * ====================================================================
+	 * Connection Events (called on the reactor's thread)
+	 * --------------------------------------------------------------------
+	 */
+
+	public void connected(final NetworkConnection connection) {
+		connections.put(connection, null);
+
+		// a client that does not finish its handshake in time is dropped
+		reactor.schedule(new Runnable() {
+			public void run() {
+				if (connections.containsKey(connection)
+						&& connections.get(connection) == null) {
+					connection.close();
+				}
+			}
+		}, Handshake.TIMEOUT_MILLIS);
+	}
+
+	public void frameReceived(NetworkConnection connection, int type,
+			ByteBuffer payload) {
+		Waiter waiter = connections.get(connection);
+		if (waiter != null) {
+			waiter.frameReceived(connection, type, payload);
+			return;
+		}
+
+		// the first frame: find the client a seat
+		Handshake hello = Handshake.parseHello(type, payload);
+		ByteBuffer refusal;
+		NetworkConnection old = null;
+		synchronized (this) {
+			refusal = (hello == null) ? Handshake.reject("expected HELLO") : null;
+			if (refusal == null) {
+				waiter = claim(hello);
+				if (waiter == null) {
+					// a client coming back before we noticed it had gone
+					old = connectionOf(hello);
+					waiter = (old == null) ? null : connections.get(old);
+				}
+				if (waiter == null) {
+					refusal = refusal(hello);
+				}
+			}
+		}
+		if (waiter == null) {
+			connections.remove(connection);
+			connection.send(refusal);
+			connection.close();
+			return;
+		}
+		connections.put(connection, waiter);
+		connection.send(Handshake.welcome(waiter.getSessionId()));
+		waiter.accepted(connection);
+		if (old != null) {
+			// the old connection has died without our noticing
+			old.close();
+		}
+	}
+
+	public void disconnected(NetworkConnection connection) {
+		Waiter waiter = connections.remove(connection);
+		if (waiter != null) {
+			waiter.disconnected(connection);
+		}
+		closeIfUnused();
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// stops listening if nobody is waiting or connected; runs on the
+	// reactor's thread
+	private synchronized void closeIfUnused() {
+		if (waiters.isEmpty() && connections.isEmpty() && listening != null) {
+			try {
+				listening.close();
+			} catch (IOException e) {
+				// closing anyway
+			}
+			listening = null;
+		}
+	}
+
+	// takes the waiting proxy a client asked for off the list, or returns
+	// null if there is none
+	private Waiter claim(Handshake hello) {
+		for (Waiter waiter : waiters) {
+			if (Handshake.check(hello, waiter.getGameName()) == null
+					&& (hello.wantsAnySession() ? !waiter.hasConnected()
+							: hello.sessionId.equals(waiter.getSessionId()))) {
+				withdraw(waiter);
+				return waiter;
+			}
+		}
+		return null;
+	}
+
+	// finds the connection of the seat a client asks for by session id,
+	// if the seat's player is connected
+	private NetworkConnection connectionOf(Handshake hello) {
+		if (hello.wantsAnySession()) {
+			return null;
+		}
+		for (Map.Entry<NetworkConnection, Waiter> entry : connections
+				.entrySet()) {
+			Waiter waiter = entry.getValue();
+			if (waiter != null
+					&& hello.sessionId.equals(waiter.getSessionId())
+					&& Handshake.check(hello, waiter.getGameName()) == null) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	// says why no waiting proxy suits a client
+	private ByteBuffer refusal(Handshake hello) {
+		for (Waiter waiter : waiters) {
+			String gameName = waiter.getGameName();
+			if (gameName != null) {
+				ByteBuffer refusal = Handshake.check(hello, gameName);
+				if (refusal != null) {
+					return refusal;
+				}
+			}
+		}
+		return Handshake.reject(hello.wantsAnySession() ? "no free seat"
+				: "no such session");
+	}
+
+}// class ProxyEndpoint
@@ -1,378 +1,508 @@
 package edu.up.game;
 
+import java.nio.ByteBuffer;
+
 /**
  * A Game object that is used as a proxy for the real game that is on another
- * machine on the network.  Each ProxyGame is associated with exactly one
- * Player object.  Whenever a method is invoked on the ProxyGame object,
- * it encodes the message as a string and sends it across the network; when
- * ever the ProxyGame object receives a message from the network, it decodes
- * the string and invokes the corresponding method its Player.
- * 
+ * machine on the network.  The real game sends us its state (as the player
+ * at this machine sees it) whenever it changes, and tells us when it is
+ * our player's move; we keep the latest state so that it can be handed to
+ * the player without a round trip, and send the player's actions back
+ * across the network.
+ *
+ * After the Handshake, the messages are Frames:
+ * <ul>
+ * <li>STATE, with a sequence number and an encoded state -- the whole
+ * state, sent when we join and whenever we ask for it
+ * <li>DELTA, with a sequence number, a hash and an encoded change -- the
+ * state has changed: applying the change to the state numbered one less
+ * must give a state with that hash, or we send RESYNC to ask for the
+ * whole state
+ * <li>SET_GAME, with our player's position in the game
+ * <li>REQUEST_MOVE, with a sequence number -- it is our player's move in
+ * the state numbered so
+ * <li>GAME_IS_OVER -- the game has ended
+ * <li>FINISH_UP -- the game is shutting down
+ * <li>MESSAGE, with a game-specific message
+ * </ul>
+ * and the actions we send back are encoded game-specific actions, in
+ * ACTION frames.  Numbers are read straight out of the buffer the frame
+ * arrived in; only the state, change or message itself is decoded.
+ *
+ * When the connection is lost we reconnect (see ProxyObject) and send
+ * RESUME with the number of our latest state, so the game sends us just
+ * the changes we missed.  If our move was lost with the connection, the
+ * game asks for it again and we send it again, without bothering the
+ * player.
+ *
  * @author Steven R. Vegdahl
  * @version 23 July 2002
  */
 public abstract class ProxyGame extends ProxyObject
-    implements Game, Runnable
+    implements Game
 {
 
-    // the player associated with this game
-    private GamePlayer player;
+    // satisfies the Serializable interface, which Game extends
+    private static final long serialVersionUID = 18102026L;
+
+    /**
+     * Receives notice (on the network thread) whenever something about the
+     * game has changed, so that the user interface can catch up.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the state has changed, our player has been asked for
+         * a move, the game has ended or the connection has been lost.
+         *
+         * @param game the proxy game that changed
+         */
+        public void gameChanged(ProxyGame game);
+    }
+
+    // tells the user interface about changes; not saved with the game
+    private transient Listener listener;
+
+    // the latest state of the game sent to us
+    private volatile LocalGame gameState;
+
+    // the number of the latest state
+    private volatile int stateSeq;
+
+    // whether we have asked for the whole state and are waiting for it
+    private volatile boolean resyncing;
+
+    // our player's position in the game, or -1 if not yet known
+    private volatile int playerId;
+
+    // whether our player has been asked for a move that it has not yet
+    // been handed, and the number of the state the move is for
+    private boolean moveRequested;
+    private int requestSeq;
 
-    // tells whether the game has started
-    private boolean gameIsStarted;
+    // the last action we sent, and the number of the state it was for
+    private ByteBuffer lastAction;
+    private int lastActionSeq;
 
-    // tells whether it is time to quit
-    private boolean quittingTime;
+    // tells whether the game is over
+    private volatile boolean gameIsOver;
 
-    // the game's state
-    private LocalGame gameState;
+    // the name of the game we want to play
+    private final String gameName;
 
     /**
      * ProxyGame constructor.
      *
      * @param hostName  the name of the remote site to where the actual
      *  game is running
+     * @param gameName  the name of the game (see GameConfig.getGameName);
+     *  the host must be running the same game
+     */
+    public ProxyGame(String hostName, String gameName) {
+        this(hostName, gameName, null);
+    }
+
+    /**
+     * ProxyGame constructor for a particular seat.  To watch a game on a
+     * GameServer instead of playing, pass Handshake.spectate: we are then
+     * sent the state and its changes, but never asked for a move.
+     *
+     * @param hostName  the name of the remote site to where the actual
+     *  game is running
+     * @param gameName  the name of the game (see GameConfig.getGameName);
+     *  the host must be running the same game
+     * @param sessionId  the seat to ask for, or null for any free seat
+     */
+    public ProxyGame(String hostName, String gameName, String sessionId) {
+        this(hostName, gameName, sessionId, Handshake.UNRATED);
+    }
+
+    /**
+     * ProxyGame constructor for a rated player.  A GameServer pairs the
+     * players who ask for any free seat with players of similar rating.
+     *
+     * @param hostName  the name of the remote site to where the actual
+     *  game is running
+     * @param gameName  the name of the game (see GameConfig.getGameName);
+     *  the host must be running the same game
+     * @param sessionId  the seat to ask for, or null for any free seat
+     * @param rating  our rating, or Handshake.UNRATED
      */
-    public ProxyGame(String hostName) {
+    public ProxyGame(String hostName, String gameName, String sessionId,
+            int rating) {
+        this(hostName, gameName, sessionId, rating, null);
+    }
+
+    /**
+     * ProxyGame constructor that does not wait for the network.  Given a
+     * listener, it returns at once and connects on a thread of its own
+     * (isConnecting is true meanwhile); the listener's gameChanged is
+     * called once it has connected or failed to.  Without one, it
+     * connects before it returns.
+     *
+     * @param hostName  the name of the remote site to where the actual
+     *  game is running
+     * @param gameName  the name of the game (see GameConfig.getGameName);
+     *  the host must be running the same game
+     * @param sessionId  the seat to ask for, or null for any free seat
+     * @param rating  our rating, or Handshake.UNRATED
+     * @param listener  the object to tell about changes, or null
+     */
+    public ProxyGame(String hostName, String gameName, String sessionId,
+            int rating, Listener listener) {
 
         // invoke superclass constructor
         super();
+        this.gameName = gameName;
 
         // set instance variables to their initial values
-        player = null;
-        gameIsStarted = false;
-        quittingTime = false;
+        this.listener = listener;
         gameState = null;
+        stateSeq = -1;
+        resyncing = false;
+        playerId = -1;
+        moveRequested = false;
+        requestSeq = -1;
+        lastAction = null;
+        lastActionSeq = -1;
+        gameIsOver = false;
 
-        // attempt to connect as a client
-        this.connectAsClient(hostName);
-
-        // if connection was successful, start running in separate thread
-        if (this.isComplete()) {
-            Thread t = new Thread(this);
-            t.start();
+        // attempt to connect as a client: in the background if someone is
+        // listening for the outcome
+        if (listener != null) {
+            this.connectAsClientInBackground(hostName, sessionId, rating);
+            return;
         }
-        else {
-            // error occured, so emit message to console
-            System.out.println("Connection error: ProxyGame");
+        this.connectAsClient(hostName, sessionId, rating);
+
+        // if connection was not successful, emit message to console
+        if (!this.isComplete()) {
+            System.out.println("Connection error: ProxyGame: "+
+                getConnectError());
         }
     }
 
     /**
-     * The code that runs during the object's lifetime.
+     * The name of the game we want to play.
      *
+     * @return the name
      */
-    public void run() {
+    protected String getGameName() {
+        return gameName;
+    }
 
-        // keep processing input until it's time to quit
-        while (!quittingTime) {
-            processInput(); // process input
-            Thread.yield(); // let other threads have a chance to run
-        }
+    /**
+     * Tells whether we only watch the game.
+     *
+     * @return true if we are a spectator
+     */
+    public boolean isSpectator() {
+        return Handshake.isSpectator(getSessionId());
+    }
 
-        // quit the program
-        System.exit(0);
+    /**
+     * Sets the object that is told whenever the game changes.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
     }
 
     /**
-     * Reads (from the network) and processes a line of input.  Parses
-     * the command and, when appropriate, invokes operations on the Player
-     * object.
+     * Processes a frame from the network.
+     *
+     * @param type the frame's type
+     * @param payload the frame's payload
      */
-  //%%%TODO:  Implement this method
-    private void processInput() {
-    
-//            // read the line of text from the network
-//            String str = readInputLine();
-//            
-//            // We have these possibilities:
-//            // - string starts with '*' -- returning game ID
-//            // - string starts with ':' -- generic encoded action
-//            // - string starts with a '%' -- game-specific encoded action
-//            // - string starts with ' ' -- encoded state
-//            
-//            if (str.length() == 0) {
-//                // string is empty: ignore
-//            }
-//            else if (str.charAt(0) == '*') {
-//                // string starts with '*': set the state to the game's id by
-//                // parsing the rest of the string and creating an
-//                // IntGameState object containing the corresponding number
-//                String rest = str.substring(1); // all but first cahr
-//                int id = -1; // default value
-//                try {
-//                    id = Integer.parseInt(rest); // parse as number
-//                }
-//                catch (NumberFormatException nfx) {
-//                }
-//                this.setState(new IntGameState(id)); // update game state
-//            }
-//            else if (str.charAt(0) == ':') {
-//                // string starts with ':': decode the generic action
-//                String rest = str.substring(1); // rest of string
-//                if (rest.startsWith("setGame")) {
-//                    // we have a 'setGame' command
-//                    
-//                    // parse the number as the player's position in the game
-//                    int id = 0;
-//                    try {
-//                        int idx = rest.indexOf(" ")+1;
-//                        id = Integer.parseInt(rest.substring(idx).trim());
-//                    }
-//                    catch (NumberFormatException nfx) {
-//                    }
-//                    
-//                    // wait for player to be set
-//                    while (player == null) {
-//                        Thread.yield();
-//                    }
-//                    
-//                    // invoke the setGame operation
-//                    player.setGame(this, id);
-//                }
-//                // ignore all further commands unless the game has started
-//                else if (!gameIsStarted) {
-//                }
-//                else if (rest.equals("requestMove")) {
-//                    // invoke the 'requestMove' operation on the player
-//                    player.requestMove();
-//                }
-//                else if (rest.equals("notYourMove")) {
-//                    // invoke the 'notYourMove' operation on the player
-//                    player.notYourMove();
-//                }
-//                else if (rest.equals("timeToQuit")) {
-//                    // invoke the 'timeToQuit' operation on the player
-//                    player.timeToQuit();                        
-//                }
-//                else if (rest.equals("invalidRequest")) {
-//                    // invoke the 'invalidRequest' operation on the player
-//                    player.invalidRequest();
-//                }
-//                else if (rest.equals("illegalMove")) {
-//                    // invoke the 'illegalMove' operation on the player
-//                    player.illegalMove();
-//                }
-//                else if (rest.equals("gameIsOver")) {
-//                    // invoke the 'illegalMove' operation on the player
-//                    player.gameIsOver();
-//                }
-//                else if (rest.equals("stateChanged")) {
-//                    // invoke the 'stateChanged' method in another thread
-//                    // so that we don't have deadlock problems
-//                    Thread t = new Thread(new StateGetter());
-//                    t.start();
-//                }
-//                else if (rest.equals("finishUp")) {
-//                    // invoke the 'finishUp' operation on the player, and
-//                    // mark game as being done
-//                    player.finishUp();
-//                    quittingTime = true;
-//                }
-//                
-//            }
-//            else if (str.charAt(0) == '%'){
-//                // process the game-specific message
-//                receiveMessage(str.substring(1));
-//            }
-//            else if (str.charAt(0) == ' '){
-//                // we have received game state; decode it and set our "state"
-//                // object
-//                LocalGame ac =
-//                    decodeState(str.substring(1));
-//                if (ac != null) {
-//                    this.setState(ac);
-//                }
-//            }
+    protected void processFrame(int type, ByteBuffer payload) {
+
+        switch (type) {
+        case Frame.STATE: {
+            // we have received the whole state; decode it and keep it
+            LocalGame state = null;
+            try {
+                stateSeq = payload.getInt();
+                state = decodeState(payload);
+            }
+            catch (RuntimeException x) {
+                // not valid: handled below
+            }
+            if (state == null) {
+                resync();
+                return;
+            }
+            gameState = state;
+            resyncing = false;
+            break;
+        }
+        case Frame.DELTA: {
+            // we have received a change; ignore it while waiting for the
+            // whole state, since that will include it
+            if (resyncing) {
+                return;
+            }
+            LocalGame state = null;
+            try {
+                int seq = payload.getInt();
+                long hash = payload.getLong();
+                if (gameState != null && seq == stateSeq+1) {
+                    state = applyDelta(gameState, payload);
+                    if (state != null && hashState(state) != hash) {
+                        state = null;
+                    }
+                }
+                stateSeq = seq;
+            }
+            catch (RuntimeException x) {
+                // not valid: handled below
+            }
+            if (state == null) {
+                resync();
+                return;
+            }
+            gameState = state;
+            break;
+        }
+        case Frame.SET_GAME:
+            // our player's position in the game
+            if (payload.remaining() >= 4) {
+                playerId = payload.getInt();
+            }
+            return;
+        case Frame.REQUEST_MOVE: {
+            int seq = (payload.remaining() >= 4) ? payload.getInt() : stateSeq;
+            synchronized (this) {
+                if (lastAction != null && seq == lastActionSeq) {
+                    // we have answered already, but the answer was lost
+                    // with the connection: send it again
+                    writeFrame(lastAction);
+                    return;
+                }
+                moveRequested = true;
+                requestSeq = seq;
+            }
+            break;
+        }
+        case Frame.GAME_IS_OVER:
+            gameIsOver = true;
+            break;
+        case Frame.FINISH_UP:
+            disconnect();
+            return;
+        case Frame.MESSAGE:
+            // process the game-specific message
+            receiveMessage(Frame.readText(payload));
+            return;
+        default:
+            // NOT_YOUR_MOVE, ILLEGAL_MOVE and the like: nothing to do,
+            // since we only ever move when asked to
+            return;
+        }
 
+        // tell the user interface
+        fireGameChanged();
     }
 
     /**
-     * Sets the game's state object, assuming it's not already set.
-     * 
+     * Tells the user interface that the connection has been lost.
      */
-    private void setState(LocalGame state) {
-        synchronized(this) { // synch to avoid a race condition
-            if (gameState == null) {
-                gameState = state;
-            }
+    protected void connectionLost() {
+        fireGameChanged();
+    }
+
+    /**
+     * Tells the user interface how connecting in the background went.
+     */
+    protected void connectFinished() {
+        if (!isComplete()) {
+            System.out.println("Connection error: ProxyGame: "+
+                getConnectError());
         }
+        fireGameChanged();
+    }
 
+    /**
+     * Once we have connected again after losing the connection, asks for
+     * the changes we missed.
+     */
+    protected void finishInit() {
+        if (isResumed()) {
+            writeFrame(Frame.ofInt(Frame.RESUME, resyncing ? -1 : stateSeq));
+        }
     }
 
     /**
-     * gets information about the state of the game.  Only gives information
-     * if the given player is allowed to know that information.  (Typically,
-     * the GameState object will be a subclass of GameState that applies to
-     * that particular game.
+     * Hands over a move request from the game, if there is one.  Each
+     * request is handed over only once, so the player is never asked twice
+     * for the same move.
      *
-     * @param p the player asking the question
-     * @param stateType a game-dependent encoding, specifying the particular
-     *  type of information the player wants
-     * @return an object that contains the information that the caller
-     *  requested
+     * @return true if our player has been asked for a move
      */
-    public LocalGame getState(GamePlayer p, int stateType) {
-        if (p != player) {
-            // not the right player: give him "dummy" information
-            return this.decodeState("");
-        }
-        else {
-        
-            // send a message across the network requesting state information
-            writeOutputLine(""+stateType);
-            
-            // continuously check for state information being set
-            for (;;) {
-                synchronized(this) { // synch to avoid race condition
-                    if (gameState != null) {
-                        // game state is there; clear state and return
-                        // state object
-                        LocalGame temp = gameState;
-                        gameState = null;
-                        return temp;
-                    }
-                }
-                
-                // game state was not there, yield control and then loop back
-                Thread.yield();
-            }
+    public synchronized boolean takeMoveRequest() {
+        // while our copy of the state is being replaced or brought up to
+        // date, keep the request for later
+        if (!moveRequested || gameState == null || resyncing || gameIsOver
+                || requestSeq != stateSeq) {
+            return false;
         }
+        moveRequested = false;
+        return true;
+    }
+
+    /**
+     * Gets our player's position in the game.
+     *
+     * @return the position, or -1 if the game has not told us yet
+     */
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Gets the latest state of the game sent to us.
+     *
+     * @return the state, or null if none has been received yet
+     */
+    public LocalGame getLatestState() {
+        return gameState;
+    }
+
+    /**
+     * specifies whose turn it is, according to the latest state
+     *
+     * @return the index of the player whose turn it is, or -1 if no state
+     *  has been received yet
+     */
+    public int whoseTurn() {
+        LocalGame state = gameState;
+        return state == null ? -1 : state.whoseTurn();
+    }
+
+    /**
+     * gets the state of the game from the perspective of a given player.
+     * The game only ever sends us what our own player may see.
+     *
+     * @param playerIndex the index of the player asking the question
+     * @return the state, or null if none has been received yet
+     */
+    public LocalGame getPlayerState(int playerIndex) {
+        LocalGame state = gameState;
+        return state == null ? null : state.getPlayerState(playerIndex);
     }
 
     /**
      * applies an action to the Game object.  Typically called by a player
-     * who wants to request an action behalf.
+     * who wants to request an action behalf.  The action is sent over the
+     * network to the "real" game, which answers with the new state.
      *
      * @param action  the action object to apply
      */
     public final void applyAction(GameAction action) {
-    
-        // attempt to encode the action as a "generic action"
-        String str = encodeBasicAction(action);
-        
-        // send encode action over the network so that it is applied
-        // to the "real" game
-        if (str != null) {
-            // generic action: send with '#' prefix
-            writeOutputLine("#"+str);
-        }
-        else {
-            // game-specific action: send with ':' prefix
-            writeOutputLine(":"+encodeAction(action));
+        // game-specific action: send it, and keep it in case it is lost
+        // with the connection
+        ByteBuffer frame = Frame.ofBytes(Frame.ACTION, encodeAction(action));
+        synchronized (this) {
+            lastAction = frame;
+            lastActionSeq = stateSeq;
         }
+        writeFrame(frame);
     }
 
     /**
-     * Encode one of the standard "generic" actions
+     * Tells whether the game is over.
      *
-     * @param action the action to encode
-     * @return the string that is the encoding of the action, or null
-     *  if the action was one of the standard "generic" ones
-     **/
-//%%%TODO:  Implement this method
-    private final String encodeBasicAction(GameAction action) {
-//        if (action instanceof GameMoveAction) {
-//            // game-specific action: return null
-//            return null;
-//        }
-//        else if (action instanceof GameNullAction) {
-//            // generic null action
-//            return "null";
-//        }
-//        else if (action instanceof GameQuitAction) {
-//            // generic quit action
-//            return "quit";
-//        }
-//        else if (action instanceof GameQuitAcknowledgeAction) {
-//            // generic quit-acknowledge action
-//            return "quitAcknowledge";
-//        }
-//        else {
-//            // something else: return null
-            return null;
-//        }
+     * @return boolean value that tells whether the game is over
+     */
+    public boolean isGameOver() {
+        LocalGame state = gameState;
+        return gameIsOver || (state != null && state.isGameOver());
     }
 
     /**
-     * Transforms a string (e.g., sent over the network) into an appropriate
+     * @return the id of the player who has won the game, according to
+     *  the latest state
+     */
+    public int getWinnerId() {
+        LocalGame state = gameState;
+        return state == null ? -1 : state.getWinnerId();
+    }
+
+    /**
+     * Transforms bytes sent over the network into an appropriate
      * GameState object for the game.  This should be the inverse of
      * the game's ProxyPlayer-subclass' encodeState method.
      *
-     * @param str  the string to decode
-     * @return the resulting GameState object
+     * @param data  the bytes to decode, from the buffer's position to its
+     *  limit; only valid until the method returns
+     * @return the resulting GameState object, or null if the bytes are
+     *  not valid
      */
-    protected abstract LocalGame decodeState(String str);
+    protected abstract LocalGame decodeState(ByteBuffer data);
 
     /**
-     * Transforms an action into a String object for sending over the
-     * network.  This should be the inverse of the game's ProxyPlaner-
-     * subclass' decodeAction method.
+     * Transforms an action into bytes for sending over the network.  This
+     * should be the inverse of the game's ProxyPlaner-subclass'
+     * decodeAction method.
      *
      * @param ga  the game action to be encoded.
-     * @return the String encoding of the action
+     * @return the encoding of the action
      */
-    protected abstract String encodeAction(GameAction ga);
+    protected abstract byte[] encodeAction(GameAction ga);
 
     /**
-     * tells the game which players are playing.  Checks that the array
-     * consists of a set of players that can legally play the game (e.g.,
-     * not too many or too few.
+     * Brings a state up to date with a change encoded by the ProxyPlayer
+     * subclass' (or the GameServer subclass') encodeDelta.  The default
+     * returns null, so we ask for the whole state instead.
      *
-     * @param the array of players playing the game
-     * @return null if game is set up properly; an error message is there
-     *   was a problem
+     * @param state the state before the change; must not be modified
+     * @param delta the encoded change, from the buffer's position to its
+     *  limit; only valid until the method returns
+     * @return the state after the change, or null if the change is not
+     *  valid
      */
-    public String setPlayers(GamePlayer[] players) {
-        for (int i = 0; i < players.length; i++) {
-            if (players[i] != null) {
-                player = players[i];
-                return null;
-            }
-        }
+    protected LocalGame applyDelta(LocalGame state, ByteBuffer delta) {
         return null;
     }
 
     /**
-     * Begins the actual game.
+     * Computes a hash of a state, to check a change has been applied
+     * correctly.  Must agree with the ProxyPlayer subclass' hashState.
+     *
+     * @param state the state
+     * @return the hash
      */
-    public void playGame() {
-        // mark the game as having started
-        gameIsStarted = true;
+    protected long hashState(LocalGame state) {
+        return 0;
     }
-    
+
     /**
-     * Gets the player that is associated with this game.
-     * 
-     * @return the player that is associated with this ProxyGame.
+     * Asks for the whole state, because our copy is wrong or out of date.
      */
-    protected GamePlayer getPlayer() {
-        return player;
+    private void resync() {
+        if (!resyncing) {
+            resyncing = true;
+            writeFrame(Frame.empty(Frame.RESYNC));
+        }
     }
 
     /**
      * Process a game-specific message that has been sent over the network.
-     * 
+     *
      * @param  the message
      */
     protected void receiveMessage(String str) {
         // specific games should override this if they want to process
         // any game-specific messages
     }
-    
+
     /**
-     * An inner class that helps invoke the 'stateChanged' method on
-     * a player, using a separate thread.
+     * Tells the listener (if any) that the game has changed.
      */
-    private class StateGetter implements Runnable {
-    
-        /**
-         * The code that runs in the separate thread.
-         */
-    	//%%%TODO:  Implement this method
-        public void run() {
-//            // invoke the stateChanged method on the player
-//            player.stateChanged();
+    private void fireGameChanged() {
+        Listener l = listener;
+        if (l != null) {
+            l.gameChanged(this);
         }
     }
 }
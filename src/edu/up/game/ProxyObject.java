@@ -1,32 +1,179 @@
 package edu.up.game;
 
 import java.io.*;
-import java.net.*;
-import java.util.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
 
 /**
  * An object that communicates over the network with another object.
  * This abstract class implements the common behavior for its two primary
  * subclasses, ProxyGame and ProxyPlayer.
  * 
+ * The connection is serviced by the shared NetworkReactor, so no thread
+ * of our own sits waiting for input: each Frame that arrives is handed to
+ * processFrame on the reactor's thread, straight out of the buffer it was
+ * read into.
+ * 
+ * Every connection begins with a Handshake: the client names the protocol
+ * version, the game and the seat (session) it wants, and the host either
+ * welcomes it or says why not.  The host listens on a single port, so a
+ * client makes a single attempt, and knows within a bounded time whether
+ * it has succeeded.
+ * 
+ * Both ends send heartbeats, so a connection that has died without
+ * saying so is noticed after the read timeout.  A lost connection is not
+ * the end of the game: the server waits for its client to come back to
+ * the same seat, and the client tries to reconnect for a while, asking
+ * for its seat by its session id.  finishInit is then called again, with
+ * isResumed telling that the other end already knows us.
+ * 
+ * The connections are made by a Transport: TCP, unless another has been
+ * set with setDefaultTransport before the object is made.  A
+ * LoopbackTransport lets a ProxyGame and a ProxyPlayer of the same process
+ * play through memory, exactly as they would over the network.
+ * 
  * @author Steven R. Vegdahl
  * @version 23 July 2002
  */
 public abstract class ProxyObject {
 
-    // the input and output stream objects via which information is
-    // received and sent over the network
-    private BufferedReader in;
-    private PrintWriter out;
+    // how long (in milliseconds) a client waits for the host to answer
+    private static final int CONNECT_TIMEOUT_MILLIS = 3000;
+
+    // the default heartbeat and timeouts, in milliseconds
+    public static final int DEFAULT_HEARTBEAT_MILLIS = 5000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 15000;
+    public static final int DEFAULT_RECONNECT_MILLIS = 60000;
+
+    // how long a player on another device has for a move, by default
+    public static final int DEFAULT_MOVE_TIMEOUT_MILLIS = 120000;
+
+    // the longest wait between two attempts to reconnect
+    private static final int MAX_RETRY_MILLIS = 8000;
+
+    // the transport of the objects made from now on
+    private static volatile Transport defaultTransport = new TcpTransport();
+
+    // the transport our connections are made by
+    private final Transport transport;
+
+    // the connection via which information is received and sent over the
+    // network; null until the connection has been made
+    private volatile NetworkConnection connection;
+
+    // while we are waiting for a client, the port we are waiting on and
+    // the object that waits
+    private volatile ProxyEndpoint endpoint;
+    private volatile Handler waiter;
+
+    // our seat's session id: made up by the server, given to the client in
+    // the handshake
+    private volatile String sessionId;
+
+    // the rating we send the host, as a client, so it can find us an
+    // opponent of our strength
+    private volatile int rating;
+
+    // why the last attempt to connect failed, or null
+    private volatile String connectError;
+
+    // whether the last attempt to connect was turned away by the host
+    private volatile boolean connectRejected;
+
+    // the host we connected to, as a client
+    private volatile String hostName;
+
+    // whether the current connection replaces an earlier one
+    private volatile boolean resumed;
+
+    // whether a client is trying to get its connection back
+    private volatile boolean reconnecting;
+
+    // whether a client is making its first attempt to connect, on a
+    // thread of its own
+    private volatile boolean connecting;
+
+    // set once we have been told to disconnect: no more reconnecting
+    private volatile boolean closing;
+
+    // the heartbeat and timeouts, in milliseconds
+    private volatile int heartbeatMillis;
+    private volatile int readTimeoutMillis;
+    private volatile int reconnectMillis;
 
     /**
      * Constructor for a Proxy Object
      *
      */
     public ProxyObject() {
-        // set the input and output streams to null
-        in = null;
-        out = null;
+        // no connection yet
+        transport = defaultTransport;
+        connection = null;
+        endpoint = null;
+        waiter = null;
+        sessionId = null;
+        rating = Handshake.UNRATED;
+        connectError = null;
+        connectRejected = false;
+        hostName = null;
+        resumed = false;
+        reconnecting = false;
+        connecting = false;
+        closing = false;
+        heartbeatMillis = DEFAULT_HEARTBEAT_MILLIS;
+        readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+        reconnectMillis = DEFAULT_RECONNECT_MILLIS;
+    }
+
+    /**
+     * Sets the transport that the proxy objects made from now on (and
+     * their ProxyEndpoints) make their connections with.  A client and
+     * its host must use the same one.
+     *
+     * @param transport the transport; TCP to begin with
+     */
+    public static void setDefaultTransport(Transport transport) {
+        defaultTransport = transport;
+    }
+
+    /**
+     * Gets the transport that the proxy objects made from now on use.
+     *
+     * @return the transport
+     */
+    public static Transport getDefaultTransport() {
+        return defaultTransport;
+    }
+
+    /**
+     * Gets the transport our connections are made by.
+     *
+     * @return the transport
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the heartbeat and the timeouts.  They apply to the connection
+     * from now on.
+     *
+     * @param heartbeatMillis a heartbeat is sent whenever we have been
+     *  quiet this long; 0 for never
+     * @param readTimeoutMillis the connection is given up for lost when
+     *  the other end has been quiet this long; 0 for never
+     * @param reconnectMillis how long a client keeps trying to get a lost
+     *  connection back; 0 for not at all
+     */
+    public void setTimeouts(int heartbeatMillis, int readTimeoutMillis,
+            int reconnectMillis) {
+        this.heartbeatMillis = heartbeatMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.reconnectMillis = reconnectMillis;
+        NetworkConnection c = connection;
+        if (c != null) {
+            c.setHeartbeat(heartbeatMillis, readTimeoutMillis);
+        }
     }
 
     /**
@@ -43,230 +190,418 @@ public abstract class ProxyObject {
      *
      */
     public boolean isComplete() {
-        return in != null && out != null;
+        NetworkConnection c = connection;
+        return c != null && c.isOpen();
     }
 
     /**
-     * reads an input line from the network socket
+     * Processes a frame sent by the process at the other end of the
+     * network socket.  Called on the network thread, so it must not
+     * block.
      *
-     * @return a line of text that is the next one sent by the process
-     *  at the other end of the network socket.
+     * @param type the frame's type (see Frame)
+     * @param payload the frame's payload, from its position to its limit;
+     *  only valid until the method returns, so anything to be kept must be
+     *  read out of it
      */
-    protected String readInputLine() {
-
-        // if there is no input stream, return an empty string
-        if (in == null) return "";
+    protected abstract void processFrame(int type, ByteBuffer payload);
 
-        // read and return the input line; if an error occurs, return
-        // the empty string
-        try {
-            String input = in.readLine();
-            return input;
-        }
-        catch (IOException iox) {
-            return "";
-        }
+    /**
+     * Called when the connection has been lost: once when it goes (with
+     * isReconnecting telling whether a client is trying to get it back),
+     * and again if the client gives up.  Subclasses may override this to
+     * react to it.
+     */
+    protected void connectionLost() {
     }
 
     /**
-     * writes a string to the network socket
+     * The name of the game, as given by GameConfig.getGameName; a client
+     * is only connected to a host of the same game.
      *
-     * @param str the string to send
+     * @return the name, or null if it is not known yet
      */
-    protected void writeOutputLine(String str) {
-        if (out == null) return;
-        out.println(str);
-    }
+    protected abstract String getGameName();
 
     /**
-     * The default port number on the server machine that will be used
-     * in making the connection.  Hopefully, each game will have a different
-     * number so that we don't have games confusing each other.
-     * (If we wanted to do this "right", we'd have reserve one with the
-     * system administrator.)  For now, each game should select a somewhat
-     * random integer.  FOR A GIVEN GAME, THE ProxyGame AND ProxyPlayer
-     * CLASSES SHOULD RETURN THE SAME VALUE.
+     * writes a frame to the network socket.  Never blocks: the frame is
+     * queued and sent by the network thread.
+     *
+     * @param frame the frame to send, as made by Frame
      */
-    protected abstract int getAdmPortNum();
+    protected void writeFrame(ByteBuffer frame) {
+        NetworkConnection c = connection;
+        if (c == null) return;
+        c.send(frame);
+    }
 
     /**
-     * Connect to a process as the server.  This entails "camping" on a
-     * port number and waiting for a client to request service.
+     * closes the network connection (or stops waiting for one), for good
      */
-    protected void connectAsServer() {
-
-        // get the default port number
-        int firstPort = getAdmPortNum();
-
-        // eventually, we'll store the socket object here
-        ServerSocket theServerSocket = null;
-
-        // create server socket.  Begin at the default port number, but
-        // increment/iterate through a total of 50 ports in case multiple
-        // players are trying to make a connection.
-        for (int delta = 0; delta < 50; delta++) {
-            // attempt to find an unused port; if successful, break out of
-            // loop; otherwise continue looping
-            try {
-                theServerSocket = new ServerSocket(firstPort+delta);
-                break;
-            }
-            catch (IOException iox) {
-            }
+    public void disconnect() {
+        closing = true;
+        stopWaiting();
+        NetworkConnection c = connection;
+        if (c != null) {
+            c.close();
         }
+    }
 
-        // If we've found a port, wait for a client to connect and set up
-        // the streams
-        if (theServerSocket != null) {
-            try {
-
-                // wait for client connnection
-                Socket theSocket = theServerSocket.accept();
-
-                // set up the input and output streams
-                in =
-                    new BufferedReader(
-                        new InputStreamReader(theSocket.getInputStream()));
-                out =
-                    new PrintWriter(
-                        new OutputStreamWriter(theSocket.getOutputStream()),
-                        true);
+    /**
+     * Gets the session id of our seat in the game.
+     *
+     * @return the session id, or null if we are a client that has not
+     *  connected
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
 
-                // close the socket server
-                theServerSocket.close();   
+    /**
+     * Tells whether the current connection replaces one that was lost, so
+     * that the other end already knows us.
+     *
+     * @return whether the connection has been resumed
+     */
+    protected boolean isResumed() {
+        return resumed;
+    }
 
-                // perform any user-initialization 
-                finishInit();
-            }
-            catch (IOException x) {
-                // if we run into a problem, set the input and output
-                // streams to null, indicating that the object is not
-                // set up
-                in = null;
-                out = null;
-            }
-        }
+    /**
+     * Tells whether a client is trying to get a lost connection back.
+     *
+     * @return whether we are reconnecting
+     */
+    public boolean isReconnecting() {
+        return reconnecting;
     }
 
     /**
-     * Connect to a process as a client.  This entails requesting a
-     * connection from a server and waiting for it to be established.
+     * Tells whether a client is still making its first attempt to connect
+     * (see connectAsClientInBackground).
+     *
+     * @return whether we are connecting
      */
-    protected void connectAsClient(String hostName) {
+    public boolean isConnecting() {
+        return connecting;
+    }
 
-        // initially, set the input and output streams to null
-        in = null;
-        out = null;
+    /**
+     * Gets the reason the last attempt to connect failed.
+     *
+     * @return the reason, or null if it did not fail
+     */
+    public String getConnectError() {
+        return connectError;
+    }
 
-        // determine the first port number to try for this game
-        int firstPort = getAdmPortNum();
+    /**
+     * The port number on the server machine that will be used in making
+     * the connection.  Hopefully, each game will have a different number
+     * so that we don't have games confusing each other.  (If we wanted to
+     * do this "right", we'd have reserve one with the system
+     * administrator.)  For now, each game should select a somewhat random
+     * integer.  FOR A GIVEN GAME, THE ProxyGame AND ProxyPlayer CLASSES
+     * SHOULD RETURN THE SAME VALUE.
+     */
+    protected abstract int getAdmPortNum();
 
-        // loop through 50 ports, beginning at the first one; try to
-        // connect to a servert at each.  When we find one, set up
-        // the streams
-        for(int delta = 0; delta < 50; delta++) {
-            try {
+    /**
+     * Connect to a process as the server.  This entails waiting on the
+     * game's port until a client of the same game asks for our seat (or
+     * any seat).  Other ProxyPlayers of this process may wait on the same
+     * port.  Returns at once; finishInit is called (on the network thread)
+     * when a client has connected.
+     *
+     * @return whether the port could be waited on
+     */
+    protected boolean connectAsServer() {
+        // the seat's session id, which the client is told in the handshake
+        sessionId = Handshake.newSessionId();
+        return waitForClient();
+    }
 
-                // attempt to connect to the server
-                Socket theSocket = new Socket(hostName, firstPort+delta);
+    /**
+     * Waits on the game's port for our client (again).
+     *
+     * @return whether the port could be waited on
+     */
+    private boolean waitForClient() {
+        Handler handler = new Handler();
+        try {
+            ProxyEndpoint ep =
+                ProxyEndpoint.forPort(transport, getAdmPortNum());
+            ep.offer(handler);
+            endpoint = ep;
+            waiter = handler;
+            return true;
+        }
+        catch (IOException iox) {
+            connectError = "cannot listen on port "+getAdmPortNum()+": "+
+                iox.getMessage();
+            return false;
+        }
+    }
 
-                // If we get here, we have successfully made a connection
+    /**
+     * Connect to a process as a client, asking for a particular seat: a
+     * session id given by the host before, or one made by
+     * Handshake.spectate to watch a game.
+     *
+     * @param hostName the host
+     * @param sessionId the seat, or null for any free seat
+     * @param rating our rating, or Handshake.UNRATED
+     */
+    protected void connectAsClient(String hostName, String sessionId,
+            int rating) {
+        this.sessionId = sessionId;
+        this.rating = rating;
+        connectAsClient(hostName);
+    }
 
-                // set up the input and output streams
-                in =
-                    new BufferedReader(
-                            new InputStreamReader(
-                                    theSocket.getInputStream()));
-                out =
-                    new PrintWriter(
-                            new OutputStreamWriter(
-                                    theSocket.getOutputStream()),
-                            true);
+    /**
+     * Connect to a process as a client.  This entails a single attempt to
+     * connect to the game's port on the server, followed by the handshake;
+     * both are bounded by a timeout, so the method never blocks for long.
+     * If it fails, getConnectError tells why.
+     */
+    protected void connectAsClient(String hostName) {
 
-                // perform user-definied initialization
-                finishInit();
+        // initially, no connection
+        this.hostName = hostName;
+        connection = null;
+        connectError = null;
+        connectRejected = false;
 
-                // break out of loop, since we succeeded                       
-                break;
+        NetworkConnection c = null;
+        try {
+            // attempt to connect to the server, handing the connection to
+            // the network thread, and introduce ourselves
+            Handler handler = new Handler();
+            c = transport.connect(NetworkReactor.getDefault(), hostName,
+                getAdmPortNum(), CONNECT_TIMEOUT_MILLIS, handler);
+            c.send(Handshake.hello(getGameName(), sessionId, rating));
+
+            // wait for the server's answer
+            if (!handler.awaitWelcome()) {
+                c.close();
+                if (connectError == null) {
+                    connectError = "no answer from "+hostName;
+                }
+                return;
             }
-            catch (Exception x) {
-                // if we get here, we failed to make a connect, for the
-                // given port number
+
+            // perform user-defined initialization
+            c.setHeartbeat(heartbeatMillis, readTimeoutMillis);
+            finishInit();
+        }
+        catch (InterruptedException ix) {
+            Thread.currentThread().interrupt();
+            connectError = "interrupted";
+        }
+        catch (Exception x) {
+            // if we get here, we failed to make a connection
+            connectError = "cannot connect to "+hostName+": "+x.getMessage();
+            if (c != null) {
+                c.close();
             }
         }
     }
 
     /**
-     * Extracts the "command name" portion of a string.  For example,
-     * if the string is "  funny  3 55 8 -2", then the string "funny" will
-     * be returned.  It is expected that the method will be used to decode
-     * messages between ProxyGame and ProxyPlayer objects that are sent
-     * over the network.
+     * Connect to a process as a client, like connectAsClient, but on a
+     * thread of its own, so that the caller (say, the user interface
+     * thread) never waits for the network.  Returns at once; isConnecting
+     * is true until the attempt is over, and connectFinished is then
+     * called on that thread.
      *
-     * @param str the string to parse
-     * @return the command--which is the first (blank-delimited) word
-     *   of the string
+     * @param hostName the host
+     * @param sessionId the seat, or null for any free seat
+     * @param rating our rating, or Handshake.UNRATED
      */
-    protected static String parseCommand(String str) {
-        String str2 = str.trim()+" "; // trim, pad with dummy-blank
-        int idx = str2.indexOf(" "); // find first blank
-        return str2.substring(0,idx); // return string, up to first blank
+    protected void connectAsClientInBackground(final String hostName,
+            String sessionId, int rating) {
+        this.sessionId = sessionId;
+        this.rating = rating;
+        connecting = true;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                connectAsClient(hostName);
+                connecting = false;
+                if (closing) {
+                    // we were told to disconnect while we were connecting
+                    NetworkConnection c = connection;
+                    if (c != null) {
+                        c.close();
+                    }
+                }
+                connectFinished();
+            }
+        }, "ProxyObject-connect");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
-     * Extracts the "numeric arguments" portion of a string.  For example,
-     * if the string is "  funny  3 55 8 -2", then value returned will be
-     * a 4-element array of int containing the values 3, 55, 8 and -2,
-     * respectively.  It is expected that the method will be used to decode
-     * messages between ProxyGame and ProxyPlayer objects that are sent
-     * over the network.
-     *
-     * @param str the string to parse
-     * @return the numeric arguments--which are extracted from each (blank-
-     *  separated) word except the first.  Argument parsing is aborted early
-     *  if a non-integer is encountered.
+     * Called (on its own thread) when connectAsClientInBackground has
+     * finished its attempt to connect; isComplete and getConnectError tell
+     * how it went.  Subclasses may override this to react to it.
      */
-    protected static int[] parseArgs(String str) {
+    protected void connectFinished() {
+    }
 
-        // extract all characters after the first blank
-        String str2 = str.trim()+" "; // trim, pad with dummy-blank
-        int idx = str2.indexOf(" "); // find first blank
-        str2 = str2.substring(idx+1); // all characters after first blank
+    /**
+     * Tries (on a thread of its own) to get a client's lost connection
+     * back, waiting a little longer after each failure, until it succeeds,
+     * the host turns us away, or the reconnect time is up.
+     */
+    private void startReconnecting() {
+        reconnecting = true;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                long deadline = System.currentTimeMillis() + reconnectMillis;
+                long wait = 250;
+                while (!closing && System.currentTimeMillis() < deadline) {
+                    try {
+                        Thread.sleep(wait);
+                    }
+                    catch (InterruptedException ix) {
+                        break;
+                    }
+                    wait = Math.min(wait*2, MAX_RETRY_MILLIS);
+                    if (closing) {
+                        break;
+                    }
+                    resumed = true;
+                    connectAsClient(hostName);
+                    if (isComplete()) {
+                        reconnecting = false;
+                        return;
+                    }
+                    if (connectRejected) {
+                        // our seat is gone
+                        break;
+                    }
+                }
+                reconnecting = false;
+                connectionLost();
+            }
+        }, "ProxyObject-reconnect");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        // create a vector to hold temporarily hold the elements
-        Vector v = new Vector();
+    /**
+     * stops waiting for a client
+     */
+    private void stopWaiting() {
+        ProxyEndpoint ep = endpoint;
+        Handler h = waiter;
+        if (ep != null && h != null) {
+            ep.withdraw(h);
+        }
+        endpoint = null;
+        waiter = null;
+    }
 
-        // find each word; parse each as an integer an put into the vector
-        try {
-            // set position in string we're currently at
-            idx = 0;
-
-            // loop through, parsing each word
-            for (;;) {
-                int next = str2.indexOf(" ", idx); // next position
-                if (next < 0) break; // exit loop of no more blanks
-                v.addElement( // parse integer; add to vector
-                    new Integer(Integer.parseInt(str2.substring(idx,next))));
-                idx = next+1; // update position to look next
+    /**
+     * Receives the events of our connection from the network thread: as a
+     * server, once the endpoint has welcomed our client; as a client, from
+     * the start, the first frame being the server's answer to our HELLO.
+     */
+    private class Handler implements ProxyEndpoint.Waiter {
+
+        // counted down once the server has answered (clients only)
+        private final CountDownLatch answered = new CountDownLatch(1);
+
+        // set if the client stopped waiting for the answer
+        private boolean abandoned = false;
+
+        // waits (a bounded time) for the server to welcome us
+        boolean awaitWelcome() throws InterruptedException {
+            answered.await(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                if (connection == null) {
+                    abandoned = true;
+                    return false;
+                }
+                return true;
             }
         }
-        catch (NumberFormatException nfx) {
-            // if we attempt to parse a non-integer, well drop out of the
-            // loop by coming here
+
+        public String getGameName() {
+            return ProxyObject.this.getGameName();
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public boolean hasConnected() {
+            return connection != null;
+        }
+
+        public void accepted(NetworkConnection c) {
+            endpoint = null;
+            waiter = null;
+            resumed = (connection != null);
+            connection = c;
+            c.setHeartbeat(heartbeatMillis, readTimeoutMillis);
+
+            // perform any user-initialization
+            finishInit();
         }
 
-        // At this point, the vector contains all the numbers we want.  All
-        // we need do now is to convert it to an array of int.
+        public void connected(NetworkConnection c) {
+        }
 
-        // create appropriately sized int-array
-        int[] rtnVal = new int[v.size()];
+        public void frameReceived(NetworkConnection c, int type,
+                ByteBuffer payload) {
+            if (c == connection) {
+                processFrame(type, payload);
+                return;
+            }
 
-        // copy each element from the vector into the array
-        for (int i = 0; i < rtnVal.length; i++) {
-            rtnVal[i] = ((Integer)v.elementAt(i)).intValue();
+            // a client's first frame: the server's answer
+            synchronized (this) {
+                String id = Handshake.parseWelcome(type, payload);
+                if (id != null && !abandoned) {
+                    sessionId = id;
+                    connection = c;
+                }
+                else {
+                    if (!abandoned) {
+                        connectRejected = (type == Frame.REJECT);
+                        connectError = connectRejected
+                            ? Frame.readText(payload)
+                            : "unexpected answer of type "+type;
+                    }
+                    c.close();
+                }
+            }
+            answered.countDown();
         }
 
-        // return the array
-        return rtnVal;        
+        public void disconnected(NetworkConnection c) {
+            answered.countDown();
+            if (c != connection || closing) {
+                if (c == connection) {
+                    connectionLost();
+                }
+                return;
+            }
+
+            // a server waits for its client to come back; a client that
+            // has a seat to come back to tries to get it back
+            if (hostName == null) {
+                if (!waitForClient()) {
+                    closing = true;
+                }
+            }
+            else if (sessionId != null && reconnectMillis > 0) {
+                startReconnecting();
+            }
+            connectionLost();
+        }
     }
 }
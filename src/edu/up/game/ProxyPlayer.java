@@ -1,240 +1,233 @@
 package edu.up.game;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 /**
  * A Player object that is a proxy for the real player, which is somewhere
- * else on the network.  Each ProxyPlayer
- * 
+ * else on the network.  The game's main activity asks it for moves just as
+ * it asks an in-process computer player: the request (together with the
+ * state the player may see) is sent across the network, and the action
+ * that comes back is handed to a GameComputerExecutor.Callback.
+ *
+ * The ProxyPlayer waits for its remote player to connect without blocking
+ * anybody; a move requested before then is sent as soon as it connects.
+ * The remote player is only accepted once it has said (in the Handshake)
+ * that it plays the same game.  See ProxyGame for the messages that are
+ * exchanged.
+ *
+ * After each move only the change is sent (see encodeDelta), numbered and
+ * with a hash of the new state so that the remote player can check it
+ * applied the change correctly; the whole state is sent only when the
+ * remote player connects or asks for it.
+ *
+ * If the connection is lost, the ProxyPlayer waits for the same remote
+ * player to come back (see ProxyObject).  The player then sends
+ * RESUME with the number of the last state it has, and is sent just
+ * the changes it missed, if they are still kept, and the move it has
+ * been asked for.
+ *
  * @author Steven R. Vegdahl
  * @version 8 Nov 2001
  */
 public abstract class ProxyPlayer extends ProxyObject
-    implements GamePlayer, Runnable
+    implements GamePlayer
 {
-    
+
+    // the number of changes kept for a remote player that comes back
+    private static final int HISTORY_SIZE = 64;
+
     // the game object
-    private Game game;
-    
-    // tells whether it is time to quit
-    private boolean quittingTime;
-    
-    // The thread object that requests a move across the network.  This
-    // allows the move-request operation to occur in parallel with other
-    // operations.  If this variable is non-null, it means that there is
-    // a pending 'requestMove' operation in progress, and so another one
-    // should not be started.
-    private Thread requestMoveThread;
-    
+    private volatile Game game;
+
     // this player's ID, from the game's viewpoint
     private int playerId;
-    
-    // whether this player is ready to play the game.  In this case, being
-    // ready essentially means that the a connection with a remote player
-    // has been established
-    private boolean isReady;
+
+    // the state last sent (or to be sent once connected)
+    private LocalGame lastState;
+
+    // the number of the state last sent; it goes up by one with each change
+    private int stateSeq;
+
+    // the number of the move request waiting for an answer, or -1 if none
+    private int pendingRequest;
+
+    // receives the answer to the pending move request
+    private GameComputerExecutor.Callback pendingCallback;
+
+    // whether the pending move request has reached the network
+    private boolean requestSent;
+
+    // whether the game has been told to be over
+    private boolean gameOver;
+
+    // the changes last sent
+    private final DeltaHistory history;
 
     /**
-     * Transforms a GameState object into a string so that it may be
-     * sent across the network.  The decodeState method (of the ProxyGame
+     * Transforms a GameState object into bytes so that it may be sent
+     * across the network.  The decodeState method (of the ProxyGame
      * subclass that is associated with this game) should be written so
-     * that it can reconstruct the object from the string.
-     * 
+     * that it can reconstruct the object from the bytes.
+     *
      * @param gs the GameState object
-     * @return the encoded string
+     * @return the encoded state
+     */
+    protected abstract byte[] encodeState(LocalGame gs);
+
+    /**
+     * Transforms bytes into a GameAction object. This method should be
+     * written to reconstruct any object that had been transformed to
+     * bytes by the ProxyGame subclass for this game.
+     *
+     * @param data the bytes to transform, from the buffer's position to
+     *  its limit; only valid until the method returns
+     * @return the GameAction object that corresponds to the bytes, or
+     *  null if they are not valid
+     */
+    protected abstract GameAction decodeAction(ByteBuffer data);
+
+    /**
+     * Transforms the action that changed the game into bytes, so that
+     * the remote player can bring its copy of the state up to date (see
+     * ProxyGame.applyDelta) without being sent the whole state.  The
+     * default returns null, which means the whole state is sent instead.
+     *
+     * @param action the action that was applied
+     * @return the encoded change, or null to send the whole state
      */
-    protected abstract String encodeState(LocalGame gs);
+    protected byte[] encodeDelta(GameAction action) {
+        return null;
+    }
+
+    /**
+     * Computes a hash of a state, sent with each change so the remote
+     * player can check that its copy matches.  Must agree with the
+     * ProxyGame subclass' hashState.
+     *
+     * @param state the state
+     * @return the hash
+     */
+    protected long hashState(LocalGame state) {
+        return 0;
+    }
 
     /**
-     * Transforms a string into a GameAction object. This method should
-     * be written to reconstruct any object that had been transformed to
-     * a string by the ProxyGame subclass for this game.
-     * 
-     * @param s the string to transform
-     * @return the GameAction object that corresponds to the string
+     * The name of the game, from its configuration; the remote player
+     * must be playing the same game.
+     *
+     * @return the name, or null if the game is not known yet
      */
-    protected abstract GameAction decodeAction(String s);
-    
+    protected String getGameName() {
+        Game g = game;
+        if (g instanceof LocalGame) {
+            return ((LocalGame)g).getConfig().getGameName();
+        }
+        return null;
+    }
+
     /**
-     * ProxyPlayer constructor.
+     * ProxyPlayer constructor.  Starts waiting for the remote player to
+     * connect.
      */
     public ProxyPlayer() {
-    
+
         // perform superclass initialization
         super();
-        
+
         // set instance variables to their initial values
         game = null;
-        requestMoveThread = null;
-        quittingTime = false;
-        isReady = false;
         playerId = -1;
-        
-        // start the thread for this object that processes network requests
-        Thread t = new Thread(this);
-        t.start();
-    }
+        lastState = null;
+        stateSeq = 0;
+        pendingRequest = -1;
+        pendingCallback = null;
+        requestSent = false;
+        gameOver = false;
+        history = new DeltaHistory(HISTORY_SIZE);
 
-    /**
-     * The code that runs during the object's lifetime.
-     *
-     */
-  //%%%TODO:  Implement this method
-    public void run() {
-//    
-//        // wait for a connection from a remote player
-//        this.connectAsServer();
-//        
-//        // if the connection was successful, mark self as ready to play
-//        // the game; otherwise abort
-//        if (this.isComplete()) {
-//            isReady = true;
-//        }
-//        else {
-//            return;
-//        }
-//        
-//        // Continuously read input from the network and process it.
-//        // Do this until it's time to quit
-//        //
-//        while (!quittingTime) {
-//        
-//            // read the next string sent over the network, sent from
-//            // the remote player
-//            String str = readInputLine();
-//            
-//            // If the string starts with a colon, then it's an
-//            // game-specific encoded action.  If it starts with a'#',
-//            // then it's a generic action.  Otherwise, it's a "getState"
-//            // call, where the string is the ascii-ized version of the
-//            // stateType parameter
-//            
-//            if (str.length() == 0) {
-//                // string empty: ignore
-//            }
-//            else if (str.charAt(0) == ':') {
-//                // game-specific action: decode action and, if not null,
-//                // apply it to the game
-//                GameAction ac =
-//                    decodeAction(str.length() == 0 ? "" : str.substring(1));
-//                if (ac != null) {
-//                    game.applyAction(ac);
-//                }
-//            }
-//            else if (str.charAt(0) == '#') {
-//                // generic action: parse and perform appropriate action
-//                // on the game
-//                //
-//                String cmd = str.substring(1); // remove '#'
-//                if (cmd.equals("null")) {
-//                    // null action
-//                    game.applyAction(new GameNullAction(this));
-//                }
-//                else if (cmd.equals("quit")) {
-//                    // quit action
-//                    game.applyAction(new GameQuitAction(this));
-//                }
-//                else if (cmd.equals("quitAcknowledge")) {
-//                    // quit-acknowledge action
-//                    game.applyAction(new GameQuitAcknowledgeAction(this));
-//                }
-//                else {
-//                    // anything else: apply a null action
-//                    game.applyAction(new GameNullAction(this));
-//                }
-//            }
-//            else {
-//                // it's a "get state" request.  The string contains a number
-//                // which is the parameter that should be passed to the
-//                // 'getState' method
-//                
-//                int val = 0; // default parameter value
-//                try {
-//                    // transform the number into a string
-//                    val = Integer.parseInt(str.trim());
-//                }
-//                catch (NumberFormatException nfx) {
-//                    // if number is not a string, leave value at 0
-//                }
-//                
-//                // get the state from the game
-//                LocalGame gs = game.getState(this, val);
-//                
-//                if (val == -1) {
-//                    // parameter is -1: this means we are asking for the
-//                    // player's ID and so the state will be an IntGameState
-//                    // object that holds the ID.  Send the value over the
-//                    // network, prefixed with a '*'.
-//                    writeOutputLine("*"+((IntGameState)gs).getNum());
-//                }
-//                else {
-//                    // it's game-specific state.  Encode it as a string
-//                    // and send it over the network, prefixed with a ' '.
-//                    String encodedState = encodeState(gs);
-//                    writeOutputLine(" "+encodedState);
-//                }
-//            }
-//            
-//            // allow other threads to take their turn
-//            Thread.yield();
-//        }
+        // wait for a connection from a remote player
+        if (!this.connectAsServer()) {
+            System.out.println("Connection error: ProxyPlayer");
+        }
     }
 
     /**
      * Lets the player know what the game object is.
-     * 
+     *
      * @param game the game object
      * @param playerId the unique numeric player-id assigned to this
      *  player by the game
      */
-    public void setGame(Game game, int playerId) {
-    
+    public synchronized void setGame(Game game, int playerId) {
+
         // set our local variables appropriately
         this.game = game;
         this.playerId = playerId;
-        
+
         // also apply the operation to the "real" player across the network
-        sendGenericMessage("setGame "+playerId);
+        writeFrame(Frame.ofInt(Frame.SET_GAME, playerId));
     }
 
     /**
-     * Lets the player know that the game object wants the him to
-     * make a move.
+     * Asks the player for a move in the state it was last sent.  The
+     * answer is handed to the callback on the network thread.
+     *
+     * @param request a number identifying the request, passed back to the
+     *  callback
+     * @param callback receives the action
      */
-    public void requestMove() {
-        // if there is not already a move-request in progress for this
-        // player, start up a thread to request a move from the "real"
-        // player across the network
-        if (requestMoveThread == null) {
-            requestMoveThread = new Thread(new MoveRequester());
-            requestMoveThread.start();
+    public synchronized void requestMove(int request,
+            GameComputerExecutor.Callback callback) {
+        pendingRequest = request;
+        pendingCallback = callback;
+
+        // if the remote player has not connected yet, finishInit sends
+        // the request once it has
+        requestSent = isComplete();
+        if (requestSent) {
+            sendRequest();
         }
     }
 
     /**
-     * Notifies the player know that it's not his move.  Typically
-     * called by the game object when the player has made a move out-of-turn.
+     * Notifies the player that the state of the game has changed.
+     * Typically called by the game object when a move has been made, so
+     * that the player can show it.
+     *
+     * @param state the state of the game as the player may see it
+     * @param action the action that changed the state, or null to send
+     *  the whole state
      */
-    public void notYourMove() {
-        // forward the operation to the "real" player across the network
-        sendGenericMessage("notYourMove");
-    }
+    public synchronized void stateChanged(LocalGame state, GameAction action) {
+        lastState = state;
+        stateSeq++;
 
-    /**
-     * Notifies a player that it is time to quit.  Typically called by the
-     * game object when a player has indicated a desire to quit.
-     */
-    public void timeToQuit() {
-        // forward the operation to the "real" player across the network
-        sendGenericMessage("timeToQuit");
+        // keep the change for a remote player that loses the connection;
+        // if it has not connected yet, finishInit sends the whole state
+        // once it has
+        byte[] delta = (action == null) ? null : encodeDelta(action);
+        if (delta == null) {
+            history.reset(stateSeq);
+            if (isComplete()) {
+                sendState();
+            }
+        }
+        else {
+            ByteBuffer frame =
+                Frame.delta(stateSeq, hashState(state), delta);
+            history.add(stateSeq, frame);
+            writeFrame(frame);
+        }
     }
 
     /**
-     * Notifies a player that a request he had made is invalid.  (For
-     * example, if the player request a "quit", but he is not allowed to.)
-     * Typically called by the game object.
+     * Notifies the player know that it's not his move.  Typically
+     * called by the game object when the player has made a move out-of-turn.
      */
-    public void invalidRequest() {
+    public void notYourMove() {
         // forward the operation to the "real" player across the network
-        sendGenericMessage("invalidRequest");
+        writeFrame(Frame.empty(Frame.NOT_YOUR_MOVE));
     }
 
     /**
@@ -244,59 +237,54 @@ public abstract class ProxyPlayer extends ProxyObject
      */
     public void illegalMove() {
         // forward the operation to the "real" player across the network
-        sendGenericMessage("illegalMove");
+        writeFrame(Frame.empty(Frame.ILLEGAL_MOVE));
     }
 
     /**
      * Notifies a player that the game is over.  Typically called by the
      * game object when the game has been terminated.
      */
-    public void gameIsOver() {
+    public synchronized void gameIsOver() {
+        gameOver = true;
+        pendingRequest = -1;
+        pendingCallback = null;
         // forward the operation to the "real" player across the network
-        sendGenericMessage("gameIsOver");
+        writeFrame(Frame.empty(Frame.GAME_IS_OVER));
     }
 
     /**
-     * Notifies a player that the state of the game has changed.  Typically
-     * called by the game object when an opponent has made a move, and the
-     * player may want to take the move into account (e.g., to display it
-     * on the screen.
+     * Notifies the player that the game is shutting down, and closes the
+     * connection.
      */
-    public void stateChanged() {
+    public void finishUp() {
         // forward the operation to the "real" player across the network
-        sendGenericMessage("stateChanged");
+        writeFrame(Frame.empty(Frame.FINISH_UP));
+        disconnect();
     }
 
     /**
-     * Notifies the player that all players have acknowledged that the game
-     * will be "quit". Gives the player last chance to "clean up".  (E.g.,
-     * closing windows, terminating network connections, closing files.)
-     * Typically called by the Game object just before the entire program
-     * terminates.
+     * Asks the remote player for a move in the last state, giving its
+     * number so the player can tell a request repeated after a lost
+     * connection from a new one.
      */
-    public void finishUp() {
-        // forward the operation to the "real" player across the network
-        sendGenericMessage("finishUp");
+    private void sendRequest() {
+        writeFrame(Frame.ofInt(Frame.REQUEST_MOVE, stateSeq));
     }
 
     /**
-     * Sends a generic message (e.g., "quit") across the network.
-     * 
-     * @param msg the message to send
+     * Sends the whole of the last state, with its number.
      */
-    private void sendGenericMessage(String msg) {
-        // send the message, prefixed with a ':'
-        writeOutputLine(":"+msg);
+    private void sendState() {
+        writeFrame(Frame.state(stateSeq, encodeState(lastState)));
     }
 
     /**
      * Sends a game-specific specific message across the network.
-     * 
+     *
      * @param msg the message to send
      */
     protected final void sendMessage(String msg) {
-        // send the message, prefixed with a '%'
-        writeOutputLine("%"+msg);
+        writeFrame(Frame.ofText(Frame.MESSAGE, msg));
     }
 
     /**
@@ -310,59 +298,140 @@ public abstract class ProxyPlayer extends ProxyObject
         // variable
         return playerId;
     }
-    
+
     /**
      * Gets the game
-     * 
+     *
      * @return the game object we're playing in.
      */
     public Game getGame() {
         return game;
     }
 
-    protected void finishInit() {
+    /**
+     * Brings the remote player up to date as soon as it has connected:
+     * its position, the state, and the move it has been asked for (if any).
+     */
+    protected synchronized void finishInit() {
+        // a remote player that comes back says what it is missing (see
+        // processFrame)
+        if (isResumed()) {
+            return;
+        }
+
         // perform a 'setGame' operation on the "real" (remote) player
-        sendGenericMessage("setGame "+playerId);
+        if (playerId >= 0) {
+            writeFrame(Frame.ofInt(Frame.SET_GAME, playerId));
+        }
+        if (lastState != null) {
+            sendState();
+        }
+        if (gameOver) {
+            writeFrame(Frame.empty(Frame.GAME_IS_OVER));
+        }
+        else if (pendingRequest >= 0 && !requestSent) {
+            sendRequest();
+            requestSent = true;
+        }
     }
 
     /**
-     * Tells whether the player is ready to play the game.
+     * Brings a remote player that has come back up to date: the changes
+     * it missed (or the whole state, if they are no longer kept), and the
+     * move it has been asked for.
      *
-     * @return a boolean value indicating whether the player is ready
-     *   to play.
+     * @param seq the number of the last state the player has
      */
-    public boolean isReady() {
-        // return value based on whether we are marked as being ready
-        return isReady;
+    private synchronized void resume(int seq) {
+        List<ByteBuffer> missed = history.framesAfter(seq);
+        if (missed == null) {
+            if (lastState != null) {
+                sendState();
+            }
+        }
+        else {
+            for (ByteBuffer frame : missed) {
+                writeFrame(frame);
+            }
+        }
+        if (gameOver) {
+            writeFrame(Frame.empty(Frame.GAME_IS_OVER));
+        }
+        else if (pendingRequest >= 0) {
+            sendRequest();
+            requestSent = true;
+        }
     }
-    
+
     /**
-     * An inner class that helps invoke the 'requestMove' method on
-     * a remote player using a separate thread.
+     * Processes a frame sent by the remote player: the action it has
+     * chosen.
+     *
+     * @param type the frame's type
+     * @param payload the frame's payload
      */
-    private class MoveRequester implements Runnable {
-    
-        /**
-         * The code that runs in the separate thread.
-         */
-        public void run() {
-            try {
-            
-                // send the message
-                sendGenericMessage("requestMove");
-                
-                // wait one second so that we are not constantly bombarding
-                // the network with messages
-                Thread.sleep(1000);
-                
+    protected void processFrame(int type, ByteBuffer payload) {
+        // the remote player's copy of the state is wrong: send it the
+        // whole state
+        if (type == Frame.RESYNC) {
+            synchronized (this) {
+                if (lastState != null) {
+                    sendState();
+                }
+            }
+            return;
+        }
+
+        // the remote player has come back, with the number of the last
+        // state it has
+        if (type == Frame.RESUME) {
+            resume(payload.remaining() >= 4 ? payload.getInt() : -1);
+            return;
+        }
+
+        // otherwise only game-specific actions are expected
+        if (type != Frame.ACTION) {
+            return;
+        }
+
+        GameComputerExecutor.Callback callback;
+        int request;
+        synchronized (this) {
+            // ignore actions nobody asked for
+            if (pendingRequest < 0) {
+                notYourMove();
+                return;
+            }
+            callback = pendingCallback;
+            request = pendingRequest;
+        }
+
+        // decode the action; if it is not valid, keep waiting
+        GameAction action = decodeAction(payload);
+        if (action == null) {
+            illegalMove();
+            return;
+        }
+
+        synchronized (this) {
+            // the request may have been replaced meanwhile
+            if (request != pendingRequest) {
+                return;
             }
-            catch (InterruptedException ix) {
-            } 
-            
-            // clear the instance variable, allowing a subsequent
-            // 'requestMove' operation to be performed
-            requestMoveThread = null;
-        } 
+            pendingRequest = -1;
+            pendingCallback = null;
+        }
+        callback.moveCalculated(playerId, request, action);
+    }
+
+    /**
+     * Tells whether the player is ready to play the game.
+     *
+     * @return a boolean value indicating whether the player is ready
+     *   to play; that is, whether the remote player has connected.
+     */
+    public boolean isReady() {
+        return isComplete();
     }
 
 }
@@ -0,0 +1,48 @@
+package edu.up.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+/**
+ * TcpTransport class
+ * <P>
+ * The {@link Transport} of the network: a connection is a TCP socket.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TcpTransport implements Transport {
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	public NetworkConnection connect(NetworkReactor reactor, String hostName,
+			int port, int timeoutMillis, NetworkConnection.Listener listener)
+			throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		boolean registered = false;
+		try {
+			channel.socket().connect(new InetSocketAddress(hostName, port),
+					timeoutMillis);
+			NetworkConnection connection = reactor.register(channel, listener);
+			registered = true;
+			return connection;
+		} finally {
+			if (!registered) {
+				channel.close();
+			}
+		}
+	}
+
+	public Closeable listen(NetworkReactor reactor, int port,
+			NetworkConnection.Listener listener) throws IOException {
+		return reactor.listen(new InetSocketAddress(port), listener);
+	}
+
+}// class TcpTransport
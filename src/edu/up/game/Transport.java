@@ -0,0 +1,69 @@
+package edu.up.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Transport interface
+ * <P>
+ * How {@link NetworkConnection}s are made: a client connects to a port of a
+ * host, and a host listens on a port for clients. Whatever carries the
+ * bytes, the connections are serviced by a {@link NetworkReactor} and speak
+ * in {@link Frame}s, so the code above them (the handshake, the proxies, the
+ * server) is the same for every transport. {@link TcpTransport} connects
+ * over the network; {@link LoopbackTransport} connects objects of the same
+ * process through memory.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public interface Transport {
+
+	/**
+	 * connect
+	 *
+	 * connects to a host, blocking the caller until the connection has been
+	 * made (or has failed). The connection's events are reported to the
+	 * listener on the reactor's thread, beginning with
+	 * {@link NetworkConnection.Listener#connected}; frames may be sent on it
+	 * at once.
+	 *
+	 * @param reactor
+	 *            the reactor to service the connection
+	 * @param hostName
+	 *            the host
+	 * @param port
+	 *            the port the host listens on
+	 * @param timeoutMillis
+	 *            the longest time to wait for the host
+	 * @param listener
+	 *            receives the connection's events
+	 * @return the connection
+	 * @throws IOException
+	 *             if the host cannot be reached
+	 */
+	public NetworkConnection connect(NetworkReactor reactor, String hostName,
+			int port, int timeoutMillis, NetworkConnection.Listener listener)
+			throws IOException;
+
+	/**
+	 * listen
+	 *
+	 * starts accepting connections on a port
+	 *
+	 * @param reactor
+	 *            the reactor to service the connections accepted
+	 * @param port
+	 *            the port
+	 * @param listener
+	 *            receives the events of every connection accepted
+	 * @return what listens; close it to stop accepting (the connections
+	 *         already accepted stay open)
+	 * @throws IOException
+	 *             if the port cannot be listened on
+	 */
+	public Closeable listen(NetworkReactor reactor, int port,
+			NetworkConnection.Listener listener) throws IOException;
+
+}// interface Transport
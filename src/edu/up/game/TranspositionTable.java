@@ -0,0 +1,334 @@
+package edu.up.game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TranspositionTable class
+ * <P>
+ * A fixed-size hash table that remembers what a game-tree search found out
+ * about positions it has already seen, so that a position reached by a
+ * different order of moves does not have to be searched again. Positions are
+ * identified by a 64-bit hash (for example a Zobrist hash) supplied by the
+ * caller.
+ * <P>
+ * The table is a single array of longs; no objects are created per entry.
+ * Each entry is two longs: the key and the packed data (value, bound, depth,
+ * best move and age). The key is stored XORed with the data, so an entry that
+ * was torn by two threads writing at once simply fails to match instead of
+ * returning bad data.
+ * <P>
+ * Entries are grouped in buckets of two. The first slot of a bucket is
+ * depth-preferred: it only gives way to a search that was at least as deep, or
+ * to any entry once the stored one is from an older search, and the entry it
+ * gives way to moves down to the second slot rather than being lost.
+ * Everything else goes in the second slot, which is always replaced.
+ * <P>
+ * {@link #probe} returns the packed data (or {@link #MISS}), which is taken
+ * apart with {@link #valueOf}, {@link #boundOf}, {@link #depthOf} and
+ * {@link #moveOf}.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TranspositionTable {
+
+	/** returned by {@link #probe} when the position is not in the table */
+	public static final long MISS = 0;
+
+	/** the stored value is exact */
+	public static final int BOUND_EXACT = 1;
+
+	/** the stored value is a lower bound (the search failed high) */
+	public static final int BOUND_LOWER = 2;
+
+	/** the stored value is an upper bound (the search failed low) */
+	public static final int BOUND_UPPER = 3;
+
+	/** stored as the best move when there is none */
+	public static final int NO_MOVE = -1;
+
+	/** the largest depth that can be stored */
+	public static final int MAX_DEPTH = 0xFF;
+
+	/** number of bytes taken by each entry */
+	public static final int BYTES_PER_ENTRY = 16;
+
+	// layout of the data long: value in bits 0-31, move in 32-47, depth in
+	// 48-55, bound in 56-57 and age in 58-63
+	private static final int MOVE_SHIFT = 32;
+	private static final int DEPTH_SHIFT = 48;
+	private static final int BOUND_SHIFT = 56;
+	private static final int AGE_SHIFT = 58;
+	private static final int AGE_MASK = 0x3F;
+
+	// number of longs in a bucket (two entries of key + data)
+	private static final int LONGS_PER_BUCKET = 4;
+
+	/** the entries, LONGS_PER_BUCKET longs per bucket */
+	private final long[] table;
+
+	/** number of buckets minus one; the number of buckets is a power of two */
+	private final int bucketMask;
+
+	/** the size the table was asked to fit in */
+	private final int megabytes;
+
+	/** age of the current search; entries from older searches are replaced first */
+	private int age;
+
+	/** statistics; atomic, since several searches may share the table */
+	private final AtomicLong probes = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong stores = new AtomicLong();
+	private final AtomicLong overwrites = new AtomicLong();
+
+	/**
+	 * constructor
+	 *
+	 * @param megabytes
+	 *            the most memory the table may use, in megabytes
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1) {
+			throw new IllegalArgumentException(
+					"transposition table needs at least one megabyte");
+		}
+		this.megabytes = megabytes;
+
+		// largest power of two number of buckets that fits in the budget
+		long buckets = ((long) megabytes << 20)
+				/ (2 * BYTES_PER_ENTRY);
+		int bucketCount = Integer.highestOneBit((int) Math.min(buckets,
+				Integer.MAX_VALUE / LONGS_PER_BUCKET));
+		this.table = new long[bucketCount * LONGS_PER_BUCKET];
+		this.bucketMask = bucketCount - 1;
+	}
+
+	/*
+	 * ====================================================================
+	 * Public Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	/**
+	 * probe
+	 *
+	 * looks a position up
+	 *
+	 * @param key
+	 *            the hash of the position
+	 * @return the packed data stored for the position, or {@link #MISS}
+	 */
+	public long probe(long key) {
+		probes.incrementAndGet();
+		int index = bucketIndex(key);
+		for (int slot = 0; slot < 2; ++slot) {
+			int i = index + 2 * slot;
+			long data = table[i + 1];
+			if (data != MISS && (table[i] ^ data) == key) {
+				hits.incrementAndGet();
+				return data;
+			}
+		}
+		return MISS;
+	}
+
+	/**
+	 * store
+	 *
+	 * records what a search found out about a position
+	 *
+	 * @param key
+	 *            the hash of the position
+	 * @param value
+	 *            the value the search returned
+	 * @param bound
+	 *            BOUND_EXACT, BOUND_LOWER or BOUND_UPPER
+	 * @param depth
+	 *            how deep the search was (capped at MAX_DEPTH)
+	 * @param move
+	 *            the best move found, or NO_MOVE
+	 */
+	public void store(long key, int value, int bound, int depth, int move) {
+		stores.incrementAndGet();
+		long data = pack(value, bound, depth, move, age);
+		int index = bucketIndex(key);
+
+		// slot 0 is depth-preferred
+		long oldData = table[index + 1];
+		boolean sameKey = oldData != MISS && (table[index] ^ oldData) == key;
+		if (oldData == MISS || sameKey || ageOf(oldData) != age
+				|| depth >= depthOf(oldData)) {
+			if (oldData != MISS && !sameKey) {
+				// the position given way to is still worth keeping
+				replaceSecond(index, key, table[index], oldData);
+			}
+			// keep the best move of a shallower search of the same position
+			// if this one did not find any
+			if (sameKey && move == NO_MOVE) {
+				data = pack(value, bound, depth, moveOf(oldData), age);
+			}
+			table[index] = key ^ data;
+			table[index + 1] = data;
+			return;
+		}
+
+		// slot 1 is always replaced
+		replaceSecond(index, key, key ^ data, data);
+	}
+
+	/**
+	 * newSearch
+	 *
+	 * tells the table that a new search is starting, so that entries left
+	 * over from earlier searches can be replaced first
+	 */
+	public void newSearch() {
+		age = (age + 1) & AGE_MASK;
+	}
+
+	/**
+	 * clear
+	 *
+	 * empties the table and resets the statistics
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		age = 0;
+		resetStats();
+	}
+
+	/**
+	 * resetStats
+	 *
+	 * sets the probe, hit and store counters back to zero
+	 */
+	public void resetStats() {
+		probes.set(0);
+		hits.set(0);
+		stores.set(0);
+		overwrites.set(0);
+	}
+
+	/** @return the number of lookups since the statistics were reset */
+	public long getProbes() {
+		return probes.get();
+	}
+
+	/** @return the number of lookups that found their position */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/** @return the number of entries stored */
+	public long getStores() {
+		return stores.get();
+	}
+
+	/** @return the number of stores that pushed out a different position */
+	public long getOverwrites() {
+		return overwrites.get();
+	}
+
+	/** @return the fraction of lookups that found their position (0 to 1) */
+	public double getHitRate() {
+		long probeCount = probes.get();
+		return (probeCount == 0) ? 0 : (double) hits.get() / probeCount;
+	}
+
+	/** @return the number of entries the table can hold */
+	public int getCapacity() {
+		return table.length / 2;
+	}
+
+	/** @return the memory budget the table was created with, in megabytes */
+	public int getMegabytes() {
+		return megabytes;
+	}
+
+	/**
+	 * toString
+	 *
+	 * @return a one-line summary of the statistics
+	 */
+	@Override
+	public String toString() {
+		return "TranspositionTable[" + getCapacity() + " entries, "
+				+ getProbes() + " probes, " + getHits() + " hits ("
+				+ Math.round(getHitRate() * 100) + "%), " + getStores()
+				+ " stores, " + getOverwrites() + " overwrites]";
+	}
+
+	/*
+	 * ====================================================================
+	 * Entry Decoding
+	 * --------------------------------------------------------------------
+	 */
+
+	/** @return the value stored in an entry */
+	public static int valueOf(long data) {
+		return (int) data;
+	}
+
+	/** @return the bound stored in an entry */
+	public static int boundOf(long data) {
+		return (int) (data >>> BOUND_SHIFT) & 0x3;
+	}
+
+	/** @return the depth stored in an entry */
+	public static int depthOf(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+	/** @return the best move stored in an entry, or NO_MOVE */
+	public static int moveOf(long data) {
+		int move = (int) (data >>> MOVE_SHIFT) & 0xFFFF;
+		return (move == 0xFFFF) ? NO_MOVE : move;
+	}
+
+	/*
+	 * ====================================================================
+	 * Private Methods
+	 * --------------------------------------------------------------------
+	 */
+
+	// index of the first long of the bucket a key belongs to
+	private int bucketIndex(long key) {
+		int hash = (int) (key ^ (key >>> 32));
+		return (hash & bucketMask) * LONGS_PER_BUCKET;
+	}
+
+	// puts an entry in the second slot of a bucket; the entry it pushes out
+	// is counted as overwritten unless it is an older copy of the position
+	// being stored
+	private void replaceSecond(int index, long key, long storedKey, long data) {
+		long oldData = table[index + 3];
+		if (oldData != MISS && (table[index + 2] ^ oldData) != key) {
+			overwrites.incrementAndGet();
+		}
+		table[index + 2] = storedKey;
+		table[index + 3] = data;
+	}
+
+	// the age stored in an entry
+	private static int ageOf(long data) {
+		return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+	}
+
+	// packs the parts of an entry into one long; the bound is never zero, so
+	// a stored entry is never equal to MISS
+	private static long pack(int value, int bound, int depth, int move,
+			int age) {
+		if (bound < BOUND_EXACT || bound > BOUND_UPPER) {
+			throw new IllegalArgumentException("bad bound: " + bound);
+		}
+		depth = Math.max(0, Math.min(depth, MAX_DEPTH));
+		return (value & 0xFFFFFFFFL)
+				| ((long) (move & 0xFFFF) << MOVE_SHIFT)
+				| ((long) depth << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| ((long) age << AGE_SHIFT);
+	}
+}
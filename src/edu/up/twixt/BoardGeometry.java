@@ -0,0 +1,109 @@
+package edu.up.twixt;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+/**
+ * This class describes where the holes of the game board are on the screen. It turns the coordinates
+ * of a touch into a row and column with simple arithmetic, and gives the center of each hole for drawing.
+ * There is only one geometry per board size; use {@link #forSize(int)} to get it.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class BoardGeometry implements Serializable {
+
+	/**
+	 * serial id
+	 */
+	private static final long serialVersionUID = -8427109318410453866L;
+
+	//every geometry that has been created so far, keyed by board size
+	private static final HashMap<Integer, BoardGeometry> geometries = new HashMap<Integer, BoardGeometry>();
+
+	//the width/height of the board in pixels
+	private final int boardSize;
+
+	//the width/height of the square of screen that belongs to each hole
+	private final int cellSize;
+
+	/**
+	 * Returns the geometry for a board of the given size, creating it the first time it is asked for.
+	 * @param boardSize	The width/height of the board in pixels
+	 * @return	The shared geometry for that size
+	 */
+	public static synchronized BoardGeometry forSize(int boardSize){
+		BoardGeometry geometry = geometries.get(boardSize);
+		if(geometry == null){
+			geometry = new BoardGeometry(boardSize);
+			geometries.put(boardSize, geometry);
+		}
+		return geometry;
+	}
+
+	/**
+	 * Constructor; use forSize() so the geometry is shared.
+	 * @param boardSize	The width/height of the board in pixels
+	 */
+	private BoardGeometry(int boardSize){
+		this.boardSize = boardSize;
+		this.cellSize = boardSize / TwixtGame.NUM_PEGS;
+	}
+
+	/**
+	 * Returns the row that a y coordinate falls in.
+	 * @param y	The y coordinate of a touch
+	 * @return	The row, clamped to the board
+	 */
+	public int rowAt(int y){
+		return position(y);
+	}
+
+	/**
+	 * Returns the column that an x coordinate falls in.
+	 * @param x	The x coordinate of a touch
+	 * @return	The column, clamped to the board
+	 */
+	public int colAt(int x){
+		return position(x);
+	}
+
+	/**
+	 * Returns the x coordinate of the center of a hole in the given column.
+	 */
+	public int centerX(int col){
+		return BoardSurfaceView.FIRST_X + (col * BoardSurfaceView.CENT_DIST);
+	}
+
+	/**
+	 * Returns the y coordinate of the center of a hole in the given row.
+	 */
+	public int centerY(int row){
+		return BoardSurfaceView.FIRST_Y + (row * BoardSurfaceView.CENT_DIST);
+	}
+
+	/**
+	 * Returns the width/height of the board in pixels.
+	 */
+	public int getBoardSize(){
+		return boardSize;
+	}
+
+	/**
+	 * This method returns the row/col for the given coordinate. A coordinate c belongs to
+	 * row/col i when i * cellSize < c <= (i+1) * cellSize.
+	 * @param coordinate	The coordinate (x or y) to check
+	 * @return	The row or col that the coordinate falls in
+	 */
+	private int position(int coordinate){
+		if(coordinate <= 0){
+			return 0;
+		}
+		int index = (coordinate-1) / cellSize;
+		if(index >= TwixtGame.NUM_PEGS){
+			return TwixtGame.NUM_PEGS-1;
+		}
+		return index;
+	}
+}
@@ -1,7 +1,6 @@
 package edu.up.twixt;
 
 import java.io.Serializable;
-import java.util.Vector;
 
 
 import android.content.Context;
@@ -109,7 +108,13 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
     private int playerType;
     
     //reference to the board state
-    protected static TwixtPiece[][] pieceMatrix;
+    protected TwixtPiece[][] pieceMatrix;
+    
+    //reference to the pegs and bridges on the board
+    private TwixtBoard board;
+    
+    //maps touches to holes and holes to screen coordinates
+    private BoardGeometry geometry;
     
     //first piece selected when making a bridge
     private TwixtPiece firstPieceSelected;
@@ -162,7 +167,7 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
 
     public void init() {
     	
-    	
+    	geometry = BoardGeometry.forSize(TwixtHumanPlayer.BOARD_SIZE);
     	boardRect = new Rect(0, 0, BOARD_WIDTH, BOARD_HEIGHT);
     	boardPaint = new Paint();
     	boardPaint.setColor(Color.rgb(239, 228, 176));
@@ -205,7 +210,8 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
     	
     	if(player != null){
     		game = player.getGame();
-    		pieceMatrix = TwixtGame.getBoardState();
+    		pieceMatrix = game.getBoardState();
+    		board = game.getBoard();
     		if(game.whoseTurn() == 0 || game.whoseTurn() == 2){
     			playerType = TwixtPiece.LIGHT_PEG;
     		}
@@ -213,6 +219,12 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
     			playerType = TwixtPiece.DARK_PEG;
     		}
     	}
+    	
+    	//nothing to draw until the player has handed us its game
+    	if(pieceMatrix == null){
+    		return;
+    	}
+    	
     	//draw each of the pieces on the board based on their current state
     	for(int i = 0; i < pieceMatrix.length; ++i){
     		for(int j = 0; j < pieceMatrix[i].length; ++j){
@@ -272,24 +284,18 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
     	}//outer for
     	
     	//now draw connections
-    	for(int i = 0; i < pieceMatrix.length; ++i){
-    		for(int j = 0; j < pieceMatrix[i].length; ++j){
-    			if(pieceMatrix[i][j].getPlayerType() != TwixtPiece.EMPTY){
-    				
-    				Vector<TwixtPiece> conns = pieceMatrix[i][j].getConnections();
-    				for(int k = 0; k < conns.size(); ++k){
-    					if(pieceMatrix[i][j].getPlayerType() == TwixtPiece.LIGHT_PEG){
-    						canvas.drawLine(pieceMatrix[i][j].getCenterX(), pieceMatrix[i][j].getCenterY(), 
-    								conns.get(k).getCenterX(), conns.get(k).getCenterY(), blueLinePaint);
-    						
-    					}
-    					else{
-    						canvas.drawLine(pieceMatrix[i][j].getCenterX(), pieceMatrix[i][j].getCenterY(), 
-    								conns.get(k).getCenterX(), conns.get(k).getCenterY(), redLinePaint);
-    					}
-    					
-    				}
-    			}
+    	for(int id = board.nextBridge(0); id >= 0; id = board.nextBridge(id+1)){
+    		int start = TwixtBoard.bridgeStart(id);
+    		int end = TwixtBoard.bridgeEnd(id);
+    		int startX = geometry.centerX(start % TwixtGame.NUM_PEGS);
+    		int startY = geometry.centerY(start / TwixtGame.NUM_PEGS);
+    		int endX = geometry.centerX(end % TwixtGame.NUM_PEGS);
+    		int endY = geometry.centerY(end / TwixtGame.NUM_PEGS);
+    		if(board.getPeg(start) == TwixtPiece.LIGHT_PEG){
+    			canvas.drawLine(startX, startY, endX, endY, blueLinePaint);
+    		}
+    		else{
+    			canvas.drawLine(startX, startY, endX, endY, redLinePaint);
     		}
     	}
 
@@ -315,33 +321,33 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
     	
     	int x = (int)event.getX();
     	int y = (int)event.getY();
+    	int row = geometry.rowAt(y);
+    	int col = geometry.colAt(x);
     	
     	if(event.getAction() == MotionEvent.ACTION_DOWN){
     		if(player != null){
-    			if(isValidMove(x,y)){
+    			if(isValidMove(row, col)){
     				if(player.addingPiece){
     					
     					clearPreviouslyAdded();
-    					currentPiece = new TwixtPiece(x, y, playerType);
-    					pieceMatrix[currentPiece.getRow()][currentPiece.getCol()] = currentPiece;
+    					currentPiece = pieceMatrix[row][col];
+    					currentPiece.setPlayerType(playerType);
     			
     				}
     				else if(player.connectingPiece){
     					if(!player.firstPieceSelected){
     						player.firstPieceSelected = true;
-    						firstPieceSelected = new TwixtPiece(x, y, playerType);
+    						firstPieceSelected = pieceMatrix[row][col];
     						setHighlightedPieces();
     					}
     					else{
     						
-    						TwixtPiece second = new TwixtPiece(x, y, playerType);
     						int firstRow = firstPieceSelected.getRow();
     						int firstCol = firstPieceSelected.getCol();
-    						int secondRow = second.getRow();
-    						int secondCol = second.getCol();
+    						int secondRow = row;
+    						int secondCol = col;
   
     						pieceMatrix[firstRow][firstCol].addConnection(pieceMatrix[secondRow][secondCol]);
-    						pieceMatrix[secondRow][secondCol].addConnection(pieceMatrix[firstRow][firstCol]);
     						pieceMatrix[firstRow][firstCol].setAsPermanent();
     						pieceMatrix[secondRow][secondCol].setAsPermanent();
     						
@@ -369,97 +375,19 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
      */
     private void setHighlightedPieces(){
     	
-    	
     	int row = firstPieceSelected.getRow();
     	int col = firstPieceSelected.getCol();
     	
-    	for(int i = 0; i < pieceMatrix.length; ++i){
-    		for(int j = 0; j < pieceMatrix[i].length; ++j){
-    			int id = pieceMatrix[i][j].getPlayerType();
-    			boolean toHighlight = false;
-    			
-    			if(playerType == id){
-        			//check if piece is knight's move away
-        			if(i == row-2 && j == col-1){
-        				toHighlight = true;
-        			}
-        			else if(i == row-1 && j == col-2){
-        				toHighlight = true;
-        			}
-        			else if(i == row+1 && j == col-2){
-        				toHighlight = true;
-        			}
-        			else if(i == row+2 && j == col-1){
-        				toHighlight = true;
-        			}
-        			else if(i == row-2 && j == col+1){
-        				toHighlight = true;
-        			}
-        			else if(i == row-1 && j == col+2){
-        				toHighlight = true;
-        			}
-        			else if(i == row+1 && j == col+2){
-        				toHighlight = true;
-        			}
-        			else if(i == row+2 && j == col+1){
-        				toHighlight = true;
-        			}
-        			
-        			if(toHighlight){
-        				pieceMatrix[i][j].setIsHighlighted(true);
-        			}
-    			}
-    			
-    		}//inner for
-    	}//outer for
-    	
-    	//Determine if connecting a bridge to the highlighted pieces
-    	//would cross any existing bridges
-    	int xOne, xTwo, xThree, xFour;
-    	int yOne, yTwo, yThree, yFour;
-    	xTwo = firstPieceSelected.getX();
-    	yTwo = firstPieceSelected.getY();
-    	for(int i = 0; i < pieceMatrix.length; ++i){
-    		for(int j = 0; j < pieceMatrix[i].length; ++j){
-    			
-    			//found a highlighted piece, now check if bridge to current piece is valid
-    			if(pieceMatrix[i][j].getIsHighlighted()){
-    				
-    				TwixtPiece hPiece = pieceMatrix[i][j];
-    				xOne = hPiece.getX();
-    				yOne = hPiece.getY();
-    				
-    				//go through every piece (except the highlighted one!), and check
-    				//its if the bridge blocks the way
-    				for(int k = 0; k < pieceMatrix.length; ++k){
-    					for(int p = 0; p < pieceMatrix[k].length; ++p){
-    						
-    						if(pieceMatrix[k][p] != hPiece){
-    							
-    							xThree = pieceMatrix[k][p].getX();
-    							yThree = pieceMatrix[k][p].getY();
-    							Vector<TwixtPiece> conns = pieceMatrix[k][p].getConnections();
-    							
-    							for(int index = 0; index < conns.size(); index++){
-    								
-    								TwixtPiece toCheck = conns.get(index);
-    								xFour = toCheck.getX();
-    								yFour = toCheck.getY();
-    								
-    								if(TwixtHumanPlayer.linesIntersect(xOne, yOne, xTwo, yTwo, xThree, yThree,
-    										xFour, yFour)){ 
-    									
-    									hPiece.setIsHighlighted(false); 
-    								}//if
-    									
-    							}//connections for loop
-    							
-    						}//if
-    					}//third inner for
-    				}//second inner for
-    			}//if 
-    		}//inner for
-    	}//outer for
+    	//highlight each of our pieces a knight's move away that can be bridged
+    	//to without crossing any existing bridges
+    	for(int k = 0; k < TwixtBoard.KNIGHT_ROW.length; ++k){
+    		int i = row + TwixtBoard.KNIGHT_ROW[k];
+    		int j = col + TwixtBoard.KNIGHT_COL[k];
+    		
+    		if(board.canPlaceBridge(row, col, i, j)){
+    			pieceMatrix[i][j].setIsHighlighted(true);
+    		}
+    	}
     	
     }//setHighlightedPieces
     
@@ -471,14 +399,14 @@ public class BoardSurfaceView extends SurfaceView implements View.OnTouchListene
      * -When connecting pieces, the player touched their own piece to initiate the connection
      * -When connecting pieces, the player touched a highlighted piece to connect to
      * 
-     * @param x	The x coordinate of the player's touch
-     * @param y	The y coordinate of the player's touch
+     * @param row	The row of the hole the player touched
+     * @param col	The column of the hole the player touched
      * @return Whether the player's move was valid
      */
-    private boolean isValidMove(int x, int y){
+    private boolean isValidMove(int row, int col){
     	
-    	//token twixt piece to check location against
-    	TwixtPiece toCheck = new TwixtPiece(x, y, -1);
+    	//the hole to check the move against
+    	TwixtPiece toCheck = pieceMatrix[row][col];
     	
     	
     	boolean validMove = false;
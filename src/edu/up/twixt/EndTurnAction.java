@@ -1,27 +1,44 @@
 package edu.up.twixt;
 
-import edu.up.game.GameAction;
-
-/** 
-   This class defines the end turn action.
+/**
+   This class defines the end turn action. It carries the move of the turn
+	(see TwixtMoveAction).
  */
 
 
-public class EndTurnAction extends GameAction{
+public class EndTurnAction extends TwixtMoveAction{
 
 
 	/**
-	 * 
+	 *
 	 */
 	private static final long serialVersionUID = 8578743291639692272L;
 
 	/**
-	 * Constructor initializes the action with the source.
+	 * Constructor initializes the action with the source and no move.
 	 * @param source	The player who initiated the action
 	 */
     public EndTurnAction(int source) {
     	super(source);
     }
 
+	/**
+	 * Constructor initializes the action with the source and the move.
+	 * @param source	The player who initiated the action
+	 * @param peg	The hole the peg was put in, or -1 for none
+	 * @param bridges	The ids of the bridges that were built
+	 */
+    public EndTurnAction(int source, int peg, int[] bridges) {
+    	super(source, peg, bridges);
+    }
+
+	/**
+	 * Constructor initializes the action with the move made on the player's copy of the game.
+	 * @param game	The player's copy of the game
+	 */
+    public EndTurnAction(TwixtGame game) {
+    	super(game);
+    }
+
 
 }
@@ -1,20 +1,19 @@
 package edu.up.twixt;
 
-import edu.up.game.GameAction;
 
-
-/** 
-   This class represents the GameAction associated with calling Twixt 
+/**
+   This class represents the GameAction associated with calling Twixt
 	in a four player game. Only one can be instantiated per team per game.
+	Like EndTurnAction, it carries the move made so far this turn.
  */
 
 
-public class TwixtAction extends GameAction {
+public class TwixtAction extends TwixtMoveAction {
 
 
 
     /**
-	 * 
+	 *
 	 */
 	private static final long serialVersionUID = 1958706028489701495L;
 
@@ -27,5 +26,25 @@ public class TwixtAction extends GameAction {
     	super(source);
     }
 
+	/**
+     * Initializes the TwixtAction object with the source and the move.
+		@param source	The player who selected the action.
+		@param peg	The hole the peg was put in, or -1 for none.
+		@param bridges	The ids of the bridges that were built.
+     */
+
+    public TwixtAction (int source, int peg, int[] bridges) {
+    	super(source, peg, bridges);
+    }
+
+	/**
+     * Initializes the TwixtAction object with the move made on the player's copy of the game.
+		@param game	The player's copy of the game.
+     */
+
+    public TwixtAction (TwixtGame game) {
+    	super(game);
+    }
+
 
 }
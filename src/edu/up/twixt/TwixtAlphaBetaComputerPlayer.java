@@ -0,0 +1,62 @@
+package edu.up.twixt;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameComputerPlayer;
+
+/**
+	This class defines an AI player that picks its moves with an iterative-deepening alpha-beta search
+	(see TwixtAlphaBetaSearch). It searches one ply deeper at a time until its time is up and then plays
+	the best move it has found so far, so it always answers within its time budget. Positions are kept
+	in the transposition table between moves. Subclasses can override getMaxMillis() and getMaxDepth()
+	to make faster or stronger versions; with no time limit it always plays the same move in the same position.
+	The thinking is done by TwixtAlphaBetaStrategy.
+
+	@author Daniel Ehmig
+	@author Josh McCleary
+	@author Sherry Liao
+*/
+
+public class TwixtAlphaBetaComputerPlayer extends GameComputerPlayer {
+
+	/**
+	 * longest time to think per move by default, in milliseconds
+	 */
+	public static final long DEFAULT_THINK_MILLIS = 2000;
+
+	/**
+	 * deepest search by default, in plies
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 32;
+
+	/**
+	 * Constructor creates an Alpha-Beta Computer Player Object
+	 */
+	public TwixtAlphaBetaComputerPlayer(){
+		super();
+	}
+
+	/**
+	 * Returns the longest time to think per move in milliseconds (0 for no limit).
+	 */
+	protected long getMaxMillis(){
+		return DEFAULT_THINK_MILLIS;
+	}
+
+	/**
+	 * Returns the deepest search to run, in plies.
+	 */
+	protected int getMaxDepth(){
+		return DEFAULT_MAX_DEPTH;
+	}
+
+	/**
+     * This method searches for the best place for a peg, places it and bridges it to any of our pegs it can.
+     */
+	@Override
+	protected GameAction calculateMove() {
+		TwixtAlphaBetaStrategy strategy =
+				new TwixtAlphaBetaStrategy(getMaxMillis(), getMaxDepth(), getTranspositionTable());
+		return strategy.calculateMove(game);
+	}
+
+}
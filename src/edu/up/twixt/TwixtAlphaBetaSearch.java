@@ -0,0 +1,521 @@
+package edu.up.twixt;
+
+import edu.up.game.TranspositionTable;
+
+/**
+ * Iterative-deepening alpha-beta search (principal variation search) over TwixtBoard positions.
+ *
+ * Positions are judged by how far each team is from connecting its home rows: the fewest pegs it would
+ * still have to add along a chain of knight's moves that no bridge on the board is in the way of. Holes
+ * with the team's own pegs are free, empty holes cost one, and the other team's pegs and home rows are
+ * walls. The value of a position is the other team's distance minus our own.
+ *
+ * The same distances choose which moves are searched: the holes that lie on short paths for either team,
+ * best first, up to a fixed number per position. The move stored in the transposition table is always
+ * tried first.
+ *
+ * The search deepens one ply at a time until it runs out of time or reaches its depth limit, and returns
+ * the best move of the deepest search that finished (or of the unfinished one, once its first move is done).
+ * Given the same depth limit and no time limit it always plays the same move.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtAlphaBetaSearch {
+
+	/**
+	 * value of a won position (less the number of plies it takes to get there)
+	 */
+	public static final int WIN = 1000000;
+
+	/**
+	 * largest number of moves looked at in each position
+	 */
+	public static final int DEFAULT_BEAM_WIDTH = 12;
+
+	//deepest the search can ever go
+	private static final int MAX_PLY = 64;
+
+	//values above this are wins
+	private static final int WIN_BOUND = WIN - 1000;
+
+	//what one peg of distance is worth
+	private static final int DISTANCE_WEIGHT = 100;
+
+	//distance used when a team cannot connect at all
+	private static final int NO_PATH = 40;
+
+	//larger than any real distance
+	private static final int INFINITE = 1000;
+
+	//how often the clock is checked, in nodes
+	private static final int CLOCK_INTERVAL = 16;
+
+	//hole a knight's move away in each of the eight directions (-1 if off the board), and the bridge id between them
+	private static final int[][] NEIGHBOR = new int[TwixtBoard.NUM_CELLS][TwixtBoard.KNIGHT_ROW.length];
+	private static final int[][] NEIGHBOR_BRIDGE = new int[TwixtBoard.NUM_CELLS][TwixtBoard.KNIGHT_ROW.length];
+
+	static{
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			int row = cell / TwixtGame.NUM_PEGS;
+			int col = cell % TwixtGame.NUM_PEGS;
+			for(int k = 0; k < TwixtBoard.KNIGHT_ROW.length; ++k){
+				int otherRow = row + TwixtBoard.KNIGHT_ROW[k];
+				int otherCol = col + TwixtBoard.KNIGHT_COL[k];
+				if(TwixtBoard.onBoard(otherRow, otherCol)){
+					NEIGHBOR[cell][k] = TwixtBoard.cell(otherRow, otherCol);
+					NEIGHBOR_BRIDGE[cell][k] = TwixtBoard.bridgeId(row, col, otherRow, otherCol);
+				}
+				else{
+					NEIGHBOR[cell][k] = -1;
+					NEIGHBOR_BRIDGE[cell][k] = -1;
+				}
+			}
+		}
+	}
+
+	//stop after this many milliseconds (0 = no limit)
+	private long maxMillis;
+
+	//deepest iteration to run
+	private int maxDepth;
+
+	//moves looked at in each position
+	private int beamWidth;
+
+	//remembers positions between iterations and moves; may be null
+	private TranspositionTable table;
+
+	//search state
+	private long deadline;
+	private boolean aborted;
+	private long nodes;
+	private int depthReached;
+
+	//one scratch board and move list per ply, so the search never allocates
+	private TwixtBoard[] boards = new TwixtBoard[MAX_PLY + 1];
+	private int[][] moves = new int[MAX_PLY][];
+	private int[][] moveScores = new int[MAX_PLY][];
+
+	//distances from each home row, indexed by team, then by hole
+	private int[][] fromFirst = new int[2][TwixtBoard.NUM_CELLS];
+	private int[][] fromSecond = new int[2][TwixtBoard.NUM_CELLS];
+
+	//queue for the shortest path search; holds more than the most pushes it can ever see
+	private int[] queue = new int[8192];
+
+	/**
+	 * Constructor
+	 * @param maxMillis	How long to search for in milliseconds (0 for no limit)
+	 * @param maxDepth	The deepest iteration to run
+	 * @param table	The transposition table to use, or null for none
+	 */
+	public TwixtAlphaBetaSearch(long maxMillis, int maxDepth, TranspositionTable table){
+		this(maxMillis, maxDepth, DEFAULT_BEAM_WIDTH, table);
+	}
+
+	/**
+	 * Constructor
+	 * @param maxMillis	How long to search for in milliseconds (0 for no limit)
+	 * @param maxDepth	The deepest iteration to run
+	 * @param beamWidth	The most moves to look at in each position
+	 * @param table	The transposition table to use, or null for none
+	 */
+	public TwixtAlphaBetaSearch(long maxMillis, int maxDepth, int beamWidth, TranspositionTable table){
+		if(maxDepth < 1 || maxDepth > MAX_PLY){
+			throw new IllegalArgumentException("depth must be between 1 and " + MAX_PLY);
+		}
+		if(beamWidth < 1){
+			throw new IllegalArgumentException("beam width must be at least 1");
+		}
+		this.maxMillis = maxMillis;
+		this.maxDepth = maxDepth;
+		this.beamWidth = beamWidth;
+		this.table = table;
+		for(int ply = 0; ply <= MAX_PLY; ++ply){
+			boards[ply] = new TwixtBoard();
+		}
+		for(int ply = 0; ply < MAX_PLY; ++ply){
+			moves[ply] = new int[beamWidth];
+			moveScores[ply] = new int[beamWidth];
+		}
+	}
+
+	/**
+	 * This method searches for the best hole for a team to put its next peg in.
+	 * @param position	The current position; it is not modified
+	 * @param team	The team to move (LIGHT_PEG or DARK_PEG)
+	 * @return	The index of the hole, or -1 if the team has no legal move
+	 */
+	public int findMove(TwixtBoard position, int team){
+		deadline = (maxMillis > 0) ? System.currentTimeMillis() + maxMillis : Long.MAX_VALUE;
+		aborted = false;
+		nodes = 0;
+		depthReached = 0;
+		if(table != null){
+			table.newSearch();
+		}
+
+		TwixtBoard root = boards[0];
+		root.copyFrom(position);
+		measure(root);
+		int count = generateMoves(root, team, 0, TranspositionTable.NO_MOVE);
+		if(count == 0){
+			return -1;
+		}
+		int bestMove = moves[0][0];
+
+		for(int depth = 1; depth <= maxDepth && !aborted; ++depth){
+			int move = searchRoot(team, depth);
+			if(move >= 0){
+				bestMove = move;
+			}
+			if(!aborted){
+				depthReached = depth;
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Returns the number of positions the last call to findMove() looked at.
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 * Returns the depth of the deepest iteration the last call to findMove() finished.
+	 */
+	public int getDepthReached(){
+		return depthReached;
+	}
+
+	/**
+	 * This method gives the value of a position from the point of view of the team to move.
+	 * @param board	The position
+	 * @param toMove	The team to move
+	 * @return	The other team's distance minus ours, times DISTANCE_WEIGHT
+	 */
+	public int evaluate(TwixtBoard board, int toMove){
+		measure(board);
+		return score(toMove);
+	}
+
+	/**
+	 * Searches every move of the root position once. Returns the best move, or -1 if the
+	 * time ran out before the first move was done.
+	 */
+	private int searchRoot(int team, int depth){
+		TwixtBoard root = boards[0];
+		measure(root);
+		int count = generateMoves(root, team, 0, storedMove(root.getHash(team)));
+		int alpha = -WIN - 1;
+		int beta = WIN + 1;
+		int bestMove = -1;
+
+		for(int i = 0; i < count; ++i){
+			int move = moves[0][i];
+			int value = searchChild(root, team, move, depth, alpha, beta, 0, i == 0);
+			if(aborted){
+				break;
+			}
+			if(value > alpha){
+				alpha = value;
+				bestMove = move;
+			}
+		}
+
+		if(!aborted && table != null){
+			table.store(root.getHash(team), alpha, TranspositionTable.BOUND_EXACT, depth, bestMove);
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Plays a move and searches the position after it, with a null window first unless it is
+	 * the first move (principal variation search).
+	 * @return	The value of the move from the point of view of the team that made it
+	 */
+	private int searchChild(TwixtBoard board, int team, int move, int depth, int alpha, int beta,
+			int ply, boolean first){
+		TwixtBoard child = boards[ply+1];
+		child.copyFrom(board);
+		child.placePegAndBridges(team, move);
+		if(child.hasWon(team)){
+			return WIN - ply - 1;
+		}
+		if(first){
+			return -search(child, 1 - team, depth-1, -beta, -alpha, ply+1);
+		}
+		int value = -search(child, 1 - team, depth-1, -alpha-1, -alpha, ply+1);
+		if(value > alpha && value < beta && !aborted){
+			value = -search(child, 1 - team, depth-1, -beta, -alpha, ply+1);
+		}
+		return value;
+	}
+
+	/**
+	 * Negamax alpha-beta search.
+	 * @return	The value of the position from the point of view of the team to move
+	 */
+	private int search(TwixtBoard board, int toMove, int depth, int alpha, int beta, int ply){
+		if(++nodes % CLOCK_INTERVAL == 0 && System.currentTimeMillis() >= deadline){
+			aborted = true;
+		}
+		if(aborted){
+			return 0;
+		}
+
+		long key = board.getHash(toMove);
+		int ttMove = TranspositionTable.NO_MOVE;
+		if(table != null){
+			long entry = table.probe(key);
+			if(entry != TranspositionTable.MISS){
+				ttMove = TranspositionTable.moveOf(entry);
+				if(TranspositionTable.depthOf(entry) >= depth){
+					int value = fromTable(TranspositionTable.valueOf(entry), ply);
+					int bound = TranspositionTable.boundOf(entry);
+					if(bound == TranspositionTable.BOUND_EXACT
+							|| (bound == TranspositionTable.BOUND_LOWER && value >= beta)
+							|| (bound == TranspositionTable.BOUND_UPPER && value <= alpha)){
+						return value;
+					}
+				}
+			}
+		}
+
+		measure(board);
+		if(depth == 0 || ply >= MAX_PLY-1){
+			return score(toMove);
+		}
+		int count = generateMoves(board, toMove, ply, ttMove);
+		if(count == 0){
+			return 0; //nobody can win any more
+		}
+
+		int originalAlpha = alpha;
+		int best = -WIN - 1;
+		int bestMove = TranspositionTable.NO_MOVE;
+		for(int i = 0; i < count; ++i){
+			int move = moves[ply][i];
+			int value = searchChild(board, toMove, move, depth, alpha, beta, ply, i == 0);
+			if(aborted){
+				return 0;
+			}
+			if(value > best){
+				best = value;
+				bestMove = move;
+			}
+			if(value > alpha){
+				alpha = value;
+			}
+			if(alpha >= beta){
+				break;
+			}
+		}
+
+		if(table != null){
+			int bound = (best <= originalAlpha) ? TranspositionTable.BOUND_UPPER
+					: ((best >= beta) ? TranspositionTable.BOUND_LOWER : TranspositionTable.BOUND_EXACT);
+			table.store(key, toTable(best, ply), bound, depth, bestMove);
+		}
+		return best;
+	}
+
+	/*
+	 * Evaluation and move choice
+	 */
+
+	//the distance values of the last measured position from the view of the team to move
+	private int score(int toMove){
+		return (distance(1 - toMove) - distance(toMove)) * DISTANCE_WEIGHT;
+	}
+
+	//fills the distance tables of both teams for a position
+	private void measure(TwixtBoard board){
+		for(int team = 0; team < 2; ++team){
+			shortestPaths(board, team, true, fromFirst[team]);
+			shortestPaths(board, team, false, fromSecond[team]);
+		}
+	}
+
+	//how many more pegs a team needs to connect its home rows, from the last measured position
+	private int distance(int team){
+		int best = INFINITE;
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			if(isHome(team, false, cell) && fromFirst[team][cell] < best){
+				best = fromFirst[team][cell];
+			}
+		}
+		return Math.min(best, NO_PATH);
+	}
+
+	/**
+	 * This method picks the moves to search in a position and puts them in moves[ply], best first.
+	 * A hole scores by how short the shortest path of each team through it is, so the holes both
+	 * teams need come first. The stored move goes first of all.
+	 * @return	The number of moves
+	 */
+	private int generateMoves(TwixtBoard board, int toMove, int ply, int ttMove){
+		int[] list = moves[ply];
+		int[] scores = moveScores[ply];
+		int count = 0;
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			if(!board.canPlacePeg(toMove, cell)){
+				continue;
+			}
+			int score = through(toMove, cell) + through(1 - toMove, cell);
+			if(cell == ttMove){
+				score = -1;
+			}
+			if(count == list.length && score >= scores[count-1]){
+				continue;
+			}
+
+			//insertion into the sorted list, dropping the worst move when it is full
+			int i = (count < list.length) ? count++ : count-1;
+			while(i > 0 && scores[i-1] > score){
+				list[i] = list[i-1];
+				scores[i] = scores[i-1];
+				i--;
+			}
+			list[i] = cell;
+			scores[i] = score;
+		}
+		return count;
+	}
+
+	//length of the shortest path of a team that goes through a hole
+	private int through(int team, int cell){
+		int first = fromFirst[team][cell];
+		int second = fromSecond[team][cell];
+		if(first >= INFINITE || second >= INFINITE){
+			return 2 * NO_PATH;
+		}
+		//the cost of the hole itself is counted by both searches
+		return Math.min(first + second - 1, 2 * NO_PATH);
+	}
+
+	/**
+	 * This method finds, for every hole, the fewest pegs a team would have to add to reach it from
+	 * one of its home rows (counting the hole itself). It is a breadth-first search where stepping
+	 * onto one of the team's own pegs costs nothing, so 0-cost steps go to the front of the queue.
+	 */
+	private void shortestPaths(TwixtBoard board, int team, boolean first, int[] dist){
+		int mask = queue.length - 1;
+		int head = 0;
+		int tail = 0;
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			dist[cell] = INFINITE;
+		}
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			if(isHome(team, first, cell)){
+				int cost = entryCost(board, team, cell);
+				if(cost < INFINITE){
+					dist[cell] = cost;
+					if(cost == 0){
+						head = (head-1) & mask;
+						queue[head] = cell;
+					}
+					else{
+						queue[tail] = cell;
+						tail = (tail+1) & mask;
+					}
+				}
+			}
+		}
+
+		while(head != tail){
+			int cell = queue[head];
+			head = (head+1) & mask;
+			boolean ownPeg = board.getPeg(cell) == team;
+			for(int k = 0; k < NEIGHBOR[cell].length; ++k){
+				int next = NEIGHBOR[cell][k];
+				if(next < 0){
+					continue;
+				}
+				int id = NEIGHBOR_BRIDGE[cell][k];
+				int cost;
+				if(ownPeg && board.hasBridge(id)){
+					cost = 0;
+				}
+				else if(board.isCrossed(id)){
+					continue;
+				}
+				else{
+					cost = entryCost(board, team, next);
+					if(cost >= INFINITE){
+						continue;
+					}
+				}
+				int total = dist[cell] + cost;
+				if(total < dist[next]){
+					dist[next] = total;
+					if(cost == 0){
+						head = (head-1) & mask;
+						queue[head] = next;
+					}
+					else{
+						queue[tail] = next;
+						tail = (tail+1) & mask;
+					}
+				}
+			}
+		}
+	}
+
+	//what it costs a team to have a peg in a hole: 0 if it already does, 1 if it can still put one there
+	private static int entryCost(TwixtBoard board, int team, int cell){
+		int peg = board.getPeg(cell);
+		if(peg == team){
+			return 0;
+		}
+		if(peg == TwixtPiece.EMPTY && board.canPlacePeg(team, cell)){
+			return 1;
+		}
+		return INFINITE;
+	}
+
+	//whether a hole is in one of a team's home rows
+	private static boolean isHome(int team, boolean first, int cell){
+		int line = (team == TwixtPiece.DARK_PEG) ? cell / TwixtGame.NUM_PEGS : cell % TwixtGame.NUM_PEGS;
+		return line == (first ? 0 : TwixtGame.NUM_PEGS-1);
+	}
+
+	/*
+	 * Transposition table helpers
+	 */
+
+	//the move stored for a position, or NO_MOVE
+	private int storedMove(long key){
+		if(table == null){
+			return TranspositionTable.NO_MOVE;
+		}
+		long entry = table.probe(key);
+		return (entry == TranspositionTable.MISS) ? TranspositionTable.NO_MOVE : TranspositionTable.moveOf(entry);
+	}
+
+	//wins are stored as plies from the stored position, not from the root
+	static int toTable(int value, int ply){
+		if(value > WIN_BOUND){
+			return value + ply;
+		}
+		if(value < -WIN_BOUND){
+			return value - ply;
+		}
+		return value;
+	}
+
+	//and turned back into plies from the root of the search that reads them
+	static int fromTable(int value, int ply){
+		if(value > WIN_BOUND){
+			return value - ply;
+		}
+		if(value < -WIN_BOUND){
+			return value + ply;
+		}
+		return value;
+	}
+}
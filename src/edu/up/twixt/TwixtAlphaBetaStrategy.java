@@ -0,0 +1,39 @@
+package edu.up.twixt;
+
+import edu.up.game.TranspositionTable;
+
+/**
+ * The alpha-beta AI (see TwixtAlphaBetaSearch).
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtAlphaBetaStrategy extends TwixtComputerStrategy {
+
+	//longest time to think per move in milliseconds (0 = no limit)
+	private long maxMillis;
+
+	//deepest search, in plies
+	private int maxDepth;
+
+	//positions remembered between moves; may be null
+	private TranspositionTable table;
+
+	/**
+	 * Constructor
+	 * @param maxMillis	The longest time to think per move in milliseconds (0 for no limit)
+	 * @param maxDepth	The deepest search, in plies
+	 * @param table	The transposition table to use, or null for none
+	 */
+	public TwixtAlphaBetaStrategy(long maxMillis, int maxDepth, TranspositionTable table){
+		this.maxMillis = maxMillis;
+		this.maxDepth = maxDepth;
+		this.table = table;
+	}
+
+	@Override
+	protected int chooseCell(TwixtBoard board, int team) {
+		return new TwixtAlphaBetaSearch(maxMillis, maxDepth, table).findMove(board, team);
+	}
+}
@@ -0,0 +1,637 @@
+package edu.up.twixt;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compact representation of a Twixt position. Each team's pegs are kept in a bitset with one bit per hole
+ * (index = row * NUM_PEGS + col), and the bridges are kept in four more bitsets, one for each knight move
+ * that points down the board. A bridge is always stored at its upper end, so a bridge id is
+ * (direction * NUM_CELLS + cell of the upper peg). The whole position fits in a few hundred bytes, which makes
+ * copying it cheap enough for the AI players to search with.
+ *
+ * The board also keeps a 64-bit Zobrist hash of its pegs and bridges up to date as they are added, so a
+ * position can be identified without looking at the whole board. The keys come from a fixed seed, so the
+ * same position always has the same hash, on every device and in every run.
+ *
+ * The board does not enforce the rules of the game by itself; callers use canPlacePeg() and canPlaceBridge()
+ * to decide which pegs and bridges are legal.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtBoard implements Serializable {
+
+	/**
+	 * serial id
+	 */
+	private static final long serialVersionUID = 4410862203735317934L;
+
+	/**
+	 * number of holes on the board
+	 */
+	public static final int NUM_CELLS = TwixtGame.NUM_PEGS * TwixtGame.NUM_PEGS;
+
+	/**
+	 * number of distinct bridge directions (the four knight moves that point down the board)
+	 */
+	public static final int NUM_DIRS = 4;
+
+	/**
+	 * number of possible bridge ids
+	 */
+	public static final int NUM_BRIDGES = NUM_DIRS * NUM_CELLS;
+
+	/**
+	 * row and column offsets of all eight knight moves, in the order the players have always checked them
+	 */
+	public static final int[] KNIGHT_ROW = {-2, -1, 1, 2, -2, -1, 1, 2};
+	public static final int[] KNIGHT_COL = {-1, -2, -2, -1, 1, 2, 2, 1};
+
+	//row and column offsets of the four bridge directions
+	private static final int[] DIR_ROW = {1, 2, 2, 1};
+	private static final int[] DIR_COL = {-2, -1, 1, 2};
+
+	//how far the cell index moves for each bridge direction
+	private static final int[] DIR_SHIFT = new int[NUM_DIRS];
+
+	//number of longs needed to hold one bit per hole
+	private static final int WORDS = (NUM_CELLS + 63) / 64;
+
+	//holes in the first and second home rows of each team, indexed by LIGHT_PEG/DARK_PEG
+	private static final long[][] FIRST_HOME = new long[2][WORDS];
+	private static final long[][] SECOND_HOME = new long[2][WORDS];
+
+	//for every bridge id, the ids of the bridges that would cross it (null if the id runs off the board)
+	private static final int[][] CROSSING = new int[NUM_BRIDGES][];
+
+	//seed of the Zobrist keys; changing it changes every hash ever stored
+	private static final long ZOBRIST_SEED = 0x5477697874L;
+
+	//Zobrist keys for a peg of each team in each hole, indexed by LIGHT_PEG/DARK_PEG
+	private static final long[][] PEG_KEYS = new long[2][NUM_CELLS];
+
+	//Zobrist keys for each bridge id
+	private static final long[] BRIDGE_KEYS = new long[NUM_BRIDGES];
+
+	//Zobrist key mixed in when the dark team is to move
+	private static final long DARK_TO_MOVE_KEY;
+
+	static{
+		Random keys = new Random(ZOBRIST_SEED);
+		for(int team = 0; team < PEG_KEYS.length; ++team){
+			for(int i = 0; i < NUM_CELLS; ++i){
+				PEG_KEYS[team][i] = keys.nextLong();
+			}
+		}
+		for(int id = 0; id < NUM_BRIDGES; ++id){
+			BRIDGE_KEYS[id] = keys.nextLong();
+		}
+		DARK_TO_MOVE_KEY = keys.nextLong();
+
+		for(int d = 0; d < NUM_DIRS; ++d){
+			DIR_SHIFT[d] = DIR_ROW[d] * TwixtGame.NUM_PEGS + DIR_COL[d];
+		}
+		buildCrossingTable();
+		int last = TwixtGame.NUM_PEGS-1;
+		for(int i = 0; i < TwixtGame.NUM_PEGS; ++i){
+			//light team connects the left and right columns
+			setBit(FIRST_HOME[TwixtPiece.LIGHT_PEG], cell(i, 0));
+			setBit(SECOND_HOME[TwixtPiece.LIGHT_PEG], cell(i, last));
+			//dark team connects the top and bottom rows
+			setBit(FIRST_HOME[TwixtPiece.DARK_PEG], cell(0, i));
+			setBit(SECOND_HOME[TwixtPiece.DARK_PEG], cell(last, i));
+		}
+	}
+
+	//pegs of each team, indexed by LIGHT_PEG/DARK_PEG
+	private long[][] pegs = new long[2][WORDS];
+
+	//bridges, indexed by direction and then by the cell of the upper peg
+	private long[][] bridges = new long[NUM_DIRS][WORDS];
+
+	//Zobrist hash of the pegs and bridges
+	private long hash;
+
+	/**
+	 * Constructor creates an empty board.
+	 */
+	public TwixtBoard(){
+	}
+
+	/**
+	 * Copy constructor.
+	 * @param other	The board to copy
+	 */
+	public TwixtBoard(TwixtBoard other){
+		copyFrom(other);
+	}
+
+	/**
+	 * This method overwrites this board with the contents of another one without allocating.
+	 * @param other	The board to copy
+	 */
+	public void copyFrom(TwixtBoard other){
+		for(int team = 0; team < pegs.length; ++team){
+			System.arraycopy(other.pegs[team], 0, pegs[team], 0, WORDS);
+		}
+		for(int d = 0; d < NUM_DIRS; ++d){
+			System.arraycopy(other.bridges[d], 0, bridges[d], 0, WORDS);
+		}
+		hash = other.hash;
+	}
+
+	/**
+	 * This method removes every peg and bridge from the board.
+	 */
+	public void clear(){
+		for(int i = 0; i < WORDS; ++i){
+			pegs[0][i] = 0;
+			pegs[1][i] = 0;
+			for(int d = 0; d < NUM_DIRS; ++d){
+				bridges[d][i] = 0;
+			}
+		}
+		hash = 0;
+	}
+
+	/**
+	 * Returns the index of a hole.
+	 * @param row	The row of the hole
+	 * @param col	The column of the hole
+	 * @return	row * NUM_PEGS + col
+	 */
+	public static int cell(int row, int col){
+		return row * TwixtGame.NUM_PEGS + col;
+	}
+
+	/**
+	 * Tells whether a row/col pair is on the board.
+	 */
+	public static boolean onBoard(int row, int col){
+		return row >= 0 && row < TwixtGame.NUM_PEGS && col >= 0 && col < TwixtGame.NUM_PEGS;
+	}
+
+	/**
+	 * Returns the type of peg in a hole (EMPTY, LIGHT_PEG, DARK_PEG).
+	 * @param row	The row of the hole
+	 * @param col	The column of the hole
+	 * @return	The type of peg in the hole
+	 */
+	public int getPeg(int row, int col){
+		return getPeg(cell(row, col));
+	}
+
+	/**
+	 * Returns the type of peg in a hole (EMPTY, LIGHT_PEG, DARK_PEG).
+	 * @param cell	The index of the hole
+	 * @return	The type of peg in the hole
+	 */
+	public int getPeg(int cell){
+		if(testBit(pegs[TwixtPiece.LIGHT_PEG], cell)){
+			return TwixtPiece.LIGHT_PEG;
+		}
+		if(testBit(pegs[TwixtPiece.DARK_PEG], cell)){
+			return TwixtPiece.DARK_PEG;
+		}
+		return TwixtPiece.EMPTY;
+	}
+
+	/**
+	 * Places (or removes, if type is EMPTY) a peg. Bridges are not touched.
+	 * @param row	The row of the hole
+	 * @param col	The column of the hole
+	 * @param type	The type of peg (EMPTY, LIGHT_PEG, DARK_PEG)
+	 */
+	public void setPeg(int row, int col, int type){
+		int cell = cell(row, col);
+		int old = getPeg(cell);
+		if(old != TwixtPiece.EMPTY){
+			clearBit(pegs[old], cell);
+			hash ^= PEG_KEYS[old][cell];
+		}
+		if(type == TwixtPiece.LIGHT_PEG || type == TwixtPiece.DARK_PEG){
+			setBit(pegs[type], cell);
+			hash ^= PEG_KEYS[type][cell];
+		}
+	}
+
+	/**
+	 * Tells whether a team may put a peg in a hole: the hole must be empty and must not be
+	 * in one of the other team's home rows.
+	 * @param team	LIGHT_PEG or DARK_PEG
+	 * @param cell	The index of the hole
+	 * @return	Whether the peg is legal
+	 */
+	public boolean canPlacePeg(int team, int cell){
+		int other = 1 - team;
+		if(testBit(FIRST_HOME[other], cell) || testBit(SECOND_HOME[other], cell)){
+			return false;
+		}
+		return !testBit(pegs[TwixtPiece.LIGHT_PEG], cell) && !testBit(pegs[TwixtPiece.DARK_PEG], cell);
+	}
+
+	/**
+	 * This method places a peg and then bridges it to every peg of the same team a knight's move
+	 * away that it legally can, the same way the computer players make their moves.
+	 * @param team	LIGHT_PEG or DARK_PEG
+	 * @param cell	The index of the hole
+	 */
+	public void placePegAndBridges(int team, int cell){
+		int row = cell / TwixtGame.NUM_PEGS;
+		int col = cell % TwixtGame.NUM_PEGS;
+		setBit(pegs[team], cell);
+		hash ^= PEG_KEYS[team][cell];
+		for(int k = 0; k < KNIGHT_ROW.length; ++k){
+			int otherRow = row + KNIGHT_ROW[k];
+			int otherCol = col + KNIGHT_COL[k];
+			if(canPlaceBridge(row, col, otherRow, otherCol)){
+				addBridge(bridgeId(row, col, otherRow, otherCol));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of pegs a team has on the board.
+	 * @param team	LIGHT_PEG or DARK_PEG
+	 * @return	The number of pegs
+	 */
+	public int countPegs(int team){
+		int count = 0;
+		for(int i = 0; i < WORDS; ++i){
+			count += Long.bitCount(pegs[team][i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first hole at or after from that holds a peg of the given team.
+	 * @param team	LIGHT_PEG or DARK_PEG
+	 * @param from	The index to start looking at
+	 * @return	The index of the hole, or -1 if there is none
+	 */
+	public int nextPeg(int team, int from){
+		return nextBit(pegs[team], from);
+	}
+
+	/**
+	 * Returns the id of the bridge between two holes.
+	 * @return	The bridge id, or -1 if the holes are not a knight's move apart
+	 */
+	public static int bridgeId(int rowOne, int colOne, int rowTwo, int colTwo){
+		//always describe the bridge from its upper end
+		if(rowTwo < rowOne){
+			return bridgeId(rowTwo, colTwo, rowOne, colOne);
+		}
+		int dRow = rowTwo - rowOne;
+		int dCol = colTwo - colOne;
+		for(int d = 0; d < NUM_DIRS; ++d){
+			if(DIR_ROW[d] == dRow && DIR_COL[d] == dCol){
+				if(!onBoard(rowOne, colOne) || !onBoard(rowTwo, colTwo)){
+					return -1;
+				}
+				return d * NUM_CELLS + cell(rowOne, colOne);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the hole at the upper end of a bridge.
+	 */
+	public static int bridgeStart(int id){
+		return id % NUM_CELLS;
+	}
+
+	/**
+	 * Returns the hole at the lower end of a bridge.
+	 */
+	public static int bridgeEnd(int id){
+		return bridgeStart(id) + DIR_SHIFT[id / NUM_CELLS];
+	}
+
+	/**
+	 * Tells whether a bridge is on the board.
+	 */
+	public boolean hasBridge(int id){
+		return testBit(bridges[id / NUM_CELLS], id % NUM_CELLS);
+	}
+
+	/**
+	 * Adds a bridge to the board. Adding a bridge that is already there does nothing.
+	 */
+	public void addBridge(int id){
+		if(!hasBridge(id)){
+			setBit(bridges[id / NUM_CELLS], id % NUM_CELLS);
+			hash ^= BRIDGE_KEYS[id];
+		}
+	}
+
+	/**
+	 * Takes a bridge off the board. Taking off a bridge that is not there does nothing.
+	 */
+	public void removeBridge(int id){
+		if(hasBridge(id)){
+			clearBit(bridges[id / NUM_CELLS], id % NUM_CELLS);
+			hash ^= BRIDGE_KEYS[id];
+		}
+	}
+
+	/**
+	 * Returns the first bridge id at or after from that is on the board, so that callers can walk
+	 * the bridges with a simple loop.
+	 * @param from	The bridge id to start looking at
+	 * @return	The bridge id, or -1 if there are no more bridges
+	 */
+	public int nextBridge(int from){
+		for(int d = from / NUM_CELLS; d < NUM_DIRS; ++d){
+			int start = (d == from / NUM_CELLS) ? from % NUM_CELLS : 0;
+			int next = nextBit(bridges[d], start);
+			if(next >= 0){
+				return d * NUM_CELLS + next;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * This method determines whether a bridge can be placed between two holes: the holes must be a
+	 * knight's move apart, both hold pegs of the same team, the bridge must not already be there and
+	 * no bridge on the board may cross it. Only the handful of bridges that could cross it are looked at.
+	 * @param first	The index of one hole
+	 * @param second	The index of the other hole
+	 * @return	Whether the bridge is legal
+	 */
+	public boolean canPlaceBridge(int first, int second){
+		int id = bridgeId(first / TwixtGame.NUM_PEGS, first % TwixtGame.NUM_PEGS,
+				second / TwixtGame.NUM_PEGS, second % TwixtGame.NUM_PEGS);
+		if(id < 0){
+			return false;
+		}
+		int team = getPeg(first);
+		if(team == TwixtPiece.EMPTY || getPeg(second) != team || hasBridge(id)){
+			return false;
+		}
+		return !isCrossed(id);
+	}
+
+	/**
+	 * Tells whether any bridge on the board crosses the given bridge id, which means that
+	 * bridge can never be built.
+	 * @param id	A bridge id that stays on the board
+	 * @return	Whether a bridge on the board is in the way
+	 */
+	public boolean isCrossed(int id){
+		int[] crossing = CROSSING[id];
+		for(int i = 0; i < crossing.length; ++i){
+			if(hasBridge(crossing[i])){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method determines whether a bridge can be placed between two holes.
+	 * @see #canPlaceBridge(int, int)
+	 */
+	public boolean canPlaceBridge(int rowOne, int colOne, int rowTwo, int colTwo){
+		if(!onBoard(rowOne, colOne) || !onBoard(rowTwo, colTwo)){
+			return false;
+		}
+		return canPlaceBridge(cell(rowOne, colOne), cell(rowTwo, colTwo));
+	}
+
+	/**
+	 * Returns the Zobrist hash of the pegs and bridges on the board.
+	 */
+	public long getHash(){
+		return hash;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the position including whose turn it is, which is what a
+	 * search should use to tell positions apart.
+	 * @param toMove	The team to move (LIGHT_PEG or DARK_PEG)
+	 * @return	The hash of the position
+	 */
+	public long getHash(int toMove){
+		return (toMove == TwixtPiece.DARK_PEG) ? hash ^ DARK_TO_MOVE_KEY : hash;
+	}
+
+	/**
+	 * This method works the hash out from scratch; it always equals getHash() and is only
+	 * meant for checking it.
+	 * @return	The Zobrist hash of the pegs and bridges
+	 */
+	public long computeHash(){
+		long result = 0;
+		for(int team = 0; team < pegs.length; ++team){
+			for(int cell = nextPeg(team, 0); cell >= 0; cell = nextPeg(team, cell+1)){
+				result ^= PEG_KEYS[team][cell];
+			}
+		}
+		for(int id = nextBridge(0); id >= 0; id = nextBridge(id+1)){
+			result ^= BRIDGE_KEYS[id];
+		}
+		return result;
+	}
+
+	/**
+	 * Two boards are equal when they have the same pegs and bridges.
+	 */
+	@Override
+	public boolean equals(Object other){
+		if(this == other){
+			return true;
+		}
+		if(!(other instanceof TwixtBoard)){
+			return false;
+		}
+		TwixtBoard board = (TwixtBoard)other;
+		if(hash != board.hash){
+			return false;
+		}
+		for(int team = 0; team < pegs.length; ++team){
+			if(!Arrays.equals(pegs[team], board.pegs[team])){
+				return false;
+			}
+		}
+		for(int d = 0; d < NUM_DIRS; ++d){
+			if(!Arrays.equals(bridges[d], board.bridges[d])){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode(){
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * This method tells whether a team has a chain of bridges from one of its home rows to the other.
+	 * It floods outward from the first home row one bridge at a time, a whole word of holes at once.
+	 * @param team	LIGHT_PEG or DARK_PEG
+	 * @return	Whether the team has connected its home rows
+	 */
+	public boolean hasWon(int team){
+		long[] reached = new long[WORDS];
+		long[] step = new long[WORDS];
+		long[] moved = new long[WORDS];
+		for(int i = 0; i < WORDS; ++i){
+			reached[i] = pegs[team][i] & FIRST_HOME[team][i];
+		}
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			for(int d = 0; d < NUM_DIRS; ++d){
+				//follow bridges down the board...
+				for(int i = 0; i < WORDS; ++i){
+					step[i] = reached[i] & bridges[d][i];
+				}
+				shiftUp(step, DIR_SHIFT[d], moved);
+				changed |= merge(reached, moved);
+
+				//...and back up the board
+				shiftDown(reached, DIR_SHIFT[d], moved);
+				for(int i = 0; i < WORDS; ++i){
+					moved[i] &= bridges[d][i];
+				}
+				changed |= merge(reached, moved);
+			}
+		}
+		for(int i = 0; i < WORDS; ++i){
+			if((reached[i] & SECOND_HOME[team][i]) != 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Crossing table
+	 */
+
+	//tells whether a bridge id stays on the board
+	private static boolean isValidBridge(int id){
+		int start = bridgeStart(id);
+		int d = id / NUM_CELLS;
+		return onBoard(start / TwixtGame.NUM_PEGS + DIR_ROW[d], start % TwixtGame.NUM_PEGS + DIR_COL[d]);
+	}
+
+	//fills CROSSING; only bridges starting within two rows and three columns can reach each other
+	private static void buildCrossingTable(){
+		int[] found = new int[NUM_BRIDGES];
+		for(int id = 0; id < NUM_BRIDGES; ++id){
+			if(!isValidBridge(id)){
+				continue;
+			}
+			int start = bridgeStart(id);
+			int row = start / TwixtGame.NUM_PEGS;
+			int col = start % TwixtGame.NUM_PEGS;
+			int count = 0;
+			for(int r = row-2; r <= row+2; ++r){
+				for(int c = col-3; c <= col+3; ++c){
+					if(!onBoard(r, c)){
+						continue;
+					}
+					for(int d = 0; d < NUM_DIRS; ++d){
+						int other = d * NUM_CELLS + cell(r, c);
+						if(other != id && isValidBridge(other) && bridgesCross(id, other)){
+							found[count++] = other;
+						}
+					}
+				}
+			}
+			CROSSING[id] = new int[count];
+			System.arraycopy(found, 0, CROSSING[id], 0, count);
+		}
+	}
+
+	//exact test of whether two bridges cross; bridges that share a peg do not cross. A knight's move has no
+	//holes along it, so the only way two bridges can touch without sharing a peg is a proper crossing.
+	private static boolean bridgesCross(int idOne, int idTwo){
+		int a = bridgeStart(idOne);
+		int b = bridgeEnd(idOne);
+		int c = bridgeStart(idTwo);
+		int d = bridgeEnd(idTwo);
+		if(a == c || a == d || b == c || b == d){
+			return false;
+		}
+		return side(a, b, c) * side(a, b, d) < 0 && side(c, d, a) * side(c, d, b) < 0;
+	}
+
+	//which side of the line from hole p to hole q hole r lies on (-1, 0 or 1)
+	private static int side(int p, int q, int r){
+		int n = TwixtGame.NUM_PEGS;
+		int cross = (q % n - p % n) * (r / n - p / n) - (q / n - p / n) * (r % n - p % n);
+		return (cross > 0) ? 1 : ((cross < 0) ? -1 : 0);
+	}
+
+	/*
+	 * Bit helpers
+	 */
+
+	private static boolean testBit(long[] bits, int index){
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private static void setBit(long[] bits, int index){
+		bits[index >>> 6] |= (1L << index);
+	}
+
+	private static void clearBit(long[] bits, int index){
+		bits[index >>> 6] &= ~(1L << index);
+	}
+
+	//index of the first set bit at or after from, or -1
+	private static int nextBit(long[] bits, int from){
+		int word = from >>> 6;
+		if(word >= bits.length){
+			return -1;
+		}
+		long current = bits[word] & (-1L << from);
+		while(true){
+			if(current != 0){
+				return (word << 6) + Long.numberOfTrailingZeros(current);
+			}
+			if(++word == bits.length){
+				return -1;
+			}
+			current = bits[word];
+		}
+	}
+
+	//dst = src moved towards higher indices by n bits (0 < n < 64)
+	private static void shiftUp(long[] src, int n, long[] dst){
+		for(int i = WORDS-1; i > 0; --i){
+			dst[i] = (src[i] << n) | (src[i-1] >>> (64-n));
+		}
+		dst[0] = src[0] << n;
+	}
+
+	//dst = src moved towards lower indices by n bits (0 < n < 64)
+	private static void shiftDown(long[] src, int n, long[] dst){
+		for(int i = 0; i < WORDS-1; ++i){
+			dst[i] = (src[i] >>> n) | (src[i+1] << (64-n));
+		}
+		dst[WORDS-1] = src[WORDS-1] >>> n;
+	}
+
+	//reached |= extra; returns whether anything new was added
+	private static boolean merge(long[] reached, long[] extra){
+		boolean changed = false;
+		for(int i = 0; i < WORDS; ++i){
+			long next = reached[i] | extra[i];
+			if(next != reached[i]){
+				reached[i] = next;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+}
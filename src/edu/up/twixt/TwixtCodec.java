@@ -0,0 +1,413 @@
+package edu.up.twixt;
+
+import java.nio.ByteBuffer;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameConfig;
+import edu.up.game.GameConfigCodec;
+import edu.up.game.GameDataReader;
+import edu.up.game.GameDataWriter;
+
+/**
+ * Compact binary encoding of Twixt games and actions, as an alternative to Java serialization for Intent
+ * extras, the network and disk. Messages start with the header of GameConfigCodec.
+ *
+ * A position is written as whose turn it is, a flags byte (twixt calls and surrender), and for each team
+ * its pegs as varint gaps between hole indices, in order. Every bridge starts at the peg at its upper end,
+ * so the bridges are written as a 4-bit mask of directions per peg, two pegs to a byte. A move that is only
+ * half made (a human player's peg and bridges before the turn is ended) follows as a peg and a list of
+ * bridge ids. A mid-game position of 60 pegs takes about 100 bytes. A whole game adds its configuration,
+ * which does not change during a game and so can be sent once and left out of later positions.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtCodec {
+
+	/**
+	 * magic byte of messages written by this codec ('T')
+	 */
+	public static final int MAGIC = 0x54;
+
+	/**
+	 * version of the encoding written
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * kind of message: a game with its configuration
+	 */
+	public static final int KIND_GAME = 1;
+
+	/**
+	 * kind of message: a game without its configuration
+	 */
+	public static final int KIND_POSITION = 2;
+
+	/**
+	 * kind of message: an action
+	 */
+	public static final int KIND_ACTION = 3;
+
+	//bits of the flags byte of a position
+	private static final int FLAG_LIGHT_TWIXT = 1;
+	private static final int FLAG_DARK_TWIXT = 2;
+	private static final int FLAG_SURRENDERED = 4;
+
+	//the action types
+	private static final int END_TURN = 1;
+	private static final int TWIXT = 2;
+	private static final int SURRENDER = 3;
+	private static final int QUIT = 4;
+
+	//no instances; everything is static
+	private TwixtCodec(){
+	}
+
+	/**
+	 * This method encodes a game with its configuration.
+	 * @param game	The game
+	 * @return	The message
+	 */
+	public static byte[] encodeGame(TwixtGame game){
+		GameDataWriter writer = new GameDataWriter(256);
+		GameConfigCodec.writeHeader(writer, MAGIC, VERSION, KIND_GAME);
+		GameConfigCodec.writeConfig(writer, game.getConfig());
+		writePosition(writer, game);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * This method decodes a game written by encodeGame.
+	 * @param data	The message
+	 * @return	The game
+	 * @throws IllegalArgumentException	if the data is not a valid game
+	 */
+	public static TwixtGame decodeGame(byte[] data){
+		return decodeGame(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * This method decodes a game written by encodeGame where it lies in a buffer, such as the payload of
+	 * a frame, without copying it.
+	 * @param data	The buffer, holding the message from its position to its limit; it is left as it is
+	 * @return	The game
+	 * @throws IllegalArgumentException	if the data is not a valid game
+	 */
+	public static TwixtGame decodeGame(ByteBuffer data){
+		GameDataReader reader = new GameDataReader(data);
+		checkKind(GameConfigCodec.readHeader(reader, MAGIC, VERSION), KIND_GAME);
+		GameConfig config = GameConfigCodec.readConfig(reader);
+		return readPosition(reader, config);
+	}
+
+	/**
+	 * This method encodes a game without its configuration.
+	 * @param game	The game
+	 * @return	The message
+	 */
+	public static byte[] encodePosition(TwixtGame game){
+		GameDataWriter writer = new GameDataWriter(128);
+		GameConfigCodec.writeHeader(writer, MAGIC, VERSION, KIND_POSITION);
+		writePosition(writer, game);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * This method decodes a game written by encodePosition.
+	 * @param data	The message
+	 * @param config	The configuration of the game
+	 * @return	The game
+	 * @throws IllegalArgumentException	if the data is not a valid position
+	 */
+	public static TwixtGame decodePosition(byte[] data, GameConfig config){
+		GameDataReader reader = new GameDataReader(data);
+		checkKind(GameConfigCodec.readHeader(reader, MAGIC, VERSION), KIND_POSITION);
+		return readPosition(reader, config);
+	}
+
+	/**
+	 * This method encodes one of the Twixt actions.
+	 * @param action	An EndTurnAction, TwixtAction, SurrenderAction or QuitAction
+	 * @return	The message
+	 */
+	public static byte[] encodeAction(GameAction action){
+		GameDataWriter writer = new GameDataWriter(16);
+		GameConfigCodec.writeHeader(writer, MAGIC, VERSION, KIND_ACTION);
+		writeAction(writer, action);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * This method decodes an action written by encodeAction.
+	 * @param data	The message
+	 * @return	The action
+	 * @throws IllegalArgumentException	if the data is not a valid action
+	 */
+	public static GameAction decodeAction(byte[] data){
+		return decodeAction(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * This method decodes an action written by encodeAction where it lies in a buffer, such as the
+	 * payload of a frame, without copying it.
+	 * @param data	The buffer, holding the message from its position to its limit; it is left as it is
+	 * @return	The action
+	 * @throws IllegalArgumentException	if the data is not a valid action
+	 */
+	public static GameAction decodeAction(ByteBuffer data){
+		GameDataReader reader = new GameDataReader(data);
+		checkKind(GameConfigCodec.readHeader(reader, MAGIC, VERSION), KIND_ACTION);
+		return readAction(reader);
+	}
+
+	/**
+	 * This method applies an action to a copy of a game, as a remote player brings its copy up to date
+	 * with the move it was sent.
+	 * @param game	The game before the action; it is not changed
+	 * @param action	The action
+	 * @return	The game after the action
+	 */
+	public static TwixtGame applyAction(TwixtGame game, GameAction action){
+		TwixtGame next = new TwixtGame(game);
+		next.applyAction(action);
+		return next;
+	}
+
+	/**
+	 * This method hashes everything a position message holds: the pegs and bridges, whose turn it is,
+	 * who has called Twixt and whether the game was surrendered. A remote player compares it with the
+	 * hash of its own copy after applying a move.
+	 * @param game	The game
+	 * @return	The hash
+	 */
+	public static long syncHash(TwixtGame game){
+		long hash = game.getPositionHash();
+		hash = hash * 31 + game.whoseTurn();
+		hash = hash * 31 + ((game.twixtCalled[0] ? FLAG_LIGHT_TWIXT : 0)
+				| (game.twixtCalled[1] ? FLAG_DARK_TWIXT : 0)
+				| (game.surrGameOver ? FLAG_SURRENDERED : 0));
+		return hash;
+	}
+
+	/**
+	 * This method writes a game without its configuration and with no header, for embedding in other data.
+	 * @param writer	Where to write
+	 * @param game	The game
+	 */
+	public static void writePosition(GameDataWriter writer, TwixtGame game){
+		TwixtBoard board = game.turnStart;
+		writer.writeVarint(game.whoseTurn());
+		writer.writeByte((game.twixtCalled[TwixtPiece.LIGHT_PEG] ? FLAG_LIGHT_TWIXT : 0)
+				| (game.twixtCalled[TwixtPiece.DARK_PEG] ? FLAG_DARK_TWIXT : 0)
+				| (game.surrGameOver ? FLAG_SURRENDERED : 0));
+
+		//the pegs of each team as gaps between holes
+		for(int team = TwixtPiece.LIGHT_PEG; team <= TwixtPiece.DARK_PEG; ++team){
+			writer.writeVarint(board.countPegs(team));
+			int previous = -1;
+			for(int cell = board.nextPeg(team, 0); cell >= 0; cell = board.nextPeg(team, cell+1)){
+				writer.writeVarint(cell - previous - 1);
+				previous = cell;
+			}
+		}
+
+		//the bridges starting at each peg, in the same order as the pegs
+		int packed = 0;
+		boolean half = false;
+		for(int team = TwixtPiece.LIGHT_PEG; team <= TwixtPiece.DARK_PEG; ++team){
+			for(int cell = board.nextPeg(team, 0); cell >= 0; cell = board.nextPeg(team, cell+1)){
+				int mask = 0;
+				for(int d = 0; d < TwixtBoard.NUM_DIRS; ++d){
+					if(board.hasBridge(d * TwixtBoard.NUM_CELLS + cell)){
+						mask |= 1 << d;
+					}
+				}
+				if(half){
+					writer.writeByte(packed | (mask << 4));
+				}
+				else{
+					packed = mask;
+				}
+				half = !half;
+			}
+		}
+		if(half){
+			writer.writeByte(packed);
+		}
+
+		//the part of the move made so far this turn
+		writeMove(writer, game.getTurnPeg(), game.getTurnBridges());
+	}
+
+	/**
+	 * This method reads a game written by writePosition.
+	 * @param reader	Where to read from
+	 * @param config	The configuration of the game
+	 * @return	The game
+	 */
+	public static TwixtGame readPosition(GameDataReader reader, GameConfig config){
+		int whoseTurn = reader.readVarint(Math.max(0, config.getNumPlayers() - 1));
+		int flags = reader.readByte();
+		TwixtGame game = new TwixtGame(config, whoseTurn);
+		TwixtPiece[][] pieceMatrix = game.getBoardState();
+		TwixtBoard board = game.getBoard();
+
+		//the pegs
+		int[][] pegs = new int[2][];
+		for(int team = TwixtPiece.LIGHT_PEG; team <= TwixtPiece.DARK_PEG; ++team){
+			pegs[team] = new int[reader.readVarint(TwixtBoard.NUM_CELLS)];
+			int cell = -1;
+			for(int i = 0; i < pegs[team].length; ++i){
+				cell += reader.readVarint(TwixtBoard.NUM_CELLS) + 1;
+				if(cell >= TwixtBoard.NUM_CELLS || board.getPeg(cell) != TwixtPiece.EMPTY){
+					throw new IllegalArgumentException("bad peg: " + cell);
+				}
+				pegs[team][i] = cell;
+				piece(pieceMatrix, cell).setPlayerType(team);
+				piece(pieceMatrix, cell).setAsPermanent();
+			}
+		}
+
+		//the bridges
+		int packed = 0;
+		boolean half = false;
+		for(int team = TwixtPiece.LIGHT_PEG; team <= TwixtPiece.DARK_PEG; ++team){
+			for(int i = 0; i < pegs[team].length; ++i){
+				if(!half){
+					packed = reader.readByte();
+				}
+				int mask = half ? (packed >> 4) : (packed & 0xF);
+				half = !half;
+				for(int d = 0; d < TwixtBoard.NUM_DIRS; ++d){
+					if((mask & (1 << d)) != 0){
+						addBridge(game, d * TwixtBoard.NUM_CELLS + pegs[team][i], team);
+					}
+				}
+			}
+		}
+		game.turnStart.copyFrom(board);
+
+		//the part of the move made so far this turn; the peg only becomes permanent once it is bridged
+		int team = TwixtComputerStrategy.teamOf(game);
+		int peg = reader.readVarint(TwixtBoard.NUM_CELLS) - 1;
+		if(peg >= 0){
+			if(!board.canPlacePeg(team, peg)){
+				throw new IllegalArgumentException("bad peg: " + peg);
+			}
+			piece(pieceMatrix, peg).setPlayerType(team);
+		}
+		int bridges = reader.readVarint(TwixtBoard.NUM_BRIDGES);
+		for(int i = 0; i < bridges; ++i){
+			int id = reader.readVarint(TwixtBoard.NUM_BRIDGES - 1);
+			addBridge(game, id, team);
+			piece(pieceMatrix, TwixtBoard.bridgeStart(id)).setAsPermanent();
+			piece(pieceMatrix, TwixtBoard.bridgeEnd(id)).setAsPermanent();
+		}
+
+		game.twixtCalled[TwixtPiece.LIGHT_PEG] = (flags & FLAG_LIGHT_TWIXT) != 0;
+		game.twixtCalled[TwixtPiece.DARK_PEG] = (flags & FLAG_DARK_TWIXT) != 0;
+		game.surrGameOver = (flags & FLAG_SURRENDERED) != 0;
+		return game;
+	}
+
+	/**
+	 * This method writes an action with no header, for embedding in other data.
+	 * @param writer	Where to write
+	 * @param action	An EndTurnAction, TwixtAction, SurrenderAction or QuitAction
+	 */
+	public static void writeAction(GameDataWriter writer, GameAction action){
+		if(action instanceof EndTurnAction){
+			writer.writeByte(END_TURN);
+		}
+		else if(action instanceof TwixtAction){
+			writer.writeByte(TWIXT);
+		}
+		else if(action instanceof SurrenderAction){
+			writer.writeByte(SURRENDER);
+		}
+		else if(action instanceof QuitAction){
+			writer.writeByte(QUIT);
+		}
+		else{
+			throw new IllegalArgumentException("not a Twixt action: " + action);
+		}
+		writer.writeVarint(action.getSource());
+		if(action instanceof TwixtMoveAction){
+			TwixtMoveAction move = (TwixtMoveAction)action;
+			writeMove(writer, move.getPeg(), move.getBridges());
+		}
+	}
+
+	/**
+	 * This method reads an action written by writeAction.
+	 * @param reader	Where to read from
+	 * @return	The action
+	 */
+	public static GameAction readAction(GameDataReader reader){
+		int type = reader.readByte();
+		int source = reader.readVarint();
+		switch(type){
+		case SURRENDER:
+			return new SurrenderAction(source);
+		case QUIT:
+			return new QuitAction(source);
+		case END_TURN:
+		case TWIXT:
+			int peg = reader.readVarint(TwixtBoard.NUM_CELLS) - 1;
+			int[] bridges = new int[reader.readVarint(TwixtBoard.NUM_BRIDGES)];
+			for(int i = 0; i < bridges.length; ++i){
+				bridges[i] = reader.readVarint(TwixtBoard.NUM_BRIDGES - 1);
+			}
+			if(type == END_TURN){
+				return new EndTurnAction(source, peg, bridges);
+			}
+			return new TwixtAction(source, peg, bridges);
+		default:
+			throw new IllegalArgumentException("unknown action type: " + type);
+		}
+	}
+
+	//writes a peg (or -1) and a list of bridge ids
+	private static void writeMove(GameDataWriter writer, int peg, int[] bridges){
+		writer.writeVarint(peg + 1);
+		if(bridges == null){
+			writer.writeVarint(0);
+			return;
+		}
+		writer.writeVarint(bridges.length);
+		for(int i = 0; i < bridges.length; ++i){
+			writer.writeVarint(bridges[i]);
+		}
+	}
+
+	//puts a bridge of a team on the game's board, checking that it is legal
+	private static void addBridge(TwixtGame game, int id, int team){
+		TwixtBoard board = game.getBoard();
+		int start = TwixtBoard.bridgeStart(id);
+		int end = TwixtBoard.bridgeEnd(id);
+		int startRow = start / TwixtGame.NUM_PEGS;
+		int endRow = end / TwixtGame.NUM_PEGS;
+		//a bridge id whose end falls off the board wraps around to the wrong column
+		if(end >= TwixtBoard.NUM_CELLS || endRow - startRow > 2
+				|| TwixtBoard.bridgeId(startRow, start % TwixtGame.NUM_PEGS, endRow, end % TwixtGame.NUM_PEGS) != id
+				|| board.getPeg(start) != team || !board.canPlaceBridge(start, end)){
+			throw new IllegalArgumentException("bad bridge: " + id);
+		}
+		TwixtPiece[][] pieceMatrix = game.getBoardState();
+		piece(pieceMatrix, start).addConnection(piece(pieceMatrix, end));
+	}
+
+	//the view of a hole
+	private static TwixtPiece piece(TwixtPiece[][] pieceMatrix, int cell){
+		return pieceMatrix[cell / TwixtGame.NUM_PEGS][cell % TwixtGame.NUM_PEGS];
+	}
+
+	//throws if a message is not of the kind expected
+	private static void checkKind(int kind, int expected){
+		if(kind != expected){
+			throw new IllegalArgumentException("wrong kind of message: " + kind);
+		}
+	}
+}
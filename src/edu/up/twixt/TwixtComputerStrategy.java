@@ -0,0 +1,95 @@
+package edu.up.twixt;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameComputerStrategy;
+import edu.up.game.LocalGame;
+
+/**
+ * Base class of the Twixt AIs. It works out which team the computer is playing, asks the subclass which
+ * hole to put a peg in, and ends the turn with that peg bridged to every peg of ours a knight's move
+ * away that it can be. Subclasses only have to pick the hole. The move is sent back in the EndTurnAction
+ * and made by the game; the state the strategy is given is not changed.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public abstract class TwixtComputerStrategy implements GameComputerStrategy {
+
+	/**
+	 * This method picks the hole for the next peg.
+	 * @param board	The pegs and bridges on the board; must not be changed
+	 * @param team	The team to move (LIGHT_PEG or DARK_PEG)
+	 * @return	The index of the hole, or -1 if there is no legal move
+	 */
+	protected abstract int chooseCell(TwixtBoard board, int team);
+
+	/**
+	 * Action to perform when a move is requested. The AI picks the hole for its peg and ends its
+	 * turn with the peg and its bridges.
+	 */
+	@Override
+	public GameAction calculateMove(LocalGame game) {
+
+		TwixtBoard board = ((TwixtGame)game).getBoard();
+		int team = teamOf(game);
+		int cell = chooseCell(board, team);
+		if(cell < 0){
+			return new EndTurnAction(game.whoseTurn());
+		}
+
+		//OK, THE TURN'S DONE!
+		return new EndTurnAction(game.whoseTurn(), cell, bridgesFrom(board, team, cell));
+	}
+
+	/**
+	 * Returns the team of the player whose turn it is.
+	 */
+	public static int teamOf(LocalGame game){
+		if(game.whoseTurn() == 0 || game.whoseTurn() == 2){
+			return TwixtPiece.LIGHT_PEG;
+		}
+		return TwixtPiece.DARK_PEG;
+	}
+
+	/**
+	 * Tells whether a team has any hole left to put a peg in.
+	 */
+	public static boolean hasLegalMove(TwixtBoard board, int team){
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			if(board.canPlacePeg(team, cell)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method works out the bridges a new peg can be connected with: one to each of our pegs
+	 * a knight's move away, unless another bridge is in the way. Bridges from the same peg never
+	 * cross each other, so they are only checked against the board.
+	 * @param board	The board before the peg is placed; it is not changed
+	 * @param team	LIGHT_PEG or DARK_PEG
+	 * @param cell	The hole of the new peg
+	 * @return	The bridge ids
+	 */
+	public static int[] bridgesFrom(TwixtBoard board, int team, int cell){
+		int rowToAdd = cell / TwixtGame.NUM_PEGS;
+		int colToAdd = cell % TwixtGame.NUM_PEGS;
+		int[] found = new int[TwixtBoard.KNIGHT_ROW.length];
+		int count = 0;
+		for(int k = 0; k < TwixtBoard.KNIGHT_ROW.length; ++k){
+			int row = rowToAdd + TwixtBoard.KNIGHT_ROW[k];
+			int col = colToAdd + TwixtBoard.KNIGHT_COL[k];
+
+			//the bridge has to be a knight's move to one of our pegs and must not cross any other bridge
+			int id = TwixtBoard.bridgeId(rowToAdd, colToAdd, row, col);
+			if(id >= 0 && board.getPeg(row, col) == team && !board.isCrossed(id)){
+				found[count++] = id;
+			}
+		}
+		int[] bridges = new int[count];
+		System.arraycopy(found, 0, bridges, 0, count);
+		return bridges;
+	}
+}
@@ -0,0 +1,148 @@
+package edu.up.twixt;
+
+import java.io.Serializable;
+
+/**
+ * This class keeps track of which pegs are joined together by bridges, one disjoint-set forest per team.
+ * Each team also has two virtual nodes that stand for its two home rows (top/bottom for the dark team,
+ * left/right for the light team). Whenever a bridge touches a home row, the peg is merged with the
+ * matching virtual node, so a team has won as soon as its two virtual nodes end up in the same set.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtConnectivity implements Serializable {
+
+	/**
+	 * serial id
+	 */
+	private static final long serialVersionUID = -6330146386612981707L;
+
+	//number of real nodes (one per hole on the board)
+	private static final int NUM_CELLS = TwixtGame.NUM_PEGS * TwixtGame.NUM_PEGS;
+
+	//virtual node for the first home row (top row or left column)
+	private static final int FIRST_EDGE = NUM_CELLS;
+
+	//virtual node for the second home row (bottom row or right column)
+	private static final int SECOND_EDGE = NUM_CELLS + 1;
+
+	//parent links of each team's forest, indexed by LIGHT_PEG/DARK_PEG
+	private int[][] parent = new int[2][NUM_CELLS + 2];
+
+	//upper bound on the height of each tree, used to keep the trees flat
+	private byte[][] rank = new byte[2][NUM_CELLS + 2];
+
+	/**
+	 * Constructor creates a forest where no pegs are connected.
+	 */
+	public TwixtConnectivity(){
+		reset();
+	}
+
+	/**
+	 * Copy constructor creates a forest with the same connections as another one.
+	 * @param other	The forest to copy
+	 */
+	public TwixtConnectivity(TwixtConnectivity other){
+		for(int team = 0; team < parent.length; ++team){
+			System.arraycopy(other.parent[team], 0, parent[team], 0, parent[team].length);
+			System.arraycopy(other.rank[team], 0, rank[team], 0, rank[team].length);
+		}
+	}
+
+	/**
+	 * This method puts every node back into its own set. Called when a new board is set up.
+	 */
+	public void reset(){
+		for(int team = 0; team < parent.length; ++team){
+			for(int i = 0; i < parent[team].length; ++i){
+				parent[team][i] = i;
+				rank[team][i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * This method records a bridge between two pegs of the same team. Adding the same bridge
+	 * twice is harmless.
+	 *
+	 * @param team	The team that owns the bridge (LIGHT_PEG or DARK_PEG)
+	 * @param rowOne	Row of the first peg
+	 * @param colOne	Column of the first peg
+	 * @param rowTwo	Row of the second peg
+	 * @param colTwo	Column of the second peg
+	 */
+	public void addBridge(int team, int rowOne, int colOne, int rowTwo, int colTwo){
+		if(team != TwixtPiece.LIGHT_PEG && team != TwixtPiece.DARK_PEG){
+			return;
+		}
+		int first = rowOne * TwixtGame.NUM_PEGS + colOne;
+		int second = rowTwo * TwixtGame.NUM_PEGS + colTwo;
+		union(team, first, second);
+		joinHomeRow(team, first, rowOne, colOne);
+		joinHomeRow(team, second, rowTwo, colTwo);
+	}
+
+	/**
+	 * This method tells whether a team has connected its two home rows.
+	 *
+	 * @param team	The team to check (LIGHT_PEG or DARK_PEG)
+	 * @return	Whether there is a chain of bridges from one home row to the other
+	 */
+	public boolean hasWon(int team){
+		if(team != TwixtPiece.LIGHT_PEG && team != TwixtPiece.DARK_PEG){
+			return false;
+		}
+		return find(team, FIRST_EDGE) == find(team, SECOND_EDGE);
+	}
+
+	/**
+	 * This method merges a peg with the virtual node of the home row it sits in, if any.
+	 * The dark team's home rows are the top and bottom rows, the light team's are the
+	 * left and right columns.
+	 */
+	private void joinHomeRow(int team, int node, int row, int col){
+		int line = (team == TwixtPiece.DARK_PEG) ? row : col;
+		if(line == 0){
+			union(team, node, FIRST_EDGE);
+		}
+		else if(line == TwixtGame.NUM_PEGS-1){
+			union(team, node, SECOND_EDGE);
+		}
+	}
+
+	/**
+	 * Returns the representative of the set containing the node, halving the path on the way up.
+	 */
+	private int find(int team, int node){
+		int[] links = parent[team];
+		while(links[node] != node){
+			links[node] = links[links[node]];
+			node = links[node];
+		}
+		return node;
+	}
+
+	/**
+	 * Merges the sets containing the two nodes, hanging the shorter tree under the taller one.
+	 */
+	private void union(int team, int first, int second){
+		int rootOne = find(team, first);
+		int rootTwo = find(team, second);
+		if(rootOne == rootTwo){
+			return;
+		}
+		if(rank[team][rootOne] < rank[team][rootTwo]){
+			parent[team][rootOne] = rootTwo;
+		}
+		else if(rank[team][rootOne] > rank[team][rootTwo]){
+			parent[team][rootTwo] = rootOne;
+		}
+		else{
+			parent[team][rootTwo] = rootOne;
+			rank[team][rootOne]++;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package edu.up.twixt;
+
+/**
+ * The random AI: it puts its peg in a random empty hole that is not in the other team's home rows.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtEasyStrategy extends TwixtComputerStrategy {
+
+	@Override
+	protected int chooseCell(TwixtBoard board, int team) {
+
+		//make sure there is a hole the loop below can find
+		boolean anyEmpty = false;
+		for(int row = 0; row < TwixtGame.NUM_PEGS && !anyEmpty; ++row){
+			for(int col = 0; col < TwixtGame.NUM_PEGS && !anyEmpty; ++col){
+				anyEmpty = board.canPlacePeg(team, TwixtBoard.cell(row, col));
+			}
+		}
+		if(!anyEmpty){
+			return -1;
+		}
+
+		boolean placingPeg = true;
+
+		int randCol = 0;
+		int randRow = 0;
+
+		//random row or col may not be valid, so loopdeedoop!
+		while(placingPeg){
+
+			randCol = (int)(Math.random() * TwixtGame.NUM_PEGS);
+			randRow = (int)(Math.random() * TwixtGame.NUM_PEGS);
+
+			if(board.getPeg(randRow, randCol) == TwixtPiece.EMPTY){
+				placingPeg = false;
+			}
+
+			//don't choose home rows!
+			if(team == TwixtPiece.DARK_PEG){
+				if(randCol == 0 || randCol == TwixtGame.NUM_PEGS-1){
+					placingPeg = true;
+				}
+			}
+			else if(team == TwixtPiece.LIGHT_PEG){
+				if(randRow == 0 || randRow == TwixtGame.NUM_PEGS-1){
+					placingPeg = true;
+				}
+			}
+		}
+
+		return TwixtBoard.cell(randRow, randCol);
+	}
+}
@@ -1,7 +1,5 @@
 package edu.up.twixt;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import edu.up.game.GameAction;
 import edu.up.game.GameConfig;
 import edu.up.game.LocalGame;
@@ -23,22 +21,34 @@ public class TwixtGame extends LocalGame {
 	private static final long serialVersionUID = 126363295329375498L;
 
 	/**
-     * defines the current state of all the pieces on the game board
-     */
-
-    protected static TwixtPiece[][] pieceMatrix = new TwixtPiece[TwixtGame.NUM_PEGS][TwixtGame.NUM_PEGS];
-    
-    /**
      * the number of pegs in a row of the game board; same for column 
 		because the board is always square
      */
     public static final int NUM_PEGS = 18;
     
-    //avoids null pointer exceptions for the first player
-    protected static boolean boardInitialized = false;
+	/**
+     * pegs and bridges currently on the game board
+     */
+    
+    protected TwixtBoard board = new TwixtBoard();
+    
+	/**
+     * views of each hole of the game board, used by the GUI
+     */
+
+    protected TwixtPiece[][] pieceMatrix = new TwixtPiece[TwixtGame.NUM_PEGS][TwixtGame.NUM_PEGS];
+    
+    //which pegs are joined by bridges; kept up to date as bridges are added
+    protected TwixtConnectivity connectivity = new TwixtConnectivity();
+    
+    //the board as it was when the current turn started; the move of the turn is the difference
+    protected TwixtBoard turnStart = new TwixtBoard();
+    
+    //whether each team (LIGHT_PEG, DARK_PEG) has called twixt yet
+    protected boolean[] twixtCalled = new boolean[2];
     
     //used to determine if the game is over based on a surrender
-    private static boolean surrGameOver = false;
+    protected boolean surrGameOver = false;
     
 
     /**
@@ -49,19 +59,45 @@ public class TwixtGame extends LocalGame {
      */
 	public TwixtGame(GameConfig config, int initTurn) {
 		super(config, initTurn);
-		
+		initializeBoard();
+	}
+	
+    /**
+     * Copy constructor creates a game with its own copy of another game's state, so that
+     * the copy can be changed without changing the original.
+     * 
+		@param other	The game to copy.
+     */
+	public TwixtGame(TwixtGame other) {
+		super(other.getConfig(), other.whoseTurn);
+		board.copyFrom(other.board);
+		turnStart.copyFrom(other.turnStart);
+		connectivity = new TwixtConnectivity(other.connectivity);
+		twixtCalled[0] = other.twixtCalled[0];
+		twixtCalled[1] = other.twixtCalled[1];
+		surrGameOver = other.surrGameOver;
+		for(int i = 0; i < pieceMatrix.length; ++i){
+			for(int j = 0; j < pieceMatrix[i].length; ++j){
+				pieceMatrix[i][j] = new TwixtPiece(this, i, j);
+				if(other.pieceMatrix[i][j].isThisSet()){
+					pieceMatrix[i][j].setAsPermanent();
+				}
+			}
+		}
 	}
 	
 
 	/**
      * This method is used primarily for network games to determine if the GUI is locked when it is not a player's turn.
+     * The state is a copy of the whole game, board included, so a player can change it freely; the move it makes
+     * comes back to this game inside the EndTurnAction or TwixtAction.
 		@param playerId	The player whose state is being returned.
 		@return LocalGame	The state of the game.
      * @playerId
      */
 	@Override
 	public LocalGame getPlayerState(int playerIndex) {
-		TwixtGame copy = new TwixtGame(this.getConfig(), this.whoseTurn);
+		TwixtGame copy = new TwixtGame(this);
 		return copy;
 	}
 	
@@ -70,23 +106,129 @@ public class TwixtGame extends LocalGame {
 		@return The array of the pieces on the game board.
      */
 
-    public static TwixtPiece[][] getBoardState() {
+    public TwixtPiece[][] getBoardState() {
 		return pieceMatrix;
     
     }
     
+	/**
+     * Returns the pegs and bridges currently on the game board.
+		@return The game board.
+     */
+
+    public TwixtBoard getBoard() {
+		return board;
+
+    }
+
+	/**
+     * Returns the Zobrist hash of the current position, including whose turn it is. Two games with
+     * the same pegs, bridges and team to move always have the same hash.
+		@return The hash of the position.
+     */
+
+    public long getPositionHash() {
+		return board.getHash(teamToMove());
+
+    }
+
+
+	/**
+     * Returns the hole the current team put a peg in since the turn started.
+		@return The index of the hole, or -1 if no peg was placed.
+     */
+
+    public int getTurnPeg() {
+		int team = teamToMove();
+		for(int cell = board.nextPeg(team, 0); cell >= 0; cell = board.nextPeg(team, cell+1)){
+			if(turnStart.getPeg(cell) == TwixtPiece.EMPTY){
+				return cell;
+			}
+		}
+		return -1;
+
+    }
+
+	/**
+     * Returns the bridges that were built since the turn started.
+		@return The ids of the bridges.
+     */
+
+    public int[] getTurnBridges() {
+		int count = 0;
+		for(int id = board.nextBridge(0); id >= 0; id = board.nextBridge(id+1)){
+			if(!turnStart.hasBridge(id)){
+				count++;
+			}
+		}
+		int[] bridges = new int[count];
+		count = 0;
+		for(int id = board.nextBridge(0); id >= 0; id = board.nextBridge(id+1)){
+			if(!turnStart.hasBridge(id)){
+				bridges[count++] = id;
+			}
+		}
+		return bridges;
+
+    }
+
+	/**
+     * Tells whether a team has called twixt in this game.
+		@param team	LIGHT_PEG or DARK_PEG
+		@return Whether the team has called twixt.
+     */
+
+    public boolean hasCalledTwixt(int team) {
+		return twixtCalled[team];
+
+    }
+
+
+	/**
+     * Tells whether an action may be applied to the game as it is. A move must come from the player whose
+     * turn it is. It may put one peg, in an empty hole outside the other team's home rows, and may build
+     * bridges between the team's pegs (the new one included) that are a knight's move apart, are not on
+     * the board yet and are not crossed by another bridge, those built earlier in the same move included.
+     * Twixt may only be called in a four player game, once by each team. A surrender or a quit must also
+     * come from the player whose turn it is, since the winner of a surrendered game is worked out from
+     * whose turn it is; anyone else could otherwise end the game for them. Every peg and bridge is checked
+     * in constant time, so a host can afford to check every move it is sent.
+		@param action	The action to check.
+		@return Whether the action is legal.
+     */
+	@Override
+	public boolean isLegal(GameAction action) {
+		if(action instanceof TwixtAction && (this.getConfig().getNumPlayers() != 4 || twixtCalled[teamToMove()])){
+			return false;
+		}
+		if(action instanceof TwixtMoveAction){
+			return isLegalMove((TwixtMoveAction)action);
+		}
+		if(action instanceof SurrenderAction || action instanceof QuitAction){
+			return action.getSource() == this.whoseTurn;
+		}
+		return true;
+	}
 
 	/**
      * This method is called by the game framework to apply the current action passed by the player.
+     * An action that is not legal (see isLegal) is ignored: the state does not change and the turn
+     * is not passed on.
 		@param action	The action that was passed by the player.
      */
 	@Override
 	public void applyAction(GameAction action) {
 	
+		if(!isLegal(action)){
+			return;
+		}
 		if(action instanceof EndTurnAction){
+			applyMove((TwixtMoveAction)action);
 			endTurn();
 		}
 		else if(action instanceof TwixtAction){
+			applyMove((TwixtMoveAction)action);
+			twixtCalled[teamToMove()] = true;
 			if(this.whoseTurn == 3){
 				this.whoseTurn = 1;
 			}
@@ -98,13 +240,11 @@ public class TwixtGame extends LocalGame {
 			}
 			
 			//want pieces to be set permanent on Twixt too
-			for(int i = 0; i < pieceMatrix.length; ++i){
-	    		for(int j = 0; j < pieceMatrix[i].length; ++j){
-	    			if(pieceMatrix[i][j].getPlayerType() != TwixtPiece.EMPTY){
-	    				pieceMatrix[i][j].setAsPermanent();
-	    			}
-	    		}
-	    	}
+			setPiecesPermanent();
+		}
+		else if(action instanceof SurrenderAction){
+			//the turn is not passed on, so the winner is worked out as if the other team had just won
+			surrGameOver = true;
 		}
 		
 		
@@ -112,63 +252,20 @@ public class TwixtGame extends LocalGame {
 
 	/**
 	 * This method checks if a player has won, a player has surrendered, or a player has chosen to save and quit.
+	 * Only the team that just finished its turn can have completed a path, so that is the team that is checked.
 		@return Whether the game is over
 	 */
 	public boolean isGameOver() {
 
-		boolean marked[][] = new boolean [NUM_PEGS][NUM_PEGS];
-
-		Queue<TwixtPiece> vertex_queue = new LinkedList<TwixtPiece>();
-
-		// set up matrix
-		for(int i = 0; i < NUM_PEGS; ++i){
-			for(int j = 0; j < NUM_PEGS; ++j){
-				marked[i][j] = false;
-			}
+		if(surrGameOver){
+			return true;
 		}
-
 		if(this.whoseTurn == 0 || this.whoseTurn == 2){
-			for(int i = 0; i < NUM_PEGS; ++i){ // go through first row
-				if(pieceMatrix[0][i] != null){
-					vertex_queue.add(pieceMatrix[0][i]); // run each peg in isPath, if path found, return true
-					marked[0][i] = true;
-				}
-			}
+			return connectivity.hasWon(TwixtPiece.DARK_PEG); // top row to bottom row
 		}
-
 		else{
-			for(int i = 0; i < NUM_PEGS; ++i){ // go through first col
-				if(pieceMatrix[i][0] != null){
-					vertex_queue.add(pieceMatrix[i][0]); // run each peg in isPath, if path found, return true
-					marked[i][0] = true;
-				}
-			} 
-		}
-
-		while(vertex_queue.peek() != null){
-
-			for(int i = 0; i < vertex_queue.peek().getConnections().size(); ++i){
-				if(this.whoseTurn == 0 || this.whoseTurn == 2){
-					if(vertex_queue.peek().getConnections().elementAt(i).getRow() == NUM_PEGS-1){
-						return true;
-					}	
-				}
-				else{
-					if(vertex_queue.peek().getConnections().elementAt(i).getCol() == NUM_PEGS-1){
-						return true;
-					}	
-				}
-
-				if(!marked[vertex_queue.peek().getConnections().elementAt(i).getRow()][vertex_queue.peek().getConnections().elementAt(i).getCol()])
-				{
-					marked[vertex_queue.peek().getConnections().elementAt(i).getRow()][vertex_queue.peek().getConnections().elementAt(i).getCol()] = true;
-					vertex_queue.add(vertex_queue.peek().getConnections().elementAt(i));
-				}
-			}
-			vertex_queue.remove();
-
+			return connectivity.hasWon(TwixtPiece.LIGHT_PEG); // left col to right col
 		}
-		return false;
 	}
 
 	/**
@@ -182,10 +279,6 @@ public class TwixtGame extends LocalGame {
 		if(this.whoseTurn == 1 || this.whoseTurn == 3){
 			winner = 1;
 		}
-		
-		//clear the board at the end of a game
-		TwixtGame.initializeBoard();
-		surrGameOver = false;
 		return winner;
 	}
 
@@ -215,13 +308,7 @@ public class TwixtGame extends LocalGame {
     		}
     	}
     	
-    	for(int i = 0; i < pieceMatrix.length; ++i){
-    		for(int j = 0; j < pieceMatrix[i].length; ++j){
-    			if(pieceMatrix[i][j].getPlayerType() != TwixtPiece.EMPTY){
-    				pieceMatrix[i][j].setAsPermanent();
-    			}
-    		}
-    	}
+    	setPiecesPermanent();
     	
     }
     
@@ -232,20 +319,120 @@ public class TwixtGame extends LocalGame {
     /**
      * This method initializes a game board filled with empty pegs for a player to use. 
      */
-    public static void initializeBoard(){
+    public void initializeBoard(){
     	
+    	board.clear();
+    	turnStart.clear();
+    	connectivity.reset();
+    	for(int i = 0; i < pieceMatrix.length; ++i){
+    		for(int j = 0; j < pieceMatrix[i].length; ++j){
+    			pieceMatrix[i][j] = new TwixtPiece(this, i, j);
+    		}
+    	}
+    }
+    
+    /**
+     * This method is called whenever a bridge is made between two pegs. It puts the bridge on the board
+     * and keeps the win check current.
+     * @param first	One end of the bridge
+     * @param second	The other end of the bridge
+     */
+    public void bridgeAdded(TwixtPiece first, TwixtPiece second){
+    	int id = TwixtBoard.bridgeId(first.getRow(), first.getCol(), second.getRow(), second.getCol());
+    	if(id < 0){
+    		return;
+    	}
+    	board.addBridge(id);
+    	connectivity.addBridge(first.getPlayerType(), first.getRow(), first.getCol(), 
+    			second.getRow(), second.getCol());
+    }
+    
+    /**
+     * This method checks the move carried by an action. The move is tried on the board and taken back
+     * again, so that each bridge is also checked against the ones built before it in the same move.
+     * @param move	The action carrying the move
+     * @return Whether the move is legal
+     */
+    private boolean isLegalMove(TwixtMoveAction move){
+    	if(move.getSource() != this.whoseTurn){
+    		return false;
+    	}
+    	int team = teamToMove();
+    	int peg = move.getPeg();
+    	if(peg != -1 && (peg < 0 || peg >= TwixtBoard.NUM_CELLS || !board.canPlacePeg(team, peg))){
+    		return false;
+    	}
+    	int[] bridges = move.getBridges();
+    	if(bridges == null){
+    		return true;
+    	}
+    	if(peg >= 0){
+    		board.setPeg(peg / NUM_PEGS, peg % NUM_PEGS, team);
+    	}
+    	int built = 0;
+    	while(built < bridges.length && isLegalBridge(team, bridges[built])){
+    		board.addBridge(bridges[built++]);
+    	}
+    	boolean legal = (built == bridges.length);
+    	while(built > 0){
+    		board.removeBridge(bridges[--built]);
+    	}
+    	if(peg >= 0){
+    		board.setPeg(peg / NUM_PEGS, peg % NUM_PEGS, TwixtPiece.EMPTY);
+    	}
+    	return legal;
+    }
+
+    /**
+     * Tells whether a team may build a bridge on the board as it is.
+     * @param team	LIGHT_PEG or DARK_PEG
+     * @param id	The bridge id
+     */
+    private boolean isLegalBridge(int team, int id){
+    	if(id < 0 || id >= TwixtBoard.NUM_BRIDGES){
+    		return false;
+    	}
+    	int start = TwixtBoard.bridgeStart(id);
+    	return board.getPeg(start) == team && board.canPlaceBridge(start, TwixtBoard.bridgeEnd(id));
+    }
+
+    /**
+     * This method makes the move carried by an action on this game's board. The move must be legal.
+     * @param move	The action carrying the move
+     */
+    private void applyMove(TwixtMoveAction move){
+    	int peg = move.getPeg();
+    	if(peg >= 0){
+    		pieceMatrix[peg / NUM_PEGS][peg % NUM_PEGS].setPlayerType(teamToMove());
+    	}
+    	int[] bridges = move.getBridges();
+    	for(int i = 0; bridges != null && i < bridges.length; ++i){
+    		int start = TwixtBoard.bridgeStart(bridges[i]);
+    		int end = TwixtBoard.bridgeEnd(bridges[i]);
+    		pieceMatrix[start / NUM_PEGS][start % NUM_PEGS].addConnection(pieceMatrix[end / NUM_PEGS][end % NUM_PEGS]);
+    	}
+    }
+    
+    /**
+     * This method sets every peg on the board permanent and starts the record of the next turn's move.
+     */
+    private void setPiecesPermanent(){
     	for(int i = 0; i < pieceMatrix.length; ++i){
     		for(int j = 0; j < pieceMatrix[i].length; ++j){
-    			int x = ((TwixtHumanPlayer.BOARD_SIZE/TwixtGame.NUM_PEGS) * i)-20;
-    			int y = ((TwixtHumanPlayer.BOARD_SIZE/TwixtGame.NUM_PEGS) * j)-20;
-    			TwixtPiece nextPiece = new TwixtPiece(x, y, TwixtPiece.EMPTY);
-    			nextPiece.setRow(i);
-    			nextPiece.setCol(j);
-    			pieceMatrix[i][j] = nextPiece;
+    			if(pieceMatrix[i][j].getPlayerType() != TwixtPiece.EMPTY){
+    				pieceMatrix[i][j].setAsPermanent();
+    			}
     		}
     	}
+    	turnStart.copyFrom(board);
     }
     
+    /**
+     * Returns the team of the player whose turn it is.
+     */
+    private int teamToMove(){
+    	return (this.whoseTurn == 0 || this.whoseTurn == 2) ? TwixtPiece.LIGHT_PEG : TwixtPiece.DARK_PEG;
+    }
     
 
 }// class TwixtGame
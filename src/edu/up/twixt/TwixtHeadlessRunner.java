@@ -0,0 +1,155 @@
+package edu.up.twixt;
+
+import edu.up.game.GameComputerStrategy;
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+import edu.up.game.HeadlessGameRunner;
+import edu.up.game.LocalGame;
+import edu.up.game.TranspositionTable;
+
+/**
+ * Plays Twixt games between two AIs without Android, for regression and strength testing. Player 0 is
+ * always the light team and player 1 the dark team; who moves first can be chosen per game.
+ *
+ * It can also be run from the command line:
+ * <pre>
+ * java edu.up.twixt.TwixtHeadlessRunner &lt;player0&gt; &lt;player1&gt; [games]
+ * </pre>
+ * where a player is easy, smart, mcts[:millis[:threads]] or alphabeta[:millis].
+ *
+ * Every game owns its board, so several runners can play games at the same time on different threads
+ * as long as each has its own AIs.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtHeadlessRunner extends HeadlessGameRunner {
+
+	/**
+	 * a game is called a draw after this many actions; a game can't last longer than there are holes
+	 */
+	public static final int MAX_ACTIONS = TwixtBoard.NUM_CELLS + 1;
+
+	//think time of the searching AIs when none is given on the command line
+	private static final long DEFAULT_MILLIS = 100;
+
+	//the configuration every game is created with
+	private GameConfig config;
+
+	/**
+	 * Constructor
+	 * @param light	The AI of player 0 (the light team)
+	 * @param dark	The AI of player 1 (the dark team)
+	 */
+	public TwixtHeadlessRunner(GameComputerStrategy light, GameComputerStrategy dark){
+		super(new GameComputerStrategy[]{light, dark}, MAX_ACTIONS);
+		GamePlayerType[] playerTypes = new GamePlayerType[1];
+		playerTypes[0] = new GamePlayerType("Headless AI Player", false, TwixtComputerStrategy.class.getName());
+		config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 0);
+	}
+
+	/**
+	 * This method plays one game on a fresh board.
+	 * @param firstPlayer	The player who moves first (0 or 1)
+	 * @return	The player who won (0 or 1), or DRAW
+	 */
+	public int playGame(int firstPlayer){
+		return playGame(new TwixtGame(config, firstPlayer));
+	}
+
+	/**
+	 * The winner is the team that has connected its home rows; the light team is player 0.
+	 */
+	@Override
+	protected int winnerOf(LocalGame game){
+		TwixtBoard board = ((TwixtGame)game).getBoard();
+		if(board.hasWon(TwixtPiece.LIGHT_PEG)){
+			return 0;
+		}
+		if(board.hasWon(TwixtPiece.DARK_PEG)){
+			return 1;
+		}
+		return DRAW;
+	}
+
+	/**
+	 * The game is a draw once neither team has a hole left to put a peg in.
+	 */
+	@Override
+	protected boolean isDrawn(LocalGame game){
+		TwixtBoard board = ((TwixtGame)game).getBoard();
+		return !TwixtComputerStrategy.hasLegalMove(board, TwixtPiece.LIGHT_PEG)
+				&& !TwixtComputerStrategy.hasLegalMove(board, TwixtPiece.DARK_PEG);
+	}
+
+	/**
+	 * This method makes an AI from its command-line name: easy, smart, mcts[:millis[:threads]] or
+	 * alphabeta[:millis]. The MCTS AI uses one thread per core unless told otherwise.
+	 * @param spec	The name of the AI
+	 * @return	The AI
+	 */
+	public static TwixtComputerStrategy createStrategy(String spec){
+		return createStrategy(spec, TwixtParallelMctsSearch.defaultThreadCount());
+	}
+
+	/**
+	 * This method makes an AI from its command-line name, like createStrategy(String), but with the given
+	 * number of threads for an MCTS AI whose name does not say.
+	 * @param spec	The name of the AI
+	 * @param defaultThreads	The number of threads an MCTS AI searches with unless its name says otherwise
+	 * @return	The AI
+	 */
+	public static TwixtComputerStrategy createStrategy(String spec, int defaultThreads){
+		String[] parts = spec.split(":");
+		String name = parts[0];
+		long millis = (parts.length > 1) ? Long.parseLong(parts[1]) : DEFAULT_MILLIS;
+		int threads = (parts.length > 2) ? Integer.parseInt(parts[2]) : defaultThreads;
+		if(name.equals("easy")){
+			return new TwixtEasyStrategy();
+		}
+		if(name.equals("smart")){
+			return new TwixtSmartStrategy();
+		}
+		if(name.equals("mcts")){
+			return new TwixtMctsStrategy(threads, 0, millis);
+		}
+		if(name.equals("alphabeta")){
+			return new TwixtAlphaBetaStrategy(millis, TwixtAlphaBetaComputerPlayer.DEFAULT_MAX_DEPTH,
+					new TranspositionTable(16));
+		}
+		throw new IllegalArgumentException("unknown player: " + spec);
+	}
+
+	/**
+	 * Plays a number of games between two AIs, taking turns at moving first, and prints the score.
+	 */
+	public static void main(String[] args){
+		if(args.length < 2){
+			System.err.println("usage: TwixtHeadlessRunner <player0> <player1> [games]");
+			System.err.println("  players: easy, smart, mcts[:millis[:threads]], alphabeta[:millis]");
+			System.exit(1);
+		}
+		int games = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+		TwixtHeadlessRunner runner = new TwixtHeadlessRunner(createStrategy(args[0]), createStrategy(args[1]));
+
+		int[] wins = new int[2];
+		int draws = 0;
+		long start = System.currentTimeMillis();
+		for(int i = 0; i < games; ++i){
+			int winner = runner.playGame(i % 2);
+			if(winner == DRAW){
+				draws++;
+			}
+			else{
+				wins[winner]++;
+			}
+		}
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+
+		System.out.println(args[0] + " " + wins[0] + " - " + wins[1] + " " + args[1] + ", " + draws + " draws");
+		System.out.println(games + " games in " + elapsed + " ms (" + (games * 60000L / elapsed) + " games/minute)");
+	}
+}
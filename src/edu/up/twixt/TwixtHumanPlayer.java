@@ -104,12 +104,6 @@ public class TwixtHumanPlayer extends GameHumanPlayer implements
      */
     public static int BOARD_SIZE = 750;
     
-    //first team called twixt or not
-    private static boolean twixtCalledOne = false;
-    
-    //second team called twixt or not
-    private static boolean twixtCalledTwo = false;
-    
     //cycle through alpha values for the current player text view
     //in order to achieve a flashing effect
     private ValueAnimator animator = ValueAnimator.ofInt(255, 0);
@@ -136,7 +130,6 @@ public class TwixtHumanPlayer extends GameHumanPlayer implements
 		animator.addUpdateListener(this);
 		animator.setRepeatCount(5);
 		animator.setRepeatMode(ValueAnimator.REVERSE);
-		((TwixtGame)game).setGameOver(false);
 		
 		//initializes all of the gui elements
     	linkButton = (Button)this.findViewById(R.id.placeBridge);
@@ -153,11 +146,6 @@ public class TwixtHumanPlayer extends GameHumanPlayer implements
     	board = (BoardSurfaceView)this.findViewById(R.id.boardView);
     	board.setOnTouchListener(board);
     	board.receivePlayerRef(this);
-    	   	
-    	if(!TwixtGame.boardInitialized){
-    		TwixtGame.boardInitialized = true;
-    		TwixtGame.initializeBoard();
-    	}
     	
     	//Twixt button only enabled if num players is 4
     	if(this.game.getConfig().getNumPlayers() == 4){
@@ -169,12 +157,12 @@ public class TwixtHumanPlayer extends GameHumanPlayer implements
     	
     	//each team cannot call twixt more than once
     	if(this.game.whoseTurn() == 0 || this.game.whoseTurn() == 2){
-    		if(twixtCalledOne){
+    		if(getGame().hasCalledTwixt(TwixtPiece.LIGHT_PEG)){
     			twixtButton.setEnabled(false);
     		}
     	}
     	else{
-    		if(twixtCalledTwo){
+    		if(getGame().hasCalledTwixt(TwixtPiece.DARK_PEG)){
     			twixtButton.setEnabled(false);
     		}
     	}
@@ -231,17 +219,13 @@ public class TwixtHumanPlayer extends GameHumanPlayer implements
     	else if(button == endTurn){
     		
     		board.clearHighlightedPieces();
-    		takeAction(new EndTurnAction(this.game.whoseTurn()));
+    		//the move made on our copy of the game goes back with the action
+    		takeAction(new EndTurnAction(getGame()));
     		
     	}
     	else if(button == twixtButton){
-    		takeAction(new TwixtAction(this.game.whoseTurn()));
-    		if(this.game.whoseTurn() == 0 || this.game.whoseTurn() == 2){
-    			twixtCalledOne = true;
-    		}
-    		else{
-    			twixtCalledTwo = true;
-    		}
+    		//the game remembers that our team has called twixt
+    		takeAction(new TwixtAction(getGame()));
     	}
 	}
 	
@@ -279,9 +263,8 @@ public class TwixtHumanPlayer extends GameHumanPlayer implements
 			return true;
 			
 		case R.id.surrender:
-			((TwixtGame)game).setGameOver(true);
 			
-			//to get game framework to invoke isGameOver()
+			//the game ends the game when it applies the action
 			this.takeAction(new SurrenderAction(this.game.whoseTurn()));
 			return true;
 			
@@ -20,13 +20,19 @@ public class TwixtMainActivity extends GameMainActivity {
 	@Override
 	public GameConfig createDefaultConfig() {
 		// Define the allowed player types
-		GamePlayerType[] playerTypes = new GamePlayerType[3];
+		GamePlayerType[] playerTypes = new GamePlayerType[6];
 		playerTypes[0] = new GamePlayerType("Local Human Player", false,
 				"edu.up.twixt.TwixtHumanPlayer");
 		playerTypes[1] = new GamePlayerType("Random AI Player", false,
 				"edu.up.twixt.TwixtEasyComputerPlayer");
 		playerTypes[2] = new GamePlayerType("Smart AI Player", false,
 				"edu.up.twixt.TwixtSmartComputerPlayer");
+		playerTypes[3] = new GamePlayerType("MCTS AI Player", false,
+				"edu.up.twixt.TwixtMctsComputerPlayer");
+		playerTypes[4] = new GamePlayerType("Alpha-Beta AI Player", false,
+				"edu.up.twixt.TwixtAlphaBetaComputerPlayer");
+		playerTypes[5] = new GamePlayerType("Remote Player", true,
+				"edu.up.twixt.TwixtProxyPlayer");
 
 		// Create a game configuration class for Counter
 		GameConfig defaultConfig = new GameConfig(playerTypes, 2, 4, "Twixt");
@@ -52,26 +58,57 @@ public class TwixtMainActivity extends GameMainActivity {
 	}
 
 	/**
-     * Creates a new ProxyPlayer.
+     * Creates the in-process version of each computer player, so the AIs think on a background thread
+     * of the main activity instead of in an activity started for every move. The settings are the same
+     * as the defaults of the player activities.
+
+	@param type	The type of the player
+	@return GameComputerStrategy	The computer player, or null for the human player
+     */
+	@Override
+	public GameComputerStrategy createComputerStrategy(GamePlayerType type) {
+		String name = type.playerClassName;
+		if(name.equals(TwixtEasyComputerPlayer.class.getName())){
+			return new TwixtEasyStrategy();
+		}
+		if(name.equals(TwixtSmartComputerPlayer.class.getName())){
+			return new TwixtSmartStrategy();
+		}
+		if(name.equals(TwixtMctsComputerPlayer.class.getName())){
+			return new TwixtMctsStrategy(TwixtParallelMctsSearch.defaultThreadCount(),
+					TwixtMctsComputerPlayer.DEFAULT_PLAYOUTS, TwixtMctsComputerPlayer.DEFAULT_THINK_MILLIS);
+		}
+		if(name.equals(TwixtAlphaBetaComputerPlayer.class.getName())){
+			return new TwixtAlphaBetaStrategy(TwixtAlphaBetaComputerPlayer.DEFAULT_THINK_MILLIS,
+					TwixtAlphaBetaComputerPlayer.DEFAULT_MAX_DEPTH,
+					GameComputerPlayer.getSharedTranspositionTable(GameComputerPlayer.DEFAULT_TRANSPOSITION_TABLE_MEGABYTES));
+		}
+		return null;
+	}
+
+	/**
+     * Creates a new ProxyPlayer, which waits for a player on another device to connect.
 
 		@return 	ProxyPlayer 	new ProxyPlayer created
      */
 	@Override
 	public ProxyPlayer createRemotePlayer() {
 		
-		return null;
+		return new TwixtProxyPlayer();
 	}
 
 	/**
-     * Creates a ProxyGame.
+     * Creates a ProxyGame connected to a game hosted on another device.
 
-		@param 	hostName	name of ProxyGame
+		@param 	hostName	name or address of the host
+		@param	gameName	name of the game the host must be running
+		@param	listener	told when the game has connected and whenever it changes
 		@return ProxyGame	new ProxyGame created				
      */
 	@Override
-	public ProxyGame createRemoteGame(String hostName) {
+	public ProxyGame createRemoteGame(String hostName, String gameName, ProxyGame.Listener listener) {
 		
-		return null;
+		return new TwixtProxyGame(hostName, gameName, listener);
 	}
 	
 }
@@ -0,0 +1,68 @@
+package edu.up.twixt;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameComputerPlayer;
+
+/**
+	This class defines an AI player that picks its moves with Monte Carlo Tree Search (see TwixtMctsSearch).
+	It thinks until it has run a number of random playouts or used up its time, whichever comes first,
+	so its strength can be traded for speed. The search runs on one thread per core by default.
+	Subclasses can override getMaxPlayouts(), getMaxMillis() and getThreadCount() to make faster or
+	stronger versions for a particular device. The thinking is done by TwixtMctsStrategy.
+
+	@author Daniel Ehmig
+	@author Josh McCleary
+	@author Sherry Liao
+*/
+
+public class TwixtMctsComputerPlayer extends GameComputerPlayer {
+
+	/**
+	 * number of playouts to run per move by default, over all threads
+	 */
+	public static final int DEFAULT_PLAYOUTS = 100000;
+
+	/**
+	 * longest time to think per move by default, in milliseconds
+	 */
+	public static final long DEFAULT_THINK_MILLIS = 3000;
+
+	/**
+	 * Constructor creates an MCTS Computer Player Object
+	 */
+	public TwixtMctsComputerPlayer(){
+		super();
+	}
+
+	/**
+	 * Returns the number of playouts to run per move (0 for no limit).
+	 */
+	protected int getMaxPlayouts(){
+		return DEFAULT_PLAYOUTS;
+	}
+
+	/**
+	 * Returns the longest time to think per move in milliseconds (0 for no limit).
+	 */
+	protected long getMaxMillis(){
+		return DEFAULT_THINK_MILLIS;
+	}
+
+	/**
+	 * Returns the number of threads to search with; one per core by default.
+	 */
+	protected int getThreadCount(){
+		return TwixtParallelMctsSearch.defaultThreadCount();
+	}
+
+	/**
+     * This method searches for the best place for a peg, places it and bridges it to any of our pegs it can.
+     */
+	@Override
+	protected GameAction calculateMove() {
+		TwixtMctsStrategy strategy =
+				new TwixtMctsStrategy(getThreadCount(), getMaxPlayouts(), getMaxMillis());
+		return strategy.calculateMove(game);
+	}
+
+}
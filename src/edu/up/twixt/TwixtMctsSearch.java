@@ -0,0 +1,304 @@
+package edu.up.twixt;
+
+import java.util.Random;
+
+/**
+ * Monte Carlo Tree Search over TwixtBoard positions. Each iteration walks down the tree using UCT,
+ * adds one new node, and then finishes the game with a random playout. Every move places a peg and
+ * bridges it to all of the team's pegs a knight's move away (see TwixtBoard.placePegAndBridges).
+ *
+ * A playout simply fills the board and then looks at who has connected its home rows. It ends in a
+ * win for that team or, if neither has, in a draw, which is scored as half a win; no heuristic judges
+ * the position along the way.
+ *
+ * The search stops after a number of playouts or an amount of time, whichever comes first.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtMctsSearch {
+
+	/**
+	 * weight of the exploration term in the UCT formula
+	 */
+	public static final double EXPLORATION = 0.7;
+
+	//how often the clock is checked, in playouts
+	private static final int CLOCK_INTERVAL = 64;
+
+	//stop after this many playouts (0 = no limit)
+	private int maxPlayouts;
+
+	//stop after this many milliseconds (0 = no limit)
+	private long maxMillis;
+
+	private Random random;
+
+	//how many playouts the last search ran
+	private int playoutsRun;
+
+	//scratch space reused by every iteration
+	private TwixtBoard scratch = new TwixtBoard();
+	private int[] order = new int[TwixtBoard.NUM_CELLS];
+	private int[] next = new int[2];
+	private boolean[] done = new boolean[2];
+
+	/**
+	 * Constructor
+	 * @param maxPlayouts	The number of playouts to run (0 for no limit)
+	 * @param maxMillis	How long to search for in milliseconds (0 for no limit)
+	 */
+	public TwixtMctsSearch(int maxPlayouts, long maxMillis){
+		this(maxPlayouts, maxMillis, new Random());
+	}
+
+	/**
+	 * Constructor
+	 * @param maxPlayouts	The number of playouts to run (0 for no limit)
+	 * @param maxMillis	How long to search for in milliseconds (0 for no limit)
+	 * @param random	The source of randomness for the playouts
+	 */
+	public TwixtMctsSearch(int maxPlayouts, long maxMillis, Random random){
+		if(maxPlayouts <= 0 && maxMillis <= 0){
+			throw new IllegalArgumentException("MCTS needs a playout or time budget");
+		}
+		this.maxPlayouts = maxPlayouts;
+		this.maxMillis = maxMillis;
+		this.random = random;
+	}
+
+	/**
+	 * This method searches for the best hole for a team to put its next peg in.
+	 * @param position	The current position; it is not modified
+	 * @param team	The team to move (LIGHT_PEG or DARK_PEG)
+	 * @return	The index of the hole, or -1 if the team has no legal move
+	 */
+	public int findMove(TwixtBoard position, int team){
+		return search(position, team).mostVisitedMove();
+	}
+
+	/**
+	 * This method grows a search tree for the position and returns its root.
+	 * @param position	The current position; it is not modified
+	 * @param team	The team to move (LIGHT_PEG or DARK_PEG)
+	 * @return	The root of the tree; its children are the moves that were looked at
+	 */
+	Node search(TwixtBoard position, int team){
+		long deadline = (maxMillis > 0) ? System.currentTimeMillis() + maxMillis : Long.MAX_VALUE;
+		Node root = new Node(null, -1, 1 - team);
+		playoutsRun = 0;
+
+		while(maxPlayouts <= 0 || playoutsRun < maxPlayouts){
+			if(playoutsRun % CLOCK_INTERVAL == 0 && System.currentTimeMillis() >= deadline){
+				break;
+			}
+			runIteration(root, position, team);
+			playoutsRun++;
+			if(root.untriedCount == 0 && root.childCount == 0){
+				break; //no legal moves at all
+			}
+		}
+
+		return root;
+	}
+
+	/**
+	 * Returns the number of playouts the last call to findMove() ran.
+	 */
+	public int getPlayoutsRun(){
+		return playoutsRun;
+	}
+
+	/**
+	 * Runs one select/expand/playout/backup iteration.
+	 */
+	private void runIteration(Node root, TwixtBoard position, int team){
+		scratch.copyFrom(position);
+		Node node = root;
+		int toMove = team;
+
+		//selection: go down through fully expanded nodes
+		while(true){
+			if(node.untried == null){
+				node.setUntried(legalMoves(scratch, toMove));
+			}
+			if(node.untriedCount > 0 || node.childCount == 0){
+				break;
+			}
+			node = node.selectChild();
+			scratch.placePegAndBridges(toMove, node.move);
+			toMove = 1 - toMove;
+		}
+
+		//expansion: add one of the moves that has not been tried yet
+		if(node.untriedCount > 0){
+			int move = node.takeUntried(random.nextInt(node.untriedCount));
+			scratch.placePegAndBridges(toMove, move);
+			node = node.addChild(move, toMove);
+			toMove = 1 - toMove;
+		}
+
+		int winner = playout(scratch, toMove);
+
+		//backup: each node scores from the view of the team that moved into it
+		while(node != null){
+			node.visits++;
+			if(winner == node.mover){
+				node.wins += 1;
+			}
+			else if(winner == TwixtPiece.EMPTY){
+				node.wins += 0.5;
+			}
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * Plays random moves until neither team can move and returns the winner.
+	 * @return	LIGHT_PEG, DARK_PEG, or EMPTY for a draw
+	 */
+	private int playout(TwixtBoard board, int toMove){
+		int count = 0;
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			if(board.getPeg(cell) == TwixtPiece.EMPTY){
+				order[count++] = cell;
+			}
+		}
+		for(int i = count-1; i > 0; --i){
+			int j = random.nextInt(i+1);
+			int temp = order[i];
+			order[i] = order[j];
+			order[j] = temp;
+		}
+
+		//each team walks the shuffled list on its own; a hole that is taken or is in the
+		//other team's home rows stays unusable, so nobody ever has to look back
+		next[0] = next[1] = 0;
+		done[0] = done[1] = false;
+		int team = toMove;
+		while(!done[0] || !done[1]){
+			int p = next[team];
+			while(p < count && !board.canPlacePeg(team, order[p])){
+				p++;
+			}
+			if(p < count){
+				board.placePegAndBridges(team, order[p]);
+				next[team] = p+1;
+			}
+			else{
+				next[team] = p;
+				done[team] = true;
+			}
+			team = 1 - team;
+		}
+
+		if(board.hasWon(TwixtPiece.LIGHT_PEG)){
+			return TwixtPiece.LIGHT_PEG;
+		}
+		if(board.hasWon(TwixtPiece.DARK_PEG)){
+			return TwixtPiece.DARK_PEG;
+		}
+		return TwixtPiece.EMPTY;
+	}
+
+	/**
+	 * Returns every hole a team may put a peg in.
+	 */
+	static int[] legalMoves(TwixtBoard board, int team){
+		int count = 0;
+		int[] moves = new int[TwixtBoard.NUM_CELLS];
+		for(int cell = 0; cell < TwixtBoard.NUM_CELLS; ++cell){
+			if(board.canPlacePeg(team, cell)){
+				moves[count++] = cell;
+			}
+		}
+		int[] result = new int[count];
+		System.arraycopy(moves, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * A node of the search tree. A node stands for the position after its move was played.
+	 */
+	static class Node {
+
+		//the node this one was expanded from
+		Node parent;
+
+		//the hole the peg was put in to get here
+		int move;
+
+		//the team that made the move
+		int mover;
+
+		//number of playouts through this node, and how many of them the mover won (draws count half)
+		int visits;
+		double wins;
+
+		//children expanded so far
+		Node[] children;
+		int childCount;
+
+		//moves that have not been expanded yet; null until the node is first reached
+		int[] untried;
+		int untriedCount;
+
+		Node(Node parent, int move, int mover){
+			this.parent = parent;
+			this.move = move;
+			this.mover = mover;
+		}
+
+		void setUntried(int[] moves){
+			untried = moves;
+			untriedCount = moves.length;
+			children = new Node[moves.length];
+		}
+
+		//removes an untried move by swapping the last one into its place
+		int takeUntried(int index){
+			int move = untried[index];
+			untried[index] = untried[--untriedCount];
+			return move;
+		}
+
+		Node addChild(int move, int mover){
+			Node child = new Node(this, move, mover);
+			children[childCount++] = child;
+			return child;
+		}
+
+		//the child with the highest UCT value
+		Node selectChild(){
+			double logVisits = Math.log(visits);
+			Node best = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for(int i = 0; i < childCount; ++i){
+				Node child = children[i];
+				double value = child.wins / child.visits
+						+ EXPLORATION * Math.sqrt(logVisits / child.visits);
+				if(value > bestValue){
+					bestValue = value;
+					best = child;
+				}
+			}
+			return best;
+		}
+
+		int mostVisitedMove(){
+			int bestMove = -1;
+			int bestVisits = -1;
+			for(int i = 0; i < childCount; ++i){
+				if(children[i].visits > bestVisits){
+					bestVisits = children[i].visits;
+					bestMove = children[i].move;
+				}
+			}
+			if(bestMove < 0 && untriedCount > 0){
+				bestMove = untried[0];
+			}
+			return bestMove;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package edu.up.twixt;
+
+/**
+ * The Monte Carlo Tree Search AI (see TwixtMctsSearch), run on several threads at once
+ * (see TwixtParallelMctsSearch). The same search, and so the same worker threads, is used for every move.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtMctsStrategy extends TwixtComputerStrategy {
+
+	//the search, kept from move to move along with its threads
+	private TwixtParallelMctsSearch search;
+
+	/**
+	 * Constructor
+	 * @param threadCount	The number of threads to search with
+	 * @param maxPlayouts	The number of playouts per move over all threads (0 for no limit)
+	 * @param maxMillis	The longest time to think per move in milliseconds (0 for no limit)
+	 */
+	public TwixtMctsStrategy(int threadCount, int maxPlayouts, long maxMillis){
+		this.search = new TwixtParallelMctsSearch(threadCount, maxPlayouts, maxMillis);
+	}
+
+	@Override
+	protected int chooseCell(TwixtBoard board, int team) {
+		return search.findMove(board, team);
+	}
+
+	/**
+	 * This method stops the search's worker threads once the AI will not be asked for another move.
+	 */
+	public void shutdown(){
+		search.shutdown();
+	}
+}
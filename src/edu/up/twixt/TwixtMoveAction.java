@@ -0,0 +1,74 @@
+package edu.up.twixt;
+
+import edu.up.game.GameAction;
+
+/**
+   This class is the base of the actions that end a turn. It carries the move that was made during
+	the turn: the peg that was put on the board (if any) and the bridges that were built, so that
+	the game can make the same move on its own board.
+
+	@author Daniel Ehmig
+	@author Sherry Liao
+	@author Josh McCleary
+ */
+
+
+public abstract class TwixtMoveAction extends GameAction {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -4125560980938563419L;
+
+	//the hole the peg was put in, or -1 if no peg was placed
+	private int peg;
+
+	//ids of the bridges that were built (see TwixtBoard.bridgeId)
+	private int[] bridges;
+
+	/**
+	 * Constructor initializes the action with the source and no move.
+	 * @param source	The player who initiated the action
+	 */
+    public TwixtMoveAction(int source) {
+    	this(source, -1, new int[0]);
+    }
+
+	/**
+	 * Constructor initializes the action with the source and the move.
+	 * @param source	The player who initiated the action
+	 * @param peg	The hole the peg was put in, or -1 for none
+	 * @param bridges	The ids of the bridges that were built
+	 */
+    public TwixtMoveAction(int source, int peg, int[] bridges) {
+    	super(source);
+    	this.peg = peg;
+    	this.bridges = bridges;
+    }
+
+	/**
+	 * Constructor initializes the action with the move made on the player's copy of the game
+	 * since the turn started.
+	 * @param game	The player's copy of the game
+	 */
+    public TwixtMoveAction(TwixtGame game) {
+    	this(game.whoseTurn(), game.getTurnPeg(), game.getTurnBridges());
+    }
+
+	/**
+	 * Returns the hole the peg was put in.
+	 * @return	The index of the hole, or -1 if no peg was placed
+	 */
+    public int getPeg() {
+    	return peg;
+    }
+
+	/**
+	 * Returns the bridges that were built.
+	 * @return	The bridge ids
+	 */
+    public int[] getBridges() {
+    	return bridges;
+    }
+
+}
@@ -0,0 +1,236 @@
+package edu.up.twixt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs Monte Carlo Tree Search on several cores at once using root parallelization. Each worker thread
+ * grows its own tree for the same position with its own random numbers, and when they are all done the
+ * visit counts of the root moves are added up and the most visited move is played. The workers share
+ * nothing while they search, so the number of playouts per second goes up with the number of cores.
+ *
+ * The worker threads are started by the first search and kept for the ones after it, so a game does not
+ * start and stop a pool on every move. Threads that have been idle for a while end by themselves, and
+ * shutdown() ends them at once when the search will not be used again.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtParallelMctsSearch {
+
+	//how long an idle worker thread waits for the next search before it ends
+	private static final long IDLE_MILLIS = 30000;
+
+	//number of worker threads
+	private int threadCount;
+
+	//total playouts over all the workers (0 = no limit)
+	private int maxPlayouts;
+
+	//how long each worker searches for (0 = no limit)
+	private long maxMillis;
+
+	//used to give each worker a different seed
+	private Random random;
+
+	//how many playouts the last search ran over all the workers
+	private int playoutsRun;
+
+	//runs the workers; made by the first search that needs it
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * Returns the number of threads to use when none is given: one per available core.
+	 */
+	public static int defaultThreadCount(){
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the number of threads each search should use when several searches run at once, as in a
+	 * tournament: an equal share of the cores, so the searches do not fight over them.
+	 * @param searchesAtOnce	The number of searches running side by side
+	 */
+	public static int defaultThreadCount(int searchesAtOnce){
+		return Math.max(1, defaultThreadCount() / Math.max(1, searchesAtOnce));
+	}
+
+	/**
+	 * Constructor
+	 * @param threadCount	The number of worker threads
+	 * @param maxPlayouts	The number of playouts to run over all the threads (0 for no limit)
+	 * @param maxMillis	How long to search for in milliseconds (0 for no limit)
+	 */
+	public TwixtParallelMctsSearch(int threadCount, int maxPlayouts, long maxMillis){
+		this(threadCount, maxPlayouts, maxMillis, new Random());
+	}
+
+	/**
+	 * Constructor
+	 * @param threadCount	The number of worker threads
+	 * @param maxPlayouts	The number of playouts to run over all the threads (0 for no limit)
+	 * @param maxMillis	How long to search for in milliseconds (0 for no limit)
+	 * @param random	Where the seeds for the workers come from
+	 */
+	public TwixtParallelMctsSearch(int threadCount, int maxPlayouts, long maxMillis, Random random){
+		if(threadCount < 1){
+			throw new IllegalArgumentException("MCTS needs at least one thread");
+		}
+		if(maxPlayouts <= 0 && maxMillis <= 0){
+			throw new IllegalArgumentException("MCTS needs a playout or time budget");
+		}
+		this.threadCount = threadCount;
+		this.maxPlayouts = maxPlayouts;
+		this.maxMillis = maxMillis;
+		this.random = random;
+	}
+
+	/**
+	 * This method searches for the best hole for a team to put its next peg in.
+	 * @param position	The current position; it is only read, never modified
+	 * @param team	The team to move (LIGHT_PEG or DARK_PEG)
+	 * @return	The index of the hole, or -1 if the team has no legal move
+	 */
+	public int findMove(final TwixtBoard position, final int team){
+		//split the playout budget so the total stays the same no matter how many threads there are
+		final int playoutsEach = (maxPlayouts > 0) ? (maxPlayouts + threadCount - 1) / threadCount : 0;
+		playoutsRun = 0;
+
+		if(threadCount == 1){
+			TwixtMctsSearch search = new TwixtMctsSearch(playoutsEach, maxMillis, new Random(random.nextLong()));
+			int move = search.findMove(position, team);
+			playoutsRun = search.getPlayoutsRun();
+			return move;
+		}
+
+		ThreadPoolExecutor pool = getExecutor();
+		List<Future<Worker>> results = new ArrayList<Future<Worker>>();
+		try{
+			for(int i = 0; i < threadCount; ++i){
+				results.add(pool.submit(new Worker(position, team,
+						new TwixtMctsSearch(playoutsEach, maxMillis, new Random(random.nextLong())))));
+			}
+
+			//add up how often each hole was visited from the root over all the trees
+			int[] visits = new int[TwixtBoard.NUM_CELLS];
+			for(Future<Worker> result : results){
+				Worker worker = result.get();
+				playoutsRun += worker.search.getPlayoutsRun();
+				for(int cell = 0; cell < visits.length; ++cell){
+					visits[cell] += worker.visits[cell];
+				}
+			}
+
+			int bestMove = -1;
+			int bestVisits = 0;
+			for(int cell = 0; cell < visits.length; ++cell){
+				if(visits[cell] > bestVisits){
+					bestVisits = visits[cell];
+					bestMove = cell;
+				}
+			}
+			if(bestMove < 0){
+				//nothing got searched; play any legal move there is
+				int[] moves = TwixtMctsSearch.legalMoves(position, team);
+				bestMove = (moves.length > 0) ? moves[0] : -1;
+			}
+			return bestMove;
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+		catch(ExecutionException e){
+			throw new RuntimeException(e.getCause());
+		}
+		finally{
+			//stop any worker still searching (only if we gave up early) so the pool is free for the next move
+			for(Future<Worker> result : results){
+				result.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Returns the pool the workers run on, starting it if this is the first search.
+	 */
+	private synchronized ThreadPoolExecutor getExecutor(){
+		if(executor == null){
+			executor = new ThreadPoolExecutor(threadCount, threadCount, IDLE_MILLIS, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private int count = 0;
+
+						@Override
+						public Thread newThread(Runnable r){
+							//a search that is never shut down must not keep the program running
+							Thread thread = new Thread(r, "mcts-" + (count++));
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * This method stops the worker threads. A later search starts them again.
+	 */
+	public synchronized void shutdown(){
+		if(executor != null){
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Returns the number of playouts the last call to findMove() ran over all the threads.
+	 */
+	public int getPlayoutsRun(){
+		return playoutsRun;
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 */
+	public int getThreadCount(){
+		return threadCount;
+	}
+
+	/**
+	 * One worker's search; it remembers how often each root move was visited.
+	 */
+	private static class Worker implements Callable<Worker> {
+
+		private TwixtBoard position;
+		private int team;
+		private TwixtMctsSearch search;
+
+		//visits of each root move, indexed by hole
+		private int[] visits = new int[TwixtBoard.NUM_CELLS];
+
+		Worker(TwixtBoard position, int team, TwixtMctsSearch search){
+			this.position = position;
+			this.team = team;
+			this.search = search;
+		}
+
+		@Override
+		public Worker call(){
+			TwixtMctsSearch.Node root = search.search(position, team);
+			for(int i = 0; i < root.childCount; ++i){
+				visits[root.children[i].move] = root.children[i].visits;
+			}
+			return this;
+		}
+	}
+}
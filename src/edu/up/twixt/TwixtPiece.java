@@ -1,14 +1,14 @@
 package edu.up.twixt;
 
 import java.io.Serializable;
-import java.util.Vector;
 
 
 
 /** 
  * Class that defines a peg. Pegs are placed by the users in order to build a path between the two ends of their home rows.
  * The position of each peg is defined by the instance variables row and col, which are used as indices in TwixtPiece[][] (game board). 
- * The pegs that a peg is connected to is stored in the vector connections. Initially, a peg is initialized as an EMPTY peg and isHighlighted is set to false. 
+ * A TwixtPiece is only a view of one hole of a TwixtGame's board for the GUI: the type of peg in the hole and the bridges
+ * it is part of are read from and written to the board. Initially, a hole is EMPTY and isHighlighted is set to false. 
  * As the game progress, the peg's playerType will be changed to either LIGHT_PEG (red team) or DARK_PEG (blue team). 
  * The instance variable isHighlighted is changed to true if the user decides to place a bridge, and the peg is a valid peg to connect (a knights move away).
  *
@@ -25,8 +25,8 @@ public class TwixtPiece implements Serializable {
 	 */
 	private static final long serialVersionUID = -2795273471792432950L;
 	
-	// The type of player associated with this peg (nobody, red team, blue team)
-	private int playerType; 
+	// The game whose board this piece is a view of
+	private TwixtGame game;
 	
 	// The row that the peg is contained in
     private int row;
@@ -34,9 +34,6 @@ public class TwixtPiece implements Serializable {
     // The row that the peg is contained in
     private int col; 
     
-    // A vector of pegs that are connected with this peg
-    private Vector<TwixtPiece> connections = new Vector<TwixtPiece>(); 
-    
     // Boolean that states whether or not a peg is
     // highlighted. A peg is highlighted for use with making bridges.
     private boolean isHighlighted = false; 
@@ -54,65 +51,28 @@ public class TwixtPiece implements Serializable {
     // Constant that says that a peg is associated with the blue team
     public static final int DARK_PEG = 1; 
     
-    private int x; // x coordinate of the twixt piece
-    private int y; // y coordinate of the twixt piece
-    
-    //used to determine row and col based on x,y coords
-    private int[] range = new int[TwixtHumanPlayer.BOARD_SIZE];
-    
-    private int boardSize;
-    private int centerX;
-    private int centerY;
-    private boolean connChecked = false;
-    
-    //number of connections that is used in isGameOver
-    protected int tempNumConnections;
-    
-    //the actual number of connections, never decrements
-    private int numConnections;
-
     /**
      * Constructor
-	 * Initializes row, col, sets peg type to EMPTY, sets isHighlighted to false.
+	 * Creates the view of one hole of a game's board.
 	 * 
-	 * @param	xCoord   Row that peg is in
-	 * @param 	yCoord   Column that peg is in
+	 * @param	game	The game the hole belongs to
+	 * @param	row		Row that the hole is in
+	 * @param	col		Column that the hole is in
      */
-    public TwixtPiece (int xCoord, int yCoord, int n_playerType) {
-    	this.x = xCoord;
-    	this.y = yCoord;
-    	boardSize = TwixtHumanPlayer.BOARD_SIZE;
-    	
-    	for(int i = 0; i < range.length; ++i){
-    		range[i] = i * (boardSize/TwixtGame.NUM_PEGS);
-    	}
-    	
-    	
-    	this.row = determinePosition(yCoord);
-    	this.col = determinePosition(xCoord);
-    	playerType = n_playerType;
-    	
-    	centerX = 30 + (col * 40);
-    	centerY = 30 + (row * 40);
+    public TwixtPiece (TwixtGame game, int row, int col) {
+    	this.game = game;
+    	this.row = row;
+    	this.col = col;
     }
     
 
-    /**
-     * Returns the connections vector
-	 *
-	 * @return Vector<int[]>   the vector that contains the pegs that this peg is connected with
-     */
-    public Vector<TwixtPiece> getConnections() {
-		return connections;
-    }
-
     /**
      * Returns the type of peg this peg is (EMPTY, LIGHT_PEG, DARK_PEG)
 	 *
 	 * @return	int		Returns playerType
      */
     public int getPlayerType() {
-		return playerType;
+		return game.getBoard().getPeg(row, col);
     }
 
     /**
@@ -146,15 +106,13 @@ public class TwixtPiece implements Serializable {
 
 
     /**
-     * Adds a peg to the connection vector if a new connection with this peg has been made with another.
+     * Adds a bridge between this peg and another one to the board.
 	 *
-	 * @param 	 connection		An array that contains information about the position of the peg connected with this peg	
+	 * @param 	 piece		The peg connected with this peg	
      */
 
     public void addConnection(TwixtPiece piece) {
-    	connections.add(piece);
-    	this.numConnections++;
-    	this.tempNumConnections++;
+    	game.bridgeAdded(this, piece);
     }
 
 
@@ -164,7 +122,7 @@ public class TwixtPiece implements Serializable {
 	 * @param 	type 	Integer that represents the player type (EMPTY, LIGHT_PEG, DARK_PEG)
      */
     public void setPlayerType(int type) {
-    	playerType = type;
+    	game.getBoard().setPeg(row, col, type);
     }
 
 
@@ -189,59 +147,4 @@ public class TwixtPiece implements Serializable {
     public void setIsHighlighted(boolean b) {
     	isHighlighted = b;
     }
-
-
-    /**
-     * This method returns the row/col for the given coordinate
-     * @param coordinate	The coordinate (x or y) to check
-     * @return	The row or col that the coordinate falls in
-     */
-    public int determinePosition(int coordinate){
-    	
-    	for(int i = 0; i < range.length; ++i){
-    		if(coordinate <= range[i]){
-    			return i-1;
-    		}
-    	}
-    	return 0;
-    }
-    
-    /**
-     * Methods that describe themselves.
-     */
-    public int getX(){
-    	return this.x;
-    }
-    
-    public int getY(){
-    	return this.y;
-    }
-    
-    public int getCenterX(){
-    	return this.centerX;
-    }
-    
-    public int getCenterY(){
-    	return this.centerY;
-    }
-    
-    public void setChecked(boolean checked){
-    	connChecked = checked;
-    }
-    
-    public boolean isChecked(){
-    	return this.connChecked;
-    }
-    
-    public void resetTempConnections(){
-    	tempNumConnections = numConnections;
-    }
-    
-    public void setRow(int row){
-    	this.row = row;
-    }
-    
-    public void setCol(int col){
-    	this.col = col;
-    }
 }
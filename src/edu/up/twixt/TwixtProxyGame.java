@@ -0,0 +1,121 @@
+package edu.up.twixt;
+
+import java.nio.ByteBuffer;
+
+import edu.up.game.*;
+
+/**
+	This class stands in for a Twixt game hosted on another device. It decodes the states the
+	host sends (see TwixtProxyPlayer) and encodes the actions sent back.
+
+	@author Daniel Ehmig
+	@author Sherry Liao
+	@author Josh McCleary
+ */
+
+public class TwixtProxyGame extends ProxyGame {
+
+	private static final long serialVersionUID = -2630271570944012871L;
+
+	/**
+	 * Constructor connects to the host.
+	 * @param hostName	The name or address of the host
+	 * @param gameName	The name of the game the host must be running
+	 */
+	public TwixtProxyGame(String hostName, String gameName) {
+		super(hostName, gameName);
+	}
+
+	/**
+	 * Constructor connects to the host, asking for a particular seat; pass Handshake.spectate to watch
+	 * a game on a TwixtServer.
+	 * @param hostName	The name or address of the host
+	 * @param gameName	The name of the game the host must be running
+	 * @param sessionId	The seat to ask for, or null for any free seat
+	 */
+	public TwixtProxyGame(String hostName, String gameName, String sessionId) {
+		super(hostName, gameName, sessionId);
+	}
+
+	/**
+	 * Constructor connects to the host as a rated player; a TwixtServer pairs it with a player of
+	 * similar rating.
+	 * @param hostName	The name or address of the host
+	 * @param gameName	The name of the game the host must be running
+	 * @param sessionId	The seat to ask for, or null for any free seat
+	 * @param rating	The player's rating, or Handshake.UNRATED
+	 */
+	public TwixtProxyGame(String hostName, String gameName, String sessionId, int rating) {
+		super(hostName, gameName, sessionId, rating);
+	}
+
+	/**
+	 * Constructor connects to the host in the background, so it returns at once; the listener is told
+	 * when the connection has been made or has failed.
+	 * @param hostName	The name or address of the host
+	 * @param gameName	The name of the game the host must be running
+	 * @param listener	The object told about every change to the game
+	 */
+	public TwixtProxyGame(String hostName, String gameName, Listener listener) {
+		super(hostName, gameName, null, Handshake.UNRATED, listener);
+	}
+
+	/**
+	 * This method decodes a state sent by the host.
+	 * @param data	The encoded state
+	 * @return	The game, or null if the state is not valid
+	 */
+	@Override
+	protected LocalGame decodeState(ByteBuffer data) {
+		try{
+			return TwixtCodec.decodeGame(data);
+		}
+		catch(IllegalArgumentException e){
+			return null;
+		}
+	}
+
+	/**
+	 * This method encodes an action to send to the host.
+	 * @param ga	The action
+	 * @return	The encoded action
+	 */
+	@Override
+	protected byte[] encodeAction(GameAction ga) {
+		return TwixtCodec.encodeAction(ga);
+	}
+
+	/**
+	 * This method brings the game up to date with the action the host sent after a move.
+	 * @param state	The game before the move
+	 * @param delta	The encoded action
+	 * @return	The game after the move, or null if the action is not valid
+	 */
+	@Override
+	protected LocalGame applyDelta(LocalGame state, ByteBuffer delta) {
+		try{
+			return TwixtCodec.applyAction((TwixtGame) state, TwixtCodec.decodeAction(delta));
+		}
+		catch(IllegalArgumentException e){
+			return null;
+		}
+	}
+
+	/**
+	 * @param state	The state of the game
+	 * @return	The hash to check against the host's
+	 */
+	@Override
+	protected long hashState(LocalGame state) {
+		return TwixtCodec.syncHash((TwixtGame) state);
+	}
+
+	/**
+	 * @return	The port the host waits on
+	 */
+	@Override
+	protected int getAdmPortNum() {
+		return TwixtProxyPlayer.ADM_PORT_NUM;
+	}
+
+}
@@ -0,0 +1,84 @@
+package edu.up.twixt;
+
+import java.nio.ByteBuffer;
+
+import edu.up.game.*;
+
+/**
+	This class stands in for a Twixt player on another device. The states sent to it and the
+	actions it sends back are written with TwixtCodec and carried in binary frames as they are.
+
+	@author Daniel Ehmig
+	@author Sherry Liao
+	@author Josh McCleary
+ */
+
+public class TwixtProxyPlayer extends ProxyPlayer {
+
+	/**
+	 * The port a Twixt game waits on for its remote players. All the remote players of a game wait on
+	 * it together; the handshake decides which of them a device that connects is given.
+	 */
+	public static final int ADM_PORT_NUM = 14620;
+
+	/**
+	 * Constructor starts waiting for the remote player to connect.
+	 */
+	public TwixtProxyPlayer() {
+		super();
+	}
+
+	/**
+	 * This method encodes the game as the remote player sees it, with its configuration so the
+	 * remote device can show the players' names.
+	 * @param gs	The state of the game
+	 * @return	The encoded state
+	 */
+	@Override
+	protected byte[] encodeState(LocalGame gs) {
+		return TwixtCodec.encodeGame((TwixtGame) gs);
+	}
+
+	/**
+	 * This method decodes the action the remote player sent.
+	 * @param data	The encoded action
+	 * @return	The action, or null if it is not valid
+	 */
+	@Override
+	protected GameAction decodeAction(ByteBuffer data) {
+		try{
+			return TwixtCodec.decodeAction(data);
+		}
+		catch(IllegalArgumentException e){
+			return null;
+		}
+	}
+
+	/**
+	 * After a move only the action is sent; the remote player applies it to its copy of the game.
+	 * @param action	The action that was applied
+	 * @return	The encoded action
+	 */
+	@Override
+	protected byte[] encodeDelta(GameAction action) {
+		return TwixtCodec.encodeAction(action);
+	}
+
+	/**
+	 * @param state	The state of the game
+	 * @return	The hash the remote player checks its copy against
+	 */
+	@Override
+	protected long hashState(LocalGame state) {
+		return TwixtCodec.syncHash((TwixtGame) state);
+	}
+
+	/**
+	 * @return	The port to wait on
+	 */
+	@Override
+	protected int getAdmPortNum() {
+		return ADM_PORT_NUM;
+	}
+
+}
@@ -0,0 +1,162 @@
+package edu.up.twixt;
+
+/**
+ * The smart AI. Its first two pegs go in its own home rows and the next three in random holes. After that
+ * it favours holes that are a knight's move away from many of its pegs, with a little randomness thrown in.
+ *
+ * @author Daniel Ehmig
+ * @author Josh McCleary
+ * @author Sherry Liao
+ */
+public class TwixtSmartStrategy extends TwixtComputerStrategy {
+
+	//which row the AI will add their piece
+	private int rowToAdd;
+
+	//which col the AI will add their piece
+	private int colToAdd;
+
+	/**
+     * This method contains a set of algorithms that the smart AI will use to make a move.
+     */
+	@Override
+	protected int chooseCell(TwixtBoard board, int team) {
+
+		if(!hasLegalMove(board, team)){
+			return -1;
+		}
+
+		//how far into the game we are is told by how many pegs we have on the board, so that
+		//every game (and every copy of it) is independent of the others
+		int turnCount = board.countPegs(team);
+
+		if(turnCount <= 1){
+			if(team == TwixtPiece.LIGHT_PEG){
+				if(turnCount == 0){
+					colToAdd = 0;
+				}
+				else{
+					colToAdd = TwixtGame.NUM_PEGS-1;
+				}
+				rowToAdd = (int)(Math.random() * (TwixtGame.NUM_PEGS-2) + 1);
+			}
+			else{
+				if(turnCount == 0){
+					rowToAdd = 0;
+				}
+				else{
+					rowToAdd = TwixtGame.NUM_PEGS-1;
+				}
+				colToAdd = (int)(Math.random() * (TwixtGame.NUM_PEGS-2) + 1);
+			}
+			
+		}
+		//next three moves are random
+		else if(turnCount > 1 && turnCount < 5){
+			boolean findingSpot = true;
+			while(findingSpot){
+
+				colToAdd = (int)(Math.random() * TwixtGame.NUM_PEGS);
+				rowToAdd = (int)(Math.random() * TwixtGame.NUM_PEGS);
+
+				if(board.getPeg(rowToAdd, colToAdd) == TwixtPiece.EMPTY){
+
+					findingSpot = false;
+
+				}
+
+				//don't choose home rows!
+				if(team == TwixtPiece.DARK_PEG){
+					if(colToAdd == 0 || colToAdd == TwixtGame.NUM_PEGS-1){
+						findingSpot = true;
+					}
+				}
+				else{
+					if(rowToAdd == 0 || rowToAdd == TwixtGame.NUM_PEGS-1){
+						findingSpot = true;
+					}
+				}
+
+			}
+		}
+
+		//ok these moves are only semi-random
+		else{
+			boolean addingPiece = true;
+			//each position on the board will be assigned a value
+			int[][] posValues = new int[TwixtGame.NUM_PEGS][TwixtGame.NUM_PEGS];
+			while(addingPiece){
+
+				//increase value of positions that are a knight's move away from an existing piece
+				for(int cell = board.nextPeg(team, 0); cell >= 0; cell = board.nextPeg(team, cell+1)){
+					int i = cell / TwixtGame.NUM_PEGS;
+					int j = cell % TwixtGame.NUM_PEGS;
+
+					for(int k = 0; k < TwixtBoard.KNIGHT_ROW.length; ++k){
+						if(TwixtBoard.onBoard(i + TwixtBoard.KNIGHT_ROW[k], j + TwixtBoard.KNIGHT_COL[k])){
+							posValues[i + TwixtBoard.KNIGHT_ROW[k]][j + TwixtBoard.KNIGHT_COL[k]]++;
+						}
+					}
+				}
+				
+				for(int i = 0; i < posValues.length; ++i){
+					for(int j = 0; j < posValues[i].length; ++j){
+						
+						if(posValues[i][j] > 0){
+							posValues[i][j] = posValues[i][j] + ((int)(Math.random() * 5));
+						}
+					}
+				}
+
+
+				//only empty holes count, otherwise this loop never ends once every hole
+				//next to our pegs is taken
+				int mostest = -1;
+
+				for(int i = 0; i < posValues.length; ++i){
+					for(int j = 0; j < posValues[i].length; ++j){
+						boolean validMove = false;
+
+						//don't want pieces in opponent home rows to be chosen
+						if(team == TwixtPiece.DARK_PEG){
+							if(j > 0 && j < TwixtGame.NUM_PEGS-1){
+								validMove = true;
+							}
+						}
+						else{
+							if(i > 0 && i < TwixtGame.NUM_PEGS-1){
+								validMove = true;
+							}
+						}
+
+						if(board.getPeg(i, j) != TwixtPiece.EMPTY){
+							validMove = false;
+						}
+
+						if(validMove){
+							//MAY OR MAY NOT BE GEQUAL
+							if(posValues[i][j] >= mostest){
+								mostest = posValues[i][j];
+								rowToAdd = i;
+								colToAdd = j;
+							}
+						}
+
+					}
+				}
+				
+				if(board.getPeg(rowToAdd, colToAdd) == TwixtPiece.EMPTY){
+					addingPiece = false;
+				}
+				else{
+					posValues[rowToAdd][colToAdd] = 0;
+					addingPiece = true;
+				}
+
+			}
+		}
+		
+		return TwixtBoard.cell(rowToAdd, colToAdd);
+	}
+
+}
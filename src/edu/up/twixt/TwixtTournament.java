@@ -0,0 +1,479 @@
+package edu.up.twixt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.up.game.EloStatistics;
+
+/**
+ * Plays a tournament between Twixt AIs on several threads at once and reports how they compare in Elo.
+ *
+ * Entrants are named the same way as for TwixtHeadlessRunner (easy, smart, mcts:millis:threads,
+ * alphabeta:millis). In a round robin every entrant plays every other one; in a gauntlet the first
+ * entrant plays all the others. The two entrants of a pairing take turns at being the light team, which
+ * always moves first. Each game is played straight on a board of its own, without a TwixtGame around it,
+ * so any number of games can run side by side cheaply; each worker thread keeps its own copy of every AI.
+ * An MCTS entrant whose name does not give its thread count gets an equal share of the cores, so the games
+ * played at once do not fight over them.
+ *
+ * With SPRT turned on, a pairing stops as soon as the test decides whether its first entrant is stronger
+ * by elo1 or not stronger than elo0, instead of playing all of its games.
+ *
+ * It can also be run from the command line:
+ * <pre>
+ * java edu.up.twixt.TwixtTournament [-games n] [-threads n] [-gauntlet] [-sprt elo0 elo1] entrant...
+ * </pre>
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtTournament {
+
+	/**
+	 * every entrant plays every other entrant
+	 */
+	public static final int ROUND_ROBIN = 0;
+
+	/**
+	 * the first entrant plays every other entrant
+	 */
+	public static final int GAUNTLET = 1;
+
+	/**
+	 * result of a drawn game
+	 */
+	public static final int DRAW = -1;
+
+	//the AIs taking part
+	private String[] entrants;
+
+	//games each pairing plays if SPRT does not stop it first
+	private int gamesPerPairing;
+
+	//number of games played at once
+	private int threadCount;
+
+	//SPRT settings; only used if sprt is true
+	private boolean sprt;
+	private double elo0;
+	private double elo1;
+	private double alpha;
+	private double beta;
+
+	//the matches, in the order they were scheduled
+	private List<Pairing> pairings = new ArrayList<Pairing>();
+
+	//every game played
+	private List<GameRecord> results = Collections.synchronizedList(new ArrayList<GameRecord>());
+
+	//how long the last run took
+	private long elapsedMillis;
+
+	/**
+	 * Constructor
+	 * @param entrants	The AIs taking part (at least two)
+	 * @param mode	ROUND_ROBIN or GAUNTLET
+	 * @param gamesPerPairing	The number of games each pairing plays
+	 * @param threadCount	The number of games played at once
+	 */
+	public TwixtTournament(String[] entrants, int mode, int gamesPerPairing, int threadCount){
+		if(entrants.length < 2){
+			throw new IllegalArgumentException("a tournament needs at least two entrants");
+		}
+		if(gamesPerPairing < 1 || threadCount < 1){
+			throw new IllegalArgumentException("games and threads must be positive");
+		}
+		for(int i = 0; i < entrants.length; ++i){
+			TwixtHeadlessRunner.createStrategy(entrants[i]); //fail now rather than on a worker
+		}
+		this.entrants = entrants.clone();
+		this.gamesPerPairing = gamesPerPairing;
+		this.threadCount = threadCount;
+
+		int firstCount = (mode == GAUNTLET) ? 1 : entrants.length;
+		for(int i = 0; i < firstCount; ++i){
+			for(int j = i+1; j < entrants.length; ++j){
+				pairings.add(new Pairing(entrants[i], entrants[j]));
+			}
+		}
+	}
+
+	/**
+	 * This method turns on the sequential probability ratio test for every pairing.
+	 * @param elo0	Elo difference under H0
+	 * @param elo1	Elo difference under H1
+	 * @param alpha	Chance of accepting H1 when H0 is true
+	 * @param beta	Chance of accepting H0 when H1 is true
+	 */
+	public void setSprt(double elo0, double elo1, double alpha, double beta){
+		this.sprt = true;
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.alpha = alpha;
+		this.beta = beta;
+	}
+
+	/**
+	 * This method plays the whole tournament and returns when every pairing is finished.
+	 */
+	public void run(){
+		long start = System.currentTimeMillis();
+		Thread[] workers = new Thread[threadCount];
+		for(int i = 0; i < workers.length; ++i){
+			workers[i] = new Thread(new Worker(), "tournament-" + i);
+			workers[i].start();
+		}
+		for(int i = 0; i < workers.length; ++i){
+			try{
+				workers[i].join();
+			}
+			catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		elapsedMillis = Math.max(1, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Returns the pairings and their results.
+	 */
+	public List<Pairing> getPairings(){
+		return Collections.unmodifiableList(pairings);
+	}
+
+	/**
+	 * Returns every game played so far.
+	 */
+	public List<GameRecord> getResults(){
+		synchronized(results){
+			return new ArrayList<GameRecord>(results);
+		}
+	}
+
+	/**
+	 * Returns how many games were played per second during the last run.
+	 */
+	public double getGamesPerSecond(){
+		return (elapsedMillis == 0) ? 0 : results.size() * 1000.0 / elapsedMillis;
+	}
+
+	/**
+	 * Returns a table with the result of every pairing and the standings.
+	 */
+	public String report(){
+		StringBuilder text = new StringBuilder();
+		for(Pairing pairing : pairings){
+			text.append(pairing).append('\n');
+		}
+
+		//standings: each entrant's score against everybody it played
+		text.append('\n');
+		for(String entrant : entrants){
+			EloStatistics total = new EloStatistics();
+			for(Pairing pairing : pairings){
+				EloStatistics stats = pairing.getStatistics();
+				if(pairing.getFirst().equals(entrant)){
+					add(total, stats.getWins(), stats.getDraws(), stats.getLosses());
+				}
+				else if(pairing.getSecond().equals(entrant)){
+					add(total, stats.getLosses(), stats.getDraws(), stats.getWins());
+				}
+			}
+			if(total.getGames() > 0){
+				text.append(entrant).append(": ").append(total).append('\n');
+			}
+		}
+
+		//how the games ended: a tournament of draws says nothing about the AIs
+		List<GameRecord> games = getResults();
+		int drawn = 0;
+		long pegs = 0;
+		for(GameRecord game : games){
+			if(game.getWinner() == DRAW){
+				drawn++;
+			}
+			pegs += game.getPegs();
+		}
+		if(!games.isEmpty()){
+			text.append('\n').append(games.size() - drawn).append(" games won, ").append(drawn).append(" drawn (");
+			text.append(Math.round(drawn * 1000.0 / games.size()) / 10.0).append("%), ");
+			text.append(Math.round(pegs * 10.0 / games.size()) / 10.0).append(" pegs on the board at the end on average");
+			if(drawn * 2 > games.size()){
+				text.append("\nmost games were drawn, so the Elo figures mean little");
+			}
+			text.append('\n');
+		}
+
+		text.append('\n').append(results.size()).append(" games in ").append(elapsedMillis).append(" ms, ");
+		text.append(Math.round(getGamesPerSecond() * 10) / 10.0).append(" games/second on ");
+		text.append(threadCount).append(" threads");
+		return text.toString();
+	}
+
+	/**
+	 * This method gives out the next game to play, taking the unfinished pairing that has started the
+	 * fewest games so that they all make progress together.
+	 * @return	The pairing, or null if the tournament is over
+	 */
+	private synchronized Pairing nextGame(){
+		Pairing next = null;
+		for(Pairing pairing : pairings){
+			if(!pairing.isFinished() && pairing.started < gamesPerPairing
+					&& (next == null || pairing.started < next.started)){
+				next = pairing;
+			}
+		}
+		if(next != null){
+			next.started++;
+		}
+		return next;
+	}
+
+	/**
+	 * This method plays one game on its own board.
+	 * @param light	The AI of the light team, which moves first
+	 * @param dark	The AI of the dark team
+	 * @param board	The board to play on; it is cleared first
+	 * @return	The team that won, or DRAW
+	 */
+	static int playGame(TwixtComputerStrategy light, TwixtComputerStrategy dark, TwixtBoard board){
+		board.clear();
+		TwixtComputerStrategy[] players = {light, dark};
+		int team = TwixtPiece.LIGHT_PEG;
+		int passes = 0;
+		while(passes < 2){
+			int cell = players[team].chooseCell(board, team);
+			if(cell < 0 || !board.canPlacePeg(team, cell)){
+				passes++;
+			}
+			else{
+				passes = 0;
+				board.placePegAndBridges(team, cell);
+				if(board.hasWon(team)){
+					return team;
+				}
+			}
+			team = 1 - team;
+		}
+		return DRAW;
+	}
+
+	//adds results to a total
+	private static void add(EloStatistics total, int wins, int draws, int losses){
+		for(int i = 0; i < wins; ++i){
+			total.addWin();
+		}
+		for(int i = 0; i < draws; ++i){
+			total.addDraw();
+		}
+		for(int i = 0; i < losses; ++i){
+			total.addLoss();
+		}
+	}
+
+	/**
+	 * Plays games until there are none left, with its own AIs and board.
+	 */
+	private class Worker implements Runnable {
+
+		//this thread's copy of each AI, by name
+		private Map<String, TwixtComputerStrategy> strategies = new HashMap<String, TwixtComputerStrategy>();
+
+		private TwixtBoard board = new TwixtBoard();
+
+		@Override
+		public void run(){
+			Pairing pairing;
+			while((pairing = nextGame()) != null){
+				//the entrants swap colors every game
+				boolean firstIsLight;
+				synchronized(pairing){
+					firstIsLight = (pairing.played++ % 2) == 0;
+				}
+				String light = firstIsLight ? pairing.getFirst() : pairing.getSecond();
+				String dark = firstIsLight ? pairing.getSecond() : pairing.getFirst();
+
+				int winner = playGame(strategyFor(light), strategyFor(dark), board);
+				results.add(new GameRecord(light, dark, winner, board.countPegs(TwixtPiece.LIGHT_PEG)
+						+ board.countPegs(TwixtPiece.DARK_PEG)));
+
+				EloStatistics stats = pairing.getStatistics();
+				if(winner == DRAW){
+					stats.addDraw();
+				}
+				else if((winner == TwixtPiece.LIGHT_PEG) == firstIsLight){
+					stats.addWin();
+				}
+				else{
+					stats.addLoss();
+				}
+				if(sprt){
+					pairing.setSprtResult(stats.sprt(elo0, elo1, alpha, beta));
+				}
+			}
+
+			//the MCTS AIs keep their search threads from game to game; this thread is done with them
+			for(TwixtComputerStrategy strategy : strategies.values()){
+				if(strategy instanceof TwixtMctsStrategy){
+					((TwixtMctsStrategy)strategy).shutdown();
+				}
+			}
+		}
+
+		private TwixtComputerStrategy strategyFor(String name){
+			TwixtComputerStrategy strategy = strategies.get(name);
+			if(strategy == null){
+				strategy = TwixtHeadlessRunner.createStrategy(name, TwixtParallelMctsSearch.defaultThreadCount(threadCount));
+				strategies.put(name, strategy);
+			}
+			return strategy;
+		}
+	}
+
+	/**
+	 * A match between two entrants. The statistics are from the first entrant's point of view.
+	 */
+	public static class Pairing {
+
+		private String first;
+		private String second;
+		private EloStatistics statistics = new EloStatistics();
+
+		//games handed out and games started on a board; guarded by the tournament and by this pairing
+		private int started;
+		private int played;
+
+		//SPRT_CONTINUE until the test decides
+		private volatile int sprtResult = EloStatistics.SPRT_CONTINUE;
+
+		Pairing(String first, String second){
+			this.first = first;
+			this.second = second;
+		}
+
+		public String getFirst(){
+			return first;
+		}
+
+		public String getSecond(){
+			return second;
+		}
+
+		public EloStatistics getStatistics(){
+			return statistics;
+		}
+
+		/**
+		 * Returns SPRT_H0, SPRT_H1, or SPRT_CONTINUE if the test has not decided (or is not used).
+		 */
+		public int getSprtResult(){
+			return sprtResult;
+		}
+
+		void setSprtResult(int result){
+			sprtResult = result;
+		}
+
+		boolean isFinished(){
+			return sprtResult != EloStatistics.SPRT_CONTINUE;
+		}
+
+		@Override
+		public String toString(){
+			String text = first + " vs " + second + ": " + statistics;
+			if(sprtResult == EloStatistics.SPRT_H1){
+				text += "  SPRT: H1 accepted";
+			}
+			else if(sprtResult == EloStatistics.SPRT_H0){
+				text += "  SPRT: H0 accepted";
+			}
+			return text;
+		}
+	}
+
+	/**
+	 * The result of one game.
+	 */
+	public static class GameRecord {
+
+		private String light;
+		private String dark;
+		private int winner;
+		private int pegs;
+
+		GameRecord(String light, String dark, int winner, int pegs){
+			this.light = light;
+			this.dark = dark;
+			this.winner = winner;
+			this.pegs = pegs;
+		}
+
+		/** Returns the entrant that played the light team. */
+		public String getLight(){
+			return light;
+		}
+
+		/** Returns the entrant that played the dark team. */
+		public String getDark(){
+			return dark;
+		}
+
+		/** Returns LIGHT_PEG, DARK_PEG or DRAW. */
+		public int getWinner(){
+			return winner;
+		}
+
+		/** Returns the number of pegs on the board at the end. */
+		public int getPegs(){
+			return pegs;
+		}
+	}
+
+	/**
+	 * Runs a tournament from the command line and prints the report.
+	 */
+	public static void main(String[] args){
+		int games = 100;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int mode = ROUND_ROBIN;
+		double[] sprtElo = null;
+		List<String> entrants = new ArrayList<String>();
+
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-games")){
+				games = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-threads")){
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-gauntlet")){
+				mode = GAUNTLET;
+			}
+			else if(args[i].equals("-sprt")){
+				sprtElo = new double[]{Double.parseDouble(args[i+1]), Double.parseDouble(args[i+2])};
+				i += 2;
+			}
+			else{
+				entrants.add(args[i]);
+			}
+		}
+		if(entrants.size() < 2){
+			System.err.println("usage: TwixtTournament [-games n] [-threads n] [-gauntlet] [-sprt elo0 elo1] entrant...");
+			System.err.println("  entrants: easy, smart, mcts[:millis[:threads]], alphabeta[:millis]");
+			System.exit(1);
+		}
+
+		TwixtTournament tournament = new TwixtTournament(entrants.toArray(new String[entrants.size()]),
+				mode, games, threads);
+		if(sprtElo != null){
+			tournament.setSprt(sprtElo[0], sprtElo[1], 0.05, 0.05);
+		}
+		tournament.run();
+		System.out.println(tournament.report());
+	}
+}
@@ -0,0 +1,97 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a DeltaHistory hands back exactly the changes a player missed, in order, and says so when
+ * it no longer has them all.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class DeltaHistoryTest {
+
+	//the number of changes kept
+	private static final int CAPACITY = 8;
+
+	private DeltaHistory history;
+
+	//the frame added for each state, by number
+	private ByteBuffer[] frames = new ByteBuffer[100];
+
+	@Before
+	public void setUp(){
+		history = new DeltaHistory(CAPACITY);
+	}
+
+	//adds the changes leading to states first to last
+	private void add(int first, int last){
+		for(int seq = first; seq <= last; ++seq){
+			frames[seq] = Frame.ofInt(Frame.DELTA, seq);
+			history.add(seq, frames[seq]);
+		}
+	}
+
+	//checks that the frames after a state are those of the states after it, up to the newest
+	private void assertMissed(int seq, int newest){
+		List<ByteBuffer> missed = history.framesAfter(seq);
+		assertEquals(newest - seq, missed.size());
+		for(int i = 0; i < missed.size(); ++i){
+			assertSame(frames[seq + 1 + i], missed.get(i));
+		}
+	}
+
+	@Test
+	public void missedChangesComeBackInOrder(){
+		add(1, 5);
+		assertMissed(0, 5);
+		assertMissed(3, 5);
+		//a player that is up to date has missed nothing
+		assertMissed(5, 5);
+	}
+
+	@Test
+	public void onlyTheLastFewAreKept(){
+		add(1, 20);
+		assertMissed(20 - CAPACITY, 20);
+		assertNull("dropped from the ring", history.framesAfter(20 - CAPACITY - 1));
+		assertNull(history.framesAfter(0));
+	}
+
+	@Test
+	public void statesFromTheFutureAreNotKnown(){
+		add(1, 3);
+		assertNull(history.framesAfter(4));
+		assertNull(history.framesAfter(99));
+	}
+
+	@Test
+	public void aWholeStateStartsTheHistoryAgain(){
+		add(1, 4);
+		history.reset(5);
+		assertMissed(5, 5);
+		assertNull("from before the whole state", history.framesAfter(4));
+
+		add(6, 7);
+		assertMissed(5, 7);
+		assertNull(history.framesAfter(4));
+	}
+
+	@Test
+	public void aGapStartsTheHistoryAgain(){
+		add(1, 4);
+		frames[9] = Frame.ofInt(Frame.DELTA, 9);
+		history.add(9, frames[9]);
+		assertMissed(8, 9);
+		assertNull(history.framesAfter(4));
+	}
+}
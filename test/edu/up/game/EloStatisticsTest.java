@@ -0,0 +1,127 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the numbers EloStatistics turns a match into: the score and Elo difference, the error bar,
+ * which must narrow as games are played but never close, the likelihood of superiority, and when the
+ * SPRT stops.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class EloStatisticsTest {
+
+	//a small gain to look for, with the error rates the tournament runner uses
+	private static final double ELO0 = 0;
+	private static final double ELO1 = 10;
+	private static final double ALPHA = 0.05;
+	private static final double BETA = 0.05;
+
+	//a match with the given results
+	private static EloStatistics match(int wins, int draws, int losses){
+		EloStatistics stats = new EloStatistics();
+		for(int i = 0; i < wins; ++i){
+			stats.addWin();
+		}
+		for(int i = 0; i < draws; ++i){
+			stats.addDraw();
+		}
+		for(int i = 0; i < losses; ++i){
+			stats.addLoss();
+		}
+		return stats;
+	}
+
+	@Test
+	public void noGamesSayNothing(){
+		EloStatistics stats = new EloStatistics();
+		assertEquals(0, stats.getGames());
+		assertEquals(0.5, stats.getScore(), 0);
+		assertEquals(0, stats.getElo(), 1e-9);
+		assertEquals(Double.POSITIVE_INFINITY, stats.getEloError(), 0);
+		assertEquals(0.5, stats.getLos(), 0);
+		assertEquals(0, stats.llr(ELO0, ELO1), 0);
+		assertEquals(EloStatistics.SPRT_CONTINUE, stats.sprt(ELO0, ELO1, ALPHA, BETA));
+	}
+
+	@Test
+	public void scoreAndElo(){
+		EloStatistics stats = match(6, 2, 2);
+		assertEquals(10, stats.getGames());
+		assertEquals(0.7, stats.getScore(), 1e-12);
+		//-400 log10(1 / 0.7 - 1)
+		assertEquals(147.19, stats.getElo(), 0.01);
+		assertEquals(-147.19, match(2, 2, 6).getElo(), 0.01);
+		assertTrue(stats.toString().startsWith("+6 =2 -2  Elo 147.2 +/- "));
+	}
+
+	@Test
+	public void eloAndScoreAreInverses(){
+		for(double elo = -800; elo <= 800; elo += 50){
+			assertEquals(elo, EloStatistics.eloOf(EloStatistics.scoreOf(elo)), 1e-6);
+		}
+		assertEquals(0.5, EloStatistics.scoreOf(0), 0);
+		assertEquals(0.5 + 0.5 * (10 - 1) / (10 + 1), EloStatistics.scoreOf(400), 1e-12);
+		//a perfect score is a large but finite difference
+		double perfect = EloStatistics.eloOf(1);
+		assertTrue(perfect > 2000 && perfect < Double.POSITIVE_INFINITY);
+		assertEquals(-perfect, EloStatistics.eloOf(0), 1e-6);
+	}
+
+	@Test
+	public void errorNarrowsWithTheSquareRootOfTheGames(){
+		double error = match(50, 0, 50).getEloError();
+		double quadrupled = match(200, 0, 200).getEloError();
+		//1.96 sqrt(0.25 / 100) either side of an even score
+		assertEquals(EloStatistics.eloOf(0.5 + 1.959964 * 0.05), error, 0.01);
+		assertEquals(0.5, quadrupled / error, 0.01);
+		//a lead or a deficit of the same size is as uncertain
+		assertEquals(match(30, 5, 10).getEloError(), match(10, 5, 30).getEloError(), 1e-9);
+	}
+
+	@Test
+	public void errorNeverClosesWhenEveryGameIsTheSame(){
+		for(int games = 1; games <= 1000; games *= 10){
+			double sweep = match(games, 0, 0).getEloError();
+			double drawn = match(0, games, 0).getEloError();
+			double swept = match(0, 0, games).getEloError();
+			assertTrue("after " + games + " wins", sweep > 0 && sweep < Double.POSITIVE_INFINITY);
+			assertTrue("after " + games + " draws", drawn > 0 && drawn < Double.POSITIVE_INFINITY);
+			assertEquals(sweep, swept, 1e-9);
+		}
+		//still narrowing as games are played
+		assertTrue(match(0, 100, 0).getEloError() < match(0, 10, 0).getEloError());
+	}
+
+	@Test
+	public void likelihoodOfSuperiority(){
+		//0.5 (1 + erf(4 / sqrt(2 * 8)))
+		assertEquals(0.92135, match(6, 2, 2).getLos(), 1e-4);
+		assertEquals(1 - 0.92135, match(2, 2, 6).getLos(), 1e-4);
+		assertEquals(0.5, match(5, 100, 5).getLos(), 1e-9);
+		//draws do not count
+		assertEquals(match(6, 0, 2).getLos(), match(6, 50, 2).getLos(), 1e-12);
+	}
+
+	@Test
+	public void sprtStopsOnceTheMatchIsClear(){
+		assertEquals(EloStatistics.SPRT_H1, match(1000, 0, 500).sprt(ELO0, ELO1, ALPHA, BETA));
+		assertEquals(EloStatistics.SPRT_H0, match(500, 0, 1000).sprt(ELO0, ELO1, ALPHA, BETA));
+		assertEquals(EloStatistics.SPRT_CONTINUE, match(10, 5, 10).sprt(ELO0, ELO1, ALPHA, BETA));
+		assertTrue(match(60, 0, 40).llr(ELO0, ELO1) > 0);
+		assertTrue(match(40, 0, 60).llr(ELO0, ELO1) < 0);
+	}
+
+	@Test
+	public void sprtStopsWhenEveryGameIsTheSame(){
+		assertEquals(EloStatistics.SPRT_H1, match(200, 0, 0).sprt(ELO0, ELO1, ALPHA, BETA));
+		assertEquals(EloStatistics.SPRT_H0, match(0, 0, 200).sprt(ELO0, ELO1, ALPHA, BETA));
+		//all draws is an even score, which is H0
+		assertEquals(EloStatistics.SPRT_H0, match(0, 10000, 0).sprt(ELO0, ELO1, ALPHA, BETA));
+	}
+}
@@ -0,0 +1,309 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a GameServer keeps a player's seat while it is away: a player that comes back is sent the
+ * changes it missed, or the whole state once they are no longer kept, and a player that comes back on
+ * a new connection before the server has noticed the old one die takes its seat over from it.
+ *
+ * The clients are plain NetworkConnections over a LoopbackTransport, so the frames they are sent can be
+ * checked one by one; the game is a counter the two players take turns adding to, so it lasts as long
+ * as a test likes.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class GameServerTest {
+
+	//the loopback port the server listens on
+	private static final int PORT = 4321;
+
+	//how long a client waits for a frame, in milliseconds
+	private static final int WAIT_MILLIS = 5000;
+
+	//the number of changes the server keeps for each player
+	private static final int HISTORY_SIZE = 64;
+
+	/**
+	 * A turn of the counting game.
+	 */
+	private static class CountAction extends GameAction {
+		private static final long serialVersionUID = 18102026L;
+
+		CountAction(int source){
+			super(source);
+		}
+	}
+
+	/**
+	 * The counting game: the players take turns adding one, and nobody ever wins.
+	 */
+	private static class CountingGame extends LocalGame {
+		private static final long serialVersionUID = 18102026L;
+
+		private int count;
+
+		CountingGame(int count, int turn){
+			super(null, turn);
+			this.count = count;
+		}
+
+		public LocalGame getPlayerState(int playerIndex){
+			return new CountingGame(count, whoseTurn);
+		}
+
+		public void applyAction(GameAction action){
+			count++;
+			whoseTurn = 1 - whoseTurn;
+		}
+
+		public boolean isGameOver(){
+			return false;
+		}
+
+		public int getWinnerId(){
+			return -1;
+		}
+	}
+
+	/**
+	 * Hosts counting games; a change is the mover's index.
+	 */
+	private static class CountingServer extends GameServer {
+		CountingServer() throws IOException {
+			super(2, 1000, 1);
+		}
+
+		protected String getGameName(){
+			return "Counting";
+		}
+
+		protected LocalGame createGame(int gameId){
+			return new CountingGame(0, 0);
+		}
+
+		protected byte[] encodeState(LocalGame state){
+			return ByteBuffer.allocate(4).putInt(((CountingGame)state).count).array();
+		}
+
+		protected GameAction decodeAction(ByteBuffer data){
+			return (data.remaining() == 1) ? new CountAction(data.get()) : null;
+		}
+
+		protected byte[] encodeDelta(GameAction action){
+			return new byte[]{(byte)action.getSource()};
+		}
+	}
+
+	/**
+	 * A frame a client was sent, copied out of the connection's buffer.
+	 */
+	private static class Received {
+		final int type;
+		final ByteBuffer payload;
+
+		Received(int type, ByteBuffer payload){
+			this.type = type;
+			this.payload = payload;
+		}
+	}
+
+	/**
+	 * A client: the frames it is sent are queued for the test to check.
+	 */
+	private class Client implements NetworkConnection.Listener {
+		private final BlockingQueue<Received> frames = new LinkedBlockingQueue<Received>();
+		private final CountDownLatch closed = new CountDownLatch(1);
+		private NetworkConnection connection;
+		private String sessionId;
+
+		public void connected(NetworkConnection c){
+		}
+
+		public void frameReceived(NetworkConnection c, int type, ByteBuffer payload){
+			ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+			copy.put(payload).flip();
+			frames.add(new Received(type, copy));
+		}
+
+		public void disconnected(NetworkConnection c){
+			closed.countDown();
+		}
+
+		//connects and asks for a seat: any seat, or the one it had
+		void connect(String seat) throws IOException, InterruptedException {
+			connection = transport.connect(reactor, "localhost", PORT, WAIT_MILLIS, this);
+			connection.send(Handshake.hello("Counting", seat));
+			sessionId = Handshake.parseWelcome(Frame.WELCOME, expect(Frame.WELCOME));
+			assertNotNull(sessionId);
+		}
+
+		//the payload of the next frame, which must be of the given type
+		ByteBuffer expect(int type) throws InterruptedException {
+			Received frame = frames.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+			if(frame == null){
+				fail("no frame of type " + type + " came");
+			}
+			assertEquals("frame type", type, frame.type);
+			return frame.payload;
+		}
+
+		//the number of the next frame, a state or a change
+		int expectSeq(int type) throws InterruptedException {
+			return expect(type).getInt();
+		}
+
+		void send(ByteBuffer frame){
+			connection.send(frame);
+		}
+	}
+
+	private LoopbackTransport transport;
+	private NetworkReactor reactor;
+	private CountingServer server;
+
+	//the two players, by index
+	private Client[] players;
+
+	//the number of actions applied so far
+	private int actions;
+
+	@Before
+	public void setUp() throws IOException, InterruptedException {
+		transport = new LoopbackTransport();
+		reactor = new NetworkReactor();
+		reactor.start("GameServerTest-clients");
+		server = new CountingServer();
+		server.setTimeouts(0, 0, 60000, 0);
+		server.start(PORT, transport);
+
+		//the first to come is the first player
+		players = new Client[]{new Client(), new Client()};
+		players[0].connect(null);
+		players[1].connect(null);
+		for(int i = 0; i < 2; ++i){
+			assertEquals(i, players[i].expect(Frame.SET_GAME).getInt());
+			assertEquals(0, players[i].expectSeq(Frame.STATE));
+		}
+		assertEquals(0, players[0].expectSeq(Frame.REQUEST_MOVE));
+		actions = 0;
+	}
+
+	@After
+	public void tearDown(){
+		server.shutdown();
+		reactor.shutdown();
+	}
+
+	//has the player whose turn it is move, and checks what the players that are there are sent
+	private void move(Client... present) throws InterruptedException {
+		int mover = actions % 2;
+		players[mover].send(Frame.ofBytes(Frame.ACTION, new byte[]{(byte)mover}));
+		actions++;
+		for(Client client : present){
+			assertEquals(actions, client.expectSeq(Frame.DELTA));
+		}
+		for(Client client : present){
+			if(client == players[1 - mover]){
+				assertEquals(actions, client.expectSeq(Frame.REQUEST_MOVE));
+			}
+		}
+	}
+
+	//has the second player lose its connection, and waits until the server has noticed
+	private void dropSecondPlayer() throws InterruptedException {
+		players[1].connection.close();
+		assertTrue(players[1].closed.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while(server.getConnectionCount() > 1 && System.currentTimeMillis() < deadline){
+			Thread.sleep(5);
+		}
+		assertEquals(1, server.getConnectionCount());
+	}
+
+	//has the second player come back on a new connection, to the seat it had
+	private Client reconnectSecondPlayer() throws IOException, InterruptedException {
+		Client back = new Client();
+		back.connect(players[1].sessionId);
+		assertEquals(players[1].sessionId, back.sessionId);
+		return back;
+	}
+
+	@Test
+	public void resumeReplaysTheMissedChanges() throws IOException, InterruptedException {
+		move(players[0], players[1]);
+		move(players[0], players[1]);
+		dropSecondPlayer();
+		//the first player moves while the second is away
+		move(players[0]);
+
+		Client back = reconnectSecondPlayer();
+		//it says it only has state 1, so it has missed 2 and 3
+		back.send(Frame.ofInt(Frame.RESUME, 1));
+		assertEquals(2, back.expectSeq(Frame.DELTA));
+		assertEquals(3, back.expectSeq(Frame.DELTA));
+		//and it is asked again for the move it owes
+		assertEquals(3, back.expectSeq(Frame.REQUEST_MOVE));
+
+		//the game goes on with the new connection
+		players[1] = back;
+		move(players[0], players[1]);
+		move(players[0], players[1]);
+	}
+
+	@Test
+	public void resumeSendsTheWholeStateOnceTheChangesAreGone() throws IOException, InterruptedException {
+		while(actions < HISTORY_SIZE + 6){
+			move(players[0], players[1]);
+		}
+		dropSecondPlayer();
+
+		Client back = reconnectSecondPlayer();
+		back.send(Frame.ofInt(Frame.RESUME, 2));
+		ByteBuffer state = back.expect(Frame.STATE);
+		assertEquals(actions, state.getInt());
+		assertEquals("the count in the state", actions, state.getInt());
+		if(actions % 2 == 1){
+			assertEquals(actions, back.expectSeq(Frame.REQUEST_MOVE));
+		}
+
+		//a player that has lost track of its state gets the whole state too
+		back.send(Frame.ofInt(Frame.RESUME, -1));
+		assertEquals(actions, back.expectSeq(Frame.STATE));
+	}
+
+	@Test
+	public void comingBackTakesTheSeatFromADeadConnection() throws IOException, InterruptedException {
+		move(players[0], players[1]);
+
+		//the second player comes back before the server has seen its old connection go
+		Client old = players[1];
+		Client back = reconnectSecondPlayer();
+		assertTrue("the old connection is closed", old.closed.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+		assertFalse(old.connection.isOpen());
+
+		back.send(Frame.ofInt(Frame.RESUME, 1));
+		assertEquals(1, back.expectSeq(Frame.REQUEST_MOVE));
+		players[1] = back;
+		move(players[0], players[1]);
+		move(players[0], players[1]);
+		assertEquals("nothing more was sent to the old connection", 0, old.frames.size());
+	}
+}
@@ -0,0 +1,120 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests that a host reads back what a client put in its HELLO, and turns away first frames that are
+ * not a HELLO, are cut short, or come from another version or another game.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class HandshakeTest {
+
+	//the payload of a frame, as a host's listener is handed it
+	private static ByteBuffer payloadOf(ByteBuffer frame){
+		ByteBuffer payload = frame.duplicate();
+		payload.get();
+		while((payload.get() & 0x80) != 0){
+			//skip the rest of the length
+		}
+		return payload;
+	}
+
+	//a HELLO written field by field, as a client of any version might
+	private static ByteBuffer hello(int version, String sessionId, String gameName, boolean rated){
+		GameDataWriter writer = new GameDataWriter();
+		writer.writeVarint(version);
+		writer.writeString(sessionId);
+		writer.writeString(gameName);
+		if(rated){
+			writer.writeVarint(1600 + 1);
+		}
+		return ByteBuffer.wrap(writer.toByteArray());
+	}
+
+	@Test
+	public void helloRoundTrips(){
+		Handshake hello = Handshake.parseHello(Frame.HELLO, payloadOf(Handshake.hello("Twixt", "5eed", 1720)));
+		assertNotNull(hello);
+		assertEquals(Handshake.PROTOCOL_VERSION, hello.version);
+		assertEquals("5eed", hello.sessionId);
+		assertEquals("Twixt", hello.gameName);
+		assertEquals(1720, hello.rating);
+		assertFalse(hello.wantsAnySession());
+		assertNull(Handshake.check(hello, "Twixt"));
+	}
+
+	@Test
+	public void anySeatAndNoRating(){
+		Handshake hello = Handshake.parseHello(Frame.HELLO, payloadOf(Handshake.hello("Twixt", null)));
+		assertTrue(hello.wantsAnySession());
+		assertEquals(Handshake.UNRATED, hello.rating);
+
+		Handshake spectator = Handshake.parseHello(Frame.HELLO,
+				payloadOf(Handshake.hello("Twixt", Handshake.spectate(12))));
+		assertTrue(spectator.wantsToSpectate());
+		assertEquals(12, spectator.spectatedGame());
+	}
+
+	@Test
+	public void otherFramesAreNotHellos(){
+		assertNull(Handshake.parseHello(Frame.WELCOME, payloadOf(Handshake.hello("Twixt", null))));
+		assertNull(Handshake.parseHello(Frame.ACTION, ByteBuffer.wrap(new byte[0])));
+		assertNotNull("a host turns away a client that did not say hello", Handshake.check(null, "Twixt"));
+	}
+
+	@Test
+	public void truncatedHellosAreRejected(){
+		ByteBuffer payload = hello(Handshake.PROTOCOL_VERSION, "*", "Twixt", true);
+		for(int length = 0; length < payload.remaining(); ++length){
+			ByteBuffer cut = ByteBuffer.wrap(payload.array(), 0, length);
+			assertNull("cut to " + length + " bytes", Handshake.parseHello(Frame.HELLO, cut));
+		}
+		assertNotNull(Handshake.parseHello(Frame.HELLO, payload));
+	}
+
+	@Test
+	public void stringLongerThanThePayloadIsRejected(){
+		GameDataWriter writer = new GameDataWriter();
+		writer.writeVarint(Handshake.PROTOCOL_VERSION);
+		writer.writeVarint(1000);
+		writer.writeBytes(new byte[]{'a', 'b'});
+		assertNull(Handshake.parseHello(Frame.HELLO, ByteBuffer.wrap(writer.toByteArray())));
+	}
+
+	@Test
+	public void otherVersionsAreTurnedAway(){
+		//an older client sends no rating, which must not stop the host from telling it why it is turned away
+		Handshake old = Handshake.parseHello(Frame.HELLO, hello(Handshake.PROTOCOL_VERSION - 1, "*", "Twixt", false));
+		assertNotNull(old);
+		assertEquals(Handshake.UNRATED, old.rating);
+		ByteBuffer reject = Handshake.check(old, "Twixt");
+		assertNotNull(reject);
+		assertTrue(Frame.readText(payloadOf(reject)).contains("version"));
+	}
+
+	@Test
+	public void otherGamesAreTurnedAway(){
+		Handshake hello = Handshake.parseHello(Frame.HELLO, payloadOf(Handshake.hello("Chess", null)));
+		ByteBuffer reject = Handshake.check(hello, "Twixt");
+		assertNotNull(reject);
+		assertEquals(Frame.REJECT, reject.get(0));
+		assertTrue(Frame.readText(payloadOf(reject)).contains("Chess"));
+	}
+
+	@Test
+	public void welcomeRoundTrips(){
+		assertEquals("5eed", Handshake.parseWelcome(Frame.WELCOME, payloadOf(Handshake.welcome("5eed"))));
+		assertNull(Handshake.parseWelcome(Frame.REJECT, payloadOf(Handshake.reject("full"))));
+	}
+}
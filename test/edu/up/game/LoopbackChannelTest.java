@@ -0,0 +1,248 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests that the bytes put in a LoopbackChannel come out of the other end as they went in: across the
+ * end of the ring, when the ring is full, and when either end closes. The last test sends frames much
+ * longer than a 64 byte ring through a LoopbackTransport, as the load test does.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class LoopbackChannelTest {
+
+	/**
+	 * A reactor that is never started; it keeps the tasks the channels hand it, so a test can see when
+	 * an end is told to read or write.
+	 */
+	private static class TaskKeeper extends NetworkReactor {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+
+		TaskKeeper() throws IOException {
+		}
+
+		@Override
+		public void execute(Runnable task){
+			tasks.add(task);
+		}
+	}
+
+	//a connection for an end of a pair that nobody listens to
+	private static final NetworkConnection.Listener NOBODY = new NetworkConnection.Listener() {
+		public void connected(NetworkConnection c) {
+		}
+
+		public void frameReceived(NetworkConnection c, int type, ByteBuffer payload) {
+		}
+
+		public void disconnected(NetworkConnection c) {
+		}
+	};
+
+	//the writing and the reading end of a new pair, each with a reactor of its own
+	private LoopbackChannel writer;
+	private LoopbackChannel reader;
+	private TaskKeeper writerReactor;
+	private TaskKeeper readerReactor;
+
+	private void makePair(int capacity) throws IOException {
+		LoopbackChannel[] ends = LoopbackChannel.pair(capacity);
+		writer = ends[0];
+		reader = ends[1];
+		writerReactor = new TaskKeeper();
+		readerReactor = new TaskKeeper();
+		writer.attach(writerReactor, new NetworkConnection(writerReactor, writer, NOBODY));
+		reader.attach(readerReactor, new NetworkConnection(readerReactor, reader, NOBODY));
+	}
+
+	//bytes numbered from first on
+	private static byte[] bytes(int first, int length){
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; ++i){
+			bytes[i] = (byte)(first + i);
+		}
+		return bytes;
+	}
+
+	//reads as many bytes as are asked for, which must all be there
+	private byte[] read(int length) throws IOException {
+		ByteBuffer into = ByteBuffer.allocate(length);
+		assertEquals(length, reader.read(into));
+		return into.array();
+	}
+
+	@Test
+	public void bytesWrapAroundTheEndOfTheRing() throws IOException {
+		makePair(16);
+		assertEquals(10, writer.write(ByteBuffer.wrap(bytes(0, 10))));
+		assertArrayEquals(bytes(0, 10), read(10));
+		//these go from the 11th byte of the ring round to the 7th
+		assertEquals(12, writer.write(ByteBuffer.wrap(bytes(10, 12))));
+		assertArrayEquals(bytes(10, 12), read(12));
+
+		//and many more times round, in pieces of any size
+		Random random = new Random(3);
+		int written = 22;
+		for(int i = 0; i < 1000; ++i){
+			int length = 1 + random.nextInt(16);
+			assertEquals(length, writer.write(ByteBuffer.wrap(bytes(written, length))));
+			assertArrayEquals(bytes(written, length), read(length));
+			written += length;
+		}
+		assertEquals(0, reader.read(ByteBuffer.allocate(16)));
+	}
+
+	@Test
+	public void aFullRingTakesWhatFits() throws IOException {
+		makePair(16);
+		ByteBuffer src = ByteBuffer.wrap(bytes(0, 20));
+		assertEquals(16, writer.write(src));
+		assertEquals(4, src.remaining());
+		assertEquals(0, writer.write(src));
+		assertTrue(writerReactor.tasks.isEmpty());
+
+		//reading makes room, and the writer is told so
+		assertArrayEquals(bytes(0, 5), read(5));
+		assertEquals(1, writerReactor.tasks.size());
+		assertEquals(4, writer.write(src));
+		assertFalse(src.hasRemaining());
+
+		//a buffer too small for what is there takes what fits
+		assertArrayEquals(bytes(5, 10), read(10));
+		assertArrayEquals(bytes(15, 5), read(5));
+		assertEquals(0, reader.read(ByteBuffer.allocate(4)));
+	}
+
+	@Test
+	public void bytesWrittenBeforeClosingAreStillRead() throws IOException {
+		makePair(16);
+		writer.write(ByteBuffer.wrap(bytes(0, 10)));
+		writer.close();
+		assertFalse(writer.isOpen());
+		assertTrue(reader.isOpen());
+
+		assertArrayEquals(bytes(0, 6), read(6));
+		assertArrayEquals(bytes(6, 4), read(4));
+		assertEquals(-1, reader.read(ByteBuffer.allocate(4)));
+		assertEquals(-1, reader.read(ByteBuffer.allocate(4)));
+	}
+
+	@Test
+	public void aClosedEndCannotBeUsed() throws IOException {
+		makePair(16);
+		writer.close();
+		try{
+			writer.write(ByteBuffer.wrap(bytes(0, 1)));
+			fail("wrote to a closed end");
+		}
+		catch(ClosedChannelException e){
+			//expected
+		}
+		reader.close();
+		try{
+			reader.read(ByteBuffer.allocate(1));
+			fail("read from a closed end");
+		}
+		catch(ClosedChannelException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void writingAfterTheReaderHasClosedFails() throws IOException {
+		makePair(16);
+		reader.close();
+		try{
+			writer.write(ByteBuffer.wrap(bytes(0, 1)));
+			fail("wrote to an end nobody reads");
+		}
+		catch(IOException e){
+			assertTrue(writer.isOpen());
+		}
+		//nothing was sent this way, so the writer reads the end at once
+		assertEquals(-1, writer.read(ByteBuffer.allocate(1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void ringsHoldAPowerOfTwo(){
+		new LoopbackTransport(48);
+	}
+
+	@Test
+	public void framesLongerThanA64ByteRingGoThroughInPieces() throws IOException, InterruptedException {
+		LoopbackTransport transport = new LoopbackTransport(64);
+		NetworkReactor hostReactor = new NetworkReactor();
+		NetworkReactor clientReactor = new NetworkReactor();
+		hostReactor.start("LoopbackChannelTest-host");
+		clientReactor.start("LoopbackChannelTest-client");
+
+		//the host sends back every frame it is sent
+		final BlockingQueue<byte[]> echoed = new LinkedBlockingQueue<byte[]>();
+		final CountDownLatch closed = new CountDownLatch(1);
+		Closeable listening = transport.listen(hostReactor, 1, new NetworkConnection.Listener() {
+			public void connected(NetworkConnection c) {
+			}
+
+			public void frameReceived(NetworkConnection c, int type, ByteBuffer payload) {
+				byte[] copy = new byte[payload.remaining()];
+				payload.get(copy);
+				c.send(Frame.ofBytes(type, copy));
+			}
+
+			public void disconnected(NetworkConnection c) {
+				closed.countDown();
+			}
+		});
+		NetworkConnection client = transport.connect(clientReactor, "anywhere", 1, 0,
+				new NetworkConnection.Listener() {
+			public void connected(NetworkConnection c) {
+			}
+
+			public void frameReceived(NetworkConnection c, int type, ByteBuffer payload) {
+				byte[] copy = new byte[payload.remaining()];
+				payload.get(copy);
+				echoed.add(copy);
+			}
+
+			public void disconnected(NetworkConnection c) {
+			}
+		});
+		try{
+			int[] lengths = {0, 1, 62, 63, 64, 65, 500, 5000};
+			for(int length : lengths){
+				client.send(Frame.ofBytes(Frame.MESSAGE, bytes(length, length)));
+			}
+			for(int length : lengths){
+				byte[] back = echoed.poll(5, TimeUnit.SECONDS);
+				assertArrayEquals("a frame of " + length + " bytes", bytes(length, length), back);
+			}
+			client.close();
+			assertTrue(closed.await(5, TimeUnit.SECONDS));
+		}
+		finally{
+			listening.close();
+			hostReactor.shutdown();
+			clientReactor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the Matchmaker pairs players of the same bucket at once, widens the window of a player
+ * who waits until it reaches someone, and never puts a player in two groups.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class MatchmakerTest {
+
+	//how long a player waits before its window widens; short, so the tests are quick
+	private static final int WIDEN_MILLIS = 20;
+
+	//the width of a bucket
+	private static final int BUCKET_WIDTH = 100;
+
+	//the groups formed, in order
+	private final List<List<String>> groups = Collections.synchronizedList(new ArrayList<List<String>>());
+
+	private Matchmaker<String> matchmaker;
+
+	@Before
+	public void setUp(){
+		matchmaker = new Matchmaker<String>(2, BUCKET_WIDTH, WIDEN_MILLIS, new Matchmaker.Listener<String>() {
+			public void matched(List<String> players) {
+				groups.add(players);
+			}
+		});
+	}
+
+	@Test
+	public void playersOfOneBucketAreMatchedAtOnce(){
+		matchmaker.enqueue("first", 1510);
+		assertEquals(0, groups.size());
+		assertEquals(1, matchmaker.getWaitingCount());
+
+		matchmaker.enqueue("second", 1590);
+		assertEquals(1, groups.size());
+		assertEquals("first", groups.get(0).get(0));
+		assertEquals("second", groups.get(0).get(1));
+		assertEquals(0, matchmaker.getWaitingCount());
+		assertEquals(1, matchmaker.getGroupsFormed());
+	}
+
+	@Test
+	public void playersJoiningInTheSameMillisecondKeepTheirOrder(){
+		//a tight loop enqueues many pairs within one tick of the clock
+		for(int i = 0; i < 200; ++i){
+			matchmaker.enqueue("older" + i, 1500);
+			matchmaker.enqueue("newer" + i, 1500);
+		}
+		assertEquals(200, groups.size());
+		for(int i = 0; i < 200; ++i){
+			assertEquals("older" + i, groups.get(i).get(0));
+			assertEquals("newer" + i, groups.get(i).get(1));
+		}
+	}
+
+	@Test
+	public void unknownRatingsWaitWithTheDefault(){
+		matchmaker.enqueue("rated", Matchmaker.DEFAULT_RATING);
+		matchmaker.enqueue("new", -1);
+		assertEquals(1, groups.size());
+	}
+
+	@Test
+	public void windowWidensUntilItReachesAnotherPlayer() throws InterruptedException {
+		//three buckets apart
+		matchmaker.enqueue("low", 1000);
+		matchmaker.enqueue("high", 1300 + BUCKET_WIDTH / 2);
+		assertEquals(0, matchmaker.matchWaiting());
+		assertEquals(0, groups.size());
+
+		Thread.sleep(4 * WIDEN_MILLIS);
+		assertEquals(1, matchmaker.matchWaiting());
+		assertEquals(1, groups.size());
+		//the one that waited longer comes first
+		assertEquals("low", groups.get(0).get(0));
+		assertEquals("high", groups.get(0).get(1));
+		assertTrue(matchmaker.getLongestWaitMillis() >= 3 * WIDEN_MILLIS);
+	}
+
+	@Test
+	public void nearestPlayerIsPreferred() throws InterruptedException {
+		matchmaker.enqueue("far", 500);
+		matchmaker.enqueue("near", 1300);
+		Thread.sleep(2 * WIDEN_MILLIS);
+		//far is eight buckets away, near one
+		matchmaker.enqueue("joiner", 1200);
+		matchmaker.matchWaiting();
+		assertEquals(1, groups.size());
+		assertTrue(groups.get(0).contains("near"));
+		assertTrue(groups.get(0).contains("joiner"));
+		assertEquals(1, matchmaker.getWaitingCount());
+	}
+
+	@Test
+	public void cancelledPlayersAreNotMatched(){
+		Matchmaker.Ticket<String> ticket = matchmaker.enqueue("gone", 1500);
+		assertTrue(matchmaker.cancel(ticket));
+		assertFalse(ticket.isWaiting());
+		assertFalse("cancelled twice", matchmaker.cancel(ticket));
+
+		matchmaker.enqueue("other", 1500);
+		assertEquals(0, groups.size());
+		assertEquals(1, matchmaker.getWaitingCount());
+	}
+
+	@Test
+	public void everybodyIsMatchedOnceUnderContention() throws InterruptedException {
+		final int perThread = 500;
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; ++t){
+			final int thread = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for(int i = 0; i < perThread; ++i){
+						matchmaker.enqueue(thread + "-" + i, (i * 37) % Matchmaker.MAX_RATING);
+						if(i % 10 == 0){
+							matchmaker.matchWaiting();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		//let every window cover the whole range
+		Thread.sleep(matchmaker.getMaxWaitMillis() + WIDEN_MILLIS);
+		matchmaker.matchWaiting();
+
+		Set<String> seen = new HashSet<String>();
+		synchronized(groups){
+			for(List<String> group : groups){
+				assertEquals(2, group.size());
+				for(String player : group){
+					assertTrue("matched twice: " + player, seen.add(player));
+				}
+			}
+		}
+		assertEquals(threads.length * perThread, seen.size());
+		assertEquals(0, matchmaker.getWaitingCount());
+	}
+}
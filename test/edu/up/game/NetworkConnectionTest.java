@@ -0,0 +1,213 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a NetworkConnection splits what it reads into frames however the bytes arrive: a header
+ * or payload cut across reads, several frames in one read, frames longer than its read buffer, and
+ * headers that announce more than a frame may hold.
+ *
+ * The bytes are written straight into the other end of a LoopbackChannel pair and the connection is
+ * told to read by the test itself, so nothing runs on a reactor thread.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class NetworkConnectionTest {
+
+	//how many bytes each direction of the channel holds; more than any test writes at once
+	private static final int CAPACITY = 1 << 16;
+
+	//the frames handed over, as type and payload
+	private final List<Integer> types = new ArrayList<Integer>();
+	private final List<byte[]> payloads = new ArrayList<byte[]>();
+
+	//whether the connection has closed
+	private boolean disconnected;
+
+	//the end the test writes into, and the connection reading the other end
+	private LoopbackChannel sender;
+	private NetworkConnection connection;
+
+	@Before
+	public void setUp() throws IOException {
+		LoopbackChannel[] ends = LoopbackChannel.pair(CAPACITY);
+		sender = ends[0];
+		//a reactor that is never started: the test does the reading itself
+		NetworkReactor reactor = new NetworkReactor();
+		connection = new NetworkConnection(reactor, ends[1], new NetworkConnection.Listener() {
+			public void connected(NetworkConnection c) {
+			}
+
+			public void frameReceived(NetworkConnection c, int type, ByteBuffer payload) {
+				byte[] copy = new byte[payload.remaining()];
+				payload.get(copy);
+				types.add(type);
+				payloads.add(copy);
+			}
+
+			public void disconnected(NetworkConnection c) {
+				disconnected = true;
+			}
+		});
+		ends[1].attach(reactor, connection);
+	}
+
+	//a payload of the given length that is not the same all the way through
+	private static byte[] payload(int length){
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; ++i){
+			bytes[i] = (byte)(i * 31 + 7);
+		}
+		return bytes;
+	}
+
+	//the bytes of a frame, as they go over the wire
+	private static byte[] frame(int type, byte[] payload){
+		ByteBuffer frame = Frame.ofBytes(type, payload);
+		byte[] bytes = new byte[frame.remaining()];
+		frame.get(bytes);
+		return bytes;
+	}
+
+	//the bytes of several frames, one after the other
+	private static byte[] concat(byte[]... frames){
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(byte[] frame : frames){
+			out.write(frame, 0, frame.length);
+		}
+		return out.toByteArray();
+	}
+
+	//writes bytes into the channel in pieces of the given size and has the connection read after each;
+	//like a socket, one read takes no more than fits in the connection's buffer, so it reads a few times
+	private void feed(byte[] bytes, int piece) throws IOException {
+		for(int i = 0; i < bytes.length; i += piece){
+			int count = Math.min(piece, bytes.length - i);
+			assertEquals(count, sender.write(ByteBuffer.wrap(bytes, i, count)));
+			for(int reads = 0; reads < 4 && !disconnected; ++reads){
+				connection.readReady();
+			}
+		}
+	}
+
+	@Test
+	public void headerSplitAcrossReads() throws IOException {
+		//a 300 byte payload takes a two byte length
+		byte[] payload = payload(300);
+		byte[] frame = frame(Frame.STATE, payload);
+		feed(new byte[]{frame[0]}, 1);
+		feed(new byte[]{frame[1]}, 1);
+		assertEquals(0, types.size());
+
+		byte[] rest = new byte[frame.length - 2];
+		System.arraycopy(frame, 2, rest, 0, rest.length);
+		feed(rest, rest.length);
+		assertEquals(1, types.size());
+		assertEquals(Frame.STATE, (int)types.get(0));
+		assertArrayEquals(payload, payloads.get(0));
+	}
+
+	@Test
+	public void payloadSplitAcrossReads() throws IOException {
+		byte[] payload = payload(1000);
+		feed(frame(Frame.DELTA, payload), 7);
+		assertEquals(1, types.size());
+		assertArrayEquals(payload, payloads.get(0));
+		assertFalse(disconnected);
+	}
+
+	@Test
+	public void oneByteAtATime() throws IOException {
+		byte[] first = payload(200);
+		byte[] second = payload(3);
+		feed(concat(frame(Frame.ACTION, first), frame(Frame.MESSAGE, second)), 1);
+		assertEquals(2, types.size());
+		assertArrayEquals(first, payloads.get(0));
+		assertArrayEquals(second, payloads.get(1));
+	}
+
+	@Test
+	public void framesLongerThanTheBufferMakeItGrow() throws IOException {
+		//longer than the 4096 bytes the read buffer starts with, and then longer than twice that
+		byte[] big = payload(10000);
+		byte[] bigger = payload(40000);
+		feed(frame(Frame.STATE, big), 3000);
+		feed(frame(Frame.STATE, bigger), bigger.length + 4);
+		assertEquals(2, types.size());
+		assertArrayEquals(big, payloads.get(0));
+		assertArrayEquals(bigger, payloads.get(1));
+
+		//and small frames still come through after it
+		feed(frame(Frame.ACTION, payload(5)), 100);
+		assertEquals(3, types.size());
+		assertArrayEquals(payload(5), payloads.get(2));
+	}
+
+	@Test
+	public void severalFramesInOneRead() throws IOException {
+		byte[] fourth = frame(Frame.STATE, payload(50));
+		byte[] bytes = concat(frame(Frame.SET_GAME, payload(4)), Frame.empty(Frame.HEARTBEAT).array(),
+				frame(Frame.REQUEST_MOVE, payload(4)), frame(Frame.GAME_IS_OVER, new byte[0]), fourth);
+		//all but the last 10 bytes of the last frame
+		feed(Arrays.copyOf(bytes, bytes.length - 10), bytes.length);
+		assertEquals(3, types.size());
+		//the heartbeat is never handed over
+		assertEquals(Frame.SET_GAME, (int)types.get(0));
+		assertEquals(Frame.REQUEST_MOVE, (int)types.get(1));
+		assertEquals(Frame.GAME_IS_OVER, (int)types.get(2));
+		assertEquals(0, payloads.get(2).length);
+
+		feed(Arrays.copyOfRange(bytes, bytes.length - 10, bytes.length), 10);
+		assertEquals(4, types.size());
+		assertArrayEquals(payload(50), payloads.get(3));
+	}
+
+	@Test
+	public void framesLongerThanTheLimitAreRejected() throws IOException {
+		feed(frame(Frame.ACTION, payload(3)), 100);
+		//a header announcing one byte more than MAX_PAYLOAD, written out by hand
+		int length = Frame.MAX_PAYLOAD + 1;
+		byte[] header = {(byte)Frame.STATE, (byte)((length & 0x7F) | 0x80), (byte)(((length >>> 7) & 0x7F) | 0x80),
+				(byte)(length >>> 14)};
+		feed(header, header.length);
+		assertTrue(disconnected);
+		assertFalse(connection.isOpen());
+		assertEquals(1, types.size());
+	}
+
+	@Test
+	public void overlongLengthsAreRejected() throws IOException {
+		//a length that goes on for five bytes
+		feed(new byte[]{(byte)Frame.STATE, (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 0}, 6);
+		assertTrue(disconnected);
+		assertEquals(0, types.size());
+	}
+
+	@Test
+	public void framesBeforeTheOtherEndClosesAreHandedOver() throws IOException {
+		sender.write(ByteBuffer.wrap(frame(Frame.FINISH_UP, new byte[0])));
+		sender.close();
+		connection.readReady();
+		assertEquals(1, types.size());
+		assertEquals(Frame.FINISH_UP, (int)types.get(0));
+		assertFalse(disconnected);
+
+		connection.readReady();
+		assertTrue(disconnected);
+	}
+}
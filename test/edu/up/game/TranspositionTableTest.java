@@ -0,0 +1,179 @@
+package edu.up.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a TranspositionTable hands back exactly what was stored for a position, keeps the deeper
+ * of two searches in the first slot of a bucket and moves what it gives way to down to the second, and
+ * never answers for a position it was not told about.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TranspositionTableTest {
+
+	//the bucket the tests crowd their positions into
+	private static final int BUCKET = 77;
+
+	private TranspositionTable table;
+
+	@Before
+	public void setUp(){
+		table = new TranspositionTable(1);
+	}
+
+	//the n-th of the keys that fall in a bucket
+	private static long keyIn(int bucket, int n){
+		return ((long)n << 32) | (bucket ^ n);
+	}
+
+	//stores a position with an exact value equal to its depth
+	private void store(long key, int depth){
+		table.store(key, depth, TranspositionTable.BOUND_EXACT, depth, TranspositionTable.NO_MOVE);
+	}
+
+	//the depth stored for a position, or -1 if it is not in the table
+	private int depthFound(long key){
+		long data = table.probe(key);
+		return (data == TranspositionTable.MISS) ? -1 : TranspositionTable.depthOf(data);
+	}
+
+	//stores an entry and checks that every part of it comes back
+	private void assertRoundTrip(long key, int value, int bound, int depth, int move){
+		table.store(key, value, bound, depth, move);
+		long data = table.probe(key);
+		assertNotEquals(TranspositionTable.MISS, data);
+		assertEquals(value, TranspositionTable.valueOf(data));
+		assertEquals(bound, TranspositionTable.boundOf(data));
+		assertEquals(depth, TranspositionTable.depthOf(data));
+		assertEquals(move, TranspositionTable.moveOf(data));
+	}
+
+	@Test
+	public void entriesRoundTrip(){
+		assertRoundTrip(1, 0, TranspositionTable.BOUND_EXACT, 0, 0);
+		assertRoundTrip(2, -1, TranspositionTable.BOUND_LOWER, 1, TranspositionTable.NO_MOVE);
+		assertRoundTrip(3, Integer.MAX_VALUE, TranspositionTable.BOUND_UPPER, TranspositionTable.MAX_DEPTH, 0xFFFE);
+		assertRoundTrip(4, Integer.MIN_VALUE, TranspositionTable.BOUND_EXACT, 17, 575);
+		//the key takes all 64 bits
+		assertRoundTrip(0x8000000000000000L, -123456, TranspositionTable.BOUND_LOWER, 9, 1);
+	}
+
+	@Test
+	public void depthsAreCappedToWhatFits(){
+		store(1, TranspositionTable.MAX_DEPTH + 50);
+		assertEquals(TranspositionTable.MAX_DEPTH, depthFound(1));
+		store(2, -3);
+		assertEquals(0, depthFound(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void badBoundsAreRefused(){
+		table.store(1, 0, 0, 1, TranspositionTable.NO_MOVE);
+	}
+
+	@Test
+	public void otherKeysMiss(){
+		long stored = keyIn(BUCKET, 1);
+		store(stored, 4);
+		//the same bucket, and another bucket
+		assertEquals(TranspositionTable.MISS, table.probe(keyIn(BUCKET, 2)));
+		assertEquals(TranspositionTable.MISS, table.probe(keyIn(BUCKET + 1, 1)));
+		//keys one bit away
+		assertEquals(TranspositionTable.MISS, table.probe(stored ^ 1));
+		assertEquals(TranspositionTable.MISS, table.probe(stored ^ (1L << 63)));
+		assertEquals(4, depthFound(stored));
+		assertEquals(5, table.getProbes());
+		assertEquals(1, table.getHits());
+	}
+
+	@Test
+	public void shallowerSearchesGoInTheSecondSlot(){
+		long deep = keyIn(BUCKET, 1);
+		long shallow = keyIn(BUCKET, 2);
+		long shallower = keyIn(BUCKET, 3);
+		store(deep, 10);
+		store(shallow, 3);
+		assertEquals(10, depthFound(deep));
+		assertEquals(3, depthFound(shallow));
+
+		//the second slot is always replaced, the first is kept
+		store(shallower, 2);
+		assertEquals(10, depthFound(deep));
+		assertEquals(-1, depthFound(shallow));
+		assertEquals(2, depthFound(shallower));
+		assertEquals(1, table.getOverwrites());
+	}
+
+	@Test
+	public void deeperSearchesMoveTheFirstSlotDown(){
+		long first = keyIn(BUCKET, 1);
+		long second = keyIn(BUCKET, 2);
+		long third = keyIn(BUCKET, 3);
+		store(first, 3);
+		store(second, 8);
+		//the entry given way to is moved down, not lost
+		assertEquals(8, depthFound(second));
+		assertEquals(3, depthFound(first));
+		assertEquals(0, table.getOverwrites());
+
+		//and pushes out whatever was in the second slot
+		store(third, 8);
+		assertEquals(8, depthFound(third));
+		assertEquals(8, depthFound(second));
+		assertEquals(-1, depthFound(first));
+		assertEquals(1, table.getOverwrites());
+	}
+
+	@Test
+	public void entriesFromOlderSearchesGiveWay(){
+		long old = keyIn(BUCKET, 1);
+		long recent = keyIn(BUCKET, 2);
+		store(old, 20);
+		table.newSearch();
+		store(recent, 1);
+		assertEquals(1, depthFound(recent));
+		assertEquals(20, depthFound(old));
+
+		//now that the first slot is from this search, a shallower one goes below it
+		long shallower = keyIn(BUCKET, 3);
+		table.store(shallower, 0, TranspositionTable.BOUND_UPPER, 0, TranspositionTable.NO_MOVE);
+		assertEquals(1, depthFound(recent));
+		assertEquals(0, depthFound(shallower));
+		assertEquals(-1, depthFound(old));
+	}
+
+	@Test
+	public void searchingAPositionAgainKeepsItsBestMove(){
+		long key = keyIn(BUCKET, 1);
+		table.store(key, 5, TranspositionTable.BOUND_LOWER, 2, 42);
+		table.store(key, 9, TranspositionTable.BOUND_EXACT, 6, TranspositionTable.NO_MOVE);
+		long data = table.probe(key);
+		assertEquals(9, TranspositionTable.valueOf(data));
+		assertEquals(6, TranspositionTable.depthOf(data));
+		assertEquals(42, TranspositionTable.moveOf(data));
+
+		//a shallower search of the same position replaces it, and is not kept twice
+		table.store(key, 1, TranspositionTable.BOUND_UPPER, 1, 7);
+		data = table.probe(key);
+		assertEquals(1, TranspositionTable.depthOf(data));
+		assertEquals(7, TranspositionTable.moveOf(data));
+		assertEquals(0, table.getOverwrites());
+	}
+
+	@Test
+	public void clearEmptiesTheTable(){
+		store(keyIn(BUCKET, 1), 5);
+		store(keyIn(BUCKET, 2), 6);
+		table.clear();
+		assertEquals(-1, depthFound(keyIn(BUCKET, 1)));
+		assertEquals(-1, depthFound(keyIn(BUCKET, 2)));
+		assertEquals(2, table.getProbes());
+		assertEquals(0, table.getStores());
+	}
+}
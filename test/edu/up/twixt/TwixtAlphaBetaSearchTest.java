@@ -0,0 +1,115 @@
+package edu.up.twixt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.up.game.TranspositionTable;
+
+/**
+ * Tests that a TwixtAlphaBetaSearch keeps the distance to a win right when it goes through the
+ * transposition table: a win is stored as plies from the position it was found in and read back as
+ * plies from the root of whichever search finds the position again. The last tests check that the
+ * search takes a win in one with or without a table, and with a table a search of the position before
+ * has already filled.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtAlphaBetaSearchTest {
+
+	private static final int WIN = TwixtAlphaBetaSearch.WIN;
+
+	//light's chain from the left column to (9, 16), one peg short of the right column
+	private static final int[][] CHAIN = {{1, 0}, {2, 2}, {3, 4}, {4, 6}, {5, 8}, {6, 10}, {7, 12}, {8, 14},
+			{9, 16}};
+
+	private TwixtBoard board;
+
+	@Before
+	public void setUp(){
+		board = new TwixtBoard();
+		for(int[] peg : CHAIN){
+			board.placePegAndBridges(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(peg[0], peg[1]));
+		}
+	}
+
+	//whether a move wins for a team
+	private boolean wins(int team, int move){
+		TwixtBoard after = new TwixtBoard(board);
+		after.placePegAndBridges(team, move);
+		return after.hasWon(team);
+	}
+
+	@Test
+	public void winsAreStoredAsPliesFromTheirPosition(){
+		//a win on the 10th ply of the search, found in a position at ply 7, is 3 plies away from it
+		int value = WIN - 10;
+		assertEquals(WIN - 3, TwixtAlphaBetaSearch.toTable(value, 7));
+		assertEquals(-(WIN - 3), TwixtAlphaBetaSearch.toTable(-value, 7));
+		//a position at the root is stored as it is
+		assertEquals(value, TwixtAlphaBetaSearch.toTable(value, 0));
+	}
+
+	@Test
+	public void winsAreReadAsPliesFromTheRoot(){
+		//the position 3 plies from a win, found again at ply 2 of another search: a win on its 5th ply
+		assertEquals(WIN - 5, TwixtAlphaBetaSearch.fromTable(WIN - 3, 2));
+		assertEquals(-(WIN - 5), TwixtAlphaBetaSearch.fromTable(-(WIN - 3), 2));
+		assertEquals(WIN - 3, TwixtAlphaBetaSearch.fromTable(WIN - 3, 0));
+	}
+
+	@Test
+	public void winsRoundTripAtAnyPly(){
+		for(int ply = 0; ply < 64; ++ply){
+			for(int toWin = 1; toWin < 64; ++toWin){
+				int value = WIN - ply - toWin;
+				assertEquals(value, TwixtAlphaBetaSearch.fromTable(TwixtAlphaBetaSearch.toTable(value, ply), ply));
+				assertEquals(-value, TwixtAlphaBetaSearch.fromTable(TwixtAlphaBetaSearch.toTable(-value, ply), ply));
+				//and what is stored does not depend on where in the tree it was found
+				assertEquals(WIN - toWin, TwixtAlphaBetaSearch.toTable(value, ply));
+			}
+		}
+	}
+
+	@Test
+	public void otherValuesAreLeftAlone(){
+		int[] values = {0, 1, -1, 100, -3500, 40 * 100, WIN - 1000, -(WIN - 1000)};
+		for(int value : values){
+			for(int ply = 0; ply < 64; ply += 7){
+				assertEquals(value, TwixtAlphaBetaSearch.toTable(value, ply));
+				assertEquals(value, TwixtAlphaBetaSearch.fromTable(value, ply));
+			}
+		}
+		//the first value that counts as a win
+		assertEquals(WIN - 999 + 5, TwixtAlphaBetaSearch.toTable(WIN - 999, 5));
+	}
+
+	@Test
+	public void takesAWinInOne(){
+		TwixtAlphaBetaSearch plain = new TwixtAlphaBetaSearch(0, 3, null);
+		assertTrue(wins(TwixtPiece.LIGHT_PEG, plain.findMove(board, TwixtPiece.LIGHT_PEG)));
+		TwixtAlphaBetaSearch tabled = new TwixtAlphaBetaSearch(0, 3, new TranspositionTable(1));
+		assertTrue(wins(TwixtPiece.LIGHT_PEG, tabled.findMove(board, TwixtPiece.LIGHT_PEG)));
+	}
+
+	@Test
+	public void takesAWinInOneFoundDeeperByAnEarlierSearch(){
+		//dark to move cannot stop both (7, 17) and (11, 17), so its search stores light's wins a ply down
+		TranspositionTable table = new TranspositionTable(1);
+		TwixtAlphaBetaSearch search = new TwixtAlphaBetaSearch(0, 4, table);
+		int block = search.findMove(board, TwixtPiece.DARK_PEG);
+		assertTrue(block >= 0);
+		board.placePegAndBridges(TwixtPiece.DARK_PEG, block);
+
+		//light finds those positions again a ply nearer the root, and still wins at once
+		for(int depth = 1; depth <= 4; ++depth){
+			TwixtAlphaBetaSearch again = new TwixtAlphaBetaSearch(0, depth, table);
+			int move = again.findMove(board, TwixtPiece.LIGHT_PEG);
+			assertTrue("at depth " + depth, wins(TwixtPiece.LIGHT_PEG, move));
+		}
+	}
+}
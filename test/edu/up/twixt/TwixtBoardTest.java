@@ -0,0 +1,200 @@
+package edu.up.twixt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests where pegs and bridges may go on a TwixtBoard, that its Zobrist hash follows every change,
+ * and that it tells when a team has won.
+ *
+ * The tests live in their own source folder (test) so the Android build never sees JUnit. They need
+ * nothing from Android at run time, so they run on a desktop JVM; compile src and test together
+ * against junit.jar and the android.jar of the target platform:
+ * <pre>
+ * javac -cp junit.jar:android.jar -d build/test $(find src test -name '*.java')
+ * java -cp build/test:junit.jar:hamcrest-core.jar:android.jar org.junit.runner.JUnitCore edu.up.twixt.TwixtBoardTest
+ * </pre>
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtBoardTest {
+
+	//the last row and column
+	private static final int LAST = TwixtGame.NUM_PEGS - 1;
+
+	private TwixtBoard board;
+
+	@Before
+	public void setUp(){
+		board = new TwixtBoard();
+	}
+
+	@Test
+	public void pegsStayOutOfTheOtherTeamsHomeRows(){
+		//light connects the left and right columns, dark the top and bottom rows
+		assertFalse(board.canPlacePeg(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(0, 5)));
+		assertFalse(board.canPlacePeg(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(LAST, 5)));
+		assertTrue(board.canPlacePeg(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(5, 0)));
+		assertTrue(board.canPlacePeg(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(5, LAST)));
+
+		assertFalse(board.canPlacePeg(TwixtPiece.DARK_PEG, TwixtBoard.cell(5, 0)));
+		assertFalse(board.canPlacePeg(TwixtPiece.DARK_PEG, TwixtBoard.cell(5, LAST)));
+		assertTrue(board.canPlacePeg(TwixtPiece.DARK_PEG, TwixtBoard.cell(0, 5)));
+		assertTrue(board.canPlacePeg(TwixtPiece.DARK_PEG, TwixtBoard.cell(LAST, 5)));
+
+		//the corners belong to both
+		assertFalse(board.canPlacePeg(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(0, 0)));
+		assertFalse(board.canPlacePeg(TwixtPiece.DARK_PEG, TwixtBoard.cell(LAST, LAST)));
+	}
+
+	@Test
+	public void pegsOnlyGoInEmptyHoles(){
+		int cell = TwixtBoard.cell(7, 7);
+		board.setPeg(7, 7, TwixtPiece.DARK_PEG);
+		assertEquals(TwixtPiece.DARK_PEG, board.getPeg(cell));
+		assertFalse(board.canPlacePeg(TwixtPiece.LIGHT_PEG, cell));
+		assertFalse(board.canPlacePeg(TwixtPiece.DARK_PEG, cell));
+
+		board.setPeg(7, 7, TwixtPiece.EMPTY);
+		assertEquals(TwixtPiece.EMPTY, board.getPeg(cell));
+		assertTrue(board.canPlacePeg(TwixtPiece.LIGHT_PEG, cell));
+	}
+
+	@Test
+	public void bridgeIdsRoundTrip(){
+		for(int k = 0; k < TwixtBoard.KNIGHT_ROW.length; ++k){
+			int row = 8 + TwixtBoard.KNIGHT_ROW[k];
+			int col = 8 + TwixtBoard.KNIGHT_COL[k];
+			int id = TwixtBoard.bridgeId(8, 8, row, col);
+			assertTrue(id >= 0 && id < TwixtBoard.NUM_BRIDGES);
+			//the same bridge seen from either end
+			assertEquals(id, TwixtBoard.bridgeId(row, col, 8, 8));
+			int upper = Math.min(TwixtBoard.cell(8, 8), TwixtBoard.cell(row, col));
+			int lower = Math.max(TwixtBoard.cell(8, 8), TwixtBoard.cell(row, col));
+			assertEquals(upper, TwixtBoard.bridgeStart(id));
+			assertEquals(lower, TwixtBoard.bridgeEnd(id));
+		}
+		assertEquals(-1, TwixtBoard.bridgeId(8, 8, 9, 9));
+		assertEquals(-1, TwixtBoard.bridgeId(0, 0, -2, 1));
+	}
+
+	@Test
+	public void bridgesJoinPegsOfOneTeam(){
+		board.setPeg(5, 5, TwixtPiece.LIGHT_PEG);
+		assertFalse("no peg at the other end", board.canPlaceBridge(5, 5, 7, 6));
+		board.setPeg(7, 6, TwixtPiece.DARK_PEG);
+		assertFalse("pegs of both teams", board.canPlaceBridge(5, 5, 7, 6));
+		board.setPeg(7, 6, TwixtPiece.LIGHT_PEG);
+		assertTrue(board.canPlaceBridge(5, 5, 7, 6));
+		board.setPeg(6, 6, TwixtPiece.LIGHT_PEG);
+		assertFalse("not a knight's move", board.canPlaceBridge(5, 5, 6, 6));
+
+		int id = TwixtBoard.bridgeId(5, 5, 7, 6);
+		board.addBridge(id);
+		assertTrue(board.hasBridge(id));
+		assertFalse("already there", board.canPlaceBridge(5, 5, 7, 6));
+		assertEquals(id, board.nextBridge(0));
+		assertEquals(-1, board.nextBridge(id + 1));
+	}
+
+	@Test
+	public void bridgesMayNotCross(){
+		board.setPeg(5, 5, TwixtPiece.LIGHT_PEG);
+		board.setPeg(7, 6, TwixtPiece.LIGHT_PEG);
+		board.addBridge(TwixtBoard.bridgeId(5, 5, 7, 6));
+
+		//(6,4)-(5,6) crosses (5,5)-(7,6), whoever owns it
+		board.setPeg(6, 4, TwixtPiece.DARK_PEG);
+		board.setPeg(5, 6, TwixtPiece.DARK_PEG);
+		assertTrue(board.isCrossed(TwixtBoard.bridgeId(6, 4, 5, 6)));
+		assertFalse(board.canPlaceBridge(6, 4, 5, 6));
+
+		//bridges that share a peg do not cross
+		board.setPeg(3, 4, TwixtPiece.LIGHT_PEG);
+		assertTrue(board.canPlaceBridge(5, 5, 3, 4));
+
+		board.removeBridge(TwixtBoard.bridgeId(5, 5, 7, 6));
+		assertTrue(board.canPlaceBridge(6, 4, 5, 6));
+	}
+
+	@Test
+	public void placePegAndBridgesBuildsEveryLegalBridge(){
+		board.setPeg(5, 5, TwixtPiece.LIGHT_PEG);
+		board.setPeg(9, 7, TwixtPiece.LIGHT_PEG);
+		board.setPeg(5, 7, TwixtPiece.DARK_PEG);
+		board.placePegAndBridges(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(7, 6));
+		assertEquals(TwixtPiece.LIGHT_PEG, board.getPeg(7, 6));
+		assertEquals(3, board.countPegs(TwixtPiece.LIGHT_PEG));
+		assertTrue(board.hasBridge(TwixtBoard.bridgeId(5, 5, 7, 6)));
+		assertTrue(board.hasBridge(TwixtBoard.bridgeId(7, 6, 9, 7)));
+		assertFalse("not to the other team", board.hasBridge(TwixtBoard.bridgeId(7, 6, 5, 7)));
+	}
+
+	@Test
+	public void hashFollowsEveryChange(){
+		long empty = board.getHash();
+		Random random = new Random(7);
+		for(int i = 0; i < 200; ++i){
+			int team = i % 2;
+			int cell = random.nextInt(TwixtBoard.NUM_CELLS);
+			if(board.canPlacePeg(team, cell)){
+				board.placePegAndBridges(team, cell);
+			}
+			assertEquals(board.computeHash(), board.getHash());
+		}
+
+		TwixtBoard copy = new TwixtBoard(board);
+		assertEquals(board, copy);
+		assertEquals(board.getHash(), copy.getHash());
+		assertTrue(board.getHash(TwixtPiece.LIGHT_PEG) != board.getHash(TwixtPiece.DARK_PEG));
+
+		//taking everything off brings the hash back
+		for(int id = board.nextBridge(0); id >= 0; id = board.nextBridge(id + 1)){
+			board.removeBridge(id);
+		}
+		for(int team = 0; team < 2; ++team){
+			for(int cell = board.nextPeg(team, 0); cell >= 0; cell = board.nextPeg(team, cell + 1)){
+				board.setPeg(cell / TwixtGame.NUM_PEGS, cell % TwixtGame.NUM_PEGS, TwixtPiece.EMPTY);
+			}
+		}
+		assertEquals(empty, board.getHash());
+		assertEquals(new TwixtBoard(), board);
+
+		copy.clear();
+		assertEquals(board, copy);
+	}
+
+	@Test
+	public void lightWinsByJoiningTheLeftAndRightColumns(){
+		int[][] path = {{1, 0}, {2, 2}, {3, 4}, {4, 6}, {5, 8}, {6, 10}, {7, 12}, {8, 14}, {9, 16}, {11, 17}};
+		for(int i = 0; i < path.length; ++i){
+			assertFalse(board.hasWon(TwixtPiece.LIGHT_PEG));
+			board.placePegAndBridges(TwixtPiece.LIGHT_PEG, TwixtBoard.cell(path[i][0], path[i][1]));
+		}
+		assertTrue(board.hasWon(TwixtPiece.LIGHT_PEG));
+		assertFalse(board.hasWon(TwixtPiece.DARK_PEG));
+
+		//a gap in the chain is not a win
+		board.removeBridge(TwixtBoard.bridgeId(5, 8, 6, 10));
+		assertFalse(board.hasWon(TwixtPiece.LIGHT_PEG));
+	}
+
+	@Test
+	public void darkWinsByJoiningTheTopAndBottomRows(){
+		int[][] path = {{0, 1}, {2, 2}, {4, 3}, {6, 4}, {8, 5}, {10, 6}, {12, 7}, {14, 8}, {16, 9}, {17, 11}};
+		for(int i = 0; i < path.length; ++i){
+			assertFalse(board.hasWon(TwixtPiece.DARK_PEG));
+			board.placePegAndBridges(TwixtPiece.DARK_PEG, TwixtBoard.cell(path[i][0], path[i][1]));
+		}
+		assertTrue(board.hasWon(TwixtPiece.DARK_PEG));
+		assertFalse(board.hasWon(TwixtPiece.LIGHT_PEG));
+	}
+}
@@ -0,0 +1,145 @@
+package edu.up.twixt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.up.game.GameAction;
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+
+/**
+ * Tests that games, positions and actions come back from TwixtCodec as they went in, so a remote
+ * player's copy of a game stays the same as the host's, and that broken messages are turned away.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtCodecTest {
+
+	private GameConfig config;
+
+	private TwixtGame game;
+
+	@Before
+	public void setUp(){
+		GamePlayerType[] playerTypes = new GamePlayerType[2];
+		playerTypes[0] = new GamePlayerType("Local Human Player", false, "edu.up.twixt.TwixtHumanPlayer");
+		playerTypes[1] = new GamePlayerType("Remote Player", true, "edu.up.twixt.TwixtProxyPlayer");
+		config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 1);
+		game = new TwixtGame(config, 0);
+	}
+
+	//plays moves with the random AI until the game has the given number of pegs or is over
+	private void play(int pegs){
+		TwixtEasyStrategy ai = new TwixtEasyStrategy();
+		TwixtBoard board = game.getBoard();
+		while(!game.isGameOver()
+				&& board.countPegs(TwixtPiece.LIGHT_PEG) + board.countPegs(TwixtPiece.DARK_PEG) < pegs){
+			game.applyAction(ai.calculateMove(game.getPlayerState(game.whoseTurn())));
+		}
+	}
+
+	//checks that two games hold the same state
+	private static void assertSameGame(TwixtGame expected, TwixtGame actual){
+		assertEquals(expected.getBoard(), actual.getBoard());
+		assertEquals(expected.whoseTurn(), actual.whoseTurn());
+		assertEquals(expected.isGameOver(), actual.isGameOver());
+		assertEquals(expected.getTurnPeg(), actual.getTurnPeg());
+		assertArrayEquals(expected.getTurnBridges(), actual.getTurnBridges());
+		assertEquals(TwixtCodec.syncHash(expected), TwixtCodec.syncHash(actual));
+	}
+
+	@Test
+	public void gameRoundTrips(){
+		play(60);
+		TwixtGame decoded = TwixtCodec.decodeGame(TwixtCodec.encodeGame(game));
+		assertSameGame(game, decoded);
+		assertEquals(config.getGameName(), decoded.getConfig().getGameName());
+		assertEquals(config.getNumPlayers(), decoded.getConfig().getNumPlayers());
+		assertEquals(config.getSelName(1), decoded.getConfig().getSelName(1));
+	}
+
+	@Test
+	public void positionRoundTrips(){
+		for(int pegs = 0; pegs <= 120 && !game.isGameOver(); pegs += 20){
+			play(pegs);
+			assertSameGame(game, TwixtCodec.decodePosition(TwixtCodec.encodePosition(game), config));
+		}
+	}
+
+	@Test
+	public void halfMadeMoveRoundTrips(){
+		play(30);
+		//a human player's peg and bridges before the turn is ended
+		TwixtGame state = (TwixtGame)game.getPlayerState(game.whoseTurn());
+		int team = game.whoseTurn() % 2;
+		int cell = 0;
+		while(!state.getBoard().canPlacePeg(team, cell)){
+			cell++;
+		}
+		state.getBoard().placePegAndBridges(team, cell);
+		assertEquals(cell, state.getTurnPeg());
+
+		assertSameGame(state, TwixtCodec.decodeGame(TwixtCodec.encodeGame(state)));
+	}
+
+	@Test
+	public void actionsRoundTrip(){
+		int peg = TwixtBoard.cell(7, 6);
+		int[] bridges = {TwixtBoard.bridgeId(5, 5, 7, 6), TwixtBoard.bridgeId(7, 6, 9, 7)};
+
+		GameAction move = TwixtCodec.decodeAction(TwixtCodec.encodeAction(new EndTurnAction(1, peg, bridges)));
+		assertTrue(move instanceof EndTurnAction);
+		assertEquals(1, move.getSource());
+		assertEquals(peg, ((TwixtMoveAction)move).getPeg());
+		assertArrayEquals(bridges, ((TwixtMoveAction)move).getBridges());
+
+		GameAction twixt = TwixtCodec.decodeAction(TwixtCodec.encodeAction(new TwixtAction(3, peg, new int[0])));
+		assertTrue(twixt instanceof TwixtAction);
+		assertEquals(3, twixt.getSource());
+		assertEquals(0, ((TwixtMoveAction)twixt).getBridges().length);
+
+		GameAction surrender = TwixtCodec.decodeAction(TwixtCodec.encodeAction(new SurrenderAction(1)));
+		assertTrue(surrender instanceof SurrenderAction);
+		assertEquals(1, surrender.getSource());
+
+		GameAction quit = TwixtCodec.decodeAction(TwixtCodec.encodeAction(new QuitAction(0)));
+		assertTrue(quit instanceof QuitAction);
+		assertEquals(0, quit.getSource());
+	}
+
+	@Test
+	public void decodedMovesKeepCopiesInStep(){
+		//a remote player brings its copy up to date with each move it is sent
+		TwixtGame copy = TwixtCodec.decodeGame(TwixtCodec.encodeGame(game));
+		TwixtEasyStrategy ai = new TwixtEasyStrategy();
+		for(int i = 0; i < 80 && !game.isGameOver(); ++i){
+			GameAction action = ai.calculateMove(game.getPlayerState(game.whoseTurn()));
+			game.applyAction(action);
+			copy = TwixtCodec.applyAction(copy, TwixtCodec.decodeAction(TwixtCodec.encodeAction(action)));
+			assertEquals(TwixtCodec.syncHash(game), TwixtCodec.syncHash(copy));
+		}
+		assertSameGame(game, copy);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongKindIsRejected(){
+		TwixtCodec.decodeAction(TwixtCodec.encodePosition(game));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void truncatedPositionIsRejected(){
+		play(40);
+		byte[] data = TwixtCodec.encodePosition(game);
+		byte[] truncated = new byte[data.length - 3];
+		System.arraycopy(data, 0, truncated, 0, truncated.length);
+		TwixtCodec.decodePosition(truncated, config);
+	}
+}
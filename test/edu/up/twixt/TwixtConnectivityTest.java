@@ -0,0 +1,89 @@
+package edu.up.twixt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+
+/**
+ * Tests that TwixtConnectivity sees a team win exactly when a chain of its bridges joins its home
+ * rows, and that the games built on it agree with the board's own check.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtConnectivityTest {
+
+	//a chain of knight's moves from the left column to the right one
+	private static final int[][] LIGHT_PATH = {{1, 0}, {2, 2}, {3, 4}, {4, 6}, {5, 8}, {6, 10}, {7, 12},
+		{8, 14}, {9, 16}, {11, 17}};
+
+	//adds the bridges of a path, from its first peg on
+	private static void addPath(TwixtConnectivity connectivity, int team, int[][] path, int bridges){
+		for(int i = 0; i < bridges; ++i){
+			connectivity.addBridge(team, path[i][0], path[i][1], path[i+1][0], path[i+1][1]);
+		}
+	}
+
+	@Test
+	public void lightWinsOnlyOnceTheChainIsWhole(){
+		TwixtConnectivity connectivity = new TwixtConnectivity();
+		addPath(connectivity, TwixtPiece.LIGHT_PEG, LIGHT_PATH, LIGHT_PATH.length - 2);
+		assertFalse(connectivity.hasWon(TwixtPiece.LIGHT_PEG));
+		addPath(connectivity, TwixtPiece.LIGHT_PEG, LIGHT_PATH, LIGHT_PATH.length - 1);
+		assertTrue(connectivity.hasWon(TwixtPiece.LIGHT_PEG));
+		assertFalse(connectivity.hasWon(TwixtPiece.DARK_PEG));
+	}
+
+	@Test
+	public void bridgesCountOnlyForTheirTeam(){
+		TwixtConnectivity connectivity = new TwixtConnectivity();
+		//the light team's chain, given to the dark team, joins neither of its home rows
+		addPath(connectivity, TwixtPiece.DARK_PEG, LIGHT_PATH, LIGHT_PATH.length - 1);
+		assertFalse(connectivity.hasWon(TwixtPiece.DARK_PEG));
+		assertFalse(connectivity.hasWon(TwixtPiece.LIGHT_PEG));
+	}
+
+	@Test
+	public void copiesAndResetsAreIndependent(){
+		TwixtConnectivity connectivity = new TwixtConnectivity();
+		addPath(connectivity, TwixtPiece.LIGHT_PEG, LIGHT_PATH, LIGHT_PATH.length - 2);
+		TwixtConnectivity copy = new TwixtConnectivity(connectivity);
+		addPath(copy, TwixtPiece.LIGHT_PEG, LIGHT_PATH, LIGHT_PATH.length - 1);
+		assertTrue(copy.hasWon(TwixtPiece.LIGHT_PEG));
+		assertFalse(connectivity.hasWon(TwixtPiece.LIGHT_PEG));
+
+		copy.reset();
+		assertFalse(copy.hasWon(TwixtPiece.LIGHT_PEG));
+	}
+
+	@Test
+	public void gamesEndWhenTheBoardSaysSomebodyWon(){
+		GamePlayerType[] playerTypes = new GamePlayerType[2];
+		playerTypes[0] = new GamePlayerType("Easy AI Player", false, "edu.up.twixt.TwixtEasyComputerPlayer");
+		playerTypes[1] = new GamePlayerType("Easy AI Player", false, "edu.up.twixt.TwixtEasyComputerPlayer");
+		GameConfig config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 1);
+		TwixtEasyStrategy ai = new TwixtEasyStrategy();
+
+		int won = 0;
+		for(int g = 0; g < 20; ++g){
+			TwixtGame game = new TwixtGame(config, 0);
+			for(int i = 0; i < TwixtHeadlessRunner.MAX_ACTIONS && !game.isGameOver(); ++i){
+				int team = game.whoseTurn() % 2;
+				game.applyAction(ai.calculateMove(game.getPlayerState(game.whoseTurn())));
+				assertEquals(game.getBoard().hasWon(team), game.isGameOver());
+			}
+			if(game.isGameOver()){
+				won++;
+			}
+		}
+		assertTrue("no game was won", won > 0);
+	}
+}
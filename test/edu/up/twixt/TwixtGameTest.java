@@ -0,0 +1,131 @@
+package edu.up.twixt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.up.game.GameConfig;
+import edu.up.game.GamePlayerType;
+
+/**
+ * Tests that every TwixtGame keeps its own state, so games played side by side (or a player's copy
+ * and the game it came from) never see each other's pegs, and that a game only takes the actions a
+ * host may accept from the player whose turn it is.
+ *
+ * @author Daniel Ehmig
+ * @author Sherry Liao
+ * @author Josh McCleary
+ */
+public class TwixtGameTest {
+
+	private GameConfig config;
+
+	@Before
+	public void setUp(){
+		GamePlayerType[] playerTypes = new GamePlayerType[2];
+		playerTypes[0] = new GamePlayerType("Local Human Player", false, "edu.up.twixt.TwixtHumanPlayer");
+		playerTypes[1] = new GamePlayerType("Easy AI Player", false, "edu.up.twixt.TwixtEasyComputerPlayer");
+		config = new GameConfig(playerTypes, 2, 2, "Twixt");
+		config.addPlayer("Light", 0);
+		config.addPlayer("Dark", 1);
+	}
+
+	@Test
+	public void gamesDoNotShareTheirBoards(){
+		TwixtGame one = new TwixtGame(config, 0);
+		TwixtGame two = new TwixtGame(config, 0);
+		one.applyAction(new EndTurnAction(0, TwixtBoard.cell(5, 5), new int[0]));
+
+		assertEquals(TwixtPiece.LIGHT_PEG, one.getBoard().getPeg(5, 5));
+		assertEquals(TwixtPiece.EMPTY, two.getBoard().getPeg(5, 5));
+		assertEquals(TwixtPiece.LIGHT_PEG, one.getBoardState()[5][5].getPlayerType());
+		assertEquals(TwixtPiece.EMPTY, two.getBoardState()[5][5].getPlayerType());
+		assertEquals(1, one.whoseTurn());
+		assertEquals(0, two.whoseTurn());
+	}
+
+	@Test
+	public void copiesDoNotShareState(){
+		TwixtGame game = new TwixtGame(config, 0);
+		game.applyAction(new EndTurnAction(0, TwixtBoard.cell(5, 5), new int[0]));
+		TwixtGame copy = (TwixtGame)game.getPlayerState(1);
+		assertEquals(game.getBoard(), copy.getBoard());
+		assertEquals(game.getPositionHash(), copy.getPositionHash());
+		assertTrue(copy.getBoardState()[5][5].isThisSet());
+
+		copy.applyAction(new EndTurnAction(1, TwixtBoard.cell(8, 8), new int[0]));
+		assertEquals(TwixtPiece.DARK_PEG, copy.getBoard().getPeg(8, 8));
+		assertEquals(TwixtPiece.EMPTY, game.getBoard().getPeg(8, 8));
+		assertEquals(TwixtPiece.EMPTY, game.getBoardState()[8][8].getPlayerType());
+		assertEquals(1, game.whoseTurn());
+
+		//and the other way around
+		game.applyAction(new EndTurnAction(1, TwixtBoard.cell(9, 9), new int[0]));
+		assertEquals(TwixtPiece.EMPTY, copy.getBoard().getPeg(9, 9));
+		assertFalse(game.getBoard().equals(copy.getBoard()));
+	}
+
+	@Test
+	public void piecesBelongToTheirGame(){
+		TwixtGame game = new TwixtGame(config, 0);
+		TwixtPiece[][] pieces = game.getBoardState();
+		assertEquals(TwixtGame.NUM_PEGS, pieces.length);
+		for(int row = 0; row < pieces.length; ++row){
+			for(int col = 0; col < pieces[row].length; ++col){
+				assertEquals(row, pieces[row][col].getRow());
+				assertEquals(col, pieces[row][col].getCol());
+			}
+		}
+		TwixtGame copy = new TwixtGame(game);
+		assertFalse(pieces[3][3] == copy.getBoardState()[3][3]);
+	}
+
+	@Test
+	public void movesMustBeLegal(){
+		TwixtGame game = new TwixtGame(config, 0);
+		game.applyAction(new EndTurnAction(0, TwixtBoard.cell(5, 5), new int[0]));
+		game.applyAction(new EndTurnAction(1, TwixtBoard.cell(6, 8), new int[0]));
+		int bridge = TwixtBoard.bridgeId(5, 5, 7, 6);
+
+		assertTrue(game.isLegal(new EndTurnAction(0, TwixtBoard.cell(7, 6), new int[]{bridge})));
+		assertTrue("no peg at all", game.isLegal(new EndTurnAction(0, -1, new int[0])));
+		assertFalse("not its turn", game.isLegal(new EndTurnAction(1, TwixtBoard.cell(7, 6), new int[0])));
+		assertFalse("occupied", game.isLegal(new EndTurnAction(0, TwixtBoard.cell(5, 5), new int[0])));
+		assertFalse("the other team's home row", game.isLegal(new EndTurnAction(0, TwixtBoard.cell(0, 5), new int[0])));
+		assertFalse("off the board", game.isLegal(new EndTurnAction(0, TwixtBoard.NUM_CELLS, new int[0])));
+		assertFalse("bad bridge id", game.isLegal(new EndTurnAction(0, TwixtBoard.cell(7, 6), new int[]{-3})));
+		assertFalse("the same bridge twice",
+				game.isLegal(new EndTurnAction(0, TwixtBoard.cell(7, 6), new int[]{bridge, bridge})));
+		assertFalse("bridge to an empty hole", game.isLegal(new EndTurnAction(0, TwixtBoard.cell(7, 7), new int[]{bridge})));
+		assertFalse("twixt in a two player game", game.isLegal(new TwixtAction(0, TwixtBoard.cell(7, 6), new int[0])));
+	}
+
+	@Test
+	public void illegalMovesChangeNothing(){
+		TwixtGame game = new TwixtGame(config, 0);
+		game.applyAction(new EndTurnAction(0, TwixtBoard.cell(5, 5), new int[0]));
+		long hash = game.getPositionHash();
+		game.applyAction(new EndTurnAction(0, TwixtBoard.cell(8, 8), new int[0]));
+		game.applyAction(new EndTurnAction(1, TwixtBoard.cell(5, 5), new int[0]));
+		assertEquals(hash, game.getPositionHash());
+		assertEquals(1, game.whoseTurn());
+	}
+
+	@Test
+	public void onlyThePlayerToMoveMaySurrenderOrQuit(){
+		TwixtGame game = new TwixtGame(config, 0);
+		assertFalse(game.isLegal(new SurrenderAction(1)));
+		assertFalse(game.isLegal(new QuitAction(1)));
+		assertFalse(game.isLegal(new SurrenderAction(7)));
+		assertTrue(game.isLegal(new SurrenderAction(0)));
+		assertTrue(game.isLegal(new QuitAction(0)));
+
+		game.applyAction(new SurrenderAction(1));
+		assertFalse(game.isGameOver());
+		game.applyAction(new SurrenderAction(0));
+		assertTrue(game.isGameOver());
+	}
+}